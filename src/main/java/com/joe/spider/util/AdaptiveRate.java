@@ -0,0 +1,184 @@
+package com.joe.spider.util;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 基于AIMD（加性增、乘性减）的host抓取间隔自适应控制
+ * <p>
+ * host健康时每次请求成功后抓取间隔减少固定步长（速率加性增加），直到配置的抓取间隔（下限）；请求失败、5xx、429、响应延迟
+ * 明显高于平均延迟时抓取间隔乘以退避系数（速率乘性减少），直到上限；429和503响应带有Retry-After时，在指定时间之前不再
+ * 抓取该host。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 20:10
+ */
+final class AdaptiveRate {
+
+    /**
+     * 平均延迟的平滑系数
+     */
+    private static final double EWMA_ALPHA      = 0.2;
+
+    /**
+     * 判断延迟异常前至少需要的样本数
+     */
+    private static final int    MIN_SAMPLES     = 5;
+
+    /**
+     * 初始抓取间隔，单位毫秒
+     */
+    private final long          initialInterval;
+
+    /**
+     * 每次成功后减少的抓取间隔，单位毫秒
+     */
+    private final long          step;
+
+    /**
+     * 退避系数
+     */
+    private final double        backoff;
+
+    /**
+     * 抓取间隔上限，单位毫秒
+     */
+    private final long          maxInterval;
+
+    /**
+     * 响应延迟超过平均延迟的多少倍时认为host变慢
+     */
+    private final double        slowFactor;
+
+    AdaptiveRate(SpiderConfig config) {
+        this.initialInterval = Math.max(config.getAdaptiveInitialInterval(), 0);
+        this.step = Math.max(config.getAdaptiveStep(), 1);
+        this.backoff = Math.max(config.getAdaptiveBackoff(), 1);
+        this.maxInterval = Math.max(config.getAdaptiveMaxInterval(), 1);
+        this.slowFactor = config.getSlowLatencyFactor();
+    }
+
+    /**
+     * 获取host当前的抓取间隔
+     *
+     * @param state host状态
+     * @param floor 抓取间隔下限
+     * @return 抓取间隔，单位毫秒
+     */
+    long interval(State state, long floor) {
+        long interval = state.interval;
+        return Math.max(interval < 0 ? initialInterval : interval, floor);
+    }
+
+    /**
+     * 根据一次请求的结果调整host的抓取间隔
+     *
+     * @param state      host状态
+     * @param floor      抓取间隔下限
+     * @param start      请求开始时间
+     * @param status     响应状态码，请求失败（没有响应）时为0
+     * @param retryAfter Retry-After响应头，没有时为null
+     */
+    void update(State state, long floor, long start, int status, String retryAfter) {
+        long now = System.currentTimeMillis();
+        long latency = now - start;
+        synchronized (state) {
+            long interval = interval(state, floor);
+            boolean degraded;
+            if (status == 429 || status == 503) {
+                degraded = true;
+                long delay = parseRetryAfter(retryAfter, now);
+                if (delay > 0) {
+                    state.blockedUntil = Math.max(state.blockedUntil, now + delay);
+                }
+            } else if (status == 0 || status >= 500) {
+                degraded = true;
+            } else {
+                degraded = slowFactor > 0 && state.samples >= MIN_SAMPLES
+                           && latency > state.latency * slowFactor;
+            }
+
+            if (degraded) {
+                state.interval = Math.min(maxInterval,
+                    (long) Math.ceil(Math.max(interval, step) * backoff));
+                state.lastBackoff = now;
+            } else if (start >= state.lastBackoff) {
+                // 退避之前发出的请求的成功结果不能说明退避之后host已经恢复
+                state.interval = Math.max(interval - step, floor);
+            }
+
+            // 失败的请求没有有效的延迟
+            if (status != 0) {
+                state.latency = state.samples == 0 ? latency
+                    : state.latency + EWMA_ALPHA * (latency - state.latency);
+                state.samples++;
+            }
+        }
+    }
+
+    /**
+     * 解析Retry-After，支持秒数和HTTP日期两种格式
+     *
+     * @param retryAfter Retry-After响应头
+     * @param now        当前时间
+     * @return 需要等待的时间，单位毫秒，无法解析时返回0
+     */
+    static long parseRetryAfter(String retryAfter, long now) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.min(Math.max(Long.parseLong(value), 0), Long.MAX_VALUE / 2000) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                long time = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+                return Math.max(time - now, 0);
+            } catch (DateTimeParseException ex) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 单个host的自适应状态
+     */
+    static final class State {
+
+        /**
+         * 当前抓取间隔，小于0表示还没有请求结果
+         */
+        private volatile long interval     = -1;
+
+        /**
+         * 在该时间之前不再抓取（Retry-After）
+         */
+        private volatile long blockedUntil;
+
+        /**
+         * 上次退避的时间
+         */
+        private long          lastBackoff;
+
+        /**
+         * 平均延迟，单位毫秒
+         */
+        private double        latency;
+
+        /**
+         * 延迟样本数
+         */
+        private long          samples;
+
+        /**
+         * 获取在该时间之前不再抓取的时间
+         *
+         * @return 时间，单位毫秒
+         */
+        long getBlockedUntil() {
+            return blockedUntil;
+        }
+    }
+}
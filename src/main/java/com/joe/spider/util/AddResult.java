@@ -0,0 +1,54 @@
+package com.joe.spider.util;
+
+/**
+ * 添加爬虫任务的结果
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 17:10
+ */
+public enum AddResult {
+
+    /**
+     * 添加成功
+     */
+    ADDED,
+
+    /**
+     * 添加成功，任务写入了磁盘任务队列
+     */
+    SPILLED,
+
+    /**
+     * URL已经添加过（开启URL去重时），未添加
+     */
+    DUPLICATE,
+
+    /**
+     * 爬虫已经关闭，未添加
+     */
+    SHUTDOWN,
+
+    /**
+     * URL错误（批量添加时），未添加
+     */
+    INVALID,
+
+    /**
+     * 等待执行的任务数达到上限，未添加
+     */
+    REJECTED,
+
+    /**
+     * URL被robots.txt禁止（开启robots.txt时），未添加
+     */
+    DISALLOWED;
+
+    /**
+     * 是否添加成功
+     *
+     * @return true表示添加成功
+     */
+    public boolean isSuccess() {
+        return this == ADDED || this == SPILLED;
+    }
+}
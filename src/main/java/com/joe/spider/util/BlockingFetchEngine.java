@@ -0,0 +1,234 @@
+package com.joe.spider.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.joe.spider.util.cache.CacheEntry;
+import com.joe.spider.util.cache.ResponseCache;
+import com.joe.spider.util.http.BufferPool;
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.FileTransfer;
+import com.joe.spider.util.http.HttpHeaders;
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.http.StreamHttpClient;
+import com.joe.spider.util.http.StreamResponse;
+import com.joe.spider.util.link.LinkExtractor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 阻塞抓取引擎：使用流式客户端在线程池（或者虚拟线程）中执行整个任务，包括请求、读取响应体和回调；阻塞模式、虚拟线程
+ * 模式以及NIO模式下NIO客户端不支持的URL使用
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 15:20
+ */
+@Slf4j
+final class BlockingFetchEngine extends FetchEngine {
+
+    /**
+     * 流式客户端
+     */
+    private final StreamHttpClient streamClient;
+
+    /**
+     * 下载任务使用的直接内存缓冲池
+     */
+    private final BufferPool       bufferPool;
+
+    /**
+     * 下载任务计算文件校验和使用的算法
+     */
+    private final String           checksumAlgorithm;
+
+    BlockingFetchEngine(Spider spider, HostGate hostGate, SpiderStats stats,
+                        ResponseCache responseCache, StreamHttpClient streamClient,
+                        String checksumAlgorithm) {
+        super(spider, hostGate, stats, responseCache);
+        this.streamClient = streamClient;
+        this.bufferPool = new BufferPool(64 * 1024, 64);
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
+    /**
+     * 阻塞抓取，在线程池中执行
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 回调
+     */
+    @Override
+    void fetch(SpiderTask task, String url, Callback callback) {
+        Set<String> links = new LinkedHashSet<>();
+        LinkExtractor extractor = spider.followsLinks(task.record) ? new LinkExtractor(links::add)
+            : null;
+        String result;
+        try {
+            result = fetchBody(task, url, extractor);
+        } catch (Exception e) {
+            spider.requestFailed(task, e);
+            return;
+        }
+        if (result == null) {
+            return;
+        }
+        log.debug("请求[{}]结果为：{}", url, result);
+        String body = result;
+        spider.execCallback(task, callback, () -> {
+            spider.followLinks(task, links);
+            invoke(url, callback, body);
+        });
+    }
+
+    /**
+     * 阻塞抓取响应体，使用流式客户端发送请求，响应体大小受maxBodySize限制，按照响应头中的字符集解码；需要重试的状态码重新
+     * 放入调度器，其他大于等于400的状态码失败；开启响应缓存时发送条件请求。链接提取器不为null时在读取响应体的同时逐段扫描
+     *
+     * @param task      任务
+     * @param url       要爬取的URL
+     * @param extractor 链接提取器，不需要跟进链接时为null
+     * @return 响应体，已经重新放入调度器重试时返回null
+     * @throws IOException IO异常
+     */
+    private String fetchBody(SpiderTask task, String url,
+                             LinkExtractor extractor) throws IOException {
+        CacheEntry cached = responseCache == null ? null : responseCache.get(url);
+        Map<String, String> headers = cached == null ? Collections.emptyMap()
+            : cached.conditionalHeaders();
+        String result;
+        try (StreamResponse response = execute(task, url, headers)) {
+            int status = response.getStatus();
+            String retryAfter = response.getHeader("Retry-After");
+            if (spider.retry(task, status, retryAfter)) {
+                return null;
+            }
+            if (status >= 400) {
+                throw statusError(url, status, retryAfter);
+            }
+            byte[] body = readBody(url, response, extractor);
+            stats.bytes.add(body.length);
+            result = cacheResponse(url, cached, status, response.getHeaders(), body, extractor);
+        }
+        // 发送请求期间缓存被淘汰，重新发起请求
+        return result == null ? fetchBody(task, url, extractor) : result;
+    }
+
+    /**
+     * 读取剩余的全部响应体，链接提取器不为null时将读到的每一段交给链接提取器扫描，不需要先解码整个响应体
+     *
+     * @param url       页面的URL
+     * @param response  响应
+     * @param extractor 链接提取器，不需要跟进链接时为null
+     * @return 响应体
+     * @throws IOException IO异常
+     */
+    private static byte[] readBody(String url, StreamResponse response,
+                                   LinkExtractor extractor) throws IOException {
+        if (!startPage(extractor, url,
+            HttpHeaders.charset(response.getHeaders(), StandardCharsets.UTF_8))) {
+            return response.readAsBytes();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream body = response.getBody();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = body.read(buffer)) >= 0) {
+            extractor.feed(buffer, 0, len);
+            out.write(buffer, 0, len);
+        }
+        extractor.finish();
+        return out.toByteArray();
+    }
+
+    /**
+     * 阻塞流式抓取，在线程池中执行
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 流式回调
+     */
+    @Override
+    void fetchStream(SpiderTask task, String url, StreamCallback callback) {
+        StreamResponse response;
+        try {
+            response = execute(task, url, Collections.emptyMap());
+        } catch (Exception e) {
+            spider.requestFailed(task, e);
+            return;
+        }
+        try (StreamResponse closeable = response) {
+            log.debug("请求[{}]响应状态为：{}", url, response.getStatus());
+            if (!spider.retry(task, response.getStatus(), response.getHeader("Retry-After"))) {
+                spider.execCallback(callback, closeable);
+            }
+        } catch (Exception e) {
+            log.error("请求URL[{}]失败", url, e);
+            Spider.notifyFailure(callback, e);
+        }
+    }
+
+    /**
+     * 阻塞下载，在线程池中执行
+     *
+     * @param task     任务
+     * @param url      要下载的URL
+     * @param target   目标文件
+     * @param callback 下载回调
+     */
+    @Override
+    void download(SpiderTask task, String url, Path target, DownloadCallback callback) {
+        DownloadResult result;
+        try (StreamResponse response = execute(task, url, Collections.emptyMap())) {
+            int status = response.getStatus();
+            if (status < 200 || status >= 300) {
+                throw new HttpStatusException("下载[" + url + "]失败，状态码：" + status, status,
+                    response.getHeader("Retry-After"));
+            }
+            FileTransfer transfer = new FileTransfer(target, checksumAlgorithm);
+            try {
+                transfer.transferFrom(response.getChannel(), bufferPool);
+                result = transfer.finish();
+            } catch (IOException | RuntimeException e) {
+                transfer.abort();
+                throw e;
+            }
+        } catch (Exception e) {
+            spider.requestFailed(task, e);
+            return;
+        }
+        stats.bytes.add(result.getSize());
+        log.debug("下载[{}]结果为：{}", url, result);
+        DownloadResult downloaded = result;
+        spider.execCallback(task, callback, () -> invoke(url, callback, downloaded));
+    }
+
+    /**
+     * 使用流式客户端发起携带额外请求头的请求，并记录请求结果
+     *
+     * @param task    任务
+     * @param url     要爬取的URL
+     * @param headers 额外的请求头
+     * @return 响应
+     * @throws IOException IO异常
+     */
+    private StreamResponse execute(SpiderTask task, String url,
+                                   Map<String, String> headers) throws IOException {
+        long start = System.currentTimeMillis();
+        StreamResponse response;
+        try {
+            response = streamClient.execute(url, headers);
+        } catch (IOException | RuntimeException e) {
+            hostGate.feedback(task, start, e);
+            throw e;
+        }
+        hostGate.feedback(task, start, response.getStatus(), response.getHeader("Retry-After"));
+        return response;
+    }
+}
@@ -0,0 +1,211 @@
+package com.joe.spider.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回调注册表，为每个回调实例（按照引用）分配一个ID，用于任务写入磁盘时代替回调本身
+ * <p>
+ * 每次注册对应磁盘中的一条记录，注册表为每个回调记录引用计数，记录读回内存时通过{@link #take(int)}减少引用计数，计数为0
+ * 时移除回调，因此注册表的大小只与磁盘中的记录引用的回调实例数有关，每个任务使用单独的lambda作为回调时也不会无限增长；
+ * 命名回调一直保留。注册和移除只锁定同一个回调对应的桶，不同回调之间不存在竞争。
+ * <p>
+ * 回调ID只在一次运行中有效并且不会被复用，需要写入检查点的回调必须命名，恢复时根据名字重新找到回调。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 18:20
+ */
+final class CallbackRegistry {
+
+    /**
+     * 回调（按照引用）到注册项的映射
+     */
+    private final Map<Identity, Entry> ids     = new ConcurrentHashMap<>();
+
+    /**
+     * ID到注册项的映射
+     */
+    private final Map<Integer, Entry>  entries = new ConcurrentHashMap<>();
+
+    /**
+     * 命名回调的ID到名字的映射
+     */
+    private final Map<Integer, String> names   = new ConcurrentHashMap<>();
+
+    /**
+     * 名字到命名回调的映射
+     */
+    private final Map<String, Object>  named   = new ConcurrentHashMap<>();
+
+    /**
+     * 下一个回调ID
+     */
+    private final AtomicInteger        nextId  = new AtomicInteger();
+
+    /**
+     * 注册回调并增加一次引用计数，已经注册过时返回原来的ID；每次注册都需要对应一次{@link #take(int)}
+     *
+     * @param callback 回调
+     * @return 回调ID
+     */
+    int register(Object callback) {
+        return ids.compute(new Identity(callback), (key, entry) -> {
+            if (entry == null) {
+                entry = new Entry(nextId.getAndIncrement(), callback);
+                entries.put(entry.id, entry);
+            }
+            entry.refs++;
+            return entry;
+        }).id;
+    }
+
+    /**
+     * 注册命名回调，命名回调一直保留，可以写入检查点，恢复时根据名字找到回调
+     *
+     * @param name     回调名
+     * @param callback 回调
+     */
+    void register(String name, Object callback) {
+        Entry registered = ids.compute(new Identity(callback), (key, entry) -> {
+            if (entry == null) {
+                entry = new Entry(nextId.getAndIncrement(), callback);
+                entries.put(entry.id, entry);
+            }
+            entry.pinned = true;
+            return entry;
+        });
+        names.put(registered.id, name);
+        named.put(name, callback);
+    }
+
+    /**
+     * 获取命名回调的ID，不增加引用计数，用于写入检查点
+     *
+     * @param callback 回调
+     * @return 回调ID，不是命名回调时返回-1
+     */
+    int named(Object callback) {
+        Entry entry = ids.get(new Identity(callback));
+        return entry == null || !entry.pinned ? -1 : entry.id;
+    }
+
+    /**
+     * 获取回调并减少一次引用计数，磁盘中的记录读回内存时调用，计数为0时移除回调
+     *
+     * @param id 回调ID
+     * @return 回调，不存在时返回null
+     */
+    Object take(int id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        ids.computeIfPresent(new Identity(entry.callback), (key, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            if (--current.refs <= 0 && !current.pinned) {
+                entries.remove(current.id);
+                return null;
+            }
+            return current;
+        });
+        return entry.callback;
+    }
+
+    /**
+     * 获取所有命名回调的ID和名字
+     *
+     * @return ID到名字的映射
+     */
+    Map<Integer, String> names() {
+        return new HashMap<>(names);
+    }
+
+    /**
+     * 根据名字获取命名回调
+     *
+     * @param name 回调名
+     * @return 回调，不存在时返回null
+     */
+    Object get(String name) {
+        return named.get(name);
+    }
+
+    /**
+     * 获取注册的回调数，包括命名回调
+     *
+     * @return 回调数
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 清空注册表，磁盘中的记录全部丢弃后调用
+     */
+    void clear() {
+        ids.clear();
+        entries.clear();
+        names.clear();
+        named.clear();
+    }
+
+    /**
+     * 注册项
+     */
+    private static final class Entry {
+
+        /**
+         * 回调ID
+         */
+        private final int    id;
+
+        /**
+         * 回调
+         */
+        private final Object callback;
+
+        /**
+         * 引用计数，只在持有对应桶的锁时修改
+         */
+        private int          refs;
+
+        /**
+         * 是否是命名回调，命名回调不会被移除
+         */
+        private boolean      pinned;
+
+        Entry(int id, Object callback) {
+            this.id = id;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * 按照引用比较的回调，回调自己实现的equals不影响注册
+     */
+    private static final class Identity {
+
+        /**
+         * 回调
+         */
+        private final Object callback;
+
+        Identity(Object callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity && ((Identity) o).callback == callback;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(callback);
+        }
+    }
+}
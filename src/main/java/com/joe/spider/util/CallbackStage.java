@@ -0,0 +1,201 @@
+package com.joe.spider.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.joe.spider.util.metrics.Histogram;
+import com.joe.spider.util.metrics.HistogramSnapshot;
+
+/**
+ * 回调阶段：抓取完成后回调交给独立的线程池执行，抓取线程（或者IO线程）不会被慢回调占用
+ * <p>
+ * 抓取阶段与回调阶段之间的交接队列是有界的：队列中的名额用完后，抓取线程交接时等待，主线程也暂停分发新的任务，回调阶段
+ * 的积压由此反压到抓取阶段。IO线程不能等待，因此NIO任务在分发时就由主线程预留名额，请求完成后直接使用预留的名额交接，
+ * 请求失败时归还。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 03:50
+ */
+final class CallbackStage {
+
+    /**
+     * 回调线程池
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 交接队列的容量
+     */
+    private final int                capacity;
+
+    /**
+     * 已经占用的名额，包括交接队列中等待执行的回调以及已经预留的名额
+     */
+    private final AtomicInteger      used;
+
+    /**
+     * 回调在交接队列中的等待时间，单位毫秒
+     */
+    private final Histogram          queueTime;
+
+    /**
+     * 抓取阶段因为交接队列已满而等待的次数
+     */
+    private final LongAdder          stalls;
+
+    /**
+     * 是否已经立即关闭，关闭后等待的线程直接返回
+     */
+    private volatile boolean         closed;
+
+    /**
+     * 构建回调阶段
+     *
+     * @param threads  回调线程数
+     * @param capacity 交接队列的容量
+     */
+    CallbackStage(int threads, int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        this.used = new AtomicInteger();
+        this.queueTime = new Histogram(TimeUnit.DAYS.toMillis(1));
+        this.stalls = new LongAdder();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> new Thread(r, "spider-callback-" + index.getAndIncrement()));
+    }
+
+    /**
+     * 交接回调，交接队列已满时等待，在抓取线程中调用
+     *
+     * @param callback 回调
+     * @throws InterruptedException 线程中断
+     * @throws RejectedExecutionException 回调阶段已经关闭
+     */
+    void put(Runnable callback) throws InterruptedException {
+        reserve();
+        execute(callback);
+    }
+
+    /**
+     * 预留一个名额，交接队列已满时等待，立即关闭时不再等待
+     *
+     * @throws InterruptedException 线程中断
+     */
+    void reserve() throws InterruptedException {
+        boolean stalled = false;
+        while (true) {
+            int current = used.get();
+            if (current >= capacity && !closed) {
+                if (!stalled) {
+                    stalls.increment();
+                    stalled = true;
+                }
+                synchronized (this) {
+                    while (used.get() >= capacity && !closed) {
+                        wait();
+                    }
+                }
+            } else if (used.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 使用预留的名额交接回调，不会等待
+     *
+     * @param callback 回调
+     * @throws RejectedExecutionException 回调阶段已经关闭，此时名额已经归还
+     */
+    void execute(Runnable callback) {
+        long start = System.currentTimeMillis();
+        try {
+            executor.execute(() -> {
+                release();
+                queueTime.record(System.currentTimeMillis() - start);
+                callback.run();
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还一个名额，交接队列由满变为不满时唤醒等待的线程
+     */
+    void release() {
+        if (used.getAndDecrement() == capacity) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 交接队列已满时等待，立即关闭时直接返回
+     *
+     * @throws InterruptedException 线程中断
+     */
+    void awaitNotFull() throws InterruptedException {
+        if (used.get() < capacity) {
+            return;
+        }
+        stalls.increment();
+        synchronized (this) {
+            while (used.get() >= capacity && !closed) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * 获取交接队列中等待执行的回调数
+     *
+     * @return 等待执行的回调数
+     */
+    int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 获取抓取阶段因为交接队列已满而等待的次数
+     *
+     * @return 等待次数
+     */
+    long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * 获取回调在交接队列中的等待时间的分布
+     *
+     * @return 等待时间，单位毫秒
+     */
+    HistogramSnapshot queueTime() {
+        return queueTime.snapshot();
+    }
+
+    /**
+     * 关闭，已经交接的回调仍然会执行
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 立即关闭，交接队列中的回调不再执行，等待的线程直接返回
+     */
+    void shutdownNow() {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        executor.shutdownNow();
+    }
+}
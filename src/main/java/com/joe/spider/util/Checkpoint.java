@@ -0,0 +1,387 @@
+package com.joe.spider.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.joe.spider.util.frontier.DiskFrontier;
+import com.joe.spider.util.frontier.ScalableBloomFilter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 检查点文件的读写：主线程复制检查点快照，交给单独的写入线程写入文件，先写入临时文件再原子替换原文件；恢复时逐项读取
+ * 检查点文件，交给{@link Restorer}重建爬虫状态
+ * <p>
+ * 文件格式为：文件头、命名回调、host最后执行时间、host抓取间隔、待执行任务（时间轮、已分发未完成、磁盘队列）、去重过滤器；
+ * 变长部分每项前写入true，结尾写入false
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 14:30
+ */
+@Slf4j
+final class Checkpoint {
+
+    /**
+     * 检查点文件头
+     */
+    private static final int      MAGIC          = 0x53504452;
+
+    /**
+     * 检查点文件格式版本
+     */
+    private static final int      VERSION        = 1;
+
+    /**
+     * 检查点文件
+     */
+    private final Path            file;
+
+    /**
+     * 检查点写入间隔，单位毫秒
+     */
+    private final long            interval;
+
+    /**
+     * 运行指标
+     */
+    private final SpiderStats     stats;
+
+    /**
+     * 写入检查点文件的线程
+     */
+    private final ExecutorService writer;
+
+    /**
+     * 最近一次交给写入线程的检查点，只有主线程访问
+     */
+    private Future<?>             pending;
+
+    /**
+     * 下次写入检查点的时间，只有主线程访问
+     */
+    private long                  nextCheckpoint;
+
+    /**
+     * 创建检查点，第一个检查点在一个写入间隔后写入
+     *
+     * @param file     检查点文件
+     * @param interval 检查点写入间隔，单位毫秒
+     * @param stats    运行指标
+     */
+    Checkpoint(Path file, long interval, SpiderStats stats) {
+        this.file = file;
+        this.interval = Math.max(interval, 1);
+        this.stats = stats;
+        this.writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "spider-checkpoint"));
+        this.nextCheckpoint = System.currentTimeMillis() + this.interval;
+    }
+
+    /**
+     * 获取下次写入检查点的时间
+     *
+     * @return 下次写入检查点的时间
+     */
+    long getNextCheckpoint() {
+        return nextCheckpoint;
+    }
+
+    /**
+     * 到达检查点时间时复制检查点快照交给写入线程；上次的检查点还未写入完成时跳过本次检查点，只在主线程中调用
+     *
+     * @param snapshots 复制检查点快照
+     */
+    void checkpointIfDue(Supplier<Snapshot> snapshots) {
+        if (System.currentTimeMillis() < nextCheckpoint) {
+            return;
+        }
+        Future<?> pending = this.pending;
+        if (pending == null || pending.isDone()) {
+            Snapshot snapshot = snapshots.get();
+            this.pending = writer.submit(() -> write(snapshot));
+        } else {
+            log.debug("检查点[{}]还未写入完成，跳过本次检查点", file);
+        }
+        nextCheckpoint = System.currentTimeMillis() + interval;
+    }
+
+    /**
+     * 写入最后一个检查点，等待写入线程中的检查点写入完成后在主线程中复制并写入，主线程退出前调用
+     *
+     * @param snapshots 复制检查点快照
+     */
+    void finalCheckpoint(Supplier<Snapshot> snapshots) {
+        writer.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        write(snapshots.get());
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 关闭写入线程，爬虫启动失败时调用
+     */
+    void shutdown() {
+        writer.shutdown();
+    }
+
+    /**
+     * 写入检查点，先写入临时文件再原子替换原文件；在写入线程中调用，主线程退出前的最后一个检查点在主线程中调用，同一时间只有
+     * 一个线程写入
+     *
+     * @param snapshot 检查点快照
+     */
+    private void write(Snapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+                writeTo(out, snapshot);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            long elapsed = System.currentTimeMillis() - start;
+            stats.checkpointWriteTime.record(elapsed);
+            log.debug("写入检查点[{}]完成，耗时{}ms", file, elapsed);
+        } catch (IOException | RuntimeException e) {
+            log.error("写入检查点[{}]失败", file, e);
+        } finally {
+            if (snapshot.seenUrls != null) {
+                snapshot.seenUrls.close();
+            }
+        }
+    }
+
+    /**
+     * 写入检查点内容
+     *
+     * @param out      输出
+     * @param snapshot 检查点快照
+     * @throws IOException IO异常
+     */
+    private static void writeTo(DataOutputStream out, Snapshot snapshot) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(snapshot.names.size());
+        for (Map.Entry<Integer, String> entry : snapshot.names.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+
+        for (Map.Entry<String, Long> entry : snapshot.lastExecTimes.entrySet()) {
+            out.writeBoolean(true);
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeBoolean(false);
+        for (Map.Entry<String, Long> entry : snapshot.intervals.entrySet()) {
+            out.writeBoolean(true);
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeBoolean(false);
+
+        for (int i = 0; i < snapshot.tasks.size(); i++) {
+            writeTask(out, snapshot.hosts.get(i), snapshot.tasks.get(i));
+        }
+        if (snapshot.frontier != null) {
+            snapshot.frontier.forEach((host, data) -> writeTask(out, host, data));
+        }
+        out.writeBoolean(false);
+
+        out.writeBoolean(snapshot.seenUrls != null);
+        if (snapshot.seenUrls != null) {
+            snapshot.seenUrls.writeTo(out);
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, String host,
+                                  byte[] data) throws IOException {
+        out.writeBoolean(true);
+        out.writeUTF(host);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * 读取检查点文件，在主线程启动前调用；找不到回调的任务被丢弃
+     *
+     * @param file     检查点文件
+     * @param restorer 重建爬虫状态
+     */
+    static void restore(Path file, Restorer restorer) {
+        if (!Files.exists(file)) {
+            log.info("检查点[{}]不存在，不需要恢复", file);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new SpiderException("检查点文件格式错误：" + file);
+            }
+
+            // 检查点中的回调ID到本次运行中回调的映射
+            Map<Integer, Object> restored = new HashMap<>();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int id = in.readInt();
+                String name = in.readUTF();
+                Object callback = restorer.callback(name);
+                if (callback == null) {
+                    log.warn("检查点中的回调[{}]不存在，对应的任务将被丢弃", name);
+                } else {
+                    restored.put(id, callback);
+                }
+            }
+
+            while (in.readBoolean()) {
+                restorer.lastExecTime(in.readUTF(), in.readLong());
+            }
+            while (in.readBoolean()) {
+                restorer.interval(in.readUTF(), in.readLong());
+            }
+
+            int count = 0;
+            int dropped = 0;
+            while (in.readBoolean()) {
+                String host = in.readUTF();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                TaskRecord record = TaskRecord.decode(data, restored::get);
+                if (!record.isValid()) {
+                    dropped++;
+                    continue;
+                }
+                restorer.task(host, record);
+                count++;
+            }
+
+            if (in.readBoolean()) {
+                restorer.seenUrls(in);
+            }
+            log.info("从检查点[{}]恢复了{}个任务，丢弃了{}个找不到回调的任务", file, count, dropped);
+        } catch (IOException e) {
+            throw new SpiderException("读取检查点失败：" + file, e);
+        }
+    }
+
+    /**
+     * 从检查点中读取到的状态的处理，由爬虫实现
+     */
+    interface Restorer {
+
+        /**
+         * 根据名字找回本次运行中的回调
+         *
+         * @param name 回调的名字
+         * @return 回调，不存在时返回null
+         */
+        Object callback(String name);
+
+        /**
+         * 恢复host最后执行时间
+         *
+         * @param host         host
+         * @param lastExecTime 最后执行时间
+         */
+        void lastExecTime(String host, long lastExecTime);
+
+        /**
+         * 恢复host抓取间隔
+         *
+         * @param host     host
+         * @param interval 抓取间隔，单位毫秒
+         */
+        void interval(String host, long interval);
+
+        /**
+         * 恢复一个待执行的任务
+         *
+         * @param host   URL对应的host
+         * @param record 任务
+         * @throws IOException URL错误或者写入磁盘任务队列失败
+         */
+        void task(String host, TaskRecord record) throws IOException;
+
+        /**
+         * 恢复去重过滤器，检查点中有去重过滤器时调用
+         *
+         * @param in 输入，位于去重过滤器的开始
+         * @throws IOException IO异常
+         */
+        void seenUrls(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * 检查点快照，由主线程复制，交给写入线程写入文件
+     */
+    static final class Snapshot {
+
+        /**
+         * 命名回调，key为回调ID
+         */
+        Map<Integer, String>        names;
+
+        /**
+         * host最后执行时间
+         */
+        Map<String, Long>           lastExecTimes;
+
+        /**
+         * host抓取间隔
+         */
+        Map<String, Long>           intervals;
+
+        /**
+         * 内存中待执行任务的host，与tasks一一对应
+         */
+        List<String>                hosts;
+
+        /**
+         * 内存中待执行任务的编码
+         */
+        List<byte[]>                tasks;
+
+        /**
+         * 磁盘任务队列的快照，未开启磁盘任务队列时为null
+         */
+        DiskFrontier.Snapshot       frontier;
+
+        /**
+         * 去重过滤器的快照，未开启去重时为null
+         */
+        ScalableBloomFilter.Capture seenUrls;
+    }
+}
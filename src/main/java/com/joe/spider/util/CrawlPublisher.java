@@ -0,0 +1,253 @@
+package com.joe.spider.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.joe.spider.util.flow.Publisher;
+import com.joe.spider.util.flow.Subscriber;
+import com.joe.spider.util.flow.Subscription;
+import com.joe.utils.common.Assert;
+
+/**
+ * 由订阅者的请求驱动抓取的发布者，通过{@link Spider#publisher()}创建
+ * <p>
+ * 通过{@link #offer(String)}添加的URL先在发布者中排队，只有订阅者还有未满足的请求时才提交给爬虫抓取：已经提交还未发布的
+ * 结果数（抓取中的加上等待发布的）不会超过订阅者未满足的请求数，下游处理慢时爬虫也不会继续抓取，内存中只有排队的URL，
+ * 不会堆积响应体。抓取仍然遵守爬虫的抓取间隔、robots.txt等限制；抓取失败、URL重复等情况也作为一条结果发布，不会结束订阅。
+ * <p>
+ * 只支持一个订阅者；调用{@link #complete()}之后排队的URL全部抓取并发布完毕时调用订阅者的onComplete。订阅者的方法在请求
+ * 数据的线程或者爬虫执行回调的线程中串行调用，订阅者处理慢时会占用爬虫的回调线程，需要的话可以在订阅者中切换线程。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 04:30
+ */
+public final class CrawlPublisher implements Publisher<FetchResult> {
+
+    /**
+     * 爬虫
+     */
+    private final Spider                             spider;
+
+    /**
+     * 排队的URL
+     */
+    private final Queue<String>                      pending;
+
+    /**
+     * 抓取完成等待发布的结果
+     */
+    private final Queue<FetchResult>                 ready;
+
+    /**
+     * 已经提交还未发布的结果数，包括抓取中的和等待发布的
+     */
+    private final AtomicInteger                      outstanding;
+
+    /**
+     * 订阅者未满足的请求数，{@link Long#MAX_VALUE}表示不限制
+     */
+    private final AtomicLong                         requested;
+
+    /**
+     * 发布循环的进入次数，保证订阅者的方法串行调用
+     */
+    private final AtomicInteger                      wip;
+
+    /**
+     * 是否已经有订阅者
+     */
+    private final AtomicBoolean                      subscribed;
+
+    /**
+     * 订阅者，onSubscribe调用完毕后设置
+     */
+    private volatile Subscriber<? super FetchResult> subscriber;
+
+    /**
+     * 是否已经不再添加URL
+     */
+    private volatile boolean                         completed;
+
+    /**
+     * 是否已经取消订阅
+     */
+    private volatile boolean                         cancelled;
+
+    /**
+     * 需要通知订阅者的异常，例如请求数不合法
+     */
+    private volatile Throwable                       error;
+
+    /**
+     * 是否已经调用订阅者的onComplete或者onError，只在发布循环中访问
+     */
+    private boolean                                  done;
+
+    CrawlPublisher(Spider spider) {
+        this.spider = spider;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.ready = new ConcurrentLinkedQueue<>();
+        this.outstanding = new AtomicInteger();
+        this.requested = new AtomicLong();
+        this.wip = new AtomicInteger();
+        this.subscribed = new AtomicBoolean();
+    }
+
+    /**
+     * 添加要抓取的URL，订阅者有未满足的请求时才会提交给爬虫
+     *
+     * @param url 要抓取的URL
+     * @return 调用{@link #complete()}之后或者订阅取消之后返回false，URL不会被抓取
+     */
+    public boolean offer(String url) {
+        Assert.notBlank(url);
+        if (completed || cancelled) {
+            return false;
+        }
+        pending.add(url);
+        drain();
+        return true;
+    }
+
+    /**
+     * 不再添加URL，已经添加的URL全部抓取并发布完毕后调用订阅者的onComplete
+     */
+    public void complete() {
+        completed = true;
+        drain();
+    }
+
+    /**
+     * 获取排队还未提交给爬虫的URL数
+     *
+     * @return 排队的URL数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super FetchResult> subscriber) {
+        Assert.notNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("CrawlPublisher只支持一个订阅者"));
+            return;
+        }
+        subscriber.onSubscribe(new CrawlSubscription());
+        this.subscriber = subscriber;
+        drain();
+    }
+
+    /**
+     * 提交一个URL，抓取完成（包括失败）后放入等待发布的结果中
+     */
+    private void submit(String url) {
+        outstanding.incrementAndGet();
+        spider.submitTask(url).whenComplete((body, e) -> {
+            ready.add(new FetchResult(url, body, e));
+            drain();
+        });
+    }
+
+    /**
+     * 发布循环：发布等待发布的结果，按照未满足的请求数提交排队的URL，检查是否结束；同一时间只有一个线程执行，其他线程
+     * 进入时只增加进入次数，由正在执行的线程重新循环
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Subscriber<? super FetchResult> subscriber = this.subscriber;
+            if (subscriber != null && !done) {
+                if (cancelled) {
+                    pending.clear();
+                    ready.clear();
+                } else if (error != null) {
+                    done = true;
+                    pending.clear();
+                    ready.clear();
+                    subscriber.onError(error);
+                } else {
+                    emit(subscriber);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Subscriber<? super FetchResult> subscriber) {
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted != demand && !cancelled) {
+            FetchResult result = ready.poll();
+            if (result == null) {
+                break;
+            }
+            outstanding.decrementAndGet();
+            subscriber.onNext(result);
+            emitted++;
+        }
+        if (emitted > 0 && demand != Long.MAX_VALUE) {
+            demand = requested.addAndGet(-emitted);
+        }
+        // 已经提交的结果数达到未满足的请求数后不再提交，由下游的请求速度决定抓取速度
+        while (!cancelled && outstanding.get() < demand) {
+            String url = pending.poll();
+            if (url == null) {
+                break;
+            }
+            submit(url);
+        }
+        if (completed && !cancelled && pending.isEmpty() && outstanding.get() == 0) {
+            done = true;
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * 订阅
+     */
+    private final class CrawlSubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("请求数必须大于0：" + n);
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            // 其他线程正在执行发布循环时drain直接返回，排队的URL在这里丢弃，返回时已经不在排队
+            pending.clear();
+            drain();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.joe.spider.util;
+
+import com.joe.spider.util.http.DownloadResult;
+
+/**
+ * 文件下载回调
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:20
+ */
+public interface DownloadCallback {
+
+    /**
+     * 文件下载完毕后回调该方法
+     *
+     * @param result 下载结果，包含文件路径、大小和校验和
+     */
+    void exec(DownloadResult result);
+}
@@ -0,0 +1,232 @@
+package com.joe.spider.util;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import com.joe.spider.util.cache.CacheEntry;
+import com.joe.spider.util.cache.ResponseCache;
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.HttpHeaders;
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.link.LinkExtractor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 抓取引擎：执行分发的任务，发送请求并处理响应，请求结果交还给爬虫重试、执行回调或者完成任务
+ * <p>
+ * 阻塞引擎在线程池中执行整个任务，NIO引擎在主线程中发起请求，请求完成后在线程池中执行后续处理；两者共用响应缓存和链接
+ * 提取的处理
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 15:10
+ */
+@Slf4j
+abstract class FetchEngine {
+
+    /**
+     * 请求结果交还给爬虫处理
+     */
+    final Spider        spider;
+
+    /**
+     * 请求结果反馈给host关卡
+     */
+    final HostGate      hostGate;
+
+    /**
+     * 运行指标
+     */
+    final SpiderStats   stats;
+
+    /**
+     * HTTP响应缓存，未开启时为null
+     */
+    final ResponseCache responseCache;
+
+    FetchEngine(Spider spider, HostGate hostGate, SpiderStats stats,
+                ResponseCache responseCache) {
+        this.spider = spider;
+        this.hostGate = hostGate;
+        this.stats = stats;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * 创建实际执行的任务，任务分发时才创建，不会在时间轮或者磁盘队列中占用内存
+     *
+     * @param task 任务
+     * @return 实际执行的任务
+     */
+    Runnable newRunner(SpiderTask task) {
+        TaskRecord record = task.record;
+        String url = record.url;
+        switch (record.kind) {
+            case TaskRecord.FETCH:
+                Callback callback = (Callback) record.callback;
+                return () -> fetch(task, url, callback);
+            case TaskRecord.STREAM:
+                StreamCallback streamCallback = (StreamCallback) record.callback;
+                return () -> fetchStream(task, url, streamCallback);
+            case TaskRecord.DOWNLOAD:
+                DownloadCallback downloadCallback = (DownloadCallback) record.callback;
+                Path target = record.target;
+                return () -> download(task, url, target, downloadCallback);
+            default:
+                throw new SpiderException("未知的任务类型：" + record.kind);
+        }
+    }
+
+    /**
+     * 抓取
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 回调
+     */
+    abstract void fetch(SpiderTask task, String url, Callback callback);
+
+    /**
+     * 流式抓取
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 流式回调
+     */
+    abstract void fetchStream(SpiderTask task, String url, StreamCallback callback);
+
+    /**
+     * 下载
+     *
+     * @param task     任务
+     * @param url      要下载的URL
+     * @param target   目标文件
+     * @param callback 下载回调
+     */
+    abstract void download(SpiderTask task, String url, Path target, DownloadCallback callback);
+
+    /**
+     * 普通回调任务得到大于等于400的状态码（已经不需要重试）时的失败原因，404和410时同时删除缓存；回调不会执行，通过future
+     * 提交的任务以该异常失败。需要锁定缓存，不能在IO线程中调用
+     *
+     * @param url        URL
+     * @param status     响应状态码
+     * @param retryAfter Retry-After响应头，没有时为null
+     * @return 失败原因
+     */
+    HttpStatusException statusError(String url, int status, String retryAfter) {
+        if (responseCache != null && (status == 404 || status == 410)) {
+            responseCache.remove(url);
+        }
+        return new HttpStatusException("请求[" + url + "]失败，状态码：" + status, status, retryAfter);
+    }
+
+    /**
+     * 处理开启响应缓存时的响应：304时读取缓存的响应体（交给链接提取器扫描），200时写入缓存；需要读写缓存文件，不能在IO
+     * 线程中调用
+     *
+     * @param url       URL
+     * @param cached    发送请求时使用的缓存记录，没有时为null
+     * @param status    响应状态码
+     * @param headers   响应头
+     * @param body      响应体
+     * @param extractor 链接提取器，不需要跟进链接时为null
+     * @return 响应体，304但是缓存已经被淘汰时返回null
+     */
+    String cacheResponse(String url, CacheEntry cached, int status,
+                         Map<String, List<String>> headers, byte[] body,
+                         LinkExtractor extractor) {
+        if (responseCache != null) {
+            if (status == 304 && cached != null) {
+                byte[] cachedBody = responseCache.revalidate(url, cached, headers);
+                if (cachedBody == null) {
+                    log.debug("URL[{}]的缓存已经被淘汰，重新请求", url);
+                    return null;
+                }
+                stats.cacheHits.increment();
+                scanBody(extractor, url, cached.charset(), cachedBody);
+                return cached.decode(cachedBody);
+            } else if (status == 200) {
+                responseCache.put(url, headers, body);
+            }
+        }
+        return new String(body, HttpHeaders.charset(headers, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 执行普通回调，记录回调的执行时间和失败
+     *
+     * @param url      URL
+     * @param callback 回调
+     * @param body     响应体
+     */
+    void invoke(String url, Callback callback, String body) {
+        long begin = System.nanoTime();
+        try {
+            callback.exec(body);
+        } catch (Exception e) {
+            stats.callbackError(e);
+            log.error("请求URL[{}]回调失败", url, e);
+        } finally {
+            stats.callbackDone(begin);
+        }
+    }
+
+    /**
+     * 执行下载回调，记录回调的执行时间和失败
+     *
+     * @param url      URL
+     * @param callback 下载回调
+     * @param result   下载结果
+     */
+    void invoke(String url, DownloadCallback callback, DownloadResult result) {
+        long begin = System.nanoTime();
+        try {
+            callback.exec(result);
+        } catch (Exception e) {
+            stats.callbackError(e);
+            log.error("下载URL[{}]回调失败", url, e);
+        } finally {
+            stats.callbackDone(begin);
+        }
+    }
+
+    /**
+     * 扫描已经完整读取的响应体中的链接，NIO客户端的响应体以及缓存的响应体使用
+     *
+     * @param extractor 链接提取器，不需要跟进链接时为null
+     * @param url       页面的URL
+     * @param charset   页面的字符集
+     * @param body      响应体
+     */
+    static void scanBody(LinkExtractor extractor, String url, Charset charset, byte[] body) {
+        if (startPage(extractor, url, charset)) {
+            extractor.feed(body, 0, body.length);
+            extractor.finish();
+        }
+    }
+
+    /**
+     * 链接提取器开始处理一个新页面
+     *
+     * @param extractor 链接提取器，可以为null
+     * @param url       页面的URL
+     * @param charset   页面的字符集
+     * @return 可以扫描时返回true，提取器为null、URL不是http或者https、字符集不兼容ASCII时返回false
+     */
+    static boolean startPage(LinkExtractor extractor, String url, Charset charset) {
+        if (extractor == null) {
+            return false;
+        }
+        try {
+            extractor.reset(url, charset);
+            return true;
+        } catch (IllegalArgumentException e) {
+            log.debug("无法提取URL[{}]中的链接", url, e);
+            return false;
+        }
+    }
+}
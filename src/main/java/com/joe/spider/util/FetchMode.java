@@ -0,0 +1,26 @@
+package com.joe.spider.util;
+
+/**
+ * 抓取模式
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 13:10
+ */
+public enum FetchMode {
+
+    /**
+     * 阻塞模式，每个请求在线程池中占用一个线程直到请求结束
+     */
+    BLOCKING,
+
+    /**
+     * NIO模式，请求由少量IO线程多路复用，请求完成后在线程池中执行回调；只支持http协议，其他协议的URL仍然使用阻塞模式
+     */
+    NIO,
+
+    /**
+     * 虚拟线程模式，每个请求及其回调在单独的虚拟线程中阻塞执行，需要JDK21及以上版本；该模式下会忽略配置的线程池，并且使用
+     * {@link SpiderConfig#getVirtualThreadHostConcurrency()}限制同一域名的并发请求数
+     */
+    VIRTUAL_THREAD
+}
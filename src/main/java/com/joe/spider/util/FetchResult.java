@@ -0,0 +1,73 @@
+package com.joe.spider.util;
+
+/**
+ * {@link CrawlPublisher}发布的一个URL的抓取结果，抓取成功时有响应体，失败时有失败原因
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 04:30
+ */
+public class FetchResult {
+
+    /**
+     * 抓取的URL
+     */
+    private final String    url;
+
+    /**
+     * 响应体，失败时为null
+     */
+    private final String    body;
+
+    /**
+     * 失败原因，成功时为null
+     */
+    private final Throwable error;
+
+    public FetchResult(String url, String body, Throwable error) {
+        this.url = url;
+        this.body = body;
+        this.error = error;
+    }
+
+    /**
+     * 获取抓取的URL
+     *
+     * @return URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 获取响应体
+     *
+     * @return 响应体，失败时为null
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * 获取失败原因，添加任务失败时为{@link TaskRejectedException}（例如URL重复），爬虫立即关闭时为
+     * {@link java.util.concurrent.CancellationException}
+     *
+     * @return 失败原因，成功时为null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * 是否抓取成功
+     *
+     * @return true表示成功
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchResult{url=" + url + ", success=" + isSuccess() + ", error=" + error + "}";
+    }
+}
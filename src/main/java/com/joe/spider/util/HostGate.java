@@ -0,0 +1,753 @@
+package com.joe.spider.util;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.joe.spider.util.http.DnsCache;
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.robots.RobotsCache;
+import com.joe.spider.util.robots.RobotsFetcher;
+import com.joe.spider.util.robots.RobotsRules;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * host关卡：保存每个host的时间槽、抓取间隔和最大并发请求数，任务到期后在关卡处按照抓取间隔、最大并发请求数、robots.txt
+ * 以及优先级放行
+ * <p>
+ * 关卡的排队状态只在爬虫主线程中访问；时间槽的预约、抓取间隔和最大并发请求数的读写可以在任意线程中调用
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 14:50
+ */
+@Slf4j
+final class HostGate {
+
+    /**
+     * 关卡放行的任务交给爬虫分发
+     */
+    private final Spider                        spider;
+
+    /**
+     * 运行指标
+     */
+    private final SpiderStats                   stats;
+
+    /**
+     * 默认抓取间隔，单位毫秒
+     */
+    private final long                          interval;
+
+    /**
+     * 是否按照解析后的IP限制抓取间隔和最大并发请求数
+     */
+    private final boolean                       politenessByIp;
+
+    /**
+     * DNS缓存，未开启时为null
+     */
+    private final DnsCache                      dnsCache;
+
+    /**
+     * robots.txt缓存，未开启时为null
+     */
+    private final RobotsCache                   robotsCache;
+
+    /**
+     * 自适应抓取间隔控制，未开启时为null
+     */
+    private final AdaptiveRate                  adaptiveRate;
+
+    /**
+     * host关卡处有不同优先级的任务时的放行顺序
+     */
+    private final Comparator<SpiderTask>        gateOrder;
+
+    /**
+     * 到期后等待DNS解析或者robots.txt获取完成的任务，key是host，只在主线程中访问
+     */
+    private final Map<String, List<SpiderTask>> awaiting;
+
+    /**
+     * 指定域名最后一次的执行时间（已预约的时间槽）
+     */
+    private final Map<String, HostSlot>         lastExecTimes;
+
+    /**
+     * 特定域名对应的抓取时间间隔，单位毫秒
+     */
+    private final Map<String, Long>             intervals;
+
+    /**
+     * robots.txt中声明了Crawl-delay的host的Crawl-delay，单位毫秒
+     */
+    private final Map<String, Long>             crawlDelays;
+
+    /**
+     * Crawl-delay的上限，单位毫秒
+     */
+    private final long                          maxCrawlDelay;
+
+    /**
+     * 同一个host默认的最大并发请求数，小于等于0表示不限制
+     */
+    private final int                           maxInFlight;
+
+    /**
+     * 特定host的最大并发请求数
+     */
+    private final Map<String, Integer>          maxInFlights;
+
+    /**
+     * 没有限制最大并发请求数的host最多保留的空闲连接数
+     */
+    private final int                           maxIdleConnections;
+
+    /**
+     * 是否添加过优先级大于0的任务，之后所有任务都经过host关卡，高优先级的任务在关卡处优先放行
+     */
+    private volatile boolean                    prioritized;
+
+    /**
+     * 到达host关卡的任务数，用于优先级相同的任务按照到达顺序放行，只在主线程中访问
+     */
+    private long                                gateArrivals;
+
+    /**
+     * 到期后在host关卡处等待的任务数，只有主线程修改
+     */
+    private volatile int                        gatedTasks;
+
+    /**
+     * 创建host关卡
+     *
+     * @param spider        关卡放行的任务交给爬虫分发
+     * @param config        爬虫配置
+     * @param maxInFlight   同一个host默认的最大并发请求数，小于等于0表示不限制
+     * @param dnsCache      DNS缓存，未开启时为null
+     * @param robotsFetcher 获取robots.txt，未开启robots.txt时不使用
+     * @param stats         运行指标
+     */
+    HostGate(Spider spider, SpiderConfig config, int maxInFlight, DnsCache dnsCache,
+             RobotsFetcher robotsFetcher, SpiderStats stats) {
+        this.spider = spider;
+        this.stats = stats;
+        this.interval = config.getInterval();
+        this.politenessByIp = config.isPolitenessByIp();
+        this.dnsCache = dnsCache;
+        this.adaptiveRate = config.isAdaptiveRate() ? new AdaptiveRate(config) : null;
+        this.gateOrder = gateOrder(config.getPriorityAging());
+        this.awaiting = politenessByIp || config.isRobotsTxt() ? new HashMap<>() : null;
+        this.lastExecTimes = new ConcurrentHashMap<>();
+        this.intervals = new ConcurrentHashMap<>();
+        this.crawlDelays = new ConcurrentHashMap<>();
+        this.maxCrawlDelay = config.getRobotsMaxCrawlDelay();
+        this.maxInFlight = maxInFlight;
+        this.maxInFlights = new ConcurrentHashMap<>();
+        this.maxIdleConnections = config.getMaxIdleConnectionsPerHost();
+        this.robotsCache = config.isRobotsTxt()
+            ? new RobotsCache(config.getRobotsUserAgent(), config.getRobotsCacheTtl(),
+                config.getRobotsErrorTtl(), Math.max(config.getRobotsCacheSize(), 1),
+                Math.max(config.getRobotsThreads(), 1), robotsFetcher, this::updateCrawlDelay)
+            : null;
+    }
+
+    /**
+     * 到期的任务是否需要经过关卡，不需要时直接分发
+     *
+     * @param host 任务的host
+     * @return true表示需要经过关卡
+     */
+    boolean isGated(String host) {
+        return politenessByIp || robotsCache != null || adaptiveRate != null || prioritized
+               || maxInFlight(host) > 0;
+    }
+
+    /**
+     * 任务到期后经过host关卡，关卡允许时直接分发，否则在关卡处排队，只在主线程中调用
+     * <p>
+     * 时间槽按照配置的抓取间隔预约，关卡在分发时再按照当前的自适应抓取间隔（以及Retry-After）和host的最大并发请求数控制
+     * 分发，因此抓取间隔的调整对已经到期的任务立即生效；排队的任务不占用线程池，到达允许时间后由定时器放行，并发数下降后
+     * 由任务完成时添加的空任务放行
+     * <p>
+     * 按照IP限制时关卡是host解析后的IP，解析到同一个IP的host在同一个关卡处排队；DNS缓存中没有结果时任务先等待解析完成，
+     * 解析失败的host仍然按照host限制
+     * <p>
+     * 优先级大于0的任务不预约时间槽，添加后立即到达关卡，与到期的任务竞争下一个允许分发的时间；关卡处有不同优先级的任务时
+     * 按照老化后的优先级放行
+     * <p>
+     * 开启robots.txt时先检查规则，规则还未获取时任务先等待获取完成，被禁止的任务不再执行
+     *
+     * @param task 任务
+     * @throws InterruptedException 线程中断
+     */
+    void admit(SpiderTask task) throws InterruptedException {
+        if (robotsCache != null && !checkRobots(task)) {
+            return;
+        }
+        String gate = task.host;
+        if (politenessByIp) {
+            gate = resolveGate(task);
+            if (gate == null) {
+                return;
+            }
+        }
+        task.gate = gate;
+        task.arrival = gateArrivals++;
+        HostSlot slot = getHostSlot(gate);
+        if (task.record.priority != 0 && !(slot.waiting instanceof PriorityQueue)) {
+            // 有不同优先级的任务时按照优先级放行，关卡处没有任务后恢复为先进先出
+            PriorityQueue<SpiderTask> waiting = new PriorityQueue<>(gateOrder);
+            if (slot.waiting != null) {
+                waiting.addAll(slot.waiting);
+            }
+            slot.waiting = waiting;
+        } else if (slot.waiting == null) {
+            slot.waiting = new ArrayDeque<>();
+        }
+        slot.waiting.add(task);
+        // 先增加排队数再检查并发数，与任务完成时先减少并发数再检查排队数配合，保证不会漏掉唤醒
+        slot.queued++;
+        gatedTasks++;
+        pump(gate, slot);
+    }
+
+    /**
+     * 获取任务的host解析后的IP，DNS缓存中没有结果时任务等待解析完成，解析完成后添加空任务唤醒主线程重新经过关卡
+     *
+     * @param task 任务
+     * @return 任务对应的关卡，需要等待解析时返回null
+     */
+    private String resolveGate(SpiderTask task) {
+        String host = task.host;
+        CompletableFuture<InetAddress> future = dnsCache.resolve(host);
+        if (future.isDone()) {
+            // 解析失败时按照host限制，请求时会因为解析失败而失败
+            return future.isCompletedExceptionally() ? host : future.join().getHostAddress();
+        }
+        awaitCompletion(task, future);
+        return null;
+    }
+
+    /**
+     * 检查任务的URL是否被robots.txt禁止，规则还未获取时任务等待获取完成，获取完成后添加空任务唤醒主线程重新经过关卡
+     *
+     * @param task 任务
+     * @return true表示允许执行，false表示任务在等待规则或者已经被禁止
+     */
+    private boolean checkRobots(SpiderTask task) {
+        URL url;
+        try {
+            url = new URL(task.record.url);
+        } catch (MalformedURLException e) {
+            // 添加时已经校验过，不会出现
+            return true;
+        }
+        CompletableFuture<RobotsRules> future = robotsCache.get(url);
+        if (!future.isDone()) {
+            awaitCompletion(task, future);
+            return false;
+        }
+        if (future.join().isAllowed(url)) {
+            return true;
+        }
+        log.debug("任务[{}]被robots.txt禁止，不再执行", task.record.url);
+        stats.robotsDenied.increment();
+        dequeued(task);
+        spider.signalCapacity(false);
+        Spider.notifyFailure(task.record.callback,
+            new TaskRejectedException(task.record.url, AddResult.DISALLOWED));
+        return false;
+    }
+
+    /**
+     * 任务等待异步结果完成，完成后添加空任务唤醒主线程重新经过关卡，同一个host的任务一起等待
+     *
+     * @param task   任务
+     * @param future 等待的结果
+     */
+    private void awaitCompletion(SpiderTask task, CompletableFuture<?> future) {
+        String host = task.host;
+        List<SpiderTask> waiting = awaiting.get(host);
+        if (waiting == null) {
+            waiting = new ArrayList<>();
+            awaiting.put(host, waiting);
+            future.whenComplete((result, e) -> spider.addMarker(System.currentTimeMillis(), host));
+        }
+        waiting.add(task);
+        gatedTasks++;
+    }
+
+    /**
+     * host关卡定时器到期、host有任务完成、host解析完成或者robots.txt获取完成，尝试放行排队的任务，只在主线程中调用
+     *
+     * @param marker 定时器、任务完成时、解析完成时或者robots.txt获取完成时添加的空任务
+     * @throws InterruptedException 线程中断
+     */
+    void release(SpiderTask marker) throws InterruptedException {
+        List<SpiderTask> resolved = awaiting == null ? null : awaiting.remove(marker.host);
+        if (resolved != null) {
+            for (SpiderTask task : resolved) {
+                gatedTasks--;
+                admit(task);
+            }
+        }
+        HostSlot slot = lastExecTimes.get(marker.host);
+        if (slot == null) {
+            return;
+        }
+        if (slot.timer == marker) {
+            slot.timer = null;
+        }
+        if (slot.waiting != null) {
+            pump(marker.host, slot);
+        }
+    }
+
+    /**
+     * 按照顺序放行host关卡处排队的任务，直到达到最大并发请求数或者未到允许分发的时间；按照IP限制时使用排队的第一个任务的
+     * host的抓取间隔和最大并发请求数
+     *
+     * @param gate 关卡，按照IP限制时是IP，否则是host
+     * @param slot 关卡对应的时间槽
+     * @throws InterruptedException 线程中断
+     */
+    private void pump(String gate, HostSlot slot) throws InterruptedException {
+        while (!slot.waiting.isEmpty()) {
+            String host = slot.waiting.peek().host;
+            int max = maxInFlight(host);
+            if (max > 0 && slot.inFlight >= max) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long allowed = allowedTime(host, slot);
+            if (now < allowed) {
+                armGate(gate, slot, allowed);
+                return;
+            }
+            SpiderTask task = slot.waiting.poll();
+            slot.queued--;
+            gatedTasks--;
+            slot.lastDispatch = now;
+            slot.incrementInFlight();
+            spider.dispatch(task);
+        }
+        // 释放空的排队队列，大量host时节省内存
+        slot.waiting = null;
+    }
+
+    /**
+     * 设置host关卡定时器，定时器也是时间轮中的任务，因此关卡处有任务排队时时间轮不会为空
+     */
+    private void armGate(String gate, HostSlot slot, long time) {
+        if (slot.timer == null) {
+            slot.timer = spider.addMarker(time, gate);
+        }
+    }
+
+    /**
+     * 计算host关卡下次允许分发的时间，按照IP限制时同一个IP的两次分发之间也需要间隔host的抓取间隔；开启robots.txt时
+     * Crawl-delay生效之前预约的任务也需要在关卡处满足Crawl-delay；host有高优先级的任务时预约的时间槽可能已经被占用，同样
+     * 在关卡处满足抓取间隔
+     *
+     * @param host host
+     * @param slot 关卡对应的时间槽
+     * @return 下次允许分发的时间
+     */
+    private long allowedTime(String host, HostSlot slot) {
+        if (adaptiveRate == null) {
+            // 不按照IP限制时预约的执行时间已经满足抓取间隔
+            return politenessByIp || robotsCache != null || slot.prioritized
+                ? slot.lastDispatch + hostInterval(host)
+                : Long.MIN_VALUE;
+        }
+        long interval = adaptiveRate.interval(slot.rate, hostInterval(host));
+        return Math.max(slot.lastDispatch + interval, slot.rate.getBlockedUntil());
+    }
+
+    /**
+     * 创建host关卡的放行顺序：优先级高的先放行，任务到期后每等待aging毫秒优先级提高1；所有任务老化的速度相同，因此比较
+     * 优先级乘以aging减去到期时间即可，排序依据不随时间变化，可以使用堆
+     *
+     * @param aging 优先级老化时间，单位毫秒，小于等于0时不老化
+     * @return 放行顺序
+     */
+    private static Comparator<SpiderTask> gateOrder(long aging) {
+        if (aging <= 0) {
+            return Comparator.comparingInt((SpiderTask task) -> task.record.priority).reversed()
+                .thenComparingLong(SpiderTask::getDeadline).thenComparingLong(task -> task.arrival);
+        }
+        return Comparator
+            .comparingLong((SpiderTask task) -> task.getDeadline() - task.record.priority * aging)
+            .thenComparingLong(task -> task.arrival);
+    }
+
+    /**
+     * 通过关卡分发的任务的抓取阶段完成，减少关卡的并发数；关卡有任务排队时唤醒主线程放行，按照IP限制时排队的任务可能属于
+     * 其他host
+     *
+     * @param task 任务
+     */
+    void leave(SpiderTask task) {
+        if (task.gate == null) {
+            return;
+        }
+        HostSlot slot = lastExecTimes.get(task.gate);
+        if (slot != null && slot.decrementInFlight() >= 0 && slot.queued > 0
+            && (politenessByIp || maxInFlight(task.host) > 0)) {
+            spider.addMarker(System.currentTimeMillis(), task.gate);
+        }
+    }
+
+    /**
+     * 任务离开调度器（分发或者撤回），减少host等待执行的任务数
+     *
+     * @param task 任务
+     * @return host对应的时间槽，不存在时返回null
+     */
+    HostSlot dequeued(SpiderTask task) {
+        // 有等待执行的任务时时间槽不会被淘汰
+        HostSlot slot = lastExecTimes.get(task.host);
+        if (slot != null) {
+            slot.decrementPending();
+        }
+        return slot;
+    }
+
+    /**
+     * 记录一次请求的延迟和结果，结果用于自适应调整任务所在关卡的抓取间隔
+     *
+     * @param task       任务
+     * @param start      请求开始时间
+     * @param status     响应状态码，请求失败（没有响应）时为0
+     * @param retryAfter Retry-After响应头，没有时为null
+     */
+    void feedback(SpiderTask task, long start, int status, String retryAfter) {
+        stats.fetchLatency.record(System.currentTimeMillis() - start);
+        if (adaptiveRate == null) {
+            return;
+        }
+        HostSlot slot = lastExecTimes.get(task.gate());
+        if (slot != null) {
+            adaptiveRate.update(slot.rate, hostInterval(task.host), start, status, retryAfter);
+        }
+    }
+
+    /**
+     * 请求失败时记录结果，得到了非预期状态码的失败按照响应处理
+     *
+     * @param task  任务
+     * @param start 请求开始时间
+     * @param e     失败原因
+     */
+    void feedback(SpiderTask task, long start, Throwable e) {
+        if (e instanceof HttpStatusException) {
+            HttpStatusException statusException = (HttpStatusException) e;
+            feedback(task, start, statusException.getStatus(), statusException.getRetryAfter());
+        } else {
+            feedback(task, start, 0, null);
+        }
+    }
+
+    /**
+     * 获取指定host对应的时间槽，不存在时创建
+     *
+     * @param host host
+     * @return host对应的时间槽
+     */
+    HostSlot getHostSlot(String host) {
+        HostSlot slot = lastExecTimes.get(host);
+        if (slot == null) {
+            HostSlot newSlot = new HostSlot(host, adaptiveRate != null);
+            slot = lastExecTimes.putIfAbsent(host, newSlot);
+            if (slot == null) {
+                slot = newSlot;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * 预约执行时间，优先级大于0的任务不预约时间槽，直接在关卡处竞争下一个允许分发的时间
+     *
+     * @param slot     host对应的时间槽
+     * @param priority 任务的优先级
+     * @param now      当前时间
+     * @param interval 执行间隔，单位毫秒
+     * @param count    预约的个数
+     * @return 预约到的第一个执行时间，时间槽已经被淘汰时返回{@link HostSlot#EVICTED}
+     */
+    long reserve(HostSlot slot, int priority, long now, long interval, int count) {
+        if (priority <= 0) {
+            return slot.reserve(now, interval, count);
+        }
+        prioritized = true;
+        return slot.reserveNow(now, count);
+    }
+
+    /**
+     * 获取host的最大并发请求数
+     *
+     * @param host host
+     * @return 最大并发请求数，小于等于0表示不限制
+     */
+    private int maxInFlight(String host) {
+        return maxInFlights.getOrDefault(host, this.maxInFlight);
+    }
+
+    /**
+     * 设置host的最大并发请求数
+     *
+     * @param host        host
+     * @param maxInFlight 最大并发请求数，小于等于0表示不限制
+     */
+    void setMaxInFlight(String host, int maxInFlight) {
+        maxInFlights.put(host, maxInFlight);
+    }
+
+    /**
+     * 获取host最多保留的空闲连接数，连接池的大小与host的最大并发请求数一致，不限制并发数时使用配置的默认值
+     *
+     * @param host host
+     * @return 最多保留的空闲连接数
+     */
+    int maxIdleConnections(String host) {
+        int max = maxInFlight(host);
+        return max > 0 ? max : maxIdleConnections;
+    }
+
+    /**
+     * 获取host配置的抓取间隔，robots.txt中的Crawl-delay更大时使用Crawl-delay
+     *
+     * @param host host
+     * @return 抓取间隔，单位毫秒
+     */
+    long hostInterval(String host) {
+        long interval = Math.max(intervals.getOrDefault(host, this.interval), 0);
+        Long crawlDelay = crawlDelays.get(host);
+        return crawlDelay == null ? interval : Math.max(interval, crawlDelay);
+    }
+
+    /**
+     * 设置host的抓取间隔
+     *
+     * @param host     host
+     * @param interval 抓取间隔，单位毫秒
+     */
+    void setInterval(String host, long interval) {
+        intervals.put(host, interval);
+    }
+
+    /**
+     * robots.txt获取完成（包括刷新）时记录host的Crawl-delay，在robots.txt获取线程中调用
+     *
+     * @param host  host
+     * @param rules robots.txt规则
+     */
+    private void updateCrawlDelay(String host, RobotsRules rules) {
+        long crawlDelay = Math.min(rules.getCrawlDelay(), maxCrawlDelay);
+        if (crawlDelay > 0) {
+            crawlDelays.put(host, crawlDelay);
+        } else {
+            crawlDelays.remove(host);
+        }
+    }
+
+    /**
+     * URL是否被robots.txt禁止，同时触发站点robots.txt的获取；规则还未获取时不拒绝，任务到期时再检查
+     *
+     * @param target URL
+     * @return true表示已经确定被禁止
+     */
+    boolean isDisallowed(URL target) {
+        if (robotsCache == null) {
+            return false;
+        }
+        CompletableFuture<RobotsRules> future = robotsCache.get(target);
+        return future.isDone() && !future.join().isAllowed(target);
+    }
+
+    /**
+     * 淘汰空闲的host时间槽，只在主线程中调用
+     * <p>
+     * 最后一次预约的执行时间距今超过空闲淘汰时间（以及该host的抓取间隔），并且没有在关卡处排队、执行中或者被Retry-After
+     * 阻塞的任务的时间槽会被淘汰，之后再添加该host的任务时重新创建；host单独设置的抓取间隔和最大并发请求数保存在单独的表中，
+     * 不受淘汰影响
+     *
+     * @param idleTimeout 空闲淘汰时间，单位毫秒
+     */
+    void evictIdleHosts(long idleTimeout) {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Map.Entry<String, HostSlot> entry : lastExecTimes.entrySet()) {
+            String host = entry.getKey();
+            HostSlot slot = entry.getValue();
+            long last = slot.lastExecTime;
+            if (last + Math.max(idleTimeout, hostInterval(host)) > now || slot.pending > 0
+                || slot.queued > 0 || slot.timer != null || slot.inFlight > 0 || allowedTime(host, slot) > now) {
+                continue;
+            }
+            // 检查期间有新的预约时淘汰失败
+            if (slot.evict(last)) {
+                lastExecTimes.remove(host, slot);
+                evicted++;
+            }
+        }
+        log.debug("淘汰{}个空闲host，剩余{}个host", evicted, lastExecTimes.size());
+    }
+
+    /**
+     * 恢复检查点中host最后执行时间
+     *
+     * @param host         host
+     * @param lastExecTime 最后执行时间
+     */
+    void restore(String host, long lastExecTime) {
+        getHostSlot(host).lastExecTime = lastExecTime;
+    }
+
+    /**
+     * 收集在关卡处排队以及等待DNS解析或者robots.txt获取完成的任务，只在主线程中调用
+     *
+     * @param tasks 收集到的任务
+     */
+    void collectGated(Collection<SpiderTask> tasks) {
+        for (HostSlot slot : lastExecTimes.values()) {
+            if (slot.waiting != null) {
+                tasks.addAll(slot.waiting);
+            }
+        }
+        if (awaiting != null) {
+            awaiting.values().forEach(tasks::addAll);
+        }
+    }
+
+    /**
+     * 将host最后执行时间和抓取间隔复制到检查点快照中
+     *
+     * @param snapshot 检查点快照
+     */
+    void snapshot(Checkpoint.Snapshot snapshot) {
+        snapshot.lastExecTimes = new LinkedHashMap<>();
+        // ConcurrentHashMap的遍历不会阻塞并发写入
+        for (Map.Entry<String, HostSlot> entry : lastExecTimes.entrySet()) {
+            long lastExecTime = entry.getValue().lastExecTime;
+            if (lastExecTime != HostSlot.EVICTED) {
+                snapshot.lastExecTimes.put(entry.getKey(), lastExecTime);
+            }
+        }
+        snapshot.intervals = new HashMap<>(intervals);
+    }
+
+    /**
+     * 是否有等待DNS解析或者robots.txt获取完成的任务，只在主线程中调用
+     *
+     * @return true表示有等待的任务
+     */
+    boolean hasAwaiting() {
+        return awaiting != null && !awaiting.isEmpty();
+    }
+
+    /**
+     * 获取到期后在关卡处等待的任务数
+     *
+     * @return 任务数
+     */
+    int getGatedTasks() {
+        return gatedTasks;
+    }
+
+    /**
+     * 获取时间槽的个数
+     *
+     * @return host个数
+     */
+    int getHosts() {
+        return lastExecTimes.size();
+    }
+
+    /**
+     * 获取host在时间轮中和关卡处等待执行的任务数
+     *
+     * @param host host
+     * @return 等待执行的任务数
+     */
+    long getPending(String host) {
+        HostSlot slot = lastExecTimes.get(host);
+        return slot == null ? 0 : slot.pending;
+    }
+
+    /**
+     * 找出内存中等待执行的任务数最多的若干个host
+     *
+     * @param limit host个数
+     * @return host到等待执行的任务数的映射，按照任务数从多到少排列
+     */
+    Map<String, Long> hostQueueDepths(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyMap();
+        }
+        // 任务数最少的在堆顶，遍历过程中任务数可能变化，因此先读取再放入堆中
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(limit + 1,
+            Map.Entry.comparingByValue());
+        for (HostSlot slot : lastExecTimes.values()) {
+            long pending = slot.pending;
+            if (pending <= 0 || (top.size() == limit && pending <= top.peek().getValue())) {
+                continue;
+            }
+            top.add(new AbstractMap.SimpleImmutableEntry<>(slot.host, pending));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(top);
+        entries.sort(Map.Entry.<String, Long> comparingByValue().reversed());
+        Map<String, Long> depths = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            depths.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableMap(depths);
+    }
+
+    /**
+     * 获取robots.txt缓存
+     *
+     * @return robots.txt缓存，未开启时为null
+     */
+    RobotsCache getRobotsCache() {
+        return robotsCache;
+    }
+
+    /**
+     * 爬虫终止时清空host状态
+     */
+    void clear() {
+        lastExecTimes.clear();
+        intervals.clear();
+        crawlDelays.clear();
+        maxInFlights.clear();
+    }
+
+    /**
+     * 关闭robots.txt缓存
+     */
+    void close() {
+        if (robotsCache != null) {
+            robotsCache.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.joe.spider.util;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * host对应的执行时间槽，通过CAS预约下一次执行时间，保证同一host两次执行之间的间隔不小于指定间隔
+ * <p>
+ * 广度爬取时host数量可能达到数百万，因此时间槽只使用基本类型字段，空闲的时间槽会被淘汰
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 14:10
+ */
+final class HostSlot {
+
+    /**
+     * 时间槽已经被淘汰，预约时遇到该值需要重新获取时间槽
+     */
+    static final long                                        EVICTED        = Long.MIN_VALUE;
+
+    private static final AtomicLongFieldUpdater<HostSlot>    LAST_EXEC_TIME =
+        AtomicLongFieldUpdater.newUpdater(HostSlot.class, "lastExecTime");
+
+    private static final AtomicIntegerFieldUpdater<HostSlot> IN_FLIGHT      =
+        AtomicIntegerFieldUpdater.newUpdater(HostSlot.class, "inFlight");
+
+    private static final AtomicIntegerFieldUpdater<HostSlot> PENDING        =
+        AtomicIntegerFieldUpdater.newUpdater(HostSlot.class, "pending");
+
+    /**
+     * host，同一个host的所有任务共享该实例
+     */
+    final String                                             host;
+
+    /**
+     * 最后一次预约的执行时间，被淘汰后为{@link #EVICTED}
+     */
+    volatile long                                            lastExecTime;
+
+    /**
+     * 自适应状态，未开启自适应时为null
+     */
+    final AdaptiveRate.State                                 rate;
+
+    /**
+     * 上次分发的时间，按照IP限制时是该IP上次分发的时间，只有主线程访问
+     */
+    long                                             lastDispatch;
+
+    /**
+     * 在关卡处排队的任务，没有任务排队时为null，只有主线程访问
+     */
+    Queue<SpiderTask>                                waiting;
+
+    /**
+     * 关卡定时器，只有主线程访问
+     */
+    SpiderTask                                       timer;
+
+    /**
+     * 是否有过优先级大于0的任务，此时预约的时间槽可能被高优先级的任务占用，需要在关卡处满足抓取间隔
+     */
+    volatile boolean                                         prioritized;
+
+    /**
+     * 在关卡处排队的任务数，主线程修改，任务完成时读取
+     */
+    volatile int                                             queued;
+
+    /**
+     * 通过关卡分发还未完成的任务数
+     */
+    volatile int                                             inFlight;
+
+    /**
+     * 已经预约时间槽还未分发的任务数，包括时间轮中和关卡处排队的任务
+     */
+    volatile int                                             pending;
+
+    HostSlot(String host, boolean adaptive) {
+        this.host = host;
+        this.rate = adaptive ? new AdaptiveRate.State() : null;
+    }
+
+    /**
+     * 一次预约多个连续的执行时间，预约到的任务计入等待执行的任务数
+     *
+     * @param now      当前时间
+     * @param interval 执行间隔，单位毫秒
+     * @param count    预约的个数
+     * @return 预约到的第一个执行时间，第i个（从0开始）执行时间为该时间加i倍执行间隔，不会早于当前时间，也不会早于上次
+     *         预约时间加执行间隔；时间槽已经被淘汰时返回{@link #EVICTED}
+     */
+    long reserve(long now, long interval, int count) {
+        while (true) {
+            long last = lastExecTime;
+            if (last == EVICTED) {
+                return EVICTED;
+            }
+            long execTime = Math.max(last + interval, now);
+            if (LAST_EXEC_TIME.compareAndSet(this, last, execTime + (count - 1) * interval)) {
+                PENDING.addAndGet(this, count);
+                return execTime;
+            }
+        }
+    }
+
+    /**
+     * 高优先级的任务不预约时间槽，只计入等待执行的任务数，执行时间为当前时间，在关卡处与到期的任务竞争
+     *
+     * @param now   当前时间
+     * @param count 任务数
+     * @return 当前时间，时间槽已经被淘汰时返回{@link #EVICTED}
+     */
+    long reserveNow(long now, int count) {
+        prioritized = true;
+        while (true) {
+            long last = lastExecTime;
+            if (last == EVICTED) {
+                return EVICTED;
+            }
+            // 更新最后一次预约的时间，避免时间槽在此期间被淘汰
+            if (LAST_EXEC_TIME.compareAndSet(this, last, Math.max(last, now))) {
+                PENDING.addAndGet(this, count);
+                return now;
+            }
+        }
+    }
+
+    /**
+     * 淘汰时间槽，期间有新的预约时失败
+     *
+     * @param last 检查空闲时读取到的最后一次预约的执行时间
+     * @return true表示淘汰成功，之后的预约都会返回{@link #EVICTED}
+     */
+    boolean evict(long last) {
+        return LAST_EXEC_TIME.compareAndSet(this, last, EVICTED);
+    }
+
+    int incrementInFlight() {
+        return IN_FLIGHT.incrementAndGet(this);
+    }
+
+    int decrementInFlight() {
+        return IN_FLIGHT.decrementAndGet(this);
+    }
+
+    void decrementPending() {
+        PENDING.decrementAndGet(this);
+    }
+}
@@ -0,0 +1,223 @@
+package com.joe.spider.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.joe.spider.util.cache.CacheEntry;
+import com.joe.spider.util.cache.ResponseCache;
+import com.joe.spider.util.http.DownloadHandler;
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.HttpHeaders;
+import com.joe.spider.util.http.HttpResponse;
+import com.joe.spider.util.http.NioHttpClient;
+import com.joe.spider.util.http.ResponseHandler;
+import com.joe.spider.util.http.StreamHandler;
+import com.joe.spider.util.http.StreamResponse;
+import com.joe.spider.util.link.LinkExtractor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * NIO抓取引擎：在主线程中发起请求，不占用线程池；请求完成后检查状态码、读写缓存、执行回调等后续处理交给线程池执行，IO
+ * 线程不会被阻塞。后续处理与阻塞任务共用线程池中未完成任务数的上限，见{@link Spider#handOff}
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 15:30
+ */
+@Slf4j
+final class NioFetchEngine extends FetchEngine {
+
+    /**
+     * NIO客户端
+     */
+    private final NioHttpClient nioClient;
+
+    /**
+     * 下载任务计算文件校验和使用的算法
+     */
+    private final String        checksumAlgorithm;
+
+    NioFetchEngine(Spider spider, HostGate hostGate, SpiderStats stats,
+                   ResponseCache responseCache, NioHttpClient nioClient,
+                   String checksumAlgorithm) {
+        super(spider, hostGate, stats, responseCache);
+        this.nioClient = nioClient;
+        this.checksumAlgorithm = checksumAlgorithm;
+    }
+
+    /**
+     * 异步抓取，在主线程中发起请求，请求完成后在线程池中执行回调
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 回调
+     */
+    @Override
+    void fetch(SpiderTask task, String url, Callback callback) {
+        fetch(task, url, callback, responseCache == null ? null : responseCache.get(url));
+    }
+
+    /**
+     * 异步抓取，缓存记录不为null时发送条件请求
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 回调
+     * @param cached   缓存记录，没有时为null
+     */
+    private void fetch(SpiderTask task, String url, Callback callback, CacheEntry cached) {
+        long start = System.currentTimeMillis();
+        Map<String, String> headers = cached == null ? Collections.emptyMap()
+            : cached.conditionalHeaders();
+        nioClient.execute(url, headers, new ResponseHandler() {
+            @Override
+            public void completed(HttpResponse response) {
+                hostGate.feedback(task, start, response.getStatus(),
+                    response.getHeader("Retry-After"));
+                if (spider.retry(task, response.getStatus(), response.getHeader("Retry-After"))) {
+                    spider.taskDone(task);
+                    return;
+                }
+                stats.bytes.add(response.getBody().length);
+                spider.handOff(() -> {
+                    // 与阻塞抓取相同，大于等于400的状态码按照失败处理
+                    if (response.getStatus() >= 400) {
+                        spider.requestFailed(task, statusError(url, response.getStatus(),
+                            response.getHeader("Retry-After")));
+                        spider.taskDone(task);
+                        return;
+                    }
+                    // NIO客户端已经读取了完整的响应体，直接扫描字节；读写缓存文件在线程池中执行
+                    Set<String> links = new LinkedHashSet<>();
+                    LinkExtractor extractor = spider.followsLinks(task.record)
+                        ? new LinkExtractor(links::add)
+                        : null;
+                    scanBody(extractor, url,
+                        HttpHeaders.charset(response.getHeaders(), StandardCharsets.UTF_8),
+                        response.getBody());
+                    String result = cacheResponse(url, cached, response.getStatus(),
+                        response.getHeaders(), response.getBody(), extractor);
+                    if (result == null) {
+                        fetch(task, url, callback, null);
+                        return;
+                    }
+                    log.debug("请求[{}]结果为：{}", url, result);
+                    spider.execCallback(task, callback, () -> {
+                        spider.followLinks(task, links);
+                        invoke(url, callback, result);
+                    });
+                }, e -> {
+                    log.error("请求URL[{}]回调提交失败", url, e);
+                    Spider.notifyFailure(callback, e);
+                    spider.taskDone(task);
+                });
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                hostGate.feedback(task, start, e);
+                spider.requestFailed(task, e);
+                spider.taskDone(task);
+            }
+        });
+    }
+
+    /**
+     * 异步流式抓取，在主线程中发起请求，响应头到达后在线程池中执行回调，回调读取响应体的同时IO线程继续下载
+     *
+     * @param task     任务
+     * @param url      要爬取的URL
+     * @param callback 流式回调
+     */
+    @Override
+    void fetchStream(SpiderTask task, String url, StreamCallback callback) {
+        long start = System.currentTimeMillis();
+        nioClient.execute(url, new StreamHandler() {
+            @Override
+            public void onResponse(StreamResponse response) {
+                hostGate.feedback(task, start, response.getStatus(),
+                    response.getHeader("Retry-After"));
+                log.debug("请求[{}]响应状态为：{}", url, response.getStatus());
+                if (spider.retry(task, response.getStatus(), response.getHeader("Retry-After"))) {
+                    close(response);
+                    spider.taskDone(task);
+                    return;
+                }
+                spider.handOff(() -> {
+                    try (StreamResponse closeable = response) {
+                        spider.execCallback(callback, closeable);
+                    } catch (Exception e) {
+                        log.error("请求URL[{}]回调失败", url, e);
+                    } finally {
+                        spider.taskDone(task);
+                    }
+                }, e -> {
+                    log.error("请求URL[{}]回调提交失败", url, e);
+                    Spider.notifyFailure(callback, e);
+                    close(response);
+                    spider.taskDone(task);
+                });
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                hostGate.feedback(task, start, e);
+                spider.requestFailed(task, e);
+                spider.taskDone(task);
+            }
+        });
+    }
+
+    /**
+     * 异步下载，在主线程中发起请求，IO线程直接将数据写入文件，完成后在线程池中执行回调
+     *
+     * @param task     任务
+     * @param url      要下载的URL
+     * @param target   目标文件
+     * @param callback 下载回调
+     */
+    @Override
+    void download(SpiderTask task, String url, Path target, DownloadCallback callback) {
+        long start = System.currentTimeMillis();
+        nioClient.download(url, target, checksumAlgorithm, new DownloadHandler() {
+            @Override
+            public void completed(DownloadResult result) {
+                hostGate.feedback(task, start, 200, null);
+                stats.bytes.add(result.getSize());
+                log.debug("下载[{}]结果为：{}", url, result);
+                spider.handOff(
+                    () -> spider.execCallback(task, callback, () -> invoke(url, callback, result)),
+                    e -> {
+                        log.error("下载URL[{}]回调提交失败", url, e);
+                        Spider.notifyFailure(callback, e);
+                        spider.taskDone(task);
+                    });
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                hostGate.feedback(task, start, e);
+                spider.requestFailed(task, e);
+                spider.taskDone(task);
+            }
+        });
+    }
+
+    /**
+     * 关闭不再使用的流式响应
+     *
+     * @param response 响应
+     */
+    private static void close(StreamResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            log.debug("关闭响应失败", e);
+        }
+    }
+}
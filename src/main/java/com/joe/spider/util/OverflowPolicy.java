@@ -0,0 +1,27 @@
+package com.joe.spider.util;
+
+/**
+ * 等待执行的任务数达到上限（{@link SpiderConfig#getMaxQueuedTasks()}）时添加任务的处理策略
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 21:40
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 阻塞添加任务的线程，直到有任务被分发或者超时（{@link SpiderConfig#getOfferTimeout()}），超时后拒绝；在爬虫的回调中
+     * 添加任务时不阻塞，也不受任务数上限限制，避免回调线程与等待线程空闲的主线程互相等待
+     */
+    BLOCK,
+
+    /**
+     * 直接拒绝
+     */
+    REJECT,
+
+    /**
+     * 写入磁盘任务队列，需要配置{@link SpiderConfig#getFrontierDir()}；此时任务数上限只限制内存中的任务数，磁盘中的
+     * 任务数不受限制
+     */
+    SPILL
+}
@@ -0,0 +1,125 @@
+package com.joe.spider.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.joe.spider.util.http.HttpStatusException;
+
+/**
+ * 失败重试策略：指数退避加随机抖动
+ * <p>
+ * 第n次重试（从1开始）的基础延迟为baseDelay * 2^(n-1)，不超过maxDelay，实际延迟在[基础延迟 * (1 - jitter), 基础延迟]
+ * 之间随机，避免大量同时失败的任务同时重试；响应带有Retry-After时延迟不小于Retry-After。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:10
+ */
+final class RetryPolicy {
+
+    /**
+     * 最大重试次数
+     */
+    private final int                              maxRetries;
+
+    /**
+     * 第一次重试的基础延迟，单位毫秒
+     */
+    private final long                             baseDelay;
+
+    /**
+     * 最大延迟，单位毫秒
+     */
+    private final long                             maxDelay;
+
+    /**
+     * 随机抖动比例
+     */
+    private final double                           jitter;
+
+    /**
+     * 需要重试的响应状态码
+     */
+    private final Set<Integer>                     statuses;
+
+    /**
+     * 需要重试的异常
+     */
+    private final List<Class<? extends Throwable>> exceptions;
+
+    RetryPolicy(SpiderConfig config) {
+        this.maxRetries = Math.max(config.getMaxRetries(), 0);
+        this.baseDelay = Math.max(config.getRetryBaseDelay(), 0);
+        this.maxDelay = Math.max(config.getRetryMaxDelay(), baseDelay);
+        this.jitter = Math.min(Math.max(config.getRetryJitter(), 0), 1);
+        this.statuses = config.getRetryStatuses() == null ? new HashSet<>()
+            : new HashSet<>(config.getRetryStatuses());
+        Collection<Class<? extends Throwable>> exceptions = config.getRetryExceptions();
+        this.exceptions = exceptions == null ? new ArrayList<>() : new ArrayList<>(exceptions);
+    }
+
+    /**
+     * 已经执行了attempt次重试的任务是否还可以重试
+     *
+     * @param attempt 已经执行的重试次数
+     * @return true表示还可以重试
+     */
+    boolean canRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    /**
+     * 响应状态码是否需要重试
+     *
+     * @param status 响应状态码
+     * @return true表示需要重试
+     */
+    boolean isRetryable(int status) {
+        return statuses.contains(status);
+    }
+
+    /**
+     * 异常是否需要重试，得到了非预期状态码的异常按照状态码判断，其他异常按照异常类型（包括异常链上的原因）判断
+     *
+     * @param e 异常
+     * @return true表示需要重试
+     */
+    boolean isRetryable(Throwable e) {
+        if (e instanceof HttpStatusException) {
+            return isRetryable(((HttpStatusException) e).getStatus());
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            for (Class<? extends Throwable> type : exceptions) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算第attempt次重试的延迟
+     *
+     * @param attempt    重试次数，从1开始
+     * @param retryAfter Retry-After响应头，没有时为null
+     * @return 延迟，单位毫秒
+     */
+    long delay(int attempt, String retryAfter) {
+        long delay = baseDelay;
+        for (int i = 1; i < attempt && delay < maxDelay; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, maxDelay);
+        if (jitter > 0 && delay > 0) {
+            delay -= (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return Math.max(delay, AdaptiveRate.parseRetryAfter(retryAfter, System.currentTimeMillis()));
+    }
+}
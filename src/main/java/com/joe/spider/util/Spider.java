@@ -1,17 +1,46 @@
 package com.joe.spider.util;
 
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
-import com.joe.http.IHttpClientUtil;
+import com.joe.spider.util.cache.ResponseCache;
+import com.joe.spider.util.frontier.DiskFrontier;
+import com.joe.spider.util.frontier.ScalableBloomFilter;
+import com.joe.spider.util.frontier.UrlNormalizer;
+import com.joe.spider.util.http.DnsCache;
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.HttpResponse;
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.http.NioHttpClient;
+import com.joe.spider.util.http.ResponseHandler;
+import com.joe.spider.util.http.StreamHttpClient;
+import com.joe.spider.util.http.StreamResponse;
+import com.joe.spider.util.metrics.CountingInputStream;
+import com.joe.spider.util.link.LinkScope;
+import com.joe.spider.util.robots.RobotsCache;
+import com.joe.spider.util.schedule.TimingWheel;
 import com.joe.utils.common.Assert;
 import com.joe.utils.concurrent.ConcurrentUtil;
-import com.joe.utils.concurrent.LockService;
 import com.joe.utils.concurrent.ThreadUtil;
 
 import lombok.extern.slf4j.Slf4j;
@@ -26,51 +55,229 @@ import lombok.extern.slf4j.Slf4j;
 public class Spider {
 
     /**
-     * 空任务
+     * 流式客户端，用于阻塞模式以及虚拟线程模式下的流式任务
      */
-    private static final SpiderTask         NULL_SPIDER_TASK = new SpiderTask(0, null);
+    private final StreamHttpClient           streamClient;
 
-    private final IHttpClientUtil           client;
+    /**
+     * NIO客户端，只有NIO模式下存在
+     */
+    private NioHttpClient                    nioClient;
+
+    /**
+     * 阻塞抓取引擎
+     */
+    private BlockingFetchEngine              blockingEngine;
+
+    /**
+     * NIO抓取引擎，只有NIO模式下存在
+     */
+    private NioFetchEngine                   nioEngine;
+
+    /**
+     * DNS缓存，未开启时为null
+     */
+    private DnsCache                         dnsCache;
+
+    /**
+     * 跟进链接的范围，未开启跟进链接时为null
+     */
+    private LinkScope                        linkScope;
+
+    /**
+     * 已经分发但是还未完成（包括回调）的任务数
+     */
+    private final AtomicInteger              inFlight;
 
     /**
      * 任务线程池
      */
-    private ExecutorService                 executor;
+    private ExecutorService                  executor;
+
+    /**
+     * host关卡，保存每个host的时间槽、抓取间隔和最大并发请求数
+     */
+    private HostGate                         hostGate;
+
+    /**
+     * 已经添加过的URL，未开启去重时为null
+     */
+    private volatile ScalableBloomFilter     seenUrls;
+
+    /**
+     * 磁盘任务队列，未开启时为null
+     */
+    private volatile DiskFrontier            frontier;
+
+    /**
+     * HTTP响应缓存，未开启时为null
+     */
+    private volatile ResponseCache           responseCache;
+
+    /**
+     * 开启磁盘任务队列时时间轮中最多保留的任务数
+     */
+    private int                              hotWindow;
+
+    /**
+     * 等待执行的最大任务数，小于等于0表示不限制
+     */
+    private int                              maxQueuedTasks;
+
+    /**
+     * 等待执行的任务数达到上限时的处理策略
+     */
+    private OverflowPolicy                   overflowPolicy;
+
+    /**
+     * 溢出策略为BLOCK时添加任务最多等待的时间，单位毫秒，小于等于0表示一直等待
+     */
+    private long                             offerTimeout;
+
+    /**
+     * 等待任务数低于上限的锁
+     */
+    private final Lock                       capacityLock;
+
+    /**
+     * 等待任务数低于上限的条件
+     */
+    private final Condition                  notFull;
+
+    /**
+     * 等待任务数低于上限的线程数
+     */
+    private volatile int                     capacityWaiters;
+
+    /**
+     * 当前线程是否正在执行本爬虫的回调，回调中添加任务时不等待名额
+     */
+    private final ThreadLocal<Boolean>       inCallback;
+
+    /**
+     * 提交到线程池还未完成的最大任务数，小于等于0表示不限制
+     */
+    private int                              maxExecutorTasks;
+
+    /**
+     * 提交到线程池还未完成的任务数
+     */
+    private final AtomicInteger              executing;
+
+    /**
+     * NIO请求完成后等待提交到线程池的后续处理，线程池中未完成的任务数低于上限时提交
+     */
+    private final Queue<HandOff>             handOffs         = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 回调阶段，未开启时为null，回调在抓取线程中执行
+     */
+    private CallbackStage                    callbackStage;
+
+    /**
+     * 失败重试策略，不重试时为null
+     */
+    private RetryPolicy                      retryPolicy;
+
+    /**
+     * 已经执行的重试次数
+     */
+    private final LongAdder                  retries;
+
+    /**
+     * 重试次数用完后仍然失败的次数
+     */
+    private final LongAdder                  retryExhausted;
+
+    /**
+     * 运行指标
+     */
+    private final SpiderStats                stats;
+
+    /**
+     * 运行指标快照中列出队列深度的host个数
+     */
+    private final int                        metricsTopHosts;
+
+    /**
+     * 通过future提交还未完成的任务，爬虫终止时取消
+     */
+    private final Set<TaskFuture<?>>         futures;
+
+    /**
+     * 爬虫终止（主线程退出）后打开
+     */
+    private volatile CountDownLatch          terminated;
+
+    /**
+     * 写入磁盘任务队列或者检查点的任务的回调
+     */
+    private final CallbackRegistry           callbacks;
+
+    /**
+     * 检查点，未开启检查点时为null
+     */
+    private Checkpoint                       checkpoint;
+
+    /**
+     * 已经分发但是还未完成的任务，只有开启检查点时存在
+     */
+    private Set<SpiderTask>                  running;
+
+    /**
+     * 立即关闭时被中止的任务，会写入最后一个检查点
+     */
+    private volatile List<SpiderTask>        abandoned;
+
+    /**
+     * 到期时唤醒主线程写入检查点的空任务，只有主线程访问
+     */
+    private SpiderTask                       checkpointMarker;
+
+    /**
+     * host时间槽的空闲淘汰时间，单位毫秒，小于等于0表示不淘汰
+     */
+    private long                             hostIdleTimeout;
 
     /**
-     * 默认执行时间间隔，单位毫秒
+     * 下次淘汰空闲host的时间，只有主线程访问
      */
-    private volatile Long                   interval;
+    private long                             nextEviction;
 
     /**
-     * 指定域名最后一次的执行时间
+     * 到期时唤醒主线程淘汰空闲host的空任务，只有主线程访问
      */
-    private volatile Map<String, Long>      lastExecTimes;
+    private SpiderTask                       evictionMarker;
 
     /**
-     * 特定域名对应的抓取时间间隔，单位毫秒
+     * 调度时间轮
      */
-    private volatile Map<String, Long>      intervals;
+    private volatile TimingWheel<SpiderTask> timingWheel;
 
     /**
-     * 延迟队列
+     * 时间轮中空任务（定时器以及唤醒主线程的任务）的数量，统计等待执行的任务数时排除
      */
-    private volatile DelayQueue<SpiderTask> delayQueue;
+    private final AtomicInteger              markers          = new AtomicInteger();
 
     /**
      * 是否关闭，shutdown表示关闭
      */
-    private volatile boolean                shutdown;
+    private volatile boolean                 shutdown;
+
+    /**
+     * 是否立即关闭，true表示不再执行剩余任务
+     */
+    private volatile boolean                 shutdownNow;
 
     /**
      * 关闭状态锁
      */
-    private volatile Lock                   shutdownLock;
+    private volatile Lock                    shutdownLock;
 
     /**
      * 主线程
      */
-    private Thread                          mainThread;
+    private Thread                           mainThread;
 
     /**
      * 默认构造器
@@ -87,51 +294,300 @@ public class Spider {
      * @param interval 同一个域名两次抓取时间间隔，小于等于0时表示没有间隔，会作用与所有域名，单位毫秒
      */
     public Spider(long interval, ThreadPoolExecutor executor) {
-        this.interval = interval;
-        this.client = new IHttpClientUtil();
+        this(buildConfig(interval, executor));
+    }
+
+    /**
+     * 使用指定配置构建爬虫
+     *
+     * @param config 爬虫配置
+     */
+    public Spider(SpiderConfig config) {
+        this(config, false);
+    }
+
+    private Spider(SpiderConfig config, boolean resume) {
+        Assert.notNull(config, "config不能为null");
+        if (config.getOverflowPolicy() == OverflowPolicy.SPILL && config.getMaxQueuedTasks() > 0
+            && config.getFrontierDir() == null) {
+            throw new SpiderException("溢出策略为SPILL时必须配置磁盘任务队列目录");
+        }
+        if (config.isPolitenessByIp() && config.getDnsCacheTtl() <= 0) {
+            throw new SpiderException("按照IP限制抓取间隔时必须开启DNS缓存");
+        }
+        this.streamClient = new StreamHttpClient(config.getConnectTimeout(),
+            config.getReadTimeout(), config.getMaxBodySize());
+        this.inFlight = new AtomicInteger();
+        this.executing = new AtomicInteger();
+        this.futures = ConcurrentHashMap.newKeySet();
+        this.retries = new LongAdder();
+        this.retryExhausted = new LongAdder();
+        this.stats = new SpiderStats();
+        this.metricsTopHosts = Math.max(config.getMetricsTopHosts(), 0);
+        this.capacityLock = new ReentrantLock();
+        this.notFull = capacityLock.newCondition();
+        this.inCallback = new ThreadLocal<>();
+        this.callbacks = new CallbackRegistry();
+        if (config.getCallbacks() != null) {
+            config.getCallbacks().forEach(callbacks::register);
+        }
         this.shutdownLock = new ReentrantLock();
         this.shutdown = true;
-        init(executor);
+        init(config, resume);
+    }
+
+    /**
+     * 从检查点恢复爬虫，检查点文件不存在时与{@link #Spider(SpiderConfig)}相同
+     * <p>
+     * 检查点中的任务、各个host的抓取间隔和最后执行时间、URL去重过滤器会被恢复；任务的回调根据
+     * {@link SpiderConfig#getCallbacks()}中的名字找回，找不到回调的任务会被丢弃。检查点之后添加的任务以及检查点时已经分发
+     * 的任务可能会被再次执行。
+     *
+     * @param config 爬虫配置，必须指定检查点文件
+     * @return 爬虫
+     */
+    public static Spider resume(SpiderConfig config) {
+        Assert.notNull(config, "config不能为null");
+        Assert.notNull(config.getCheckpointFile(), "checkpointFile不能为null");
+        return new Spider(config, true);
+    }
+
+    private static SpiderConfig buildConfig(long interval, ThreadPoolExecutor executor) {
+        SpiderConfig config = new SpiderConfig();
+        config.setInterval(interval);
+        config.setExecutor(executor);
+        return config;
+    }
+
+    /**
+     * 计算提交到线程池还未完成的最大任务数
+     *
+     * @param config   爬虫配置
+     * @param executor 线程池
+     * @return 最大任务数，小于等于0表示不限制
+     */
+    private static int maxExecutorTasks(SpiderConfig config, ExecutorService executor) {
+        if (config.getMaxExecutorTasks() > 0) {
+            return config.getMaxExecutorTasks();
+        }
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            // 虚拟线程
+            return 0;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        int threads = Math.max(pool.getMaximumPoolSize(), 1);
+        long capacity = (long) threads + pool.getQueue().remainingCapacity();
+        return (int) Math.min(Math.min(capacity, 2L * threads), Integer.MAX_VALUE);
     }
 
-    private void init(ThreadPoolExecutor executor) {
+    private void init(SpiderConfig config, boolean resume) {
+        ThreadPoolExecutor executor = config.getExecutor();
         ConcurrentUtil.execWithLock(shutdownLock, () -> {
             if (shutdown) {
                 log.info("初始化爬虫");
-                if (executor == null) {
+                int maxInFlight = config.getMaxInFlightPerHost();
+                if (config.getFetchMode() == FetchMode.VIRTUAL_THREAD) {
+                    if (executor != null) {
+                        log.warn("虚拟线程模式下将忽略指定的线程池");
+                    }
+                    this.executor = VirtualThreads.newExecutor();
+                    if (maxInFlight <= 0) {
+                        maxInFlight = config.getVirtualThreadHostConcurrency();
+                    }
+                } else if (executor == null) {
                     this.executor = ThreadUtil.createPool(ThreadUtil.PoolType.IO);
                 } else {
                     this.executor = executor;
                 }
-                this.lastExecTimes = new HashMap<>();
-                this.intervals = new HashMap<>();
-                this.delayQueue = new DelayQueue<>();
+                this.maxExecutorTasks = maxExecutorTasks(config, this.executor);
+                if (config.getCallbackThreads() > 0) {
+                    this.callbackStage = new CallbackStage(config.getCallbackThreads(),
+                        config.getCallbackQueueSize());
+                }
+                if (config.getDnsCacheTtl() > 0) {
+                    this.dnsCache = new DnsCache(config.getDnsCacheTtl(), config.getDnsNegativeTtl(),
+                        Math.max(config.getDnsCacheSize(), 1), Math.max(config.getDnsThreads(), 1));
+                }
+                this.hostGate = new HostGate(this, config, maxInFlight, this.dnsCache,
+                    this::fetchRobots, stats);
+                if (config.getFetchMode() == FetchMode.NIO) {
+                    this.nioClient = new NioHttpClient(config.getIoThreads(),
+                        config.getConnectTimeout(), config.getReadTimeout(), config.getMaxBodySize(),
+                        config.isKeepAlive() ? this.hostGate::maxIdleConnections : null,
+                        config.getKeepAliveTimeout(), this.dnsCache, this.executor);
+                }
+                if (config.isFollowLinks()) {
+                    this.linkScope = new LinkScope(config.isFollowSameHost(),
+                        config.getFollowMaxDepth(), config.getFollowAllow(),
+                        config.getFollowDeny());
+                }
+                this.timingWheel = new TimingWheel<>(config.getTick(), config.getWheelSize());
+                this.markers.set(0);
+                if (config.isDeduplicate()) {
+                    this.seenUrls = new ScalableBloomFilter(config.getExpectedUrls(),
+                        config.getFalsePositiveRate(), config.getMaxFilterMemory());
+                }
+                this.maxQueuedTasks = config.getMaxQueuedTasks();
+                this.overflowPolicy = config.getOverflowPolicy() == null ? OverflowPolicy.BLOCK
+                    : config.getOverflowPolicy();
+                this.offerTimeout = config.getOfferTimeout();
+                if (config.getFrontierDir() != null) {
+                    this.frontier = new DiskFrontier(config.getFrontierDir(),
+                        config.getFrontierSegmentSize());
+                    this.hotWindow = Math.max(config.getHotWindow(), 1);
+                    // SPILL策略下任务数上限就是内存中的任务数上限
+                    if (overflowPolicy == OverflowPolicy.SPILL && maxQueuedTasks > 0) {
+                        this.hotWindow = Math.min(hotWindow, maxQueuedTasks);
+                    }
+                }
+                if (config.getResponseCacheDir() != null) {
+                    this.responseCache = new ResponseCache(config.getResponseCacheDir(),
+                        config.getResponseCacheSize());
+                }
+                this.blockingEngine = new BlockingFetchEngine(this, hostGate, stats, responseCache,
+                    streamClient, config.getChecksumAlgorithm());
+                if (this.nioClient != null) {
+                    this.nioEngine = new NioFetchEngine(this, hostGate, stats, responseCache,
+                        nioClient, config.getChecksumAlgorithm());
+                }
+                if (config.getMaxRetries() > 0) {
+                    this.retryPolicy = new RetryPolicy(config);
+                }
+                if (config.getCheckpointFile() != null) {
+                    this.running = ConcurrentHashMap.newKeySet();
+                    this.checkpoint = new Checkpoint(config.getCheckpointFile(),
+                        config.getCheckpointInterval(), stats);
+                    this.checkpointMarker = addMarker(checkpoint.getNextCheckpoint(), null);
+                }
+                this.hostIdleTimeout = config.getHostIdleTimeout();
+                if (hostIdleTimeout > 0) {
+                    this.nextEviction = System.currentTimeMillis() + hostIdleTimeout;
+                    this.evictionMarker = addMarker(nextEviction, null);
+                }
+                if (resume) {
+                    try {
+                        restore(config.getCheckpointFile());
+                    } catch (RuntimeException e) {
+                        if (this.nioClient != null) {
+                            this.nioClient.close();
+                        }
+                        if (this.dnsCache != null) {
+                            this.dnsCache.close();
+                        }
+                        this.hostGate.close();
+                        if (this.frontier != null) {
+                            this.frontier.close();
+                        }
+                        if (this.responseCache != null) {
+                            this.responseCache.close();
+                        }
+                        if (this.callbackStage != null) {
+                            this.callbackStage.shutdown();
+                        }
+                        if (this.checkpoint != null) {
+                            this.checkpoint.shutdown();
+                        }
+                        this.executor.shutdown();
+                        throw e;
+                    }
+                }
                 this.shutdown = false;
+                this.shutdownNow = false;
+                this.terminated = new CountDownLatch(1);
                 this.mainThread = new Thread(() -> {
                     try {
-                        while (!shutdown || delayQueue.size() != 0) {
-                            SpiderTask task = delayQueue.take();
-                            // 表示要结束执行了
-                            if (task == NULL_SPIDER_TASK) {
+                        while (true) {
+                            // 从磁盘任务队列补充任务，磁盘中有任务时补充后时间轮一定不为空
+                            refill();
+                            // 执行中的任务失败后可能重试，因此关闭时还需要等待执行中的任务完成
+                            if (shutdown && timingWheel.size() == 0 && inFlight.get() == 0
+                                && !hostGate.hasAwaiting()
+                                && (frontier == null || frontier.closeIfEmpty())) {
+                                break;
+                            }
+                            SpiderTask task = timingWheel.take();
+                            // 取出任务后立即唤醒等待名额的生产者，之后分发时主线程可能等待线程池或者回调阶段
+                            if (task.record != null) {
+                                signalCapacity(false);
+                            } else {
+                                markers.decrementAndGet();
+                            }
+                            if (checkpoint != null) {
+                                checkpointIfDue(task);
+                            }
+                            if (hostIdleTimeout > 0) {
+                                evictIfDue(task);
+                            }
+                            // 空任务，用于关闭时唤醒主线程；带有host的空任务是host关卡的定时器
+                            if (task.record == null) {
+                                if (shutdownNow) {
+                                    return;
+                                }
+                                if (task.host != null) {
+                                    hostGate.release(task);
+                                }
+                                continue;
+                            }
+                            if (shutdownNow) {
+                                // 已经取出但是未执行的任务也需要写入最后一个检查点
+                                if (running != null) {
+                                    running.add(task);
+                                }
                                 return;
                             }
                             // 执行任务
-                            this.executor.execute(task);
+                            if (hostGate.isGated(task.host)) {
+                                hostGate.admit(task);
+                            } else {
+                                dispatch(task);
+                            }
                         }
+                        // 等待已经分发的任务执行完毕
+                        awaitInFlight();
                     } catch (InterruptedException e) {
                         // 忽略中断异常，直接返回
                         log.warn("爬虫线程被中断");
                     } finally {
+                        // 立即关闭时未执行的任务写入最后一个检查点，正常结束时检查点中只剩下host状态和去重过滤器
+                        if (checkpoint != null) {
+                            checkpoint.finalCheckpoint(this::snapshotCheckpoint);
+                        }
+                        if (this.nioClient != null) {
+                            this.nioClient.close();
+                        }
+                        if (this.dnsCache != null) {
+                            this.dnsCache.close();
+                        }
+                        this.hostGate.close();
                         // 执行结束清理，直接关闭
                         ConcurrentUtil.execWithLock(shutdownLock, () -> {
                             this.shutdown = true;
-                            this.lastExecTimes.clear();
-                            this.intervals.clear();
-                            this.delayQueue.clear();
+                            this.hostGate.clear();
+                            this.timingWheel.clear();
+                            this.markers.set(0);
+                            this.seenUrls = null;
+                            if (this.frontier != null) {
+                                this.frontier.close();
+                                this.frontier = null;
+                            }
+                            // 响应缓存关闭时写入索引，下次启动时继续使用
+                            if (this.responseCache != null) {
+                                this.responseCache.close();
+                                this.responseCache = null;
+                            }
+                            this.callbacks.clear();
                             if (!this.executor.isShutdown()) {
                                 this.executor.shutdown();
                             }
+                            if (this.callbackStage != null) {
+                                this.callbackStage.shutdown();
+                            }
                         });
+                        // 立即关闭时未执行的任务不会再执行
+                        for (TaskFuture<?> future : futures) {
+                            future.future().cancel(false);
+                        }
+                        terminated.countDown();
                     }
                 });
                 mainThread.start();
@@ -150,151 +606,1497 @@ public class Spider {
                 return;
             }
             log.info("关闭爬虫任务");
+            shutdownNow = now;
             shutdown = true;
+            // 添加一个空任务唤醒主线程，立即关闭时主线程直接退出，否则执行完剩余任务后退出
+            addMarker(System.currentTimeMillis(), null);
+            signalCapacity(true);
             if (now) {
-                // 直到添加成功
-                while (!delayQueue.add(NULL_SPIDER_TASK)) {
-
+                if (running != null) {
+                    abandoned = new ArrayList<>(running);
+                }
+                synchronized (inFlight) {
+                    inFlight.notifyAll();
+                }
+                synchronized (executing) {
+                    executing.notifyAll();
                 }
                 if (!this.executor.isShutdown()) {
                     executor.shutdownNow();
                 }
+                if (callbackStage != null) {
+                    callbackStage.shutdownNow();
+                }
             }
         });
     }
 
     /**
-     * 当前是否关闭状态
-     * @return true表示关闭
+     * 获取robots.txt，NIO模式下异步请求，其他模式下在robots.txt获取线程中阻塞请求；不经过响应缓存
+     *
+     * @param url robots.txt的URL
+     * @return 响应
      */
-    public boolean isShutdown() {
-        return shutdown;
+    private CompletableFuture<HttpResponse> fetchRobots(String url) {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        try {
+            NioHttpClient nioClient = this.nioClient;
+            if (nioClient != null && NioHttpClient.isSupported(new URL(url))) {
+                nioClient.execute(url, Collections.emptyMap(), new ResponseHandler() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        future.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } else {
+                try (StreamResponse response = streamClient.execute(url)) {
+                    future.complete(new HttpResponse(response.getStatus(), response.getHeaders(),
+                        response.readAsBytes()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     /**
-     * 设置特定域名对应的抓取间隔
+     * 分发任务，NIO任务直接在主线程中发起（不会阻塞），阻塞任务提交到线程池执行；线程池中未完成的任务数（包括NIO任务
+     * 完成后的处理）达到上限时等待，开启回调阶段时回调交接队列已满也等待，回调阶段的积压由此反压到抓取阶段
      *
-     * @param url      URL
-     * @param interval 对应的抓取间隔，单位毫秒
-     * @throws MalformedURLException URL错误抛出该异常
+     * @param task 任务
+     * @throws InterruptedException 线程中断
      */
-    public void setInterval(String url, long interval) throws MalformedURLException {
-        setInterval(new URL(url), interval);
+    void dispatch(SpiderTask task) throws InterruptedException {
+        // 经过关卡的任务离开关卡时任务数已经减少，在等待线程池之前唤醒等待名额的生产者
+        signalCapacity(false);
+        // NIO任务完成后的处理也占用线程池名额，线程池饱和时不再发起新的请求
+        awaitExecutor();
+        if (callbackStage != null) {
+            // IO线程不能等待，NIO任务分发时预留交接队列的名额；流式任务的回调不经过回调阶段
+            if (task.async && task.record.kind != TaskRecord.STREAM) {
+                callbackStage.reserve();
+                task.reserved = true;
+            } else {
+                callbackStage.awaitNotFull();
+            }
+        }
+        stats.schedulingLag.record(System.currentTimeMillis() - task.getDeadline());
+        stats.dispatched.increment();
+        HostSlot slot = hostGate.dequeued(task);
+        if (slot != null && task.gate == null) {
+            // 没有经过关卡的任务也记录分发时间，之后开始经过关卡时（例如添加了高优先级的任务）仍然满足抓取间隔
+            slot.lastDispatch = System.currentTimeMillis();
+        }
+        inFlight.incrementAndGet();
+        if (running != null) {
+            running.add(task);
+        }
+        Runnable runner = (task.async ? nioEngine : blockingEngine).newRunner(task);
+        if (task.async) {
+            runner.run();
+            return;
+        }
+        executing.incrementAndGet();
+        Runnable command = () -> {
+            try {
+                runner.run();
+            } finally {
+                // 回调已经交接给回调阶段时由回调阶段完成任务
+                if (!task.handedOff) {
+                    taskDone(task);
+                }
+            }
+        };
+        while (true) {
+            try {
+                this.executor.execute(command);
+                return;
+            } catch (RejectedExecutionException e) {
+                if (this.executor.isShutdown()) {
+                    log.error("爬虫任务提交失败", e);
+                    taskDone(task);
+                    return;
+                }
+                // 线程池暂时饱和（例如线程刚执行完任务还未回到队列），稍后重试
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException ex) {
+                    taskDone(task);
+                    throw ex;
+                }
+            } catch (RuntimeException e) {
+                log.error("爬虫任务提交失败", e);
+                taskDone(task);
+                return;
+            }
+        }
     }
 
     /**
-     * 设置特定域名对应的抓取间隔
+     * 一个已经分发的任务执行完毕
      *
-     * @param url      URL
-     * @param interval 对应的抓取间隔，单位毫秒
+     * @param task 任务
      */
-    public void setInterval(URL url, long interval) {
-        if (url == null) {
-            log.warn("设置特定域名对应的抓取时间间隔不能为null");
-            return;
-        }
-        String host = url.getHost();
-        log.debug("更新host[{}]对应的抓取时间间隔为：{}", host, interval);
-        intervals.put(host, interval);
+    void taskDone(SpiderTask task) {
+        fetchDone(task);
+        finishTask(task);
     }
 
     /**
-     * 添加一个爬虫任务
+     * 任务的抓取阶段完成，释放线程池和host关卡的并发名额；回调在抓取线程中执行时与{@link #finishTask(SpiderTask)}一起调用
      *
-     * @param url      要爬取的URL
-     * @param callback 该爬虫爬取成功后的回调
-     * @return 添加结果，true表示添加成功
-     * @throws MalformedURLException URL错误抛出该异常
+     * @param task 任务
      */
-    public <T extends Callback> boolean addTask(String url,
-                                                T callback) throws MalformedURLException {
-        Assert.notBlank(url);
-        Assert.notNull(callback);
-        String host = new URL(url).getHost();
-        log.debug("添加任务[{}],任务对应主机为：{}", url, host);
-
-        Lock lock = LockService.getLock(host);
-        try {
-            return ConcurrentUtil.execWithLock(shutdownLock,
-                () -> ConcurrentUtil.execWithLock(lock, () -> {
-                    if (shutdown) {
-                        return false;
-                    }
-                    long now = System.currentTimeMillis();
-                    // 执行间隔
-                    long interval = Math.max(intervals.getOrDefault(host, this.interval), 0);
-                    // 获取本次执行时间
-                    long lastExecTime = lastExecTimes.getOrDefault(host, now) + interval;
-
-                    // 创建任务
-                    SpiderTask task = new SpiderTask(lastExecTime - now, () -> {
-                        try {
-                            String result = client.executeGet(url);
-                            log.debug("请求[{}]结果为：{}", url, result);
-                            callback.exec(result);
-                        } catch (Exception e) {
-                            log.error("请求URL[{}]失败", url, e);
-                        }
-                    });
-
-                    if (delayQueue.add(task)) {
-                        // 刷新最后一次执行时间
-                        lastExecTimes.put(host, lastExecTime);
-                        return true;
-                    } else {
-                        return false;
-                    }
-                }));
-        } catch (Exception e) {
-            throw new SpiderException(e);
+    private void fetchDone(SpiderTask task) {
+        // 请求失败或者重试时归还预留的交接队列名额
+        if (task.reserved) {
+            task.reserved = false;
+            callbackStage.release();
+        }
+        if (!task.async) {
+            releaseExecutor();
         }
+        hostGate.leave(task);
     }
 
     /**
-     * 爬虫任务
+     * 任务（包括回调）完成，关闭时等待所有任务完成
+     *
+     * @param task 任务
      */
-    private static class SpiderTask implements Delayed, Runnable {
-
-        /**
-         * 延迟执行时间，单位毫秒
-         */
-        private long     delay;
-
-        /**
-         * 实际任务
-         */
-        private Runnable task;
-
-        /**
-         * 起始时间
-         */
-        private long     begin;
+    private void finishTask(SpiderTask task) {
+        stats.completed.increment();
+        if (running != null) {
+            running.remove(task);
+        }
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (inFlight) {
+                inFlight.notifyAll();
+            }
+            // 关闭后最后一个执行中的任务完成，唤醒主线程退出
+            if (shutdown) {
+                addMarker(System.currentTimeMillis(), null);
+            }
+        }
+    }
 
-        public SpiderTask(long delay, Runnable task) {
-            this.delay = delay;
-            this.task = task;
-            this.begin = System.currentTimeMillis();
+    /**
+     * 线程池中的任务执行完毕，释放名额：优先提交等待中的NIO后续处理，主线程只会在线程池中的任务数达到上限时等待
+     */
+    private void releaseExecutor() {
+        int previous = executing.getAndDecrement();
+        drainHandOffs();
+        if (previous == maxExecutorTasks) {
+            synchronized (executing) {
+                executing.notifyAll();
+            }
         }
+    }
 
-        @Override
-        public void run() {
-            task.run();
+    /**
+     * NIO请求完成后在线程池中执行后续处理（检查状态码、读写缓存、执行回调），与阻塞任务共用线程池中未完成任务数的上限：
+     * IO线程不能等待，达到上限时放入等待队列，线程池中有任务执行完毕时提交；主线程分发时同样等待名额，因此等待队列的
+     * 长度不超过达到上限时执行中的NIO请求数
+     *
+     * @param command  后续处理
+     * @param rejected 线程池拒绝时的处理
+     */
+    void handOff(Runnable command, Consumer<RuntimeException> rejected) {
+        if (maxExecutorTasks <= 0) {
+            try {
+                executor.execute(command);
+            } catch (RuntimeException e) {
+                rejected.accept(e);
+            }
+            return;
         }
+        handOffs.add(new HandOff(command, rejected));
+        drainHandOffs();
+    }
+
+    /**
+     * 线程池中未完成的任务数低于上限时提交等待中的NIO后续处理
+     */
+    private void drainHandOffs() {
+        while (!handOffs.isEmpty()) {
+            int current = executing.get();
+            if (current >= maxExecutorTasks) {
+                return;
+            }
+            if (!executing.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            HandOff handOff = handOffs.poll();
+            if (handOff == null) {
+                // 其他线程已经提交，归还名额
+                releaseExecutor();
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        handOff.command.run();
+                    } finally {
+                        releaseExecutor();
+                    }
+                });
+            } catch (RuntimeException e) {
+                executing.decrementAndGet();
+                handOff.rejected.accept(e);
+            }
+        }
+    }
+
+    /**
+     * 线程池中未完成的任务数达到上限时等待，立即关闭时直接返回，只在主线程中调用
+     *
+     * @throws InterruptedException 线程中断
+     */
+    private void awaitExecutor() throws InterruptedException {
+        if (maxExecutorTasks <= 0) {
+            return;
+        }
+        synchronized (executing) {
+            while (executing.get() >= maxExecutorTasks && !shutdownNow) {
+                executing.wait();
+            }
+        }
+    }
+
+    /**
+     * 当前等待执行的任务数，包括时间轮中、host关卡处以及磁盘任务队列中的任务
+     *
+     * @return 等待执行的任务数
+     */
+    private long queuedTasks() {
+        DiskFrontier frontier = this.frontier;
+        long size = hotTasks();
+        return frontier == null ? size : size + frontier.size();
+    }
+
+    /**
+     * 内存中等待执行的任务数，包括时间轮中和host关卡处的任务，不包括空任务
+     *
+     * @return 内存中等待执行的任务数
+     */
+    private long hotTasks() {
+        // 空任务先计数再放入时间轮，计数可能短暂大于时间轮中的空任务数
+        return Math.max(timingWheel.size() - markers.get(), 0) + hostGate.getGatedTasks();
+    }
+
+    /**
+     * 向时间轮中添加空任务，带有host时是host关卡的定时器，否则只用于唤醒主线程
+     *
+     * @param time 到期时间
+     * @param host 关卡（host或者IP），唤醒主线程的空任务为null
+     * @return 空任务
+     */
+    SpiderTask addMarker(long time, String host) {
+        SpiderTask marker = new SpiderTask(time, false, host, null);
+        markers.incrementAndGet();
+        timingWheel.add(marker);
+        return marker;
+    }
+
+    /**
+     * 从时间轮中撤回空任务
+     *
+     * @param marker 空任务
+     */
+    private void cancelMarker(SpiderTask marker) {
+        if (timingWheel.cancel(marker)) {
+            markers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 申请添加任务的名额，等待执行的任务数达到上限时按照溢出策略处理
+     * <p>
+     * 回调中添加任务时BLOCK策略不等待并且不受上限限制：回调占用着线程池或者回调阶段的线程，主线程分发任务时可能正在等待
+     * 这些线程空闲，回调等待名额会与主线程互相等待
+     *
+     * @param count  要添加的任务数
+     * @param policy 溢出策略
+     * @return 可以添加的任务数，0表示拒绝或者爬虫已经关闭
+     */
+    private int acquireCapacity(int count, OverflowPolicy policy) {
+        int capacity = maxQueuedTasks;
+        if (capacity <= 0 || policy == OverflowPolicy.SPILL) {
+            return count;
+        }
+        if (policy == OverflowPolicy.BLOCK && inCallback.get() != null) {
+            return count;
+        }
+        long deadline = offerTimeout > 0
+            ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeout)
+            : Long.MAX_VALUE;
+        while (!shutdown) {
+            long room = capacity - queuedTasks();
+            if (room > 0) {
+                return (int) Math.min(room, count);
+            }
+            if (policy == OverflowPolicy.REJECT || !awaitCapacity(capacity, deadline)) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 等待任务数低于上限
+     *
+     * @param capacity 任务数上限
+     * @param deadline 最晚等待到的时间（{@link System#nanoTime()}），Long.MAX_VALUE表示一直等待
+     * @return true表示任务数已经低于上限或者爬虫已经关闭，false表示超时或者线程中断
+     */
+    private boolean awaitCapacity(int capacity, long deadline) {
+        capacityLock.lock();
+        try {
+            // 先增加等待数再检查任务数，与分发任务时先减少任务数再检查等待数配合，保证不会漏掉唤醒
+            capacityWaiters++;
+            while (queuedTasks() >= capacity && !shutdown) {
+                if (deadline == Long.MAX_VALUE) {
+                    notFull.await();
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                notFull.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            capacityWaiters--;
+            capacityLock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒等待任务数低于上限的线程
+     *
+     * @param force 是否不检查等待数直接唤醒
+     */
+    void signalCapacity(boolean force) {
+        if (force || capacityWaiters > 0) {
+            capacityLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                capacityLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 等待所有已经分发的任务执行完毕，立即关闭时直接返回
+     *
+     * @throws InterruptedException 线程中断
+     */
+    private void awaitInFlight() throws InterruptedException {
+        synchronized (inFlight) {
+            while (inFlight.get() > 0 && !shutdownNow) {
+                inFlight.wait();
+            }
+        }
+    }
+
+    /**
+     * 到达检查点时间时复制检查点快照交给写入线程，并重新添加唤醒主线程的空任务；关闭后撤回空任务，防止阻塞主线程退出；上次
+     * 的检查点还未写入完成时跳过本次检查点
+     *
+     * @param taken 主线程本次取出的任务
+     */
+    private void checkpointIfDue(SpiderTask taken) {
+        if (shutdown) {
+            if (checkpointMarker != null) {
+                cancelMarker(checkpointMarker);
+                checkpointMarker = null;
+            }
+            return;
+        }
+        checkpoint.checkpointIfDue(this::snapshotCheckpoint);
+        if (taken == checkpointMarker) {
+            checkpointMarker = addMarker(checkpoint.getNextCheckpoint(), null);
+        }
+    }
+
+    /**
+     * 到达淘汰时间时淘汰空闲的host，并重新添加唤醒主线程的空任务；关闭后撤回空任务，防止阻塞主线程退出
+     *
+     * @param taken 主线程本次取出的任务
+     */
+    private void evictIfDue(SpiderTask taken) {
+        if (shutdown) {
+            if (evictionMarker != null) {
+                cancelMarker(evictionMarker);
+                evictionMarker = null;
+            }
+            return;
+        }
+        if (System.currentTimeMillis() >= nextEviction) {
+            hostGate.evictIdleHosts(hostIdleTimeout);
+            nextEviction = System.currentTimeMillis() + hostIdleTimeout;
+        }
+        if (taken == evictionMarker) {
+            evictionMarker = addMarker(nextEviction, null);
+        }
+    }
+
+    /**
+     * 复制检查点快照，只在主线程中调用，复制期间暂停分发
+     * <p>
+     * 只复制内存中的元数据：使用命名回调的内存中的任务（编码后）、磁盘任务队列每个host的队列头、host状态；去重过滤器只创建
+     * 写时复制的快照，不复制数据；磁盘任务队列中的记录、去重过滤器以及文件写入都由写入线程完成。暂停时间只与内存中的任务
+     * 数、host数有关，与去重过滤器的大小以及磁盘中的任务数无关，记录在{@link SpiderMetrics#getCheckpointPause()}中。复制
+     * 期间添加的任务不一定包含在本次检查点中，会在下次检查点中写入
+     *
+     * @return 检查点快照
+     */
+    private Checkpoint.Snapshot snapshotCheckpoint() {
+        long start = System.nanoTime();
+        Checkpoint.Snapshot snapshot = new Checkpoint.Snapshot();
+        // 先创建去重过滤器的快照再复制任务，复制期间添加的任务最多在恢复后重复执行，不会被过滤器过滤而丢失
+        ScalableBloomFilter seenUrls = this.seenUrls;
+        snapshot.seenUrls = seenUrls == null ? null : seenUrls.capture();
+
+        Set<SpiderTask> tasks = new HashSet<>();
+        timingWheel.forEach(tasks::add);
+        hostGate.collectGated(tasks);
+        tasks.addAll(running);
+        List<SpiderTask> abandoned = this.abandoned;
+        if (abandoned != null) {
+            tasks.addAll(abandoned);
+        }
+        snapshot.hosts = new ArrayList<>(tasks.size());
+        snapshot.tasks = new ArrayList<>(tasks.size());
+        for (SpiderTask task : tasks) {
+            // 只有使用命名回调的任务可以恢复，其他任务不需要编码，也不会注册回调
+            if (task.record != null && callbacks.named(task.record.callback) >= 0) {
+                snapshot.hosts.add(task.host);
+                snapshot.tasks.add(task.record.encode(callbacks::named));
+            }
+        }
+        DiskFrontier frontier = this.frontier;
+        snapshot.frontier = frontier == null ? null : frontier.snapshot();
+
+        snapshot.names = callbacks.names();
+        hostGate.snapshot(snapshot);
+        stats.checkpointPause.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return snapshot;
+    }
+
+    /**
+     * 从检查点恢复，在主线程启动前调用
+     *
+     * @param file 检查点文件
+     */
+    private void restore(Path file) {
+        Checkpoint.restore(file, new Checkpoint.Restorer() {
+            @Override
+            public Object callback(String name) {
+                return callbacks.get(name);
+            }
+
+            @Override
+            public void lastExecTime(String host, long lastExecTime) {
+                hostGate.restore(host, lastExecTime);
+            }
+
+            @Override
+            public void interval(String host, long interval) {
+                hostGate.setInterval(host, interval);
+            }
+
+            @Override
+            public void task(String host, TaskRecord record) throws IOException {
+                if (shouldSpill(frontier, host)) {
+                    frontier.push(host, record.encode(callbacks::register));
+                } else {
+                    enqueue(host, new URL(record.url), record);
+                }
+            }
+
+            @Override
+            public void seenUrls(DataInputStream in) throws IOException {
+                if (seenUrls != null) {
+                    seenUrls = ScalableBloomFilter.readFrom(in);
+                }
+            }
+        });
+    }
+
+    /**
+     * 当前是否关闭状态
+     * @return true表示关闭
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * 爬虫是否已经终止，终止后不会再执行任何任务
+     *
+     * @return true表示已经终止
+     */
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    /**
+     * 等待爬虫终止：关闭后剩余的任务（包括磁盘任务队列中的任务）以及已经分发的任务（包括回调）都执行完毕，需要先调用
+     * {@link #shutdown(boolean)}；立即关闭时等待已经分发的任务退出
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return true表示爬虫已经终止，false表示超时
+     * @throws InterruptedException 线程中断
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!terminated.await(timeout, unit)) {
+            return false;
+        }
+        // 正常关闭时主线程退出前已经等待所有已经分发的任务执行完毕，立即关闭时还需要等待线程池终止
+        return executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 获取已经执行的重试次数
+     *
+     * @return 重试次数
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * 获取重试次数用完后仍然失败的次数
+     *
+     * @return 失败次数
+     */
+    public long getRetryExhaustedCount() {
+        return retryExhausted.sum();
+    }
+
+    /**
+     * 获取运行指标快照，每次调用生成新的快照，适合监控系统定期拉取；快照中的host队列深度排名需要遍历所有host，不适合频繁
+     * 调用
+     *
+     * @return 运行指标快照
+     */
+    public SpiderMetrics getMetrics() {
+        SpiderMetrics metrics = new SpiderMetrics();
+        DiskFrontier frontier = this.frontier;
+        metrics.timestamp = System.currentTimeMillis();
+        metrics.queuedTasks = queuedTasks();
+        metrics.gatedTasks = hostGate.getGatedTasks();
+        metrics.frontierTasks = frontier == null ? 0 : frontier.size();
+        metrics.registeredCallbacks = callbacks.size();
+        metrics.inFlightTasks = inFlight.get();
+        metrics.hosts = hostGate.getHosts();
+        metrics.hostQueueDepths = hostGate.hostQueueDepths(metricsTopHosts);
+        metrics.dispatchedTasks = stats.dispatched.sum();
+        metrics.completedTasks = stats.completed.sum();
+        metrics.retries = retries.sum();
+        metrics.retryExhausted = retryExhausted.sum();
+        metrics.bytesDownloaded = stats.bytes.sum();
+        metrics.cacheHits = stats.cacheHits.sum();
+        NioHttpClient nioClient = this.nioClient;
+        if (nioClient != null) {
+            metrics.connectionsOpened = nioClient.getConnectCount();
+            metrics.connectionsReused = nioClient.getReuseCount();
+        }
+        DnsCache dnsCache = this.dnsCache;
+        if (dnsCache != null) {
+            metrics.dnsLookups = dnsCache.getLookupCount();
+        }
+        RobotsCache robotsCache = hostGate.getRobotsCache();
+        if (robotsCache != null) {
+            metrics.robotsFetches = robotsCache.getFetchCount();
+        }
+        metrics.robotsDenied = stats.robotsDenied.sum();
+        metrics.linksExtracted = stats.linksExtracted.sum();
+        metrics.linksFollowed = stats.linksFollowed.sum();
+        metrics.linksRejected = stats.linksRejected.sum();
+        metrics.schedulingLag = stats.schedulingLag.snapshot();
+        metrics.fetchLatency = stats.fetchLatency.snapshot();
+        metrics.callbackDuration = stats.callbackDuration.snapshot();
+        metrics.checkpointPause = stats.checkpointPause.snapshot();
+        metrics.checkpointWriteTime = stats.checkpointWriteTime.snapshot();
+        CallbackStage callbackStage = this.callbackStage;
+        if (callbackStage != null) {
+            metrics.callbackQueueDepth = callbackStage.getQueued();
+            metrics.callbackStalls = callbackStage.getStalls();
+            metrics.callbackQueueTime = callbackStage.queueTime();
+        }
+        metrics.errors = stats.errors();
+        metrics.callbackErrors = stats.callbackErrors();
+        return metrics;
+    }
+
+    /**
+     * 获取指定host的队列深度，即时间轮中、host关卡处以及磁盘任务队列中该host等待执行的任务数
+     *
+     * @param host host
+     * @return 等待执行的任务数
+     */
+    public long getQueueDepth(String host) {
+        DiskFrontier frontier = this.frontier;
+        return hostGate.getPending(host) + (frontier == null ? 0 : frontier.size(host));
+    }
+
+    /**
+     * 设置特定域名对应的抓取间隔
+     *
+     * @param url      URL
+     * @param interval 对应的抓取间隔，单位毫秒
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public void setInterval(String url, long interval) throws MalformedURLException {
+        setInterval(new URL(url), interval);
+    }
+
+    /**
+     * 设置特定域名对应的抓取间隔
+     *
+     * @param url      URL
+     * @param interval 对应的抓取间隔，单位毫秒
+     */
+    public void setInterval(URL url, long interval) {
+        if (url == null) {
+            log.warn("设置特定域名对应的抓取时间间隔不能为null");
+            return;
+        }
+        String host = url.getHost();
+        log.debug("更新host[{}]对应的抓取时间间隔为：{}", host, interval);
+        hostGate.setInterval(host, interval);
+    }
+
+    /**
+     * 设置特定域名的最大并发请求数，超出后该域名的任务在调度器中等待，不占用线程池
+     *
+     * @param url         URL
+     * @param maxInFlight 最大并发请求数，小于等于0表示不限制
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public void setMaxInFlight(String url, int maxInFlight) throws MalformedURLException {
+        setMaxInFlight(new URL(url), maxInFlight);
+    }
+
+    /**
+     * 设置特定域名的最大并发请求数，超出后该域名的任务在调度器中等待，不占用线程池
+     *
+     * @param url         URL
+     * @param maxInFlight 最大并发请求数，小于等于0表示不限制
+     */
+    public void setMaxInFlight(URL url, int maxInFlight) {
+        if (url == null) {
+            log.warn("设置特定域名对应的最大并发请求数时URL不能为null");
+            return;
+        }
+        String host = url.getHost();
+        log.debug("更新host[{}]对应的最大并发请求数为：{}", host, maxInFlight);
+        hostGate.setMaxInFlight(host, maxInFlight);
+    }
+
+    /**
+     * 添加一个爬虫任务
+     * <p>
+     * 只有状态码小于400的响应体会传给回调：大于等于400的状态码按照失败处理，记录到错误统计，可以重试的状态码按照重试策略
+     * 重试，不会执行回调。请求的连接超时、读超时以及响应体大小分别受{@link SpiderConfig#getConnectTimeout()}、
+     * {@link SpiderConfig#getReadTimeout()}以及{@link SpiderConfig#getMaxBodySize()}限制
+     *
+     * @param url      要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @return 添加结果，true表示添加成功，爬虫已关闭、URL重复、被robots.txt禁止或者任务数达到上限被拒绝时返回false
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public <T extends Callback> boolean addTask(String url,
+                                                T callback) throws MalformedURLException {
+        return tryAddTask(url, callback).isSuccess();
+    }
+
+    /**
+     * 添加一个指定优先级的爬虫任务
+     *
+     * @param url      要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @param priority 优先级，越大越优先，默认为0，不能小于0；大于0的任务不排在该host已经添加的任务之后，而是在host的抓取
+     *                 间隔允许时尽快执行
+     * @return 添加结果，true表示添加成功
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public <T extends Callback> boolean addTask(String url, T callback,
+                                                int priority) throws MalformedURLException {
+        return tryAddTask(url, callback, priority).isSuccess();
+    }
+
+    /**
+     * 添加一个爬虫任务
+     *
+     * @param url      要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @return 添加结果
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public AddResult tryAddTask(String url, Callback callback) throws MalformedURLException {
+        return tryAddTask(url, callback, 0);
+    }
+
+    /**
+     * 添加一个指定优先级的爬虫任务
+     * <p>
+     * 同一个host的任务仍然遵守抓取间隔，优先级只决定抓取间隔允许时先执行哪个任务：优先级大于0的任务添加后立即参与竞争，
+     * 已经到期的任务按照优先级执行，等待时间越长的任务优先级越高（见{@link SpiderConfig#getPriorityAging()}），低优先级
+     * 的任务不会一直得不到执行
+     *
+     * @param url      要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @param priority 优先级，越大越优先，默认为0，不能小于0
+     * @return 添加结果
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public AddResult tryAddTask(String url, Callback callback,
+                                int priority) throws MalformedURLException {
+        Assert.notBlank(url);
+        Assert.notNull(callback);
+        checkPriority(priority);
+        return schedule(new TaskRecord(TaskRecord.FETCH, url, callback, null, priority));
+    }
+
+    /**
+     * 添加一个流式爬虫任务，响应头到达时即回调，响应体边下载边读取，不会在内存中缓存整个响应体
+     *
+     * @param url      要爬取的URL
+     * @param callback 流式回调
+     * @return 添加结果
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public AddResult addStreamTask(String url,
+                                   StreamCallback callback) throws MalformedURLException {
+        Assert.notBlank(url);
+        Assert.notNull(callback);
+        return schedule(new TaskRecord(TaskRecord.STREAM, url, callback, null));
+    }
+
+    /**
+     * 添加一个下载任务，响应体直接写入目标文件而不会转换为字符串，适合图片、PDF、压缩包等二进制内容；只有2xx响应会写入
+     * 文件，下载失败时会删除已经写入的部分
+     *
+     * @param url      要下载的URL
+     * @param target   目标文件，存在时覆盖
+     * @param callback 下载完成后的回调
+     * @return 添加结果
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    public AddResult addDownloadTask(String url, Path target,
+                                     DownloadCallback callback) throws MalformedURLException {
+        Assert.notBlank(url);
+        Assert.notNull(target);
+        Assert.notNull(callback);
+        return schedule(new TaskRecord(TaskRecord.DOWNLOAD, url, callback, target));
+    }
+
+    /**
+     * 提交一个爬虫任务，返回的future在抓取完成后以抓取结果完成，抓取失败时异常完成
+     * <p>
+     * 任务添加失败时future以{@link TaskRejectedException}异常完成，URL错误时以{@link MalformedURLException}异常完成，
+     * 爬虫立即关闭时未执行的任务的future被取消；取消返回的future不会取消任务；通过future提交的任务不会写入检查点
+     *
+     * @param url 要爬取的URL
+     * @return 抓取结果
+     */
+    public CompletableFuture<String> submitTask(String url) {
+        return submit(TaskRecord.FETCH, url, null, new TaskFuture<>(null));
+    }
+
+    /**
+     * 提交一个爬虫任务，返回的future在回调执行完毕后完成，抓取失败或者回调抛出异常时异常完成，其他同{@link #submitTask(String)}
+     *
+     * @param url      要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @return 回调执行完毕后完成的future
+     */
+    public CompletableFuture<Void> submitTask(String url, Callback callback) {
+        Assert.notNull(callback);
+        return submit(TaskRecord.FETCH, url, null, new TaskFuture<>(callback));
+    }
+
+    /**
+     * 提交一个流式爬虫任务，返回的future在回调执行完毕后完成，抓取失败或者回调抛出异常时异常完成，其他同
+     * {@link #submitTask(String)}
+     *
+     * @param url      要爬取的URL
+     * @param callback 流式回调
+     * @return 回调执行完毕后完成的future
+     */
+    public CompletableFuture<Void> submitStreamTask(String url, StreamCallback callback) {
+        Assert.notNull(callback);
+        return submit(TaskRecord.STREAM, url, null, new TaskFuture<>(callback));
+    }
+
+    /**
+     * 提交一个下载任务，返回的future在下载完成后以下载结果完成，下载失败时异常完成，其他同{@link #submitTask(String)}
+     *
+     * @param url    要下载的URL
+     * @param target 目标文件，存在时覆盖
+     * @return 下载结果
+     */
+    public CompletableFuture<DownloadResult> submitDownloadTask(String url, Path target) {
+        Assert.notNull(target);
+        return submit(TaskRecord.DOWNLOAD, url, target, new TaskFuture<>(null));
+    }
+
+    /**
+     * 创建一个由订阅者的请求驱动抓取的发布者，URL通过{@link CrawlPublisher#offer(String)}添加，只有订阅者请求数据时才会
+     * 提交给爬虫抓取，每条抓取结果（包括失败）发布一次；发布者内部通过{@link #submitTask(String)}提交任务
+     *
+     * @return 发布者
+     */
+    public CrawlPublisher publisher() {
+        return new CrawlPublisher(this);
+    }
+
+    /**
+     * 通过future提交任务
+     *
+     * @param kind   任务类型
+     * @param url    要爬取的URL
+     * @param target 下载任务的目标文件，其他任务为null
+     * @param task   任务对应的回调
+     * @return 任务对应的future
+     */
+    private <T> CompletableFuture<T> submit(byte kind, String url, Path target,
+                                            TaskFuture<T> task) {
+        Assert.notBlank(url);
+        CompletableFuture<T> future = task.future();
+        futures.add(task);
+        AddResult result;
+        try {
+            result = schedule(new TaskRecord(kind, url, task, target));
+        } catch (MalformedURLException e) {
+            futures.remove(task);
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (!result.isSuccess()) {
+            futures.remove(task);
+            future.completeExceptionally(new TaskRejectedException(url, result));
+            return future;
+        }
+        future.whenComplete((value, e) -> futures.remove(task));
+        return future;
+    }
+
+    /**
+     * 批量添加爬虫任务，适合大量种子URL的初始化：URL按照host分组，同一个host的任务一次预约所有执行时间，所有任务最后通过
+     * 一次操作放入时间轮；单个URL错误不会影响其他URL
+     * <p>
+     * 等待执行的任务数达到上限时按照溢出策略处理：BLOCK策略下分批添加，每批等待到有名额后添加，超时后剩余的URL被拒绝；
+     * REJECT策略下超出名额的URL被拒绝
+     *
+     * @param urls     要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @return 每个URL的添加结果，顺序与urls一致
+     */
+    public AddResult[] addTasks(Collection<String> urls, Callback callback) {
+        return addTasks(urls, callback, 0);
+    }
+
+    /**
+     * 批量添加指定优先级的爬虫任务，其他同{@link #addTasks(Collection, Callback)}；适合需要优先抓取的种子页、导航页
+     *
+     * @param urls     要爬取的URL
+     * @param callback 该爬虫爬取成功后的回调
+     * @param priority 优先级，越大越优先，默认为0，不能小于0
+     * @return 每个URL的添加结果，顺序与urls一致
+     * @see #tryAddTask(String, Callback, int)
+     */
+    public AddResult[] addTasks(Collection<String> urls, Callback callback, int priority) {
+        Assert.notNull(urls);
+        Assert.notNull(callback);
+        checkPriority(priority);
+        return addTasks(urls, callback, priority, 0, overflowPolicy);
+    }
+
+    /**
+     * 校验优先级：优先级为0的任务按照添加顺序预约时间槽，不经过关卡时无法与其他任务比较优先级，因此不支持小于0的优先级
+     *
+     * @param priority 优先级
+     */
+    private static void checkPriority(int priority) {
+        if (priority < 0) {
+            throw new IllegalArgumentException("优先级不能小于0：" + priority);
+        }
+    }
+
+    /**
+     * 批量添加指定深度的爬虫任务
+     *
+     * @param urls     要爬取的URL集合
+     * @param callback 这些URL爬取成功后的回调
+     * @param priority 优先级
+     * @param depth    深度
+     * @param policy   任务数达到上限时的处理策略
+     * @return 每个URL的添加结果，与urls的迭代顺序一致
+     */
+    private AddResult[] addTasks(Collection<String> urls, Callback callback, int priority,
+                                 int depth, OverflowPolicy policy) {
+        AddResult[] results = new AddResult[urls.size()];
+        TaskRecord[] records = new TaskRecord[results.length];
+        URL[] targets = new URL[results.length];
+        int remaining = 0;
+        int index = 0;
+        for (String url : urls) {
+            int i = index++;
+            try {
+                targets[i] = new URL(url);
+            } catch (MalformedURLException | NullPointerException e) {
+                log.debug("任务[{}]URL错误，忽略", url);
+                results[i] = AddResult.INVALID;
+                continue;
+            }
+            if (hostGate.isDisallowed(targets[i])) {
+                results[i] = AddResult.DISALLOWED;
+                continue;
+            }
+            records[i] = new TaskRecord(TaskRecord.FETCH, url, callback, null, priority, depth);
+            remaining++;
+        }
+        log.debug("批量添加{}个任务", urls.size());
+
+        int from = 0;
+        while (remaining > 0) {
+            int count = shutdown ? 0 : acquireCapacity(remaining, policy);
+            if (count == 0) {
+                AddResult result = shutdown ? AddResult.SHUTDOWN : AddResult.REJECTED;
+                for (int i = from; i < results.length; i++) {
+                    if (records[i] != null) {
+                        results[i] = result;
+                    }
+                }
+                break;
+            }
+            int to = from;
+            for (int n = 0; n < count; to++) {
+                if (records[to] != null) {
+                    n++;
+                }
+            }
+            scheduleAll(records, targets, results, from, to);
+            remaining -= count;
+            from = to;
+        }
+        return results;
+    }
+
+    /**
+     * 批量添加一批任务，URL按照host分组后预约执行时间并放入时间轮，时间轮中的任务数达到上限时写入磁盘任务队列
+     *
+     * @param records 任务，为null的跳过
+     * @param targets 任务对应的URL
+     * @param results 添加结果
+     * @param from    本批任务的开始下标（包含）
+     * @param to      本批任务的结束下标（不包含）
+     */
+    private void scheduleAll(TaskRecord[] records, URL[] targets, AddResult[] results, int from,
+                             int to) {
+        Map<String, HostBatch> batches = new LinkedHashMap<>();
+        ScalableBloomFilter seenUrls = this.seenUrls;
+        for (int i = from; i < to; i++) {
+            if (records[i] == null) {
+                continue;
+            }
+            // 去重在申请名额之后，被拒绝的URL不会被记录
+            if (seenUrls != null && !seenUrls.put(UrlNormalizer.normalize(records[i].url))) {
+                results[i] = AddResult.DUPLICATE;
+                continue;
+            }
+            batches.computeIfAbsent(targets[i].getHost(), HostBatch::new).add(i);
+        }
+
+        long now = System.currentTimeMillis();
+        DiskFrontier frontier = this.frontier;
+        // 时间轮中还可以放入的任务数，没有磁盘任务队列时不限制
+        long room = frontier == null ? Long.MAX_VALUE
+            : hotWindow - hotTasks();
+        List<SpiderTask> tasks = new ArrayList<>();
+        HostBatch added = new HostBatch(null);
+        boolean wake = false;
+        for (HostBatch batch : batches.values()) {
+            String host = batch.host;
+            int priority = records[batch.indexes[0]].priority;
+            // 同一个host已经有任务在磁盘中时全部写入磁盘，保证同一个host的任务顺序；高优先级的任务不写入磁盘
+            int count = frontier == null || priority > 0 ? batch.size
+                : frontier.contains(host) ? 0 : (int) Math.min(batch.size, Math.max(room, 0));
+            room -= count;
+            if (count > 0) {
+                prefetch(host);
+                long interval = hostGate.hostInterval(host);
+                HostSlot slot;
+                long execTime;
+                do {
+                    slot = hostGate.getHostSlot(host);
+                    execTime = hostGate.reserve(slot, priority, now, interval, count);
+                } while (execTime == HostSlot.EVICTED);
+                // 高优先级的任务都在当前时间到达关卡
+                long step = priority > 0 ? 0 : interval;
+                for (int j = 0; j < count; j++) {
+                    int i = batch.indexes[j];
+                    boolean async = nioClient != null && NioHttpClient.isSupported(targets[i]);
+                    tasks.add(
+                        new SpiderTask(execTime + j * step, async, slot.host, records[i]));
+                    added.add(i);
+                    results[i] = AddResult.ADDED;
+                }
+            }
+            if (count < batch.size) {
+                List<byte[]> data = new ArrayList<>(batch.size - count);
+                for (int j = count; j < batch.size; j++) {
+                    data.add(records[batch.indexes[j]].encode(callbacks::register));
+                }
+                long size = frontier.pushAll(host, data);
+                for (int j = count; j < batch.size; j++) {
+                    results[batch.indexes[j]] = size < 0 ? AddResult.SHUTDOWN
+                        : AddResult.SPILLED;
+                }
+                // 磁盘队列由空变为非空时需要唤醒主线程
+                wake |= size == data.size();
+            }
+        }
+
+        timingWheel.addAll(tasks);
+        if (wake) {
+            // 磁盘队列由空变为非空，添加一个空任务唤醒主线程补充任务
+            addMarker(System.currentTimeMillis(), null);
+        }
+        // 添加过程中爬虫被关闭了，尝试撤回任务，撤回失败说明任务已经被主线程取走，仍然会执行
+        if (shutdown) {
+            for (int j = 0; j < tasks.size(); j++) {
+                if (timingWheel.cancel(tasks.get(j))) {
+                    hostGate.dequeued(tasks.get(j));
+                    results[added.indexes[j]] = AddResult.SHUTDOWN;
+                }
+            }
+        }
+    }
+
+    /**
+     * 添加任务，时间轮中的任务数达到上限时写入磁盘任务队列，否则预约host对应的执行时间并将任务放入时间轮
+     *
+     * @param record 任务
+     * @return 添加结果
+     * @throws MalformedURLException URL错误抛出该异常
+     */
+    private AddResult schedule(TaskRecord record) throws MalformedURLException {
+        String url = record.url;
+        URL target = new URL(url);
+        String host = target.getHost();
+        log.debug("添加任务[{}],任务对应主机为：{}", url, host);
+
+        // 生产者之间不加锁，只通过CAS预约对应host的下一个执行时间槽，不同host之间完全不存在竞争
+        if (shutdown) {
+            return AddResult.SHUTDOWN;
+        }
+        if (hostGate.isDisallowed(target)) {
+            log.debug("任务[{}]被robots.txt禁止，忽略", url);
+            return AddResult.DISALLOWED;
+        }
+        if (acquireCapacity(1, overflowPolicy) == 0) {
+            log.debug("等待执行的任务数达到上限，拒绝任务[{}]", url);
+            return shutdown ? AddResult.SHUTDOWN : AddResult.REJECTED;
+        }
+        // 去重在预约时间槽之前，重复的URL不会占用时间槽
+        ScalableBloomFilter seenUrls = this.seenUrls;
+        if (seenUrls != null && !seenUrls.put(UrlNormalizer.normalize(url))) {
+            log.debug("任务[{}]重复，忽略", url);
+            return AddResult.DUPLICATE;
+        }
+        DiskFrontier frontier = this.frontier;
+        // 高优先级的任务不写入磁盘，避免排在同一个host已经写入磁盘的任务之后
+        if (record.priority <= 0 && shouldSpill(frontier, host)) {
+            long size = frontier.push(host, record.encode(callbacks::register));
+            if (size < 0) {
+                return AddResult.SHUTDOWN;
+            }
+            if (size == 1) {
+                // 磁盘队列由空变为非空，添加一个空任务唤醒主线程补充任务
+                addMarker(System.currentTimeMillis(), null);
+            }
+            return AddResult.SPILLED;
+        }
+
+        SpiderTask task = enqueue(host, target, record);
+
+        // 添加过程中爬虫被关闭了，此时主线程可能已经退出，尝试撤回任务，撤回失败说明任务已经被主线程取走，仍然会执行
+        if (shutdown && timingWheel.cancel(task)) {
+            hostGate.dequeued(task);
+            return AddResult.SHUTDOWN;
+        }
+        return AddResult.ADDED;
+    }
+
+    /**
+     * 任务是否需要写入磁盘任务队列，时间轮中的任务数达到上限时写入磁盘；同一个host已经有任务在磁盘中时也写入磁盘，保证同一
+     * 个host的任务顺序
+     *
+     * @param frontier 磁盘任务队列
+     * @param host     URL对应的host
+     * @return true表示需要写入磁盘
+     */
+    private boolean shouldSpill(DiskFrontier frontier, String host) {
+        return frontier != null
+               && (hotTasks() >= hotWindow || frontier.contains(host));
+    }
+
+    /**
+     * 预约host对应的执行时间并将任务放入时间轮
+     *
+     * @param host   URL对应的host
+     * @param target 要爬取的URL
+     * @param record 任务
+     * @return 放入时间轮的任务
+     */
+    private SpiderTask enqueue(String host, URL target, TaskRecord record) {
+        long now = System.currentTimeMillis();
+        prefetch(host);
+        // 执行间隔
+        long interval = hostGate.hostInterval(host);
+        // 获取本次执行时间，时间槽恰好被淘汰时重新获取
+        HostSlot slot;
+        long execTime;
+        do {
+            slot = hostGate.getHostSlot(host);
+            execTime = hostGate.reserve(slot, record.priority, now, interval, 1);
+        } while (execTime == HostSlot.EVICTED);
+
+        // 创建任务，使用时间槽中的host，同一个host的任务共享一个字符串
+        boolean async = nioClient != null && NioHttpClient.isSupported(target);
+        SpiderTask task = new SpiderTask(execTime, async, slot.host, record);
+
+        timingWheel.add(task);
+        return task;
+    }
+
+    /**
+     * 在后台预先解析host，任务到期时解析结果通常已经在缓存中
+     *
+     * @param host host
+     */
+    private void prefetch(String host) {
+        DnsCache dnsCache = this.dnsCache;
+        if (dnsCache != null) {
+            dnsCache.prefetch(host);
+        }
+    }
+
+    /**
+     * 时间轮中的任务数低于上限时从磁盘任务队列中补充任务，不同host之间轮流补充，只在主线程中调用
+     */
+    private void refill() {
+        DiskFrontier frontier = this.frontier;
+        if (frontier == null || shutdownNow) {
+            return;
+        }
+        while (hotTasks() < hotWindow) {
+            DiskFrontier.Entry entry = frontier.poll();
+            if (entry == null) {
+                return;
+            }
+            TaskRecord record = TaskRecord.decode(entry.getData(), callbacks::take);
+            try {
+                enqueue(entry.getHost(), new URL(record.url), record);
+            } catch (MalformedURLException e) {
+                // 写入磁盘前已经校验过，不会出现
+                log.error("磁盘任务队列中的URL[{}]错误", record.url, e);
+            }
+        }
+    }
+
+    /**
+     * 执行流式回调，记录回调的执行时间、失败以及回调读取的响应体字节数
+     *
+     * @param callback 流式回调
+     * @param response 响应
+     * @throws IOException 回调抛出的IO异常
+     */
+    void execCallback(StreamCallback callback, StreamResponse response) throws IOException {
+        long start = System.nanoTime();
+        inCallback.set(Boolean.TRUE);
+        try {
+            callback.exec(new StreamResponse(response.getUrl(), response.getStatus(),
+                response.getHeaders(), new CountingInputStream(response.getBody(), stats.bytes)));
+        } catch (IOException | RuntimeException e) {
+            stats.callbackError(e);
+            throw e;
+        } finally {
+            inCallback.remove();
+            stats.callbackDone(start);
+        }
+    }
+
+    /**
+     * 任务的响应体是否需要扫描链接：开启了跟进链接并且深度未达到上限；通过future提交的任务只对应一个结果，不跟进
+     *
+     * @param record 任务
+     * @return 需要扫描时返回true
+     */
+    boolean followsLinks(TaskRecord record) {
+        LinkScope linkScope = this.linkScope;
+        return linkScope != null && !(record.callback instanceof TaskFuture)
+               && linkScope.canFollow(record.depth);
+    }
+
+    /**
+     * 跟进读取响应体时提取到的链接，范围内的链接使用同一个回调和优先级批量添加为深度加1的新任务，在执行回调的线程中调用
+     *
+     * @param task  任务
+     * @param links 提取到的链接，不需要跟进链接时为空
+     */
+    void followLinks(SpiderTask task, Set<String> links) {
+        if (links.isEmpty()) {
+            return;
+        }
+        LinkScope linkScope = this.linkScope;
+        TaskRecord record = task.record;
+        stats.linksExtracted.add(links.size());
+        List<String> targets = new ArrayList<>(links.size());
+        for (String link : links) {
+            if (linkScope.accept(task.host, link)) {
+                targets.add(link);
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+        // 在回调线程中执行，不能等待名额：任务数达到上限时只添加剩余名额内的链接，其余的拒绝
+        OverflowPolicy policy = overflowPolicy == OverflowPolicy.SPILL ? OverflowPolicy.SPILL
+            : OverflowPolicy.REJECT;
+        int followed = 0;
+        int rejected = 0;
+        for (AddResult result : addTasks(targets, (Callback) record.callback, record.priority,
+            record.depth + 1, policy)) {
+            if (result.isSuccess()) {
+                followed++;
+            } else if (result == AddResult.REJECTED) {
+                rejected++;
+            }
+        }
+        stats.linksFollowed.add(followed);
+        stats.linksRejected.add(rejected);
+        log.debug("URL[{}]中提取到{}个链接，跟进{}个", record.url, links.size(), followed);
+    }
+
+    /**
+     * 执行回调，在抓取线程（NIO任务是线程池）中调用：未开启回调阶段时直接执行；否则结束任务的抓取阶段，将回调交接给回调
+     * 阶段，回调执行完毕后任务完成；阻塞任务在交接队列已满时等待，NIO任务使用分发时预留的名额，不等待
+     *
+     * @param task     任务
+     * @param callback 用户回调，交接失败时通知
+     * @param exec     执行回调
+     */
+    void execCallback(SpiderTask task, Object callback, Runnable exec) {
+        CallbackStage callbackStage = this.callbackStage;
+        if (callbackStage == null) {
+            try {
+                runCallback(exec);
+            } finally {
+                // 阻塞任务在线程池的任务结束时完成
+                if (task.async) {
+                    taskDone(task);
+                }
+            }
+            return;
+        }
+        task.handedOff = true;
+        boolean reserved = task.reserved;
+        task.reserved = false;
+        fetchDone(task);
+        Runnable command = () -> {
+            try {
+                runCallback(exec);
+            } finally {
+                finishTask(task);
+            }
+        };
+        try {
+            if (reserved) {
+                callbackStage.execute(command);
+            } else {
+                callbackStage.put(command);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("请求URL[{}]回调交接时线程被中断", task.record.url);
+            notifyFailure(callback, e);
+            finishTask(task);
+        } catch (RuntimeException e) {
+            log.error("请求URL[{}]回调提交失败", task.record.url, e);
+            notifyFailure(callback, e);
+            finishTask(task);
+        }
+    }
+
+    /**
+     * 执行回调，执行期间标记当前线程，回调中添加任务时不等待名额
+     *
+     * @param exec 回调的执行
+     */
+    private void runCallback(Runnable exec) {
+        inCallback.set(Boolean.TRUE);
+        try {
+            exec.run();
+        } finally {
+            inCallback.remove();
+        }
+    }
+
+    /**
+     * 请求失败（没有得到可用的响应），可以重试时重新放入调度器，否则通知任务失败
+     *
+     * @param task 任务
+     * @param e    失败原因
+     */
+    void requestFailed(SpiderTask task, Throwable e) {
+        stats.error(e);
+        String url = task.record.url;
+        if (retryPolicy != null && retryPolicy.isRetryable(e)) {
+            String retryAfter = e instanceof HttpStatusException
+                ? ((HttpStatusException) e).getRetryAfter()
+                : null;
+            if (retry(task, e, retryAfter)) {
+                return;
+            }
+        }
+        log.error(task.record.kind == TaskRecord.DOWNLOAD ? "下载URL[{}]失败" : "请求URL[{}]失败", url, e);
+        notifyFailure(task.record.callback, e);
+    }
+
+    /**
+     * 得到需要重试的响应状态码并且还可以重试时重新放入调度器，此时不执行回调；重试次数用完后仍然执行回调
+     *
+     * @param task       任务
+     * @param status     响应状态码
+     * @param retryAfter Retry-After响应头，没有时为null
+     * @return true表示已经重新放入调度器
+     */
+    boolean retry(SpiderTask task, int status, String retryAfter) {
+        if (retryPolicy == null || !retryPolicy.isRetryable(status)) {
+            return false;
+        }
+        HttpStatusException cause = new HttpStatusException("响应状态码：" + status, status,
+            retryAfter);
+        stats.error(cause);
+        return retry(task, cause, retryAfter);
+    }
+
+    /**
+     * 将失败的任务重新放入调度器，延迟按照重试策略计算，同时重新预约host的执行时间，保证重试仍然遵守host的抓取间隔；重试
+     * 任务的执行不会占用线程池
+     *
+     * @param task       任务
+     * @param cause      失败原因
+     * @param retryAfter Retry-After响应头，没有时为null
+     * @return true表示已经重新放入调度器，false表示重试次数已经用完或者爬虫已经立即关闭
+     */
+    private boolean retry(SpiderTask task, Throwable cause, String retryAfter) {
+        if (!retryPolicy.canRetry(task.attempt)) {
+            retryExhausted.increment();
+            return false;
+        }
+        if (shutdownNow) {
+            return false;
+        }
+        int attempt = task.attempt + 1;
+        long delay = retryPolicy.delay(attempt, retryAfter);
+        long interval = hostGate.hostInterval(task.host);
+        long execTime;
+        do {
+            long time = System.currentTimeMillis() + delay;
+            execTime = hostGate.getHostSlot(task.host).reserve(time, interval, 1);
+        } while (execTime == HostSlot.EVICTED);
+        SpiderTask retry = new SpiderTask(execTime, task.async, task.host, task.record);
+        retry.attempt = attempt;
+        // 必须在任务完成（减少执行中的任务数）之前放入时间轮，保证关闭时主线程不会在重试任务放入之前退出
+        timingWheel.add(retry);
+        retries.increment();
+        log.warn("请求URL[{}]失败，{}毫秒后第{}次重试：{}", task.record.url,
+            execTime - System.currentTimeMillis(), attempt, cause.toString());
+        return true;
+    }
+
+    /**
+     * 任务失败时通知通过future提交的任务
+     *
+     * @param callback 任务的回调
+     * @param e        失败原因
+     */
+    static void notifyFailure(Object callback, Throwable e) {
+        if (callback instanceof TaskFuture) {
+            ((TaskFuture<?>) callback).fail(e);
+        }
+    }
+
+    /**
+     * 等待提交到线程池的NIO后续处理
+     */
+    private static class HandOff {
+
+        /**
+         * 后续处理
+         */
+        private final Runnable                   command;
+
+        /**
+         * 线程池拒绝时的处理
+         */
+        private final Consumer<RuntimeException> rejected;
+
+        private HandOff(Runnable command, Consumer<RuntimeException> rejected) {
+            this.command = command;
+            this.rejected = rejected;
+        }
+    }
+
+    /**
+     * 批量添加时同一个host的任务下标
+     */
+    private static class HostBatch {
+
+        /**
+         * URL对应的host
+         */
+        private final String host;
+
+        /**
+         * 任务下标
+         */
+        private int[]        indexes = new int[4];
+
+        /**
+         * 任务数
+         */
+        private int          size;
 
-        @Override
-        public long getDelay(TimeUnit unit) {
-            return unit.convert(delay - (System.currentTimeMillis() - begin),
-                TimeUnit.MILLISECONDS);
+        HostBatch(String host) {
+            this.host = host;
         }
 
-        @Override
-        public int compareTo(Delayed o) {
-            Assert.notNull(o, "o不能为null");
-            if (o instanceof SpiderTask) {
-                SpiderTask spiderTask = (SpiderTask) o;
-                return (int) (this.delay - spiderTask.delay);
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
             }
-            throw new SpiderException("不支持的类型：" + o.getClass());
+            indexes[size++] = index;
         }
     }
 
@@ -0,0 +1,336 @@
+package com.joe.spider.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.joe.spider.util.schedule.TimingWheel;
+
+import lombok.Data;
+
+/**
+ * 爬虫配置
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 10:40
+ */
+@Data
+public class SpiderConfig {
+
+    /**
+     * 同一个域名两次抓取时间间隔，小于等于0时表示没有间隔，会作用与所有域名，单位毫秒
+     */
+    private long                             interval;
+
+    /**
+     * 任务线程池，为null时使用默认的IO线程池
+     */
+    private ThreadPoolExecutor               executor;
+
+    /**
+     * 调度时间轮的tick，单位毫秒，任务实际执行时间的精度
+     */
+    private long                             tick                         = TimingWheel.DEFAULT_TICK;
+
+    /**
+     * 调度时间轮每层的槽位数
+     */
+    private int                              wheelSize                    = TimingWheel.DEFAULT_WHEEL_SIZE;
+
+    /**
+     * 抓取模式
+     */
+    private FetchMode                        fetchMode                    = FetchMode.BLOCKING;
+
+    /**
+     * NIO模式下的IO线程数
+     */
+    private int                              ioThreads                    = 1;
+
+    /**
+     * 连接超时时间，单位毫秒，对所有抓取模式生效
+     */
+    private long                             connectTimeout               = 10000;
+
+    /**
+     * 读写超时时间，单位毫秒，对所有抓取模式生效
+     */
+    private long                             readTimeout                  = 30000;
+
+    /**
+     * 最大响应体大小，超过后中止下载（任务失败，不执行回调），小于等于0表示不限制，单位字节；对所有抓取模式和任务类型生效
+     */
+    private long                             maxBodySize;
+
+    /**
+     * NIO模式下是否复用连接（HTTP/1.1 keep-alive），同一个host的请求复用空闲连接，避免频繁建立TCP连接
+     */
+    private boolean                          keepAlive                    = true;
+
+    /**
+     * NIO模式下空闲连接的最长保留时间，单位毫秒；服务端在Keep-Alive响应头中声明了更短的超时时间时以服务端为准
+     */
+    private long                             keepAliveTimeout             = 30000;
+
+    /**
+     * NIO模式下每个host最多保留的空闲连接数，只对没有限制最大并发请求数的host生效；限制了最大并发请求数的host最多保留
+     * 与最大并发请求数相同的空闲连接
+     */
+    private int                              maxIdleConnectionsPerHost    = 2;
+
+    /**
+     * DNS解析结果的缓存时间，单位毫秒；添加任务时在后台预先解析host，NIO模式下连接时直接使用缓存的结果，其他模式下预先
+     * 解析可以预热JVM的解析缓存；小于等于0表示不缓存，默认不缓存，解析结果的变化（例如DNS切换）立即生效；开启
+     * {@link #politenessByIp}时必须设置
+     */
+    private long                             dnsCacheTtl;
+    /**
+     * DNS解析失败的结果的缓存时间，单位毫秒
+     */
+    private long                             dnsNegativeTtl               = 30000;
+    /**
+     * DNS缓存最多缓存的host数
+     */
+    private int                              dnsCacheSize                 = 100000;
+    /**
+     * DNS解析线程数
+     */
+    private int                              dnsThreads                   = 4;
+
+    /**
+     * 是否遵守robots.txt，开启后每个站点第一次添加任务时在后台获取robots.txt并编译为规则缓存，被禁止的URL添加时直接拒绝
+     * （{@link AddResult#DISALLOWED}），规则获取完成之前添加的任务在到期时再检查；Crawl-delay大于host的抓取间隔时使用
+     * Crawl-delay
+     */
+    private boolean                          robotsTxt;
+    /**
+     * 匹配robots.txt中的组使用的User-Agent
+     */
+    private String                           robotsUserAgent              = "spider-util";
+    /**
+     * robots.txt的缓存时间，单位毫秒
+     */
+    private long                             robotsCacheTtl               = 24 * 60 * 60 * 1000;
+    /**
+     * robots.txt获取失败（5xx或者网络异常）时的缓存时间，单位毫秒，期间禁止抓取该站点
+     */
+    private long                             robotsErrorTtl               = 10 * 60 * 1000;
+    /**
+     * robots.txt缓存最多缓存的站点数
+     */
+    private int                              robotsCacheSize              = 100000;
+    /**
+     * robots.txt获取线程数，阻塞模式下同时获取robots.txt的最大站点数
+     */
+    private int                              robotsThreads                = 4;
+    /**
+     * Crawl-delay的上限，单位毫秒，避免个别站点的Crawl-delay过大导致任务长时间等待
+     */
+    private long                             robotsMaxCrawlDelay          = 60000;
+
+    /**
+     * 是否跟进链接，开启后普通抓取任务（不包括通过future提交的任务）的响应在执行回调之前扫描href和src链接，范围内的链接
+     * 使用同一个回调和优先级批量添加为新任务；建议同时开启去重，否则相互链接的页面会重复抓取直到达到最大深度；等待执行的
+     * 任务数达到上限时跟进链接不等待名额，超出的链接被拒绝（SPILL策略下写入磁盘任务队列）
+     */
+    private boolean                          followLinks;
+    /**
+     * 是否只跟进与页面同一个host的链接
+     */
+    private boolean                          followSameHost               = true;
+    /**
+     * 跟进链接的最大深度，添加的任务深度为0，从深度为n的页面中提取的链接深度为n+1；小于等于0表示不限制
+     */
+    private int                              followMaxDepth               = 3;
+    /**
+     * 跟进链接的URL白名单（正则，部分匹配即可），为空时不限制
+     */
+    private List<String>                     followAllow                  = new ArrayList<>();
+    /**
+     * 跟进链接的URL黑名单（正则，部分匹配即可），优先于白名单
+     */
+    private List<String>                     followDeny                   = new ArrayList<>();
+
+    /**
+     * 下载任务计算文件校验和使用的算法
+     */
+    private String                           checksumAlgorithm            = "SHA-256";
+
+    /**
+     * 是否开启URL去重，开启后URL规范化之后重复的任务不会被添加
+     */
+    private boolean                          deduplicate;
+
+    /**
+     * URL去重过滤器的初始设计容量（超出后自动扩展）
+     */
+    private long                             expectedUrls                 = 10000000;
+
+    /**
+     * URL去重过滤器的误判率（误判时新URL会被当作重复URL丢弃）
+     */
+    private double                           falsePositiveRate            = 0.001;
+
+    /**
+     * URL去重过滤器的内存上限，单位字节
+     */
+    private long                             maxFilterMemory              = 512L * 1024 * 1024;
+    /**
+     * 磁盘任务队列的目录，为null时所有待执行任务都在内存中；不为null时内存中（时间轮中）的任务数达到hotWindow后新任务写入
+     * 该目录下的内存映射文件，主线程取出任务后再从磁盘中补充
+     */
+    private Path                             frontierDir;
+    /**
+     * 开启磁盘任务队列时内存中最多保留的待执行任务数
+     */
+    private int                              hotWindow                    = 10000;
+    /**
+     * 磁盘任务队列的段文件大小，单位字节
+     */
+    private int                              frontierSegmentSize          = 64 * 1024 * 1024;
+    /**
+     * HTTP响应缓存的目录，为null时不缓存；不为null时普通抓取任务（{@link Callback}）的响应按照URL缓存，再次抓取同一个URL时
+     * 发送条件请求（If-None-Match/If-Modified-Since），服务端返回304时使用缓存的响应体执行回调；缓存在爬虫关闭后保留，下次
+     * 启动时继续使用
+     */
+    private Path                             responseCacheDir;
+    /**
+     * HTTP响应缓存的响应体总大小上限，单位字节，超过后淘汰最久没有访问的响应
+     */
+    private long                             responseCacheSize            = 1024L * 1024 * 1024;
+    /**
+     * 检查点文件，为null时不写入检查点；不为null时定期将待执行任务、各个host的抓取间隔和最后执行时间、URL去重过滤器写入该
+     * 文件，可以通过{@link Spider#resume(SpiderConfig)}从该文件恢复
+     */
+    private Path                             checkpointFile;
+    /**
+     * 检查点写入间隔，单位毫秒
+     */
+    private long                             checkpointInterval           = 60000;
+    /**
+     * 命名回调，只有使用命名回调的任务才能写入检查点并在恢复时找回回调，key为回调名，value为{@link Callback}、
+     * {@link StreamCallback}或者{@link DownloadCallback}
+     */
+    private Map<String, Object>              callbacks;
+    /**
+     * 是否开启自适应抓取间隔，开启后根据响应延迟、错误和429/503响应（包括Retry-After）调整每个host的抓取间隔，host健康时
+     * 抓取间隔加性减少，直到配置的抓取间隔（作为下限），出现异常时乘性增加
+     */
+    private boolean                          adaptiveRate;
+    /**
+     * 自适应模式下host的初始抓取间隔，单位毫秒，小于配置的抓取间隔时使用配置的抓取间隔
+     */
+    private long                             adaptiveInitialInterval      = 1000;
+    /**
+     * 自适应模式下每次请求成功后减少的抓取间隔，单位毫秒
+     */
+    private long                             adaptiveStep                 = 10;
+    /**
+     * 自适应模式下出现异常时抓取间隔乘以的系数
+     */
+    private double                           adaptiveBackoff              = 2;
+    /**
+     * 自适应模式下的抓取间隔上限，单位毫秒
+     */
+    private long                             adaptiveMaxInterval          = 60000;
+    /**
+     * 自适应模式下响应延迟超过平均延迟的多少倍时认为host变慢，小于等于0表示不根据延迟调整
+     */
+    private double                           slowLatencyFactor            = 3;
+
+    /**
+     * 同一个域名默认的最大并发请求数，超出后该域名的任务在调度器中等待，不占用线程池；小于等于0表示不限制，可以通过
+     * {@link Spider#setMaxInFlight(String, int)}单独设置某个域名
+     */
+    private int                              maxInFlightPerHost;
+    /**
+     * 虚拟线程模式下同一个域名的最大并发请求数，maxInFlightPerHost小于等于0时生效，小于等于0表示不限制
+     */
+    private int                              virtualThreadHostConcurrency = 16;
+    /**
+     * 是否按照解析后的IP限制抓取间隔和最大并发请求数，开启后解析到同一个IP的多个域名共享抓取间隔和并发数，避免同一台服务器上
+     * 的大量虚拟主机被同时抓取；需要通过{@link #dnsCacheTtl}开启DNS缓存；每个域名仍然按照自己的抓取间隔预约执行时间
+     */
+    private boolean                          politenessByIp;
+    /**
+     * 优先级老化时间，单位毫秒：任务到期后在host关卡处每等待该时间，参与排序的优先级提高1，避免低优先级的任务在高优先级
+     * 任务持续到达时一直得不到执行；小于等于0时不老化
+     */
+    private long                             priorityAging                = 10000;
+
+    /**
+     * 等待执行（包括在磁盘任务队列中）的最大任务数，达到上限后按照overflowPolicy处理新添加的任务；小于等于0表示不限制；
+     * 该上限是近似的，并发添加时可能略微超出
+     */
+    private int                              maxQueuedTasks;
+    /**
+     * 等待执行的任务数达到上限时的处理策略
+     */
+    private OverflowPolicy                   overflowPolicy               = OverflowPolicy.BLOCK;
+    /**
+     * 溢出策略为BLOCK时添加任务最多等待的时间，单位毫秒，小于等于0表示一直等待
+     */
+    private long                             offerTimeout;
+    /**
+     * 提交到线程池还未完成的最大任务数，达到上限后主线程等待线程池空闲后再分发，任务留在调度器中而不是堆积在线程池队列
+     * 中；小于等于0表示根据线程池自动计算：线程池队列有界时为最大线程数加队列容量，否则为最大线程数的两倍，虚拟线程模式
+     * 下不限制
+     */
+    private int                              maxExecutorTasks;
+    /**
+     * 回调线程数，大于0时抓取与回调分为两个阶段：抓取完成后回调交给独立的回调线程池执行，抓取线程（NIO模式下是IO线程）
+     * 不会被慢回调占用；小于等于0表示回调在抓取线程中执行；流式任务的回调需要读取响应流，始终在抓取线程中执行
+     */
+    private int                              callbackThreads;
+    /**
+     * 抓取阶段与回调阶段之间交接队列的容量，等待执行的回调数达到容量后抓取线程等待、主线程暂停分发，回调阶段的积压由此
+     * 反压到抓取阶段
+     */
+    private int                              callbackQueueSize            = 1024;
+
+    /**
+     * 请求失败时的最大重试次数，0表示不重试；重试的任务重新放入调度器，仍然遵守host的抓取间隔
+     */
+    private int                              maxRetries;
+    /**
+     * 第一次重试的延迟，单位毫秒，之后每次重试延迟翻倍
+     */
+    private long                             retryBaseDelay               = 1000;
+    /**
+     * 重试的最大延迟，单位毫秒
+     */
+    private long                             retryMaxDelay                = 60000;
+    /**
+     * 重试延迟的随机抖动比例，取值0到1，实际延迟在[延迟 * (1 - retryJitter), 延迟]之间随机
+     */
+    private double                           retryJitter                  = 0.5;
+    /**
+     * 需要重试的响应状态码；任务得到这些状态码并且还可以重试时不会执行回调；重试次数用完后流式任务仍然执行回调，普通任务
+     * 与其他大于等于400的状态码一样失败
+     */
+    private Set<Integer>                     retryStatuses                = new HashSet<>(
+        Arrays.asList(408, 429, 500, 502, 503, 504));
+    /**
+     * 需要重试的异常类型，异常链上的任意一个异常是这些类型的子类时重试；回调抛出的异常不会重试
+     */
+    private List<Class<? extends Throwable>> retryExceptions              = new ArrayList<>(
+        Collections.singletonList(IOException.class));
+
+    /**
+     * host的空闲淘汰时间，单位毫秒，host最后一次抓取之后超过该时间没有新任务时释放该host的调度状态（包括自适应状态），
+     * 单独设置的抓取间隔和最大并发请求数不会被释放；小于等于0表示不淘汰，默认不淘汰，抓取大量只访问一次的host时开启
+     */
+    private long                             hostIdleTimeout;
+
+    /**
+     * 运行指标快照中列出队列深度的host个数（按照队列深度从大到小），小于等于0表示不列出
+     */
+    private int                              metricsTopHosts              = 10;
+}
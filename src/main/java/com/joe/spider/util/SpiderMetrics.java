@@ -0,0 +1,503 @@
+package com.joe.spider.util;
+
+import java.util.Map;
+
+import com.joe.spider.util.metrics.HistogramSnapshot;
+
+/**
+ * 爬虫运行指标快照，由{@link Spider#getMetrics()}生成，创建后不再变化
+ * <p>
+ * 计数和直方图都是从爬虫启动开始的累计值，监控系统按照采集周期计算差值即可得到速率；各项指标分别读取，彼此之间不保证严格
+ * 一致。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+public class SpiderMetrics {
+
+    /**
+     * 快照时间
+     */
+    long              timestamp;
+
+    /**
+     * 等待执行的任务数，包括时间轮中、host关卡处以及磁盘任务队列中的任务
+     */
+    long              queuedTasks;
+
+    /**
+     * host关卡处排队的任务数
+     */
+    long              gatedTasks;
+
+    /**
+     * 磁盘任务队列中的任务数
+     */
+    long              frontierTasks;
+
+    /**
+     * 回调注册表中的回调数
+     */
+    int               registeredCallbacks;
+
+    /**
+     * 已经分发还未完成的任务数
+     */
+    long              inFlightTasks;
+
+    /**
+     * 调度状态还在内存中的host数
+     */
+    long              hosts;
+
+    /**
+     * 内存中等待执行的任务数最多的若干个host，按照任务数从多到少排列
+     */
+    Map<String, Long> hostQueueDepths;
+
+    /**
+     * 已经分发的任务数
+     */
+    long              dispatchedTasks;
+
+    /**
+     * 已经完成的任务数
+     */
+    long              completedTasks;
+
+    /**
+     * 重试次数
+     */
+    long              retries;
+
+    /**
+     * 重试次数用完后仍然失败的次数
+     */
+    long              retryExhausted;
+
+    /**
+     * 下载的字节数
+     */
+    long              bytesDownloaded;
+
+    /**
+     * 新建的连接数
+     */
+    long              connectionsOpened;
+
+    /**
+     * 复用空闲连接的请求数
+     */
+    long              connectionsReused;
+
+    /**
+     * 实际执行的DNS解析次数（不包括命中缓存的）
+     */
+    long              dnsLookups;
+
+    /**
+     * 服务端返回304，使用缓存的响应体的请求数
+     */
+    long              cacheHits;
+
+    /**
+     * 实际获取robots.txt的次数
+     */
+    long              robotsFetches;
+
+    /**
+     * 到期时被robots.txt禁止而没有执行的任务数
+     */
+    long              robotsDenied;
+
+    /**
+     * 从页面中提取的链接数
+     */
+    long              linksExtracted;
+
+    /**
+     * 跟进链接添加成功的任务数
+     */
+    long              linksFollowed;
+
+    /**
+     * 跟进链接时因为任务数达到上限被拒绝的链接数
+     */
+    long              linksRejected;
+
+    /**
+     * 交接给回调阶段还未开始执行的回调数
+     */
+    int               callbackQueueDepth;
+
+    /**
+     * 抓取阶段因为回调交接队列已满而等待的次数
+     */
+    long              callbackStalls;
+
+    /**
+     * 调度延迟，单位毫秒
+     */
+    HistogramSnapshot schedulingLag;
+
+    /**
+     * 请求延迟，单位毫秒
+     */
+    HistogramSnapshot fetchLatency;
+
+    /**
+     * 回调执行时间，单位微秒
+     */
+    HistogramSnapshot callbackDuration;
+
+    /**
+     * 回调在交接队列中的等待时间，单位毫秒
+     */
+    HistogramSnapshot callbackQueueTime;
+
+    /**
+     * 复制检查点快照时主线程暂停分发的时间，单位微秒
+     */
+    HistogramSnapshot checkpointPause;
+
+    /**
+     * 写入检查点文件的时间，单位毫秒
+     */
+    HistogramSnapshot checkpointWriteTime;
+
+    /**
+     * 请求失败按照类型的计数
+     */
+    Map<String, Long> errors;
+
+    /**
+     * 回调失败按照类型的计数
+     */
+    Map<String, Long> callbackErrors;
+
+    SpiderMetrics() {
+    }
+
+    /**
+     * 获取快照时间
+     *
+     * @return 快照时间，单位毫秒
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 获取等待执行的任务数（全局队列深度），包括时间轮中、host关卡处以及磁盘任务队列中的任务
+     *
+     * @return 等待执行的任务数
+     */
+    public long getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    /**
+     * 获取到期后在host关卡处排队的任务数
+     *
+     * @return 排队的任务数
+     */
+    public long getGatedTasks() {
+        return gatedTasks;
+    }
+
+    /**
+     * 获取磁盘任务队列中的任务数
+     *
+     * @return 磁盘任务队列中的任务数，未开启磁盘任务队列时为0
+     */
+    public long getFrontierTasks() {
+        return frontierTasks;
+    }
+
+    /**
+     * 获取回调注册表中的回调数，即磁盘任务队列中的任务引用的回调实例数加上命名回调数，不会随着处理过的任务数增长
+     *
+     * @return 回调数
+     */
+    public int getRegisteredCallbacks() {
+        return registeredCallbacks;
+    }
+
+    /**
+     * 获取已经分发还未完成（包括回调）的任务数
+     *
+     * @return 执行中的任务数
+     */
+    public long getInFlightTasks() {
+        return inFlightTasks;
+    }
+
+    /**
+     * 获取调度状态还在内存中的host数
+     *
+     * @return host数
+     */
+    public long getHosts() {
+        return hosts;
+    }
+
+    /**
+     * 获取内存中（时间轮以及host关卡处）等待执行的任务数最多的若干个host的队列深度，个数由
+     * {@link SpiderConfig#getMetricsTopHosts()}指定；任意host的队列深度可以通过{@link Spider#getQueueDepth(String)}获取
+     *
+     * @return host到等待执行的任务数的映射，按照任务数从多到少排列
+     */
+    public Map<String, Long> getHostQueueDepths() {
+        return hostQueueDepths;
+    }
+
+    /**
+     * 获取已经分发的任务数
+     *
+     * @return 已经分发的任务数，重试会重复计数
+     */
+    public long getDispatchedTasks() {
+        return dispatchedTasks;
+    }
+
+    /**
+     * 获取已经完成的任务数
+     *
+     * @return 已经完成的任务数，重试会重复计数
+     */
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * 获取重试次数
+     *
+     * @return 重试次数
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * 获取重试次数用完后仍然失败的次数
+     *
+     * @return 失败次数
+     */
+    public long getRetryExhausted() {
+        return retryExhausted;
+    }
+
+    /**
+     * 获取下载的响应体字节数，普通抓取任务在阻塞模式下按照响应体字符串的UTF-8编码长度计算，流式任务按照回调读取的字节数
+     * 计算
+     *
+     * @return 字节数
+     */
+    public long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    /**
+     * 获取NIO客户端新建的连接数，阻塞模式下连接由HTTP客户端自己管理，为0
+     *
+     * @return 新建的连接数
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * 获取NIO客户端复用空闲连接的请求数，阻塞模式下为0
+     *
+     * @return 复用连接的请求数
+     */
+    public long getConnectionsReused() {
+        return connectionsReused;
+    }
+
+    /**
+     * 获取连接复用率，即复用空闲连接的请求占所有请求的比例
+     *
+     * @return 连接复用率，没有请求时为0
+     */
+    public double getConnectionReuseRate() {
+        long total = connectionsOpened + connectionsReused;
+        return total == 0 ? 0 : (double) connectionsReused / total;
+    }
+
+    /**
+     * 获取实际执行的DNS解析次数，不包括命中缓存的解析，未开启DNS缓存时为0
+     *
+     * @return DNS解析次数
+     */
+    public long getDnsLookups() {
+        return dnsLookups;
+    }
+
+    /**
+     * 获取服务端返回304、使用响应缓存中的响应体的请求数，未开启响应缓存时为0
+     *
+     * @return 命中缓存的请求数
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * 获取实际获取robots.txt的次数，未开启robots.txt时为0
+     *
+     * @return 获取次数
+     */
+    public long getRobotsFetches() {
+        return robotsFetches;
+    }
+
+    /**
+     * 获取到期时被robots.txt禁止而没有执行的任务数，不包括添加时就被拒绝的任务
+     *
+     * @return 被禁止的任务数
+     */
+    public long getRobotsDenied() {
+        return robotsDenied;
+    }
+
+    /**
+     * 获取从页面中提取的链接数（同一个页面中重复的链接只计一次），未开启跟进链接时为0
+     *
+     * @return 提取的链接数
+     */
+    public long getLinksExtracted() {
+        return linksExtracted;
+    }
+
+    /**
+     * 获取跟进链接添加成功（包括写入磁盘任务队列）的任务数，不包括超出范围、重复以及被拒绝的链接
+     *
+     * @return 添加成功的任务数
+     */
+    public long getLinksFollowed() {
+        return linksFollowed;
+    }
+
+    /**
+     * 获取跟进链接时因为等待执行的任务数达到上限被拒绝的链接数；跟进链接不会等待名额，BLOCK策略下也直接拒绝
+     *
+     * @return 被拒绝的链接数
+     */
+    public long getLinksRejected() {
+        return linksRejected;
+    }
+
+    /**
+     * 获取交接给回调阶段还未开始执行的回调数，未开启回调阶段时为0
+     *
+     * @return 等待执行的回调数
+     */
+    public int getCallbackQueueDepth() {
+        return callbackQueueDepth;
+    }
+
+    /**
+     * 获取抓取阶段（抓取线程以及分发任务的主线程）因为回调交接队列已满而等待的次数，未开启回调阶段时为0
+     *
+     * @return 等待次数
+     */
+    public long getCallbackStalls() {
+        return callbackStalls;
+    }
+
+    /**
+     * 获取调度延迟（任务实际分发时间与计划执行时间的差）的分布，包括在host关卡处排队的时间
+     *
+     * @return 调度延迟，单位毫秒
+     */
+    public HistogramSnapshot getSchedulingLag() {
+        return schedulingLag;
+    }
+
+    /**
+     * 获取请求延迟（请求开始到得到响应）的分布，流式任务以及阻塞模式下的下载任务到响应头为止，其他任务到响应体接收完为止
+     *
+     * @return 请求延迟，单位毫秒
+     */
+    public HistogramSnapshot getFetchLatency() {
+        return fetchLatency;
+    }
+
+    /**
+     * 获取回调执行时间的分布
+     *
+     * @return 回调执行时间，单位微秒
+     */
+    public HistogramSnapshot getCallbackDuration() {
+        return callbackDuration;
+    }
+
+    /**
+     * 获取回调在交接队列中等待时间的分布，未开启回调阶段时为null
+     *
+     * @return 等待时间，单位毫秒
+     */
+    public HistogramSnapshot getCallbackQueueTime() {
+        return callbackQueueTime;
+    }
+
+    /**
+     * 获取写入检查点时主线程暂停分发的时间的分布，主线程只复制内存中的检查点快照，文件在单独的线程中写入；未开启检查点时
+     * 没有记录
+     *
+     * @return 暂停时间，单位微秒
+     */
+    public HistogramSnapshot getCheckpointPause() {
+        return checkpointPause;
+    }
+
+    /**
+     * 获取写入检查点文件（包括读取磁盘任务队列中的记录以及刷盘）的时间的分布，未开启检查点时没有记录
+     *
+     * @return 写入时间，单位毫秒
+     */
+    public HistogramSnapshot getCheckpointWriteTime() {
+        return checkpointWriteTime;
+    }
+
+    /**
+     * 获取请求失败（没有得到可用的响应）按照类型的计数，得到非预期状态码的失败类型为"HTTP 状态码"，其他失败类型为异常类
+     * 名；每次失败的尝试都会计数，包括之后重试成功的
+     *
+     * @return 失败类型到次数的映射
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    /**
+     * 获取回调抛出异常按照异常类名的计数
+     *
+     * @return 异常类名到次数的映射
+     */
+    public Map<String, Long> getCallbackErrors() {
+        return callbackErrors;
+    }
+
+    @Override
+    public String toString() {
+        return "SpiderMetrics{timestamp=" + timestamp + ", queuedTasks=" + queuedTasks
+               + ", gatedTasks=" + gatedTasks + ", frontierTasks=" + frontierTasks
+               + ", registeredCallbacks=" + registeredCallbacks
+               + ", inFlightTasks=" + inFlightTasks + ", hosts=" + hosts + ", hostQueueDepths="
+               + hostQueueDepths + ", dispatchedTasks=" + dispatchedTasks + ", completedTasks="
+               + completedTasks + ", retries=" + retries + ", retryExhausted=" + retryExhausted
+               + ", bytesDownloaded=" + bytesDownloaded + ", connectionsOpened=" + connectionsOpened
+               + ", connectionsReused=" + connectionsReused + ", dnsLookups=" + dnsLookups
+               + ", cacheHits=" + cacheHits + ", robotsFetches=" + robotsFetches
+               + ", robotsDenied=" + robotsDenied + ", linksExtracted=" + linksExtracted
+               + ", linksFollowed=" + linksFollowed + ", linksRejected=" + linksRejected
+               + ", callbackQueueDepth=" + callbackQueueDepth
+               + ", callbackStalls=" + callbackStalls + ", schedulingLag=" + schedulingLag
+               + ", fetchLatency=" + fetchLatency + ", callbackDuration=" + callbackDuration
+               + ", callbackQueueTime=" + callbackQueueTime + ", checkpointPause=" + checkpointPause
+               + ", checkpointWriteTime=" + checkpointWriteTime
+               + ", errors=" + errors + ", callbackErrors=" + callbackErrors + "}";
+    }
+}
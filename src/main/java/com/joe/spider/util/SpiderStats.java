@@ -0,0 +1,195 @@
+package com.joe.spider.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.metrics.Histogram;
+
+/**
+ * 爬虫运行指标的记录，所有记录都是无锁的，可以在任意线程中调用；读取时通过{@link Spider#getMetrics()}生成快照
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+final class SpiderStats {
+
+    /**
+     * 毫秒直方图可以精确记录的最大值
+     */
+    private static final long            MAX_MILLIS          = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * 微秒直方图可以精确记录的最大值
+     */
+    private static final long            MAX_MICROS          = TimeUnit.DAYS.toMicros(1);
+
+    /**
+     * 调度延迟（实际分发时间与计划执行时间的差），单位毫秒
+     */
+    final Histogram                      schedulingLag;
+
+    /**
+     * 请求延迟（请求开始到得到响应），单位毫秒
+     */
+    final Histogram                      fetchLatency;
+
+    /**
+     * 回调执行时间，单位微秒
+     */
+    final Histogram                      callbackDuration;
+
+    /**
+     * 复制检查点快照时主线程暂停分发的时间，单位微秒
+     */
+    final Histogram                      checkpointPause;
+
+    /**
+     * 写入检查点文件的时间，单位毫秒
+     */
+    final Histogram                      checkpointWriteTime;
+
+    /**
+     * 下载的字节数
+     */
+    final LongAdder                      bytes;
+
+    /**
+     * 已经分发的任务数
+     */
+    final LongAdder                      dispatched;
+
+    /**
+     * 已经完成的任务数
+     */
+    final LongAdder                      completed;
+
+    /**
+     * 服务端返回304，使用缓存的响应体的请求数
+     */
+    final LongAdder                      cacheHits;
+
+    /**
+     * 到期时被robots.txt禁止而没有执行的任务数
+     */
+    final LongAdder                      robotsDenied;
+
+    /**
+     * 从页面中提取的链接数（同一个页面中重复的链接只计一次）
+     */
+    final LongAdder                      linksExtracted;
+
+    /**
+     * 跟进链接添加成功的任务数
+     */
+    final LongAdder                      linksFollowed;
+
+    /**
+     * 跟进链接时因为等待执行的任务数达到上限被拒绝的链接数
+     */
+    final LongAdder                      linksRejected;
+
+    /**
+     * 请求失败按照类型的计数
+     */
+    private final Map<String, LongAdder> errors;
+
+    /**
+     * 回调失败按照类型的计数
+     */
+    private final Map<String, LongAdder> callbackErrors;
+
+    SpiderStats() {
+        this.schedulingLag = new Histogram(MAX_MILLIS);
+        this.fetchLatency = new Histogram(MAX_MILLIS);
+        this.callbackDuration = new Histogram(MAX_MICROS);
+        this.checkpointPause = new Histogram(MAX_MICROS);
+        this.checkpointWriteTime = new Histogram(MAX_MILLIS);
+        this.bytes = new LongAdder();
+        this.dispatched = new LongAdder();
+        this.completed = new LongAdder();
+        this.cacheHits = new LongAdder();
+        this.robotsDenied = new LongAdder();
+        this.linksExtracted = new LongAdder();
+        this.linksFollowed = new LongAdder();
+        this.linksRejected = new LongAdder();
+        this.errors = new ConcurrentHashMap<>();
+        this.callbackErrors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 记录一次请求失败
+     *
+     * @param e 失败原因
+     */
+    void error(Throwable e) {
+        increment(errors, errorType(e));
+    }
+
+    /**
+     * 记录一次回调失败
+     *
+     * @param e 失败原因
+     */
+    void callbackError(Throwable e) {
+        increment(callbackErrors, errorType(e));
+    }
+
+    /**
+     * 记录一次回调的执行时间
+     *
+     * @param start 回调开始时间，{@link System#nanoTime()}
+     */
+    void callbackDone(long start) {
+        callbackDuration.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * 获取请求失败按照类型的计数
+     *
+     * @return 失败类型到次数的映射
+     */
+    Map<String, Long> errors() {
+        return copy(errors);
+    }
+
+    /**
+     * 获取回调失败按照类型的计数
+     *
+     * @return 失败类型到次数的映射
+     */
+    Map<String, Long> callbackErrors() {
+        return copy(callbackErrors);
+    }
+
+    /**
+     * 失败类型，得到了非预期状态码的失败按照状态码区分，其他失败按照异常类名区分
+     *
+     * @param e 失败原因
+     * @return 失败类型
+     */
+    static String errorType(Throwable e) {
+        if (e instanceof HttpStatusException) {
+            return "HTTP " + ((HttpStatusException) e).getStatus();
+        }
+        return e.getClass().getName();
+    }
+
+    private static void increment(Map<String, LongAdder> counters, String type) {
+        LongAdder counter = counters.get(type);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(type, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private static Map<String, Long> copy(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((type, counter) -> result.put(type, counter.sum()));
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,76 @@
+package com.joe.spider.util;
+
+import com.joe.spider.util.schedule.WheelTask;
+
+/**
+ * 爬虫任务
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 14:10
+ */
+final class SpiderTask extends WheelTask {
+
+    /**
+     * 是否是异步任务，异步任务在主线程中发起，不占用线程池
+     */
+    final boolean    async;
+
+    /**
+     * URL对应的host
+     */
+    final String     host;
+
+    /**
+     * 任务描述，为null时表示空任务
+     */
+    final TaskRecord record;
+
+    /**
+     * 分发时经过的关卡（host或者IP），通过关卡分发的任务完成时需要减少关卡的并发数，没有经过关卡时为null
+     */
+    String           gate;
+
+    /**
+     * 已经执行的重试次数
+     */
+    int              attempt;
+
+    /**
+     * 到达关卡的顺序，只有主线程访问
+     */
+    long             arrival;
+
+    /**
+     * 回调是否已经交接给回调阶段，交接后由回调阶段完成任务，只有执行任务的线程访问
+     */
+    boolean          handedOff;
+
+    /**
+     * 是否在分发时预留了回调交接队列的名额，请求完成后交接回调时使用，请求失败时归还
+     */
+    boolean          reserved;
+
+    /**
+     * 构建爬虫任务
+     *
+     * @param execTime 执行时间（绝对时间），单位毫秒
+     * @param async    是否是异步任务
+     * @param host     URL对应的host
+     * @param record   任务描述，为null时表示空任务
+     */
+    SpiderTask(long execTime, boolean async, String host, TaskRecord record) {
+        super(execTime);
+        this.async = async;
+        this.host = host;
+        this.record = record;
+    }
+
+    /**
+     * 获取任务所在关卡，没有经过关卡时就是host
+     *
+     * @return 关卡
+     */
+    String gate() {
+        return gate == null ? host : gate;
+    }
+}
@@ -0,0 +1,32 @@
+package com.joe.spider.util;
+
+import java.io.IOException;
+
+import com.joe.spider.util.http.StreamResponse;
+
+/**
+ * 流式网络请求回调，响应头到达时即回调，响应体在读取的同时仍在下载，适合大页面或者文件下载
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 15:30
+ */
+public interface StreamCallback {
+
+    /**
+     * 响应头到达时回调该方法，方法返回后响应会被自动关闭，未读取的响应体将被丢弃
+     *
+     * @param response 流式响应
+     * @throws IOException 读取响应体失败，例如下载失败或者超过最大响应体限制
+     */
+    void exec(StreamResponse response) throws IOException;
+
+    /**
+     * 将普通回调适配为流式回调，会读取全部响应体后以字符串的形式交给普通回调
+     *
+     * @param callback 普通回调
+     * @return 流式回调
+     */
+    static StreamCallback of(Callback callback) {
+        return response -> callback.exec(response.readAsString());
+    }
+}
@@ -0,0 +1,94 @@
+package com.joe.spider.util;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.StreamResponse;
+
+/**
+ * 将任务的执行结果转换为{@link CompletableFuture}的回调，可以作为任意类型任务的回调
+ * <p>
+ * 没有用户回调时future的结果就是抓取结果（字符串或者下载结果）；有用户回调时用户回调执行完毕后future完成，结果为null，
+ * 用户回调抛出异常时future异常完成
+ *
+ * @param <T> future的结果类型
+ * @author JoeKerouac
+ * @version 2026年10月18日 22:30
+ */
+final class TaskFuture<T> implements Callback, StreamCallback, DownloadCallback {
+
+    /**
+     * 任务对应的future
+     */
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    /**
+     * 用户回调，为null时future的结果就是抓取结果
+     */
+    private final Object               callback;
+
+    TaskFuture(Object callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 获取任务对应的future
+     *
+     * @return future
+     */
+    CompletableFuture<T> future() {
+        return future;
+    }
+
+    @Override
+    public void exec(String result) {
+        try {
+            if (callback != null) {
+                ((Callback) callback).exec(result);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        complete(result);
+    }
+
+    @Override
+    public void exec(StreamResponse response) throws IOException {
+        try {
+            ((StreamCallback) callback).exec(response);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        complete(null);
+    }
+
+    @Override
+    public void exec(DownloadResult result) {
+        try {
+            if (callback != null) {
+                ((DownloadCallback) callback).exec(result);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        complete(result);
+    }
+
+    /**
+     * 任务失败
+     *
+     * @param e 失败原因
+     */
+    void fail(Throwable e) {
+        future.completeExceptionally(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(Object result) {
+        future.complete(callback == null ? (T) result : null);
+    }
+}
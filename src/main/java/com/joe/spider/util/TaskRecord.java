@@ -0,0 +1,153 @@
+package com.joe.spider.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 任务描述，只包含URL、任务类型、下载目标、优先级、深度以及回调，不包含调度相关的状态；可以编码为字节数组写入磁盘队列，回调本身无法序列
+ * 化，编码时只保存回调在{@link CallbackRegistry}中的ID
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 18:20
+ */
+final class TaskRecord {
+
+    /**
+     * 普通抓取任务，回调类型为{@link Callback}
+     */
+    static final byte FETCH    = 0;
+
+    /**
+     * 流式抓取任务，回调类型为{@link StreamCallback}
+     */
+    static final byte STREAM   = 1;
+
+    /**
+     * 下载任务，回调类型为{@link DownloadCallback}
+     */
+    static final byte DOWNLOAD = 2;
+
+    /**
+     * 任务类型
+     */
+    final byte        kind;
+
+    /**
+     * 要抓取的URL
+     */
+    final String      url;
+
+    /**
+     * 回调
+     */
+    final Object      callback;
+
+    /**
+     * 下载任务的目标文件，其他任务为null
+     */
+    final Path        target;
+
+    /**
+     * 优先级，越大越优先，默认为0
+     */
+    final int         priority;
+
+    /**
+     * 深度，添加的任务为0，跟进链接得到的任务为所在页面的深度加1
+     */
+    final int         depth;
+
+    TaskRecord(byte kind, String url, Object callback, Path target) {
+        this(kind, url, callback, target, 0);
+    }
+
+    TaskRecord(byte kind, String url, Object callback, Path target, int priority) {
+        this(kind, url, callback, target, priority, 0);
+    }
+
+    TaskRecord(byte kind, String url, Object callback, Path target, int priority, int depth) {
+        this.kind = kind;
+        this.url = url;
+        this.callback = callback;
+        this.target = target;
+        this.priority = priority;
+        this.depth = depth;
+    }
+
+    /**
+     * 回调是否存在并且与任务类型匹配
+     *
+     * @return true表示任务可以执行
+     */
+    boolean isValid() {
+        switch (kind) {
+            case FETCH:
+                return callback instanceof Callback;
+            case STREAM:
+                return callback instanceof StreamCallback;
+            case DOWNLOAD:
+                return callback instanceof DownloadCallback && target != null;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 编码任务，格式为：[类型(1字节)][回调ID(4字节)][URL长度(4字节)][URL][目标文件长度(4字节，没有时为-1)][目标文件]
+     * [优先级(4字节)][深度(4字节)]；优先级和深度放在最后，没有这两项的旧数据仍然可以解码
+     *
+     * @param ids 获取回调ID，写入磁盘队列时为{@link CallbackRegistry#register(Object)}，写入检查点时为
+     *            {@link CallbackRegistry#named(Object)}
+     * @return 编码后的数据
+     */
+    byte[] encode(ToIntFunction<Object> ids) {
+        byte[] url = this.url.getBytes(StandardCharsets.UTF_8);
+        byte[] target = this.target == null ? null
+            : this.target.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer
+            .allocate(21 + url.length + (target == null ? 0 : target.length));
+        buffer.put(kind);
+        buffer.putInt(ids.applyAsInt(callback));
+        buffer.putInt(url.length);
+        buffer.put(url);
+        if (target == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(target.length);
+            buffer.put(target);
+        }
+        buffer.putInt(priority);
+        buffer.putInt(depth);
+        return buffer.array();
+    }
+
+    /**
+     * 解码任务
+     *
+     * @param data      编码后的数据
+     * @param callbacks 根据回调ID查找回调，找不到时返回null
+     * @return 任务，回调为null时表示回调已经找不到了
+     */
+    static TaskRecord decode(byte[] data, IntFunction<Object> callbacks) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte kind = buffer.get();
+        Object callback = callbacks.apply(buffer.getInt());
+        String url = readString(buffer, buffer.getInt());
+        int targetLength = buffer.getInt();
+        Path target = targetLength < 0 ? null : Paths.get(readString(buffer, targetLength));
+        int priority = buffer.remaining() >= 4 ? buffer.getInt() : 0;
+        int depth = buffer.remaining() >= 4 ? buffer.getInt() : 0;
+        return new TaskRecord(kind, url, callback, target, priority, depth);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.position(), length,
+            StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.joe.spider.util;
+
+/**
+ * 任务添加失败（例如URL重复、等待执行的任务数达到上限或者爬虫已经关闭）时future异常完成的原因
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 22:30
+ */
+public class TaskRejectedException extends SpiderException {
+
+    private static final long serialVersionUID = -3158032907152416371L;
+
+    /**
+     * 添加结果
+     */
+    private final AddResult   result;
+
+    public TaskRejectedException(String url, AddResult result) {
+        super("任务[" + url + "]添加失败：" + result);
+        this.result = result;
+    }
+
+    /**
+     * 获取添加结果
+     *
+     * @return 添加结果
+     */
+    public AddResult getResult() {
+        return result;
+    }
+}
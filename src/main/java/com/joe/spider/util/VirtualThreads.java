@@ -0,0 +1,58 @@
+package com.joe.spider.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具，通过反射使用JDK21及以上版本提供的虚拟线程，保证在低版本JDK上也可以编译运行
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 14:02
+ */
+final class VirtualThreads {
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor方法，当前JDK不支持虚拟线程时为null
+     */
+    private static final Method FACTORY;
+
+    static {
+        Method factory;
+        try {
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            factory = null;
+        }
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     *
+     * @return true表示支持
+     */
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * 创建一个每个任务一个虚拟线程的线程池
+     *
+     * @return 线程池
+     * @throws SpiderException 当前JDK不支持虚拟线程时抛出
+     */
+    static ExecutorService newExecutor() {
+        if (FACTORY == null) {
+            throw new SpiderException("当前JDK不支持虚拟线程，需要JDK21及以上版本");
+        }
+        try {
+            return (ExecutorService) FACTORY.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new SpiderException("创建虚拟线程池失败", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.joe.spider.util.cache;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.joe.spider.util.http.HttpHeaders;
+
+/**
+ * 响应缓存中的一条记录，只包含校验信息和响应体的位置，响应体保存在段文件中；创建后不再变化
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 02:10
+ */
+public final class CacheEntry {
+
+    /**
+     * ETag响应头，没有时为null
+     */
+    private final String etag;
+
+    /**
+     * Last-Modified响应头，没有时为null
+     */
+    private final String lastModified;
+
+    /**
+     * Content-Type响应头，没有时为null
+     */
+    private final String contentType;
+
+    /**
+     * 响应体所在的段序号
+     */
+    final int            segment;
+
+    /**
+     * 响应体在段内的偏移
+     */
+    final long           offset;
+
+    /**
+     * 响应体大小
+     */
+    final int            length;
+
+    CacheEntry(String etag, String lastModified, String contentType, int segment, long offset,
+               int length) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * 获取ETag
+     *
+     * @return ETag，没有时为null
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * 获取Last-Modified
+     *
+     * @return Last-Modified，没有时为null
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * 获取Content-Type
+     *
+     * @return Content-Type，没有时为null
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 获取响应体大小
+     *
+     * @return 响应体大小，单位字节
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 获取重新验证该记录时需要发送的条件请求头
+     *
+     * @return 条件请求头
+     */
+    public Map<String, String> conditionalHeaders() {
+        Map<String, String> headers = new HashMap<>(4);
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * 获取缓存的响应体的字符集
+     *
+     * @return Content-Type中声明的字符集，未声明时为UTF-8
+     */
+    public Charset charset() {
+        if (contentType == null) {
+            return StandardCharsets.UTF_8;
+        }
+        Map<String, List<String>> headers = HttpHeaders.create();
+        headers.put("Content-Type", Collections.singletonList(contentType));
+        return HttpHeaders.charset(headers, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 以Content-Type中声明的字符集（未声明时使用UTF-8）将缓存的响应体转换为字符串
+     *
+     * @param body 缓存的响应体
+     * @return 字符串形式的响应体
+     */
+    public String decode(byte[] body) {
+        return new String(body, charset());
+    }
+
+    /**
+     * 使用新的校验信息创建记录，响应体位置不变
+     */
+    CacheEntry withValidators(String etag, String lastModified) {
+        return new CacheEntry(etag, lastModified, contentType, segment, offset, length);
+    }
+
+    /**
+     * 响应体移动到新位置后创建记录
+     */
+    CacheEntry moveTo(int segment, long offset) {
+        return new CacheEntry(etag, lastModified, contentType, segment, offset, length);
+    }
+}
@@ -0,0 +1,619 @@
+package com.joe.spider.util.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.joe.spider.util.SpiderException;
+import com.joe.spider.util.http.HttpHeaders;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于本地文件的HTTP响应缓存，用于重复抓取时发送条件请求（If-None-Match/If-Modified-Since），服务端返回304时直接使用缓存的
+ * 响应体
+ * <p>
+ * 只缓存带有ETag或者Last-Modified的响应；响应体顺序追加到段文件中，索引（URL、校验信息和响应体位置）保存在内存中，按照最近
+ * 访问顺序排列，关闭时写入索引文件，下次打开时恢复。缓存的响应体总大小超过上限时淘汰最久没有访问的记录；被淘汰或者被替换的
+ * 响应体占用的磁盘空间在段文件中的记录全部失效后释放，失效的空间过多时将存活记录最少的段中的记录搬到当前段后删除该段。
+ * <p>
+ * 异常退出时索引文件中可能包含已经被删除的段中的记录，打开时会丢弃这些记录；缓存只是尽力而为，读写失败时只记录日志，不影响
+ * 抓取。所有方法都是线程安全的。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 02:10
+ */
+@Slf4j
+public class ResponseCache implements Closeable {
+
+    /**
+     * 索引文件头
+     */
+    private static final int                        INDEX_MAGIC    = 0x52434958;
+
+    /**
+     * 索引文件版本
+     */
+    private static final int                        INDEX_VERSION  = 1;
+
+    /**
+     * 索引文件名
+     */
+    private static final String                     INDEX_FILE     = "index";
+
+    /**
+     * 段文件名前缀
+     */
+    private static final String                     SEGMENT_PREFIX = "data-";
+
+    /**
+     * 段文件名后缀
+     */
+    private static final String                     SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * 可以缓存的URL的最大长度
+     */
+    private static final int                        MAX_URL_LENGTH = 8192;
+
+    /**
+     * 缓存目录
+     */
+    private final Path                              dir;
+
+    /**
+     * 缓存的响应体总大小上限，单位字节
+     */
+    private final long                              maxSize;
+
+    /**
+     * 段文件大小，单位字节，超过该大小的响应体不缓存
+     */
+    private final long                              segmentSize;
+
+    /**
+     * 索引，按照最近访问顺序排列，最久没有访问的在最前面
+     */
+    private final LinkedHashMap<String, CacheEntry> entries;
+
+    /**
+     * 还存在的段文件，key为段序号
+     */
+    private final Map<Integer, Segment>             segments;
+
+    /**
+     * 当前写入的段
+     */
+    private Segment                                 current;
+
+    /**
+     * 下一个段序号
+     */
+    private int                                     nextSegment;
+
+    /**
+     * 缓存的响应体总大小
+     */
+    private long                                    liveBytes;
+
+    /**
+     * 段文件总大小
+     */
+    private long                                    diskBytes;
+
+    /**
+     * 索引是否有还未写入索引文件的修改
+     */
+    private boolean                                 dirty;
+
+    /**
+     * 是否已经关闭
+     */
+    private boolean                                 closed;
+
+    /**
+     * 打开响应缓存，目录中已经有缓存时恢复
+     *
+     * @param dir     缓存目录，不存在时自动创建
+     * @param maxSize 缓存的响应体总大小上限，单位字节
+     */
+    public ResponseCache(Path dir, long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize必须大于0");
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new SpiderException("创建响应缓存目录失败：" + dir, e);
+        }
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.segmentSize = Math.max(Math.min(maxSize / 8, 64 * 1024 * 1024), 64 * 1024);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.segments = new HashMap<>();
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new SpiderException("打开响应缓存失败：" + dir, e);
+        }
+    }
+
+    /**
+     * 获取URL对应的缓存记录
+     *
+     * @param url URL
+     * @return 缓存记录，没有时返回null
+     */
+    public synchronized CacheEntry get(String url) {
+        return closed ? null : entries.get(url);
+    }
+
+    /**
+     * 服务端返回304时读取缓存的响应体，304响应中带有新的校验信息时更新记录
+     *
+     * @param url     URL
+     * @param entry   发送条件请求时使用的缓存记录
+     * @param headers 304响应的响应头
+     * @return 缓存的响应体，记录已经被淘汰或者替换时返回null
+     */
+    public synchronized byte[] revalidate(String url, CacheEntry entry,
+                                          Map<String, List<String>> headers) {
+        if (closed || entries.get(url) != entry) {
+            return null;
+        }
+        byte[] body;
+        try {
+            body = read(entry);
+        } catch (IOException e) {
+            log.warn("读取URL[{}]的缓存失败", url, e);
+            remove(url);
+            return null;
+        }
+        String etag = HttpHeaders.first(headers, "ETag");
+        String lastModified = HttpHeaders.first(headers, "Last-Modified");
+        if ((etag != null && !etag.equals(entry.getEtag()))
+            || (lastModified != null && !lastModified.equals(entry.getLastModified()))) {
+            entries.put(url,
+                entry.withValidators(etag == null ? entry.getEtag() : etag,
+                    lastModified == null ? entry.getLastModified() : lastModified));
+            dirty = true;
+        }
+        return body;
+    }
+
+    /**
+     * 缓存响应，没有校验信息或者不允许缓存（Cache-Control: no-store）的响应不缓存，同时删除该URL旧的缓存
+     *
+     * @param url     URL
+     * @param headers 响应头
+     * @param body    响应体
+     */
+    public synchronized void put(String url, Map<String, List<String>> headers, byte[] body) {
+        if (closed) {
+            return;
+        }
+        String etag = HttpHeaders.first(headers, "ETag");
+        String lastModified = HttpHeaders.first(headers, "Last-Modified");
+        String cacheControl = HttpHeaders.first(headers, "Cache-Control");
+        boolean noStore = cacheControl != null
+                          && cacheControl.toLowerCase(Locale.ROOT).contains("no-store");
+        if ((etag == null && lastModified == null) || noStore || body.length > segmentSize
+            || url.length() > MAX_URL_LENGTH) {
+            // 旧的缓存已经失效
+            remove(url);
+            return;
+        }
+        long offset;
+        try {
+            offset = append(body);
+        } catch (IOException e) {
+            log.warn("缓存URL[{}]的响应失败", url, e);
+            return;
+        }
+        CacheEntry entry = new CacheEntry(etag, lastModified,
+            HttpHeaders.first(headers, "Content-Type"), current.index, offset, body.length);
+        current.live += body.length;
+        liveBytes += body.length;
+        CacheEntry old = entries.put(url, entry);
+        if (old != null) {
+            release(old);
+        }
+        dirty = true;
+        evict();
+        compact();
+    }
+
+    /**
+     * 删除URL对应的缓存
+     *
+     * @param url URL
+     */
+    public synchronized void remove(String url) {
+        CacheEntry entry = closed ? null : entries.remove(url);
+        if (entry != null) {
+            release(entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * 缓存的记录数
+     *
+     * @return 记录数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 缓存的响应体总大小
+     *
+     * @return 总大小，单位字节
+     */
+    public synchronized long bytes() {
+        return liveBytes;
+    }
+
+    /**
+     * 将索引写入索引文件，先写入临时文件再原子替换原文件
+     */
+    public synchronized void flush() {
+        if (closed || !dirty) {
+            return;
+        }
+        Path temp = dir.resolve(INDEX_FILE + ".tmp");
+        try {
+            // 索引中的记录必须已经落盘
+            if (current != null) {
+                current.channel.force(false);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+                writeIndex(out);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            log.error("写入响应缓存索引[{}]失败", dir, e);
+        }
+    }
+
+    /**
+     * 写入索引并关闭缓存
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        for (Segment segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("关闭响应缓存段文件[{}]失败", segment.path, e);
+            }
+        }
+        segments.clear();
+        entries.clear();
+        current = null;
+    }
+
+    /**
+     * 打开已经存在的段文件并读取索引，丢弃引用了不存在的数据的记录，删除没有记录的段文件
+     *
+     * @throws IOException IO异常
+     */
+    private void load() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir,
+            SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int index;
+                try {
+                    index = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                Segment segment = new Segment(index, path, channel);
+                segment.size = channel.size();
+                segments.put(index, segment);
+                diskBytes += segment.size;
+                nextSegment = Math.max(nextSegment, index + 1);
+            }
+        }
+
+        Path indexFile = dir.resolve(INDEX_FILE);
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(indexFile), 64 * 1024))) {
+            readIndex(in);
+        } catch (NoSuchFileException e) {
+            log.debug("响应缓存[{}]没有索引文件", dir);
+        } catch (IOException e) {
+            log.warn("响应缓存索引[{}]损坏，丢弃所有缓存", indexFile, e);
+            entries.clear();
+            liveBytes = 0;
+            for (Segment segment : segments.values()) {
+                segment.live = 0;
+            }
+        }
+
+        for (Segment segment : segments.values().toArray(new Segment[0])) {
+            if (segment.live == 0) {
+                release(segment);
+            }
+        }
+        log.info("打开响应缓存[{}]，共{}条记录，{}字节", dir, entries.size(), liveBytes);
+        evict();
+        compact();
+    }
+
+    /**
+     * 读取索引，格式为：文件头、下一个段序号、记录（按照最近访问顺序，每条记录前写入true，结尾写入false）
+     *
+     * @param in 输入
+     * @throws IOException IO异常
+     */
+    private void readIndex(DataInputStream in) throws IOException {
+        if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+            throw new IOException("索引文件格式错误");
+        }
+        nextSegment = Math.max(nextSegment, in.readInt());
+        int dropped = 0;
+        while (in.readBoolean()) {
+            String url = in.readUTF();
+            CacheEntry entry = new CacheEntry(readNullable(in), readNullable(in),
+                readNullable(in), in.readInt(), in.readLong(), in.readInt());
+            Segment segment = segments.get(entry.segment);
+            if (segment == null || entry.offset + entry.length > segment.size) {
+                dropped++;
+                continue;
+            }
+            entries.put(url, entry);
+            segment.live += entry.length;
+            liveBytes += entry.length;
+        }
+        if (dropped > 0) {
+            log.warn("响应缓存[{}]中有{}条记录的数据已经不存在", dir, dropped);
+            dirty = true;
+        }
+    }
+
+    private void writeIndex(DataOutputStream out) throws IOException {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeInt(nextSegment);
+        for (Map.Entry<String, CacheEntry> item : entries.entrySet()) {
+            CacheEntry entry = item.getValue();
+            out.writeBoolean(true);
+            out.writeUTF(item.getKey());
+            writeNullable(out, entry.getEtag());
+            writeNullable(out, entry.getLastModified());
+            writeNullable(out, entry.getContentType());
+            out.writeInt(entry.segment);
+            out.writeLong(entry.offset);
+            out.writeInt(entry.length);
+        }
+        out.writeBoolean(false);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * 总大小超过上限时淘汰最久没有访问的记录
+     */
+    private void evict() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (liveBytes > maxSize && iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            iterator.remove();
+            release(entry);
+            dirty = true;
+        }
+    }
+
+    /**
+     * 段文件总大小超过上限的1.5倍时，将存活数据最少的段中的记录搬到当前段后删除该段；缓存的响应体总大小不超过上限，因此
+     * 被选中的段中至少有1/3的空间已经失效
+     */
+    private void compact() {
+        while (diskBytes > maxSize + maxSize / 2) {
+            Segment victim = null;
+            for (Segment segment : segments.values()) {
+                if (segment != current && (victim == null || segment.live < victim.live)) {
+                    victim = segment;
+                }
+            }
+            if (victim == null || victim.live >= victim.size) {
+                return;
+            }
+            for (Map.Entry<String, CacheEntry> item : entries.entrySet()) {
+                CacheEntry entry = item.getValue();
+                if (entry.segment != victim.index) {
+                    continue;
+                }
+                try {
+                    long offset = append(read(entry));
+                    // 修改值不会改变访问顺序
+                    item.setValue(entry.moveTo(current.index, offset));
+                    current.live += entry.length;
+                    victim.live -= entry.length;
+                } catch (IOException e) {
+                    log.warn("搬移响应缓存记录失败，删除段文件[{}]中剩余的记录", victim.path, e);
+                    int index = victim.index;
+                    entries.values().removeIf(remaining -> remaining.segment == index);
+                    liveBytes -= victim.live;
+                    break;
+                }
+            }
+            dirty = true;
+            release(victim);
+        }
+    }
+
+    /**
+     * 将响应体追加到当前段，当前段空间不足时创建新的段
+     *
+     * @param body 响应体
+     * @return 响应体在当前段中的偏移
+     * @throws IOException IO异常
+     */
+    private long append(byte[] body) throws IOException {
+        if (current == null || current.size + body.length > segmentSize) {
+            Segment full = current;
+            current = newSegment();
+            if (full != null && full.live == 0) {
+                release(full);
+            }
+        }
+        long offset = current.size;
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            current.channel.write(buffer, offset + buffer.position());
+        }
+        current.size += body.length;
+        diskBytes += body.length;
+        return offset;
+    }
+
+    /**
+     * 读取记录对应的响应体
+     *
+     * @param entry 记录
+     * @return 响应体
+     * @throws IOException IO异常
+     */
+    private byte[] read(CacheEntry entry) throws IOException {
+        Segment segment = segments.get(entry.segment);
+        if (segment == null) {
+            throw new IOException("段文件不存在：" + entry.segment);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        while (buffer.hasRemaining()) {
+            if (segment.channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                throw new EOFException("段文件[" + segment.path + "]被截断");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 创建一个新的段文件
+     *
+     * @return 新的段
+     * @throws IOException IO异常
+     */
+    private Segment newSegment() throws IOException {
+        int index = nextSegment++;
+        Path path = dir.resolve(SEGMENT_PREFIX + index + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(index, path, channel);
+        segments.put(index, segment);
+        return segment;
+    }
+
+    /**
+     * 记录被淘汰或者替换，段中的记录全部失效时删除该段（当前段除外）
+     *
+     * @param entry 记录
+     */
+    private void release(CacheEntry entry) {
+        liveBytes -= entry.length;
+        Segment segment = segments.get(entry.segment);
+        if (segment != null && (segment.live -= entry.length) == 0 && segment != current) {
+            release(segment);
+        }
+    }
+
+    /**
+     * 关闭并删除段文件
+     *
+     * @param segment 段
+     */
+    private void release(Segment segment) {
+        segments.remove(segment.index);
+        diskBytes -= segment.size;
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("删除响应缓存段文件[{}]失败", segment.path, e);
+        }
+    }
+
+    /**
+     * 段文件
+     */
+    private static class Segment {
+
+        /**
+         * 段序号
+         */
+        private final int         index;
+
+        /**
+         * 段文件
+         */
+        private final Path        path;
+
+        /**
+         * 段文件的channel，使用位置读写，可以并发读取
+         */
+        private final FileChannel channel;
+
+        /**
+         * 段文件大小
+         */
+        private long              size;
+
+        /**
+         * 段中还有效的响应体大小
+         */
+        private long              live;
+
+        Segment(int index, Path path, FileChannel channel) {
+            this.index = index;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
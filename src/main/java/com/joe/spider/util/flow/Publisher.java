@@ -0,0 +1,21 @@
+package com.joe.spider.util.flow;
+
+/**
+ * 数据发布者，与JDK9的{@code java.util.concurrent.Flow.Publisher}以及Reactive Streams的Publisher语义相同；本项目需要
+ * 兼容JDK8，因此单独定义，JDK9及以上可以通过方法引用与Flow相互适配
+ *
+ * @param <T> 发布的数据类型
+ * @author JoeKerouac
+ * @version 2026年10月19日 04:30
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+    /**
+     * 添加订阅者，订阅成功时首先调用{@link Subscriber#onSubscribe(Subscription)}，失败时在onSubscribe之后调用
+     * {@link Subscriber#onError(Throwable)}
+     *
+     * @param subscriber 订阅者，不能为null
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+}
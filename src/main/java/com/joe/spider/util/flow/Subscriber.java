@@ -0,0 +1,38 @@
+package com.joe.spider.util.flow;
+
+/**
+ * 数据订阅者，与JDK9的{@code java.util.concurrent.Flow.Subscriber}语义相同；同一个订阅者的方法不会被并发调用，
+ * onError和onComplete最多调用一次，之后不再有任何调用
+ *
+ * @param <T> 订阅的数据类型
+ * @author JoeKerouac
+ * @version 2026年10月19日 04:30
+ */
+public interface Subscriber<T> {
+
+    /**
+     * 订阅成功，在其他方法之前调用；订阅者通过{@link Subscription#request(long)}请求数据，不请求时不会收到数据
+     *
+     * @param subscription 订阅
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * 收到一条数据，收到的数据总数不会超过请求的总数
+     *
+     * @param item 数据
+     */
+    void onNext(T item);
+
+    /**
+     * 发布异常结束
+     *
+     * @param throwable 异常
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * 发布正常结束
+     */
+    void onComplete();
+}
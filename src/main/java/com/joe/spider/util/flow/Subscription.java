@@ -0,0 +1,23 @@
+package com.joe.spider.util.flow;
+
+/**
+ * 订阅者与发布者之间的订阅，与JDK9的{@code java.util.concurrent.Flow.Subscription}语义相同，方法可以在任意线程调用
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 04:30
+ */
+public interface Subscription {
+
+    /**
+     * 请求n条数据，多次请求时累加，累计达到{@link Long#MAX_VALUE}时表示不限制；n小于等于0时以
+     * {@link IllegalArgumentException}结束订阅
+     *
+     * @param n 请求的数据条数
+     */
+    void request(long n);
+
+    /**
+     * 取消订阅，之后不再收到数据，可能还会收到取消之前已经开始的调用
+     */
+    void cancel();
+}
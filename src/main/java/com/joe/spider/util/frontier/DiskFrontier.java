@@ -0,0 +1,499 @@
+package com.joe.spider.util.frontier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.joe.spider.util.SpiderException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于内存映射文件的磁盘任务队列，按照host分组，同一个host内先进先出，不同host之间轮流取出
+ * <p>
+ * 所有记录顺序追加到固定大小的段文件中，每条记录头部保存同一个host下一条记录的地址，因此每个host在堆中只需要保存队列头尾
+ * 地址和记录数，堆内存占用与排队的记录数无关；一个段文件中的记录全部取出后删除该段文件。
+ * <p>
+ * 记录格式：[下一条记录地址(8字节)][数据长度(4字节)][数据]，地址为段序号 * 段大小 + 段内偏移。
+ * <p>
+ * 所有方法都是线程安全的。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 18:05
+ */
+@Slf4j
+public class DiskFrontier {
+
+    /**
+     * 记录头大小
+     */
+    private static final int             HEADER_SIZE = 12;
+
+    /**
+     * 段文件所在目录
+     */
+    private final Path                   dir;
+
+    /**
+     * 段文件大小，单位字节
+     */
+    private final int                    segmentSize;
+
+    /**
+     * 还存在的段文件，key为段序号
+     */
+    private final Map<Long, Segment>     segments;
+
+    /**
+     * 有待取出记录的host
+     */
+    private final Map<String, HostQueue> hosts;
+
+    /**
+     * 轮流取出记录的host队列
+     */
+    private final ArrayDeque<HostQueue>  ready;
+
+    /**
+     * 当前写入的段
+     */
+    private Segment                      current;
+
+    /**
+     * 下一个段序号
+     */
+    private long                         nextSegment;
+
+    /**
+     * 待取出的记录数
+     */
+    private long                         size;
+
+    /**
+     * 是否已经关闭
+     */
+    private boolean                      closed;
+
+    /**
+     * 构建磁盘任务队列
+     *
+     * @param dir         段文件所在目录，不存在时自动创建
+     * @param segmentSize 段文件大小，单位字节，单条记录不能超过该大小
+     */
+    public DiskFrontier(Path dir, int segmentSize) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize太小：" + segmentSize);
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new SpiderException("创建磁盘队列目录失败：" + dir, e);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.segments = new HashMap<>();
+        this.hosts = new HashMap<>();
+        this.ready = new ArrayDeque<>();
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param host host
+     * @param data 记录数据
+     * @return 追加后待取出的记录数，队列已经关闭时返回-1
+     */
+    public synchronized long push(String host, byte[] data) {
+        if (closed) {
+            return -1;
+        }
+        int length = HEADER_SIZE + data.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("记录大小[" + length + "]超过段大小[" + segmentSize + "]");
+        }
+        if (current == null || segmentSize - current.position < length) {
+            Segment full = current;
+            current = newSegment();
+            if (full != null && full.live == 0) {
+                release(full);
+            }
+        }
+        Segment segment = current;
+        int offset = segment.position;
+        long address = segment.index * segmentSize + offset;
+        segment.buffer.putLong(offset, -1);
+        segment.buffer.putInt(offset + 8, data.length);
+        ByteBuffer view = segment.buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.put(data);
+        segment.position += length;
+        segment.live++;
+
+        HostQueue queue = hosts.get(host);
+        if (queue == null) {
+            queue = new HostQueue(host);
+            hosts.put(host, queue);
+            ready.add(queue);
+            queue.head = address;
+        } else {
+            // 将上一条记录指向本条记录
+            Segment tail = segments.get(queue.tail / segmentSize);
+            tail.buffer.putLong((int) (queue.tail % segmentSize), address);
+        }
+        queue.tail = address;
+        queue.count++;
+        return ++size;
+    }
+
+    /**
+     * 批量追加同一个host的记录，所有记录在一次加锁中追加
+     *
+     * @param host host
+     * @param data 记录数据
+     * @return 追加后待取出的记录数，队列已经关闭时返回-1
+     */
+    public synchronized long pushAll(String host, List<byte[]> data) {
+        long size = this.size;
+        for (byte[] record : data) {
+            size = push(host, record);
+        }
+        return size;
+    }
+
+    /**
+     * 取出一条记录，不同host之间轮流取出
+     *
+     * @return 记录，队列为空时返回null
+     */
+    public synchronized Entry poll() {
+        HostQueue queue = ready.poll();
+        if (queue == null) {
+            return null;
+        }
+        long address = queue.head;
+        Segment segment = segments.get(address / segmentSize);
+        int offset = (int) (address % segmentSize);
+        byte[] data = read(segment, offset);
+        queue.head = segment.buffer.getLong(offset);
+        size--;
+        if (--queue.count == 0) {
+            hosts.remove(queue.host);
+        } else {
+            ready.add(queue);
+        }
+        if (--segment.live == 0 && segment != current) {
+            release(segment);
+        }
+        return new Entry(queue.host, data);
+    }
+
+    /**
+     * 复制队列元数据（每个host的队列头地址和记录数），只在复制时加锁，耗时只与host数有关，与记录数无关；通过返回的快照
+     * 遍历复制时待取出的记录
+     *
+     * @return 队列元数据的快照，队列已经关闭时快照中没有记录
+     */
+    public synchronized Snapshot snapshot() {
+        List<HostQueue> queues = new ArrayList<>();
+        if (!closed) {
+            for (HostQueue queue : ready) {
+                HostQueue copy = new HostQueue(queue.host);
+                copy.head = queue.head;
+                copy.count = queue.count;
+                queues.add(copy);
+            }
+        }
+        return new Snapshot(queues, new HashMap<>(segments));
+    }
+
+    /**
+     * 指定host是否有待取出的记录
+     *
+     * @param host host
+     * @return true表示有
+     */
+    public synchronized boolean contains(String host) {
+        return hosts.containsKey(host);
+    }
+
+    /**
+     * 待取出的记录数
+     *
+     * @return 记录数
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 指定host待取出的记录数
+     *
+     * @param host host
+     * @return 记录数
+     */
+    public synchronized long size(String host) {
+        HostQueue queue = hosts.get(host);
+        return queue == null ? 0 : queue.count;
+    }
+
+    /**
+     * 队列为空时关闭队列，关闭后追加记录会失败
+     *
+     * @return true表示队列为空并且已经关闭
+     */
+    public synchronized boolean closeIfEmpty() {
+        if (size == 0) {
+            close();
+        }
+        return closed;
+    }
+
+    /**
+     * 关闭队列，丢弃所有待取出的记录并删除段文件
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments.values().toArray(new Segment[0])) {
+            release(segment);
+        }
+        hosts.clear();
+        ready.clear();
+        current = null;
+        size = 0;
+    }
+
+    /**
+     * 创建一个新的段文件
+     *
+     * @return 新的段
+     */
+    private Segment newSegment() {
+        Path path = null;
+        try {
+            path = Files.createTempFile(dir, "frontier-", ".seg");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+                // 映射在channel关闭后仍然有效
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    segmentSize);
+                Segment segment = new Segment(nextSegment++, path, buffer);
+                segments.put(segment.index, segment);
+                return segment;
+            }
+        } catch (IOException e) {
+            if (path != null) {
+                delete(path);
+            }
+            throw new SpiderException("创建磁盘队列段文件失败", e);
+        }
+    }
+
+    /**
+     * 读取记录数据
+     *
+     * @param segment 记录所在的段
+     * @param offset  记录在段内的偏移
+     * @return 记录数据
+     */
+    private static byte[] read(Segment segment, int offset) {
+        byte[] data = new byte[segment.buffer.getInt(offset + 8)];
+        ByteBuffer view = segment.buffer.duplicate();
+        view.position(offset + HEADER_SIZE);
+        view.get(data);
+        return data;
+    }
+
+    /**
+     * 释放段文件
+     *
+     * @param segment 段
+     */
+    private void release(Segment segment) {
+        segments.remove(segment.index);
+        // 映射内存在buffer被回收后释放，删除文件不影响已经存在的映射
+        delete(segment.path);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除磁盘队列段文件[{}]失败", path, e);
+        }
+    }
+
+    /**
+     * 记录访问者
+     */
+    public interface Visitor {
+
+        /**
+         * 访问一条记录
+         *
+         * @param host 记录对应的host
+         * @param data 记录数据
+         * @throws IOException IO异常
+         */
+        void visit(String host, byte[] data) throws IOException;
+    }
+
+    /**
+     * 队列元数据的快照
+     * <p>
+     * 已经存在的记录除了最后一条记录的下一条地址外不会再被修改，段文件也不会被复用；快照持有复制时的段，段文件被删除后映射
+     * 仍然有效，因此遍历不加锁，可以在任意线程中与追加、取出、关闭并发执行，不会读到复制之后追加的记录
+     */
+    public final class Snapshot {
+
+        /**
+         * 复制的host队列
+         */
+        private final List<HostQueue>    queues;
+
+        /**
+         * 复制时存在的段文件
+         */
+        private final Map<Long, Segment> segments;
+
+        Snapshot(List<HostQueue> queues, Map<Long, Segment> segments) {
+            this.queues = queues;
+            this.segments = segments;
+        }
+
+        /**
+         * 按照host遍历复制时待取出的所有记录
+         *
+         * @param visitor 记录访问者
+         * @throws IOException 访问者抛出的异常
+         */
+        public void forEach(Visitor visitor) throws IOException {
+            for (HostQueue queue : queues) {
+                long address = queue.head;
+                for (long i = 0; i < queue.count; i++) {
+                    Segment segment = segments.get(address / segmentSize);
+                    int offset = (int) (address % segmentSize);
+                    visitor.visit(queue.host, read(segment, offset));
+                    address = segment.buffer.getLong(offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * 队列中的一条记录
+     */
+    public static class Entry {
+
+        /**
+         * 记录对应的host
+         */
+        private final String host;
+
+        /**
+         * 记录数据
+         */
+        private final byte[] data;
+
+        Entry(String host, byte[] data) {
+            this.host = host;
+            this.data = data;
+        }
+
+        /**
+         * 获取记录对应的host
+         *
+         * @return host
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * 获取记录数据
+         *
+         * @return 记录数据
+         */
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * 段文件
+     */
+    private static class Segment {
+
+        /**
+         * 段序号
+         */
+        private final long             index;
+
+        /**
+         * 段文件
+         */
+        private final Path             path;
+
+        /**
+         * 映射的内存
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * 下次写入的位置
+         */
+        private int                    position;
+
+        /**
+         * 还未取出的记录数
+         */
+        private int                    live;
+
+        Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * 一个host的记录队列，记录本身在段文件中，通过记录头的地址串联
+     */
+    private static class HostQueue {
+
+        /**
+         * host
+         */
+        private final String host;
+
+        /**
+         * 第一条记录地址
+         */
+        private long         head;
+
+        /**
+         * 最后一条记录地址
+         */
+        private long         tail;
+
+        /**
+         * 记录数
+         */
+        private long         count;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+    }
+}
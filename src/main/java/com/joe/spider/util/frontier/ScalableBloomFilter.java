@@ -0,0 +1,452 @@
+package com.joe.spider.util.frontier;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 线程安全的可扩展布隆过滤器
+ * <p>
+ * 由一组布隆过滤器组成，当前过滤器装满（达到设计容量）后新建一个容量翻倍、误判率减半的过滤器，第一个过滤器使用指定误判率
+ * 的一半，因此整体误判率不会超过指定误判率；所有过滤器占用的内存达到上限后不再扩展，此时继续写入会使误判率逐渐上升，但内
+ * 存不会再增长。
+ * <p>
+ * 写入和查询都是无锁的（位设置使用CAS），只有扩展时加锁；并发写入同一个元素时极小概率两个线程都认为是新元素。
+ * <p>
+ * 通过{@link #capture()}创建快照后可以在其他线程中写入快照，快照创建时不复制数据：只有最后一个过滤器还会被修改，快照期间
+ * 修改该过滤器时先复制被修改的分段（写时复制），写入时使用复制的分段，未被修改的分段直接读取，已经写入的分段不再复制。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:50
+ */
+public class ScalableBloomFilter {
+
+    /**
+     * 快照分段包含的long数的位移，每个分段8KB
+     */
+    private static final int    CHUNK_SHIFT = 10;
+
+    /**
+     * 快照分段包含的long数
+     */
+    private static final int    CHUNK_WORDS = 1 << CHUNK_SHIFT;
+
+    /**
+     * 已经写入的分段，之后修改不再复制
+     */
+    private static final long[] WRITTEN     = new long[0];
+
+    /**
+     * 内存上限，单位字节
+     */
+    private final long          maxMemory;
+
+    /**
+     * 当前的过滤器组，只会追加，写入只发生在最后一个
+     */
+    private volatile Filter[]   filters;
+
+    /**
+     * 已经使用的内存，单位字节
+     */
+    private volatile long       usedMemory;
+
+    /**
+     * 正在写入的快照，没有时为null
+     */
+    private volatile Capture    capture;
+
+    /**
+     * 构建可扩展布隆过滤器
+     *
+     * @param expected          初始过滤器的设计容量
+     * @param falsePositiveRate 整体误判率
+     * @param maxMemory         内存上限，单位字节
+     */
+    public ScalableBloomFilter(long expected, double falsePositiveRate, long maxMemory) {
+        if (expected <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expected必须大于0，falsePositiveRate必须在0到1之间");
+        }
+        this.maxMemory = maxMemory;
+        Filter first = new Filter(expected, falsePositiveRate / 2, maxMemory);
+        this.filters = new Filter[] { first };
+        this.usedMemory = first.memory();
+    }
+
+    private ScalableBloomFilter(long maxMemory, Filter[] filters) {
+        this.maxMemory = maxMemory;
+        this.filters = filters;
+        long usedMemory = 0;
+        for (Filter filter : filters) {
+            usedMemory += filter.memory();
+        }
+        this.usedMemory = usedMemory;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     * @return true表示元素之前不存在（可能误判为已存在，不会误判为不存在）
+     */
+    public boolean put(CharSequence value) {
+        long h1 = hash(value, 0);
+        long h2 = hash(value, 0x9E3779B97F4A7C15L);
+        Filter[] current = filters;
+        for (int i = 0; i < current.length - 1; i++) {
+            if (current[i].mightContain(h1, h2)) {
+                return false;
+            }
+        }
+        Filter last = current[current.length - 1];
+        Capture capture = this.capture;
+        if (!last.put(h1, h2, capture == null ? null : capture.imagesOf(last))) {
+            return false;
+        }
+        if (last.count.incrementAndGet() >= last.capacity) {
+            grow(last);
+        }
+        return true;
+    }
+
+    /**
+     * 判断元素是否可能存在
+     *
+     * @param value 元素
+     * @return true表示可能存在，false表示一定不存在
+     */
+    public boolean mightContain(CharSequence value) {
+        long h1 = hash(value, 0);
+        long h2 = hash(value, 0x9E3779B97F4A7C15L);
+        for (Filter filter : filters) {
+            if (filter.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已经使用的内存
+     *
+     * @return 已经使用的内存，单位字节
+     */
+    public long usedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * 创建快照，只记录当前的过滤器组，不复制数据；快照写入或者放弃后必须关闭，同一时间只能有一个快照
+     *
+     * @return 快照
+     */
+    public Capture capture() {
+        Capture capture = new Capture(filters);
+        this.capture = capture;
+        return capture;
+    }
+
+    /**
+     * 将过滤器写入输出，写入期间可以并发添加元素，并发添加的元素可能只有部分被写入
+     *
+     * @param out 输出
+     * @throws IOException IO异常
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        Filter[] current = filters;
+        out.writeLong(maxMemory);
+        out.writeInt(current.length);
+        for (Filter filter : current) {
+            out.writeLong(filter.capacity);
+            out.writeDouble(filter.falsePositiveRate);
+            out.writeInt(filter.hashes);
+            out.writeLong(filter.count.get());
+            out.writeInt(filter.words.length());
+            for (int i = 0; i < filter.words.length(); i++) {
+                out.writeLong(filter.words.get(i));
+            }
+        }
+    }
+
+    /**
+     * 从输入中读取{@link #writeTo(DataOutput)}写入的过滤器
+     *
+     * @param in 输入
+     * @return 过滤器
+     * @throws IOException IO异常
+     */
+    public static ScalableBloomFilter readFrom(DataInput in) throws IOException {
+        long maxMemory = in.readLong();
+        Filter[] filters = new Filter[in.readInt()];
+        for (int i = 0; i < filters.length; i++) {
+            long capacity = in.readLong();
+            double falsePositiveRate = in.readDouble();
+            int hashes = in.readInt();
+            long count = in.readLong();
+            AtomicLongArray words = new AtomicLongArray(in.readInt());
+            for (int j = 0; j < words.length(); j++) {
+                words.set(j, in.readLong());
+            }
+            filters[i] = new Filter(capacity, falsePositiveRate, hashes, count, words);
+        }
+        return new ScalableBloomFilter(maxMemory, filters);
+    }
+
+    private synchronized void grow(Filter full) {
+        Filter[] current = filters;
+        if (current[current.length - 1] != full) {
+            return;
+        }
+        long remain = maxMemory - usedMemory;
+        long capacity = full.capacity * 2;
+        double rate = full.falsePositiveRate / 2;
+        if (Filter.bits(capacity, rate) / 8 > remain) {
+            // 内存已经达到上限，不再扩展
+            return;
+        }
+        Filter next = new Filter(capacity, rate, remain);
+        Filter[] grown = new Filter[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = next;
+        usedMemory += next.memory();
+        filters = grown;
+    }
+
+    /**
+     * 64位哈希，不需要将字符串转换为字节数组
+     */
+    private static long hash(CharSequence value, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        // murmur3 fmix64
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 单个布隆过滤器
+     */
+    private static final class Filter {
+
+        /**
+         * 位数组
+         */
+        private final AtomicLongArray words;
+
+        /**
+         * 位数
+         */
+        private final long            bitSize;
+
+        /**
+         * 哈希函数个数
+         */
+        private final int             hashes;
+
+        /**
+         * 设计容量
+         */
+        private final long            capacity;
+
+        /**
+         * 误判率
+         */
+        private final double          falsePositiveRate;
+
+        /**
+         * 已经写入的元素个数
+         */
+        private final AtomicLong      count;
+
+        Filter(long capacity, double falsePositiveRate, long maxMemory) {
+            long bits = Math.max(64, Math.min(bits(capacity, falsePositiveRate), maxMemory * 8));
+            // AtomicLongArray的长度不能超过int
+            bits = Math.min(bits, (long) Integer.MAX_VALUE * 64);
+            this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+            this.bitSize = (long) words.length() * 64;
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            this.hashes = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+            this.count = new AtomicLong();
+        }
+
+        Filter(long capacity, double falsePositiveRate, int hashes, long count,
+               AtomicLongArray words) {
+            this.words = words;
+            this.bitSize = (long) words.length() * 64;
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            this.hashes = hashes;
+            this.count = new AtomicLong(count);
+        }
+
+        /**
+         * 计算指定容量和误判率需要的位数
+         */
+        static long bits(long capacity, double falsePositiveRate) {
+            return (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        }
+
+        long memory() {
+            return bitSize / 8;
+        }
+
+        /**
+         * 设置元素对应的位
+         *
+         * @param h1     第一个哈希
+         * @param h2     第二个哈希
+         * @param images 快照中该过滤器的分段，不为null时修改分段前先复制分段
+         * @return true表示有位被修改
+         */
+        boolean put(long h1, long h2, AtomicReferenceArray<long[]> images) {
+            boolean changed = false;
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                while (true) {
+                    long old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                    if (images != null) {
+                        image(images, word >>> CHUNK_SHIFT);
+                    }
+                    if (words.compareAndSet(word, old, old | mask)) {
+                        changed = true;
+                        break;
+                    }
+                }
+                combined += h2;
+            }
+            return changed;
+        }
+
+        /**
+         * 获取分段在快照中的内容，还没有复制时复制当前内容；分段的内容在第一次复制成功之前不会被修改，因此复制的是快照创建
+         * 时的内容
+         *
+         * @param images 快照中该过滤器的分段
+         * @param chunk  分段下标
+         * @return 分段内容
+         */
+        long[] image(AtomicReferenceArray<long[]> images, int chunk) {
+            long[] image = images.get(chunk);
+            if (image != null) {
+                return image;
+            }
+            int from = chunk << CHUNK_SHIFT;
+            long[] copy = new long[Math.min(CHUNK_WORDS, words.length() - from)];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = words.get(from + i);
+            }
+            return images.compareAndSet(chunk, null, copy) ? copy : images.get(chunk);
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 过滤器的快照，创建时的过滤器组在写入时的内容与创建时相同；快照期间新扩展的过滤器不包含在快照中
+     */
+    public final class Capture {
+
+        /**
+         * 创建时的过滤器组
+         */
+        private final Filter[]                     filters;
+
+        /**
+         * 创建时每个过滤器的元素个数
+         */
+        private final long[]                       counts;
+
+        /**
+         * 创建时最后一个过滤器（快照期间唯一可能被修改的过滤器）的分段
+         */
+        private final AtomicReferenceArray<long[]> images;
+
+        Capture(Filter[] filters) {
+            this.filters = filters;
+            this.counts = new long[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                counts[i] = filters[i].count.get();
+            }
+            int words = filters[filters.length - 1].words.length();
+            this.images = new AtomicReferenceArray<>((words + CHUNK_WORDS - 1) >>> CHUNK_SHIFT);
+        }
+
+        /**
+         * 获取指定过滤器在快照中的分段
+         *
+         * @param filter 过滤器
+         * @return 分段，过滤器不需要写时复制时返回null
+         */
+        AtomicReferenceArray<long[]> imagesOf(Filter filter) {
+            return filter == filters[filters.length - 1] ? images : null;
+        }
+
+        /**
+         * 将快照写入输出，格式与{@link ScalableBloomFilter#writeTo(DataOutput)}相同，可以在任意线程中调用
+         *
+         * @param out 输出
+         * @throws IOException IO异常
+         */
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeLong(maxMemory);
+            out.writeInt(filters.length);
+            for (int i = 0; i < filters.length; i++) {
+                Filter filter = filters[i];
+                out.writeLong(filter.capacity);
+                out.writeDouble(filter.falsePositiveRate);
+                out.writeInt(filter.hashes);
+                out.writeLong(counts[i]);
+                out.writeInt(filter.words.length());
+                if (i < filters.length - 1) {
+                    // 已经装满的过滤器不会再被修改
+                    for (int j = 0; j < filter.words.length(); j++) {
+                        out.writeLong(filter.words.get(j));
+                    }
+                    continue;
+                }
+                for (int chunk = 0; chunk < images.length(); chunk++) {
+                    for (long word : filter.image(images, chunk)) {
+                        out.writeLong(word);
+                    }
+                    images.set(chunk, WRITTEN);
+                }
+            }
+        }
+
+        /**
+         * 关闭快照，之后写入过滤器不再复制分段
+         */
+        public void close() {
+            if (capture == this) {
+                capture = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.joe.spider.util.frontier;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * URL规范化，保证同一个页面的不同写法得到同一个URL
+ * <p>
+ * 规则：scheme和host转小写、去掉默认端口、去掉片段（#之后的部分）、去掉路径中的.和..、空路径补/。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:50
+ */
+public final class UrlNormalizer {
+
+    private UrlNormalizer() {
+    }
+
+    /**
+     * 规范化URL
+     *
+     * @param url URL
+     * @return 规范化后的URL，无法解析时返回去掉片段的原始URL
+     */
+    public static String normalize(String url) {
+        String raw = url.trim();
+        int fragment = raw.indexOf('#');
+        if (fragment >= 0) {
+            raw = raw.substring(0, fragment);
+        }
+
+        URI uri;
+        try {
+            uri = new URI(raw);
+        } catch (URISyntaxException e) {
+            return raw;
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return raw;
+        }
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        host = host.toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+            port = -1;
+        }
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        } else if (path.contains("/.")) {
+            path = URI.create(path).normalize().getRawPath();
+        }
+
+        StringBuilder sb = new StringBuilder(raw.length());
+        sb.append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            sb.append(uri.getRawUserInfo()).append('@');
+        }
+        sb.append(host);
+        if (port != -1) {
+            sb.append(':').append(port);
+        }
+        sb.append(path);
+        if (uri.getRawQuery() != null) {
+            sb.append('?').append(uri.getRawQuery());
+        }
+        return sb.toString();
+    }
+}
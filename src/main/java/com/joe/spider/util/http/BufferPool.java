@@ -0,0 +1,79 @@
+package com.joe.spider.util.http;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接内存缓冲池，避免频繁分配直接内存
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:05
+ */
+public class BufferPool {
+
+    /**
+     * 缓冲区大小，单位字节
+     */
+    private final int               bufferSize;
+
+    /**
+     * 最多缓存的缓冲区个数
+     */
+    private final int               maxPooled;
+
+    /**
+     * 空闲缓冲区
+     */
+    private final Queue<ByteBuffer> buffers;
+
+    /**
+     * 空闲缓冲区个数
+     */
+    private final AtomicInteger     pooled;
+
+    /**
+     * 构建缓冲池
+     *
+     * @param bufferSize 缓冲区大小，单位字节
+     * @param maxPooled  最多缓存的缓冲区个数
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger();
+    }
+
+    /**
+     * 获取一个缓冲区，池中没有空闲缓冲区时新建
+     *
+     * @return 已经清空的缓冲区
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，池已满时直接丢弃
+     *
+     * @param buffer 缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        buffer.clear();
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
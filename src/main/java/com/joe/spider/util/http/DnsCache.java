@@ -0,0 +1,332 @@
+package com.joe.spider.util.http;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 异步DNS缓存
+ * <p>
+ * 解析在专用的线程池中执行，调用方拿到的是{@link CompletableFuture}，不会阻塞；同一个host并发的解析请求合并为一次解析。
+ * 解析成功的结果缓存ttl时间，失败的结果缓存negativeTtl时间；成功的结果过期后第一次访问仍然返回旧的结果，同时在后台刷新，
+ * 因此常用的host不会因为过期而等待解析。
+ * <p>
+ * JDK本身不提供DNS记录的TTL，因此缓存时间是固定配置的；JVM自身的解析缓存（networkaddress.cache.ttl）仍然生效，缓存
+ * 时间应该不小于JVM的缓存时间。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 00:40
+ */
+@Slf4j
+public class DnsCache implements Closeable {
+
+    /**
+     * IPv4字面量
+     */
+    private static final Pattern     IPV4                 = Pattern
+        .compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    /**
+     * 解析成功的结果的缓存时间，单位毫秒
+     */
+    private final long               ttl;
+
+    /**
+     * 解析失败的结果的缓存时间，单位毫秒
+     */
+    private final long               negativeTtl;
+
+    /**
+     * 最多缓存的host数
+     */
+    private final int                maxEntries;
+
+    /**
+     * 预取时解析线程池中最多排队的解析请求数，超过后放弃预取
+     */
+    private final int                maxPendingPrefetches;
+
+    /**
+     * 缓存
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * 解析线程池
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 是否正在清理缓存
+     */
+    private final AtomicBoolean      sweeping;
+
+    /**
+     * 实际执行的解析次数
+     */
+    private final LongAdder          lookups;
+
+    /**
+     * 构建DNS缓存
+     *
+     * @param ttl         解析成功的结果的缓存时间，单位毫秒
+     * @param negativeTtl 解析失败的结果的缓存时间，单位毫秒
+     * @param maxEntries  最多缓存的host数
+     * @param threads     解析线程数
+     */
+    public DnsCache(long ttl, long negativeTtl, int maxEntries, int threads) {
+        if (threads <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("threads和maxEntries必须大于0");
+        }
+        this.ttl = Math.max(ttl, 0);
+        this.negativeTtl = Math.max(negativeTtl, 0);
+        this.maxEntries = maxEntries;
+        this.maxPendingPrefetches = threads * 1024;
+        this.entries = new ConcurrentHashMap<>();
+        this.sweeping = new AtomicBoolean();
+        this.lookups = new LongAdder();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "spider-dns-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 解析host，有未过期的缓存时直接返回已经完成的结果，不会阻塞
+     *
+     * @param host host
+     * @return 解析结果，解析失败时以{@link UnknownHostException}异常完成
+     */
+    public CompletableFuture<InetAddress> resolve(String host) {
+        while (true) {
+            Entry entry = entries.get(host);
+            long now = System.currentTimeMillis();
+            if (entry != null) {
+                if (!entry.future.isDone() || entry.expireTime > now) {
+                    return entry.future;
+                }
+                if (!entry.future.isCompletedExceptionally()) {
+                    // 成功的结果过期后先返回旧的结果，同时在后台刷新
+                    refresh(host, entry);
+                    return entry.future;
+                }
+            } else if (isLiteral(host)) {
+                // IP字面量不需要解析，也不需要缓存
+                return lookupLiteral(host);
+            }
+
+            Entry created = new Entry();
+            boolean added = entry == null ? entries.putIfAbsent(host, created) == null
+                : entries.replace(host, entry, created);
+            if (added) {
+                if (entry == null && entries.size() > maxEntries) {
+                    sweep(now);
+                }
+                lookup(host, created, created);
+                return created.future;
+            }
+        }
+    }
+
+    /**
+     * 预取host的解析结果，已经缓存或者解析线程池繁忙时直接返回
+     *
+     * @param host host
+     */
+    public void prefetch(String host) {
+        Entry entry = entries.get(host);
+        boolean cached = entry != null
+                         && (!entry.future.isDone() || entry.expireTime > System.currentTimeMillis());
+        if (cached || executor.getQueue().size() >= maxPendingPrefetches) {
+            return;
+        }
+        resolve(host);
+    }
+
+    /**
+     * 获取实际执行的解析次数
+     *
+     * @return 解析次数
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * 关闭解析线程池，正在等待的解析请求失败
+     */
+    @Override
+    public void close() {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Lookup) {
+                ((Lookup) task).target.future
+                    .completeExceptionally(new UnknownHostException("DNS缓存已关闭"));
+            }
+        }
+        entries.clear();
+    }
+
+    /**
+     * 后台刷新过期的结果，同一个结果只刷新一次
+     */
+    private void refresh(String host, Entry entry) {
+        if (Entry.REFRESHING.compareAndSet(entry, 0, 1)) {
+            lookup(host, entry, new Entry());
+        }
+    }
+
+    /**
+     * 提交解析请求
+     *
+     * @param host    host
+     * @param current 缓存中当前的结果
+     * @param target  接收解析结果的新结果，与current相同时表示首次解析
+     */
+    private void lookup(String host, Entry current, Entry target) {
+        try {
+            executor.execute(new Lookup(host, current, target));
+        } catch (RejectedExecutionException e) {
+            entries.remove(host, target);
+            target.future.completeExceptionally(new UnknownHostException("DNS缓存已关闭"));
+        }
+    }
+
+    private CompletableFuture<InetAddress> lookupLiteral(String host) {
+        CompletableFuture<InetAddress> future = new CompletableFuture<>();
+        try {
+            future.complete(InetAddress.getByName(host));
+        } catch (UnknownHostException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 缓存的host数超过上限时清理，先清理过期的结果，仍然超过上限时随机清理
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.future.isDone() && entry.expireTime <= now) {
+                    iterator.remove();
+                }
+            }
+            int target = maxEntries - maxEntries / 10;
+            iterator = entries.values().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                if (iterator.next().future.isDone()) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * host是否是IP字面量
+     */
+    private static boolean isLiteral(String host) {
+        return host.indexOf(':') >= 0 || IPV4.matcher(host).matches();
+    }
+
+    /**
+     * 一次解析
+     */
+    private final class Lookup implements Runnable {
+
+        private final String host;
+
+        private final Entry  current;
+
+        private final Entry  target;
+
+        Lookup(String host, Entry current, Entry target) {
+            this.host = host;
+            this.current = current;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            lookups.increment();
+            InetAddress address;
+            try {
+                address = InetAddress.getByName(host);
+            } catch (UnknownHostException e) {
+                failed(e);
+                return;
+            } catch (RuntimeException e) {
+                UnknownHostException exception = new UnknownHostException(host);
+                exception.initCause(e);
+                failed(exception);
+                return;
+            }
+            target.expireTime = System.currentTimeMillis() + ttl;
+            target.future.complete(address);
+            if (target != current) {
+                entries.replace(host, current, target);
+            }
+        }
+
+        private void failed(UnknownHostException e) {
+            log.debug("解析host[{}]失败", host, e);
+            if (target != current) {
+                // 刷新失败时继续使用旧的结果，negativeTtl之后再次刷新
+                current.expireTime = System.currentTimeMillis() + negativeTtl;
+                current.refreshing = 0;
+                return;
+            }
+            target.expireTime = System.currentTimeMillis() + negativeTtl;
+            target.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 缓存的解析结果
+     */
+    private static final class Entry {
+
+        private static final AtomicIntegerFieldUpdater<Entry> REFRESHING = AtomicIntegerFieldUpdater
+            .newUpdater(Entry.class, "refreshing");
+
+        /**
+         * 解析结果
+         */
+        private final CompletableFuture<InetAddress>          future     = new CompletableFuture<>();
+
+        /**
+         * 过期时间，解析完成后设置
+         */
+        private volatile long                                 expireTime;
+
+        /**
+         * 是否正在后台刷新，1表示正在刷新
+         */
+        private volatile int                                  refreshing;
+    }
+}
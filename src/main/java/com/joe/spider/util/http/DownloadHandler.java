@@ -0,0 +1,24 @@
+package com.joe.spider.util.http;
+
+/**
+ * 下载结果处理器，在IO线程中回调，实现中不应该有阻塞操作
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:05
+ */
+public interface DownloadHandler {
+
+    /**
+     * 下载完成时回调
+     *
+     * @param result 下载结果
+     */
+    void completed(DownloadResult result);
+
+    /**
+     * 下载失败时回调，此时已经写入的文件会被删除
+     *
+     * @param e 失败原因
+     */
+    void failed(Throwable e);
+}
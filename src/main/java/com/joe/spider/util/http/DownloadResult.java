@@ -0,0 +1,65 @@
+package com.joe.spider.util.http;
+
+import java.nio.file.Path;
+
+/**
+ * 下载结果
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:05
+ */
+public class DownloadResult {
+
+    /**
+     * 文件路径
+     */
+    private final Path   path;
+
+    /**
+     * 文件大小，单位字节
+     */
+    private final long   size;
+
+    /**
+     * 文件校验和（十六进制小写）
+     */
+    private final String checksum;
+
+    public DownloadResult(Path path, long size, String checksum) {
+        this.path = path;
+        this.size = size;
+        this.checksum = checksum;
+    }
+
+    /**
+     * 获取文件路径
+     *
+     * @return 文件路径
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 获取文件大小
+     *
+     * @return 文件大小，单位字节
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 获取文件校验和
+     *
+     * @return 文件校验和（十六进制小写）
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadResult{path=" + path + ", size=" + size + ", checksum=" + checksum + "}";
+    }
+}
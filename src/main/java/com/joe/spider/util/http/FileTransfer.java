@@ -0,0 +1,131 @@
+package com.joe.spider.util.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 将响应体写入文件，数据只经过直接内存缓冲区，不会复制到堆内存
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 16:05
+ */
+@Slf4j
+public class FileTransfer {
+
+    /**
+     * 目标文件
+     */
+    private final Path          target;
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel   channel;
+
+    /**
+     * 校验和计算
+     */
+    private final MessageDigest digest;
+
+    /**
+     * 已经写入的字节数
+     */
+    private long                size;
+
+    /**
+     * 打开目标文件（存在时覆盖）
+     *
+     * @param target    目标文件
+     * @param algorithm 校验和算法，例如SHA-256、MD5
+     * @throws IOException 文件打开失败或者算法不支持
+     */
+    public FileTransfer(Path target, String algorithm) throws IOException {
+        try {
+            this.digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("不支持的校验和算法：" + algorithm, e);
+        }
+        this.target = target;
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 写入一段数据
+     *
+     * @param data 数据，写入后position移动到limit
+     * @throws IOException IO异常
+     */
+    public void write(ByteBuffer data) throws IOException {
+        digest.update(data.duplicate());
+        while (data.hasRemaining()) {
+            size += channel.write(data);
+        }
+    }
+
+    /**
+     * 从通道中读取全部数据写入文件
+     *
+     * @param source 数据来源
+     * @param pool   缓冲池
+     * @throws IOException IO异常
+     */
+    public void transferFrom(ReadableByteChannel source, BufferPool pool) throws IOException {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                write(buffer);
+                buffer.clear();
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * 写入完成，关闭文件
+     *
+     * @return 下载结果
+     * @throws IOException IO异常
+     */
+    public DownloadResult finish() throws IOException {
+        channel.close();
+        return new DownloadResult(target, size, toHex(digest.digest()));
+    }
+
+    /**
+     * 写入失败，关闭并删除文件
+     */
+    public void abort() {
+        try {
+            channel.close();
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            log.warn("删除下载失败的文件[{}]失败", target, e);
+        }
+    }
+
+    private static String toHex(byte[] data) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] chars = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            chars[i * 2] = digits[(data[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = digits[data[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,77 @@
+package com.joe.spider.util.http;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * HTTP头工具
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 12:05
+ */
+public final class HttpHeaders {
+
+    private HttpHeaders() {
+    }
+
+    /**
+     * 创建key不区分大小写的响应头集合
+     *
+     * @return 响应头集合
+     */
+    public static Map<String, List<String>> create() {
+        return new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    /**
+     * 添加一个头
+     *
+     * @param headers 头集合
+     * @param name    头名
+     * @param value   头的值
+     */
+    public static void add(Map<String, List<String>> headers, String name, String value) {
+        headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+    }
+
+    /**
+     * 获取指定头的第一个值
+     *
+     * @param headers 头集合
+     * @param name    头名
+     * @return 头的值，不存在时返回null
+     */
+    public static String first(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 从Content-Type中获取字符集
+     *
+     * @param headers        头集合
+     * @param defaultCharset 未声明字符集或者字符集不支持时使用的默认字符集
+     * @return 字符集
+     */
+    public static Charset charset(Map<String, List<String>> headers, Charset defaultCharset) {
+        String contentType = first(headers, "Content-Type");
+        if (contentType == null) {
+            return defaultCharset;
+        }
+        for (String param : contentType.split(";")) {
+            param = param.trim();
+            if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+                String name = param.substring(8).replace("\"", "").trim();
+                try {
+                    return Charset.forName(name);
+                } catch (RuntimeException e) {
+                    return defaultCharset;
+                }
+            }
+        }
+        return defaultCharset;
+    }
+}
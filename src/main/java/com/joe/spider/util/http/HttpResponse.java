@@ -0,0 +1,93 @@
+package com.joe.spider.util.http;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP响应
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 12:05
+ */
+public class HttpResponse {
+
+    /**
+     * 状态码
+     */
+    private final int                       status;
+
+    /**
+     * 响应头，key不区分大小写
+     */
+    private final Map<String, List<String>> headers;
+
+    /**
+     * 响应体
+     */
+    private final byte[]                    body;
+
+    public HttpResponse(int status, Map<String, List<String>> headers, byte[] body) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * 获取状态码
+     *
+     * @return 状态码
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取所有响应头
+     *
+     * @return 响应头，key不区分大小写
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * 获取指定响应头的第一个值
+     *
+     * @param name 响应头名，不区分大小写
+     * @return 响应头的值，不存在时返回null
+     */
+    public String getHeader(String name) {
+        return HttpHeaders.first(headers, name);
+    }
+
+    /**
+     * 获取响应体
+     *
+     * @return 响应体
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * 以Content-Type中声明的字符集（未声明时使用UTF-8）将响应体转换为字符串
+     *
+     * @return 字符串形式的响应体
+     */
+    public String getBodyAsString() {
+        return new String(body, HttpHeaders.charset(headers, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 以指定字符集将响应体转换为字符串
+     *
+     * @param charset 字符集
+     * @return 字符串形式的响应体
+     */
+    public String getBodyAsString(Charset charset) {
+        return new String(body, charset);
+    }
+}
@@ -0,0 +1,327 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP/1.1响应增量解析器，支持Content-Length、chunked以及以连接关闭作为结束的响应体；解析出的响应头和响应体通过
+ * {@link Listener}交给调用方处理，解析器本身不缓存响应体
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 12:20
+ */
+class HttpResponseParser {
+
+    /**
+     * 行最大长度，防止恶意响应
+     */
+    private static final int            MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final int            STATUS_LINE     = 0;
+
+    private static final int            HEADER          = 1;
+
+    private static final int            BODY_LENGTH     = 2;
+
+    private static final int            CHUNK_SIZE      = 3;
+
+    private static final int            CHUNK_DATA      = 4;
+
+    private static final int            CHUNK_DATA_END  = 5;
+
+    private static final int            TRAILER         = 6;
+
+    private static final int            BODY_EOF        = 7;
+
+    private static final int            DONE            = 8;
+
+    /**
+     * 当前行
+     */
+    private final ByteArrayOutputStream line            = new ByteArrayOutputStream(128);
+
+    /**
+     * 解析结果监听器
+     */
+    private final Listener              listener;
+
+    /**
+     * 响应头
+     */
+    private Map<String, List<String>>   headers         = HttpHeaders.create();
+
+    /**
+     * 解析状态
+     */
+    private int                         state           = STATUS_LINE;
+
+    /**
+     * 状态码
+     */
+    private int                         status;
+
+    /**
+     * 是否是HTTP/1.0
+     */
+    private boolean                     http10;
+
+    /**
+     * 当前body或者chunk剩余长度
+     */
+    private long                        remaining;
+
+    HttpResponseParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 解析数据
+     *
+     * @param buffer 数据
+     * @return true表示响应已经解析完毕
+     * @throws IOException 响应格式错误
+     */
+    boolean feed(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && state != DONE) {
+            switch (state) {
+                case STATUS_LINE:
+                case HEADER:
+                case CHUNK_SIZE:
+                case CHUNK_DATA_END:
+                case TRAILER:
+                    String text = readLine(buffer);
+                    if (text != null) {
+                        onLine(text);
+                    }
+                    break;
+                case BODY_LENGTH:
+                case CHUNK_DATA:
+                    int len = (int) Math.min(remaining, buffer.remaining());
+                    writeBody(buffer, len);
+                    remaining -= len;
+                    if (remaining == 0) {
+                        state = state == BODY_LENGTH ? DONE : CHUNK_DATA_END;
+                    }
+                    break;
+                case BODY_EOF:
+                    writeBody(buffer, buffer.remaining());
+                    break;
+                default:
+                    throw new IllegalStateException("未知状态：" + state);
+            }
+        }
+        return state == DONE;
+    }
+
+    /**
+     * 连接被对端关闭
+     *
+     * @return true表示响应已经解析完毕
+     * @throws IOException 响应不完整
+     */
+    boolean eof() throws IOException {
+        if (state == BODY_EOF) {
+            state = DONE;
+        }
+        if (state != DONE) {
+            throw new IOException("响应不完整，连接已关闭");
+        }
+        return true;
+    }
+
+    /**
+     * 连接是否可以复用
+     *
+     * @return true表示可以复用
+     */
+    boolean isKeepAlive() {
+        if (state != DONE) {
+            return false;
+        }
+        String connection = HttpHeaders.first(headers, "Connection");
+        if (connection == null) {
+            return !http10;
+        }
+        return http10 ? "keep-alive".equalsIgnoreCase(connection)
+            : !"close".equalsIgnoreCase(connection);
+    }
+
+    /**
+     * 获取状态码
+     *
+     * @return 状态码
+     */
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取响应头
+     *
+     * @return 响应头
+     */
+    Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    private void writeBody(ByteBuffer buffer, int len) throws IOException {
+        int limit = buffer.limit();
+        int end = buffer.position() + len;
+        buffer.limit(end);
+        try {
+            listener.onBody(buffer);
+        } finally {
+            // 不论监听器是否读取完数据，都跳过本段响应体
+            buffer.limit(limit);
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * 读取一行，行不完整时返回null
+     */
+    private String readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                byte[] data = line.toByteArray();
+                line.reset();
+                int len = data.length;
+                if (len > 0 && data[len - 1] == '\r') {
+                    len--;
+                }
+                return new String(data, 0, len, StandardCharsets.ISO_8859_1);
+            }
+            if (line.size() >= MAX_LINE_LENGTH) {
+                throw new IOException("响应行过长");
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    private void onLine(String text) throws IOException {
+        switch (state) {
+            case STATUS_LINE:
+                // HTTP/1.1 200 OK
+                String[] parts = text.split(" ", 3);
+                if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                    throw new IOException("错误的状态行：" + text);
+                }
+                try {
+                    status = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("错误的状态行：" + text);
+                }
+                http10 = "HTTP/1.0".equals(parts[0]);
+                state = HEADER;
+                break;
+            case HEADER:
+                if (!text.isEmpty()) {
+                    addHeader(text);
+                } else if (status >= 100 && status < 200) {
+                    // 1xx响应忽略，继续读取最终响应
+                    headers = HttpHeaders.create();
+                    state = STATUS_LINE;
+                } else {
+                    onHeadersEnd();
+                }
+                break;
+            case CHUNK_SIZE:
+                // chunk扩展忽略
+                int end = text.indexOf(';');
+                remaining = parseLength(end >= 0 ? text.substring(0, end) : text, 16, "chunk大小");
+                state = remaining == 0 ? TRAILER : CHUNK_DATA;
+                break;
+            case CHUNK_DATA_END:
+                state = CHUNK_SIZE;
+                break;
+            case TRAILER:
+                if (text.isEmpty()) {
+                    state = DONE;
+                }
+                break;
+            default:
+                throw new IllegalStateException("未知状态：" + state);
+        }
+    }
+
+    private void addHeader(String text) throws IOException {
+        int index = text.indexOf(':');
+        if (index <= 0) {
+            throw new IOException("错误的响应头：" + text);
+        }
+        HttpHeaders.add(headers, text.substring(0, index).trim(), text.substring(index + 1).trim());
+    }
+
+    /**
+     * 响应头结束，先确定响应体的边界（校验长度）再通知监听器，长度错误的响应不会交给监听器
+     */
+    private void onHeadersEnd() throws IOException {
+        int next;
+        String transferEncoding = HttpHeaders.first(headers, "Transfer-Encoding");
+        String contentLength = HttpHeaders.first(headers, "Content-Length");
+        if (status == 204 || status == 304) {
+            next = DONE;
+        } else if (transferEncoding != null
+                   && transferEncoding.toLowerCase().contains("chunked")) {
+            next = CHUNK_SIZE;
+        } else if (contentLength != null) {
+            remaining = parseLength(contentLength, 10, "Content-Length");
+            next = remaining == 0 ? DONE : BODY_LENGTH;
+        } else {
+            next = BODY_EOF;
+        }
+        listener.onHeaders(status, headers);
+        state = next;
+    }
+
+    /**
+     * 解析响应体或者chunk的长度，负数、非数字以及超出long范围的长度都是协议错误
+     *
+     * @param text  长度
+     * @param radix 进制
+     * @param name  长度的名字，用于异常信息
+     * @return 长度
+     * @throws IOException 长度错误
+     */
+    private static long parseLength(String text, int radix, String name) throws IOException {
+        long length;
+        try {
+            length = Long.parseLong(text.trim(), radix);
+        } catch (NumberFormatException e) {
+            length = -1;
+        }
+        if (length < 0) {
+            throw new IOException("错误的" + name + "：" + text);
+        }
+        return length;
+    }
+
+    /**
+     * 解析结果监听器
+     */
+    interface Listener {
+
+        /**
+         * 响应头解析完毕时回调（1xx响应不会回调）
+         *
+         * @param status  状态码
+         * @param headers 响应头
+         * @throws IOException 抛出异常时终止解析
+         */
+        void onHeaders(int status, Map<String, List<String>> headers) throws IOException;
+
+        /**
+         * 读取到一段响应体时回调，回调返回后数据将被丢弃
+         *
+         * @param data 响应体数据
+         * @throws IOException 抛出异常时终止解析
+         */
+        void onBody(ByteBuffer data) throws IOException;
+    }
+}
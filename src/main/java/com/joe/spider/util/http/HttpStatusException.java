@@ -0,0 +1,48 @@
+package com.joe.spider.util.http;
+
+import java.io.IOException;
+
+/**
+ * 响应状态码不符合预期时抛出的异常，例如下载时得到非2xx响应
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 20:10
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = -3165245412283926387L;
+
+    /**
+     * 响应状态码
+     */
+    private final int         status;
+
+    /**
+     * Retry-After响应头，没有时为null
+     */
+    private final String      retryAfter;
+
+    public HttpStatusException(String message, int status, String retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * 获取响应状态码
+     *
+     * @return 响应状态码
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取Retry-After响应头
+     *
+     * @return Retry-After响应头，没有时为null
+     */
+    public String getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,1171 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+import com.joe.spider.util.SpiderException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于NIO的非阻塞HTTP客户端（仅发送GET请求）
+ * <p>
+ * 所有连接由少量IO线程（每个线程一个Selector）多路复用，单个请求在等待网络时不占用任何线程，适合大量慢连接并发的场景；
+ * 请求结果在IO线程中通过{@link ResponseHandler}或者{@link StreamHandler}回调，回调中不应该有阻塞操作。NIO只实现了http
+ * 协议，https请求（包括http重定向到https）交给阻塞的{@link StreamHttpClient}在blockingExecutor中执行，超时、最大响应
+ * 体限制相同，此时回调在blockingExecutor的线程中执行。
+ * <p>
+ * 开启连接复用时，同一个host（包括端口）的请求固定由同一个IO线程处理，请求完成后连接按照HTTP/1.1 keep-alive语义放回该
+ * 线程的空闲连接池，下次请求直接复用，空闲连接池只在IO线程中访问，不需要加锁；空闲连接超过保留时间（以及服务端在
+ * Keep-Alive响应头中声明的超时时间）或者被服务端关闭后移除。复用的连接在收到响应之前失败时（通常是服务端恰好关闭了
+ * 空闲连接）使用新连接重新发起请求。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 12:40
+ */
+@Slf4j
+public class NioHttpClient implements Closeable {
+
+    /**
+     * 最大重定向次数
+     */
+    private static final int            MAX_REDIRECTS      = 5;
+
+    /**
+     * 流式响应的缓冲大小，超过后暂停读取，单位字节
+     */
+    private static final int            PIPE_BUFFER_SIZE   = 256 * 1024;
+
+    /**
+     * 超时检查间隔，单位毫秒
+     */
+    private static final long           CHECK_INTERVAL     = 100;
+
+    /**
+     * IO线程
+     */
+    private final EventLoop[]           loops;
+
+    /**
+     * 用于选择IO线程
+     */
+    private final AtomicInteger         index;
+
+    /**
+     * 用于执行DNS解析、https请求等阻塞操作的线程池
+     */
+    private final Executor              blockingExecutor;
+
+    /**
+     * 执行https等NIO不支持的协议的请求的阻塞客户端
+     */
+    private final StreamHttpClient      streamClient;
+
+    /**
+     * 连接超时时间，单位毫秒
+     */
+    private final long                  connectTimeout;
+
+    /**
+     * 读写超时时间，单位毫秒
+     */
+    private final long                  readTimeout;
+
+    /**
+     * 最大响应体大小，超过后中止下载，小于等于0表示不限制，单位字节
+     */
+    private final long                  maxBodySize;
+
+    /**
+     * 根据host获取该host最多保留的空闲连接数，为null时不复用连接
+     */
+    private final ToIntFunction<String> maxIdleConnections;
+
+    /**
+     * 空闲连接的最长保留时间，单位毫秒
+     */
+    private final long                  keepAliveTimeout;
+
+    /**
+     * DNS缓存，为null时每次建立连接都重新解析
+     */
+    private final DnsCache              dnsCache;
+
+    /**
+     * 新建的连接数
+     */
+    private final LongAdder             connects;
+
+    /**
+     * 复用空闲连接的请求数，不包括复用失败后改用新连接的请求
+     */
+    private final LongAdder             reuses;
+
+    /**
+     * 是否关闭
+     */
+    private volatile boolean            closed;
+
+    /**
+     * 构建NIO客户端
+     *
+     * @param ioThreads        IO线程数
+     * @param connectTimeout   连接超时时间，单位毫秒
+     * @param readTimeout      读写超时时间，单位毫秒
+     * @param maxBodySize      最大响应体大小，超过后中止下载，小于等于0表示不限制，单位字节
+     * @param blockingExecutor 用于执行DNS解析、https请求等阻塞操作的线程池
+     */
+    public NioHttpClient(int ioThreads, long connectTimeout, long readTimeout, long maxBodySize,
+                         Executor blockingExecutor) {
+        this(ioThreads, connectTimeout, readTimeout, maxBodySize, null, 0, null, blockingExecutor);
+    }
+
+    /**
+     * 构建复用连接的NIO客户端
+     *
+     * @param ioThreads          IO线程数
+     * @param connectTimeout     连接超时时间，单位毫秒
+     * @param readTimeout        读写超时时间，单位毫秒
+     * @param maxBodySize        最大响应体大小，超过后中止下载，小于等于0表示不限制，单位字节
+     * @param maxIdleConnections 根据host获取该host最多保留的空闲连接数，在IO线程中调用，不能阻塞；为null时不复用连接
+     * @param keepAliveTimeout   空闲连接的最长保留时间，单位毫秒
+     * @param dnsCache           DNS缓存，为null时每次建立连接都在blockingExecutor中重新解析
+     * @param blockingExecutor   用于执行DNS解析、https请求等阻塞操作的线程池
+     */
+    public NioHttpClient(int ioThreads, long connectTimeout, long readTimeout, long maxBodySize,
+                         ToIntFunction<String> maxIdleConnections, long keepAliveTimeout,
+                         DnsCache dnsCache, Executor blockingExecutor) {
+        if (ioThreads <= 0) {
+            throw new IllegalArgumentException("ioThreads必须大于0");
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxBodySize = maxBodySize;
+        this.blockingExecutor = blockingExecutor;
+        this.streamClient = new StreamHttpClient(connectTimeout, readTimeout, maxBodySize);
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveTimeout = keepAliveTimeout;
+        this.dnsCache = dnsCache;
+        this.connects = new LongAdder();
+        this.reuses = new LongAdder();
+        this.index = new AtomicInteger();
+        this.loops = new EventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            try {
+                loops[i] = new EventLoop("spider-nio-" + i);
+            } catch (IOException e) {
+                close();
+                throw new SpiderException("创建Selector失败", e);
+            }
+            loops[i].start();
+        }
+    }
+
+    /**
+     * NIO是否支持指定URL的协议，不支持的协议（https）交给阻塞客户端执行
+     *
+     * @param url URL
+     * @return true表示支持
+     */
+    public static boolean isSupported(URL url) {
+        return "http".equalsIgnoreCase(url.getProtocol());
+    }
+
+    /**
+     * 获取新建的连接数
+     *
+     * @return 新建的连接数
+     */
+    public long getConnectCount() {
+        return connects.sum();
+    }
+
+    /**
+     * 获取复用空闲连接的请求数
+     *
+     * @return 复用连接的请求数
+     */
+    public long getReuseCount() {
+        return reuses.sum();
+    }
+
+    /**
+     * 异步执行GET请求，响应体全部下载完毕后回调，该方法不会阻塞
+     *
+     * @param url     URL
+     * @param handler 结果处理器
+     */
+    public void execute(String url, ResponseHandler handler) {
+        execute(url, Collections.emptyMap(), new BufferedSink(handler));
+    }
+
+    /**
+     * 异步执行GET请求，携带额外的请求头（例如条件请求头），响应体全部下载完毕后回调，该方法不会阻塞；重定向后的请求同样
+     * 携带这些请求头
+     *
+     * @param url     URL
+     * @param headers 额外的请求头
+     * @param handler 结果处理器
+     */
+    public void execute(String url, Map<String, String> headers, ResponseHandler handler) {
+        execute(url, headers, new BufferedSink(handler));
+    }
+
+    /**
+     * 异步执行GET请求，响应头到达时即回调，响应体边下载边读取，该方法不会阻塞
+     *
+     * @param url     URL
+     * @param handler 结果处理器
+     */
+    public void execute(String url, StreamHandler handler) {
+        execute(url, Collections.emptyMap(), new StreamSink(handler));
+    }
+
+    /**
+     * 异步下载文件，IO线程直接将读缓冲中的数据写入文件，不经过堆内存，该方法不会阻塞；只有2xx响应会写入文件
+     *
+     * @param url       URL
+     * @param target    目标文件，存在时覆盖
+     * @param algorithm 校验和算法，例如SHA-256、MD5
+     * @param handler   结果处理器
+     */
+    public void download(String url, Path target, String algorithm, DownloadHandler handler) {
+        execute(url, Collections.emptyMap(), new FileSink(target, algorithm, handler));
+    }
+
+    private void execute(String url, Map<String, String> headers, Sink sink) {
+        URL target;
+        try {
+            target = new URL(url);
+        } catch (MalformedURLException e) {
+            sink.failed(e);
+            return;
+        }
+        execute(target, headers, sink, 0);
+    }
+
+    private void execute(URL url, Map<String, String> headers, Sink sink, int redirects) {
+        if (closed) {
+            sink.failed(new SpiderException("客户端已关闭"));
+            return;
+        }
+        if (!isSupported(url)) {
+            executeBlocking(url, headers, sink);
+            return;
+        }
+
+        Exchange exchange = new Exchange(url, headers, sink, redirects);
+        if (maxIdleConnections == null) {
+            resolve(exchange, loops[Math.abs(index.getAndIncrement() % loops.length)]);
+            return;
+        }
+        // 同一个host的请求固定由同一个IO线程处理，先尝试复用该线程中的空闲连接
+        EventLoop loop = loops[(exchange.poolKey.hashCode() & Integer.MAX_VALUE) % loops.length];
+        loop.submit(() -> loop.start(exchange));
+    }
+
+    /**
+     * 使用阻塞客户端在blockingExecutor中执行NIO不支持的协议（https）的请求，重定向由阻塞客户端处理
+     *
+     * @param url     URL
+     * @param headers 额外的请求头
+     * @param sink    结果接收方
+     */
+    private void executeBlocking(URL url, Map<String, String> headers, Sink sink) {
+        if (!"https".equalsIgnoreCase(url.getProtocol())) {
+            sink.failed(new IOException("不支持的协议：" + url));
+            return;
+        }
+        try {
+            blockingExecutor.execute(() -> {
+                StreamResponse response;
+                try {
+                    response = streamClient.execute(url.toString(), headers);
+                } catch (IOException | RuntimeException e) {
+                    sink.failed(e);
+                    return;
+                }
+                sink.response(response);
+            });
+        } catch (RuntimeException e) {
+            sink.failed(e);
+        }
+    }
+
+    /**
+     * 解析host（有DNS缓存时优先使用缓存）后在指定IO线程中建立新连接
+     *
+     * @param exchange 请求交换
+     * @param loop     IO线程
+     */
+    private void resolve(Exchange exchange, EventLoop loop) {
+        URL url = exchange.url;
+        if (dnsCache != null) {
+            // 解析结果（包括失败）都交给IO线程处理，回调不会占用DNS解析线程
+            dnsCache.resolve(url.getHost()).whenComplete((address, e) -> {
+                if (e == null) {
+                    InetSocketAddress target = new InetSocketAddress(address, exchange.port());
+                    loop.submit(() -> loop.connect(exchange, target));
+                } else {
+                    loop.submit(() -> exchange.fail(e));
+                }
+            });
+            return;
+        }
+        try {
+            // DNS解析是阻塞的，不能在IO线程中执行
+            blockingExecutor.execute(() -> {
+                InetSocketAddress address = new InetSocketAddress(url.getHost(), exchange.port());
+                if (address.isUnresolved()) {
+                    exchange.sink.failed(new IOException("无法解析主机：" + url.getHost()));
+                    return;
+                }
+                loop.submit(() -> loop.connect(exchange, address));
+            });
+        } catch (RuntimeException e) {
+            exchange.sink.failed(e);
+        }
+    }
+
+    /**
+     * 关闭客户端，未完成的请求全部失败
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * 请求结果的接收方
+     */
+    private interface Sink {
+
+        /**
+         * 响应头解析完毕
+         *
+         * @param exchange 请求交换
+         * @throws IOException IO异常
+         */
+        void headers(Exchange exchange) throws IOException;
+
+        /**
+         * 读取到一段响应体
+         *
+         * @param exchange 请求交换
+         * @param data     响应体数据
+         * @throws IOException IO异常
+         */
+        void body(Exchange exchange, ByteBuffer data) throws IOException;
+
+        /**
+         * 请求完成
+         *
+         * @param exchange 请求交换
+         */
+        void complete(Exchange exchange);
+
+        /**
+         * 请求失败
+         *
+         * @param e 失败原因
+         */
+        void failed(Throwable e);
+
+        /**
+         * 处理阻塞客户端得到的响应（https请求），在blockingExecutor的线程中调用，需要负责关闭响应
+         *
+         * @param response 响应
+         */
+        void response(StreamResponse response);
+    }
+
+    /**
+     * 将响应体缓存在内存中，请求完成后一次性交给处理器
+     */
+    private static final class BufferedSink implements Sink {
+
+        private final ResponseHandler       handler;
+
+        private final ByteArrayOutputStream body    = new ByteArrayOutputStream(8 * 1024);
+
+        BufferedSink(ResponseHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void headers(Exchange exchange) {
+        }
+
+        @Override
+        public void body(Exchange exchange, ByteBuffer data) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            body.write(chunk, 0, chunk.length);
+        }
+
+        @Override
+        public void complete(Exchange exchange) {
+            handler.completed(new HttpResponse(exchange.parser.getStatus(),
+                exchange.parser.getHeaders(), body.toByteArray()));
+        }
+
+        @Override
+        public void failed(Throwable e) {
+            handler.failed(e);
+        }
+
+        @Override
+        public void response(StreamResponse response) {
+            byte[] data;
+            try (StreamResponse closeable = response) {
+                data = closeable.readAsBytes();
+            } catch (IOException e) {
+                handler.failed(e);
+                return;
+            }
+            handler.completed(new HttpResponse(response.getStatus(), response.getHeaders(), data));
+        }
+    }
+
+    /**
+     * 响应头到达时就将响应交给处理器，响应体通过管道边下载边读取
+     */
+    private final class StreamSink implements Sink {
+
+        private final StreamHandler handler;
+
+        private PipedBody           pipe;
+
+        StreamSink(StreamHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void headers(Exchange exchange) {
+            pipe = new PipedBody(PIPE_BUFFER_SIZE, exchange);
+            handler.onResponse(new StreamResponse(exchange.url.toString(),
+                exchange.parser.getStatus(), exchange.parser.getHeaders(), pipe));
+        }
+
+        @Override
+        public void body(Exchange exchange, ByteBuffer data) {
+            if (pipe.write(data)) {
+                exchange.pause();
+            }
+        }
+
+        @Override
+        public void complete(Exchange exchange) {
+            pipe.finish();
+        }
+
+        @Override
+        public void failed(Throwable e) {
+            if (pipe == null) {
+                handler.failed(e);
+            } else {
+                pipe.fail(e);
+            }
+        }
+
+        @Override
+        public void response(StreamResponse response) {
+            handler.onResponse(response);
+        }
+    }
+
+    /**
+     * 将响应体直接写入文件
+     */
+    private static final class FileSink implements Sink {
+
+        private final Path            target;
+
+        private final String          algorithm;
+
+        private final DownloadHandler handler;
+
+        private FileTransfer          transfer;
+
+        FileSink(Path target, String algorithm, DownloadHandler handler) {
+            this.target = target;
+            this.algorithm = algorithm;
+            this.handler = handler;
+        }
+
+        @Override
+        public void headers(Exchange exchange) throws IOException {
+            start(exchange.url.toString(), exchange.parser.getStatus(),
+                exchange.parser.getHeaders());
+        }
+
+        /**
+         * 检查状态码，只有2xx响应会写入文件
+         */
+        private void start(String url, int status,
+                           Map<String, List<String>> headers) throws IOException {
+            if (status < 200 || status >= 300) {
+                throw new HttpStatusException("下载[" + url + "]失败，状态码：" + status, status,
+                    HttpHeaders.first(headers, "Retry-After"));
+            }
+            transfer = new FileTransfer(target, algorithm);
+        }
+
+        @Override
+        public void body(Exchange exchange, ByteBuffer data) throws IOException {
+            transfer.write(data);
+        }
+
+        @Override
+        public void complete(Exchange exchange) {
+            DownloadResult result;
+            try {
+                result = transfer.finish();
+            } catch (IOException e) {
+                failed(e);
+                return;
+            }
+            handler.completed(result);
+        }
+
+        @Override
+        public void failed(Throwable e) {
+            if (transfer != null) {
+                transfer.abort();
+            }
+            handler.failed(e);
+        }
+
+        @Override
+        public void response(StreamResponse response) {
+            DownloadResult result;
+            try (StreamResponse closeable = response) {
+                start(response.getUrl(), response.getStatus(), response.getHeaders());
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                ReadableByteChannel channel = closeable.getChannel();
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    transfer.write(buffer);
+                    buffer.clear();
+                }
+                result = transfer.finish();
+            } catch (IOException | RuntimeException e) {
+                failed(e);
+                return;
+            }
+            handler.completed(result);
+        }
+    }
+
+    /**
+     * 一次请求交换
+     */
+    private final class Exchange implements HttpResponseParser.Listener, PipedBody.Control {
+
+        /**
+         * 请求URL
+         */
+        private final URL                 url;
+
+        /**
+         * 额外的请求头
+         */
+        private final Map<String, String> headers;
+
+        /**
+         * 结果接收方
+         */
+        private final Sink                sink;
+
+        /**
+         * 当前已经重定向的次数
+         */
+        private final int                 redirects;
+
+        /**
+         * 空闲连接池的key，host加端口
+         */
+        private final String              poolKey;
+
+        /**
+         * 响应解析器
+         */
+        private final HttpResponseParser  parser;
+
+        /**
+         * 所属IO线程
+         */
+        private EventLoop                 loop;
+
+        /**
+         * 请求数据
+         */
+        private ByteBuffer                request;
+
+        /**
+         * 连接
+         */
+        private SocketChannel             channel;
+
+        /**
+         * 连接对应的SelectionKey
+         */
+        private SelectionKey              key;
+
+        /**
+         * 超时时间
+         */
+        private long                      deadline;
+
+        /**
+         * 已经读取的响应体大小
+         */
+        private long                      bodySize;
+
+        /**
+         * 需要重定向到的URL
+         */
+        private URL                       redirect;
+
+        /**
+         * 是否已经结束
+         */
+        private boolean                   done;
+
+        /**
+         * 是否使用的是复用的连接
+         */
+        private boolean                   reused;
+
+        /**
+         * 是否已经收到响应数据
+         */
+        private boolean                   received;
+
+        /**
+         * 请求完成后连接是否可以复用
+         */
+        private boolean                   reusable;
+
+        Exchange(URL url, Map<String, String> headers, Sink sink, int redirects) {
+            this.url = url;
+            this.headers = headers;
+            this.sink = sink;
+            this.redirects = redirects;
+            this.poolKey = url.getHost().toLowerCase(Locale.ROOT) + ":" + port();
+            this.parser = new HttpResponseParser(this);
+        }
+
+        int port() {
+            return url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        }
+
+        ByteBuffer buildRequest() {
+            String path = url.getFile();
+            if (path == null || path.isEmpty()) {
+                path = "/";
+            }
+            String host = url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+            StringBuilder request = new StringBuilder(256);
+            request.append("GET ").append(path).append(" HTTP/1.1\r\n").append("Host: ").append(host)
+                .append("\r\n").append("User-Agent: spider-util\r\n").append("Accept: */*\r\n")
+                .append("Accept-Encoding: identity\r\n").append("Connection: ")
+                .append(maxIdleConnections == null ? "close" : "keep-alive").append("\r\n");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            request.append("\r\n");
+            return ByteBuffer.wrap(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        /**
+         * 计算连接在空闲连接池中的保留时间，服务端在Keep-Alive响应头中声明了超时时间时提前一秒过期，避免复用时恰好被服务端
+         * 关闭
+         *
+         * @return 保留时间，单位毫秒，小于等于0表示不保留
+         */
+        long keepAliveTime() {
+            long time = keepAliveTimeout;
+            String keepAlive = HttpHeaders.first(parser.getHeaders(), "Keep-Alive");
+            if (keepAlive == null) {
+                return time;
+            }
+            for (String param : keepAlive.split(",")) {
+                String value = param.trim();
+                if (value.regionMatches(true, 0, "timeout=", 0, 8)) {
+                    try {
+                        time = Math.min(time, (Long.parseLong(value.substring(8).trim()) - 1) * 1000);
+                    } catch (NumberFormatException e) {
+                        log.debug("错误的Keep-Alive响应头：{}", keepAlive);
+                    }
+                }
+            }
+            return time;
+        }
+
+        @Override
+        public void onHeaders(int status, Map<String, List<String>> headers) throws IOException {
+            String location = HttpHeaders.first(headers, "Location");
+            if (status >= 300 && status < 400 && status != 304 && location != null
+                && redirects < MAX_REDIRECTS) {
+                // 重定向时不需要响应体
+                redirect = new URL(url, location);
+                return;
+            }
+            String contentLength = HttpHeaders.first(headers, "Content-Length");
+            if (maxBodySize > 0 && contentLength != null
+                && Long.parseLong(contentLength.trim()) > maxBodySize) {
+                throw new IOException("响应体大小[" + contentLength + "]超过最大限制：" + maxBodySize);
+            }
+            sink.headers(this);
+        }
+
+        @Override
+        public void onBody(ByteBuffer data) throws IOException {
+            if (redirect != null || done) {
+                return;
+            }
+            bodySize += data.remaining();
+            if (maxBodySize > 0 && bodySize > maxBodySize) {
+                throw new IOException("响应体大小超过最大限制：" + maxBodySize);
+            }
+            sink.body(this, data);
+        }
+
+        /**
+         * 暂停读取，IO线程调用
+         */
+        void pause() {
+            if (key != null && key.isValid()) {
+                key.interestOps(0);
+                deadline = Long.MAX_VALUE;
+            }
+        }
+
+        @Override
+        public void resume() {
+            loop.submit(() -> {
+                if (!done && key != null && key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    deadline = System.currentTimeMillis() + readTimeout;
+                }
+            });
+        }
+
+        @Override
+        public void abort() {
+            loop.submit(() -> fail(new IOException("响应体已被提前关闭")));
+        }
+
+        void fail(Throwable e) {
+            if (done) {
+                return;
+            }
+            if (reused && !received && !closed && e instanceof IOException
+                && !(e instanceof SocketTimeoutException)) {
+                // 复用的空闲连接可能已经被服务端关闭，还没有收到响应时使用新连接重新发起请求（GET请求是幂等的）
+                log.debug("复用的连接失败，使用新连接重新请求[{}]：{}", url, e.toString());
+                reuses.decrement();
+                closeChannel();
+                reused = false;
+                channel = null;
+                key = null;
+                resolve(this, loop);
+                return;
+            }
+            done = true;
+            closeChannel();
+            try {
+                sink.failed(e);
+            } catch (Throwable throwable) {
+                log.warn("处理请求[{}]失败结果异常", url, throwable);
+            }
+        }
+
+        void complete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (!reusable || !loop.release(this)) {
+                closeChannel();
+            }
+            if (redirect != null) {
+                execute(redirect, headers, sink, redirects + 1);
+                return;
+            }
+            try {
+                sink.complete(this);
+            } catch (Throwable throwable) {
+                log.warn("处理请求[{}]结果异常", url, throwable);
+            }
+        }
+
+        private void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("关闭连接异常", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * IO线程，一个线程对应一个Selector
+     */
+    private final class EventLoop extends Thread {
+
+        /**
+         * Selector
+         */
+        private final Selector                                  selector;
+
+        /**
+         * 需要在IO线程中执行的任务
+         */
+        private final Queue<Runnable>                           tasks;
+
+        /**
+         * 读缓冲，IO线程内复用
+         */
+        private final ByteBuffer                                readBuffer;
+
+        /**
+         * 空闲连接池，key为host加端口，只在IO线程中访问
+         */
+        private final Map<String, ArrayDeque<PooledConnection>> idle;
+
+        EventLoop(String name) throws IOException {
+            super(name);
+            setDaemon(true);
+            this.selector = Selector.open();
+            this.tasks = new ConcurrentLinkedQueue<>();
+            this.readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+            this.idle = new HashMap<>();
+        }
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+            if (closed) {
+                // IO线程可能已经退出，由提交者自己执行，保证请求一定会有结果
+                Runnable pending;
+                while ((pending = tasks.poll()) != null) {
+                    pending.run();
+                }
+            }
+        }
+
+        /**
+         * 发起请求，有空闲连接时直接复用，否则建立新连接
+         *
+         * @param exchange 请求交换
+         */
+        void start(Exchange exchange) {
+            if (closed) {
+                exchange.fail(new SpiderException("客户端已关闭"));
+                return;
+            }
+            exchange.loop = this;
+            PooledConnection connection = acquire(exchange.poolKey);
+            if (connection == null) {
+                resolve(exchange, this);
+                return;
+            }
+            reuses.increment();
+            exchange.reused = true;
+            exchange.channel = connection.channel;
+            exchange.key = connection.key;
+            exchange.request = exchange.buildRequest();
+            exchange.deadline = System.currentTimeMillis() + readTimeout;
+            connection.key.attach(exchange);
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * 从空闲连接池中取出一个可用的连接，优先使用最近放回的连接
+         *
+         * @param poolKey 空闲连接池的key
+         * @return 连接，没有可用的连接时返回null
+         */
+        private PooledConnection acquire(String poolKey) {
+            ArrayDeque<PooledConnection> connections = idle.get(poolKey);
+            if (connections == null) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            PooledConnection connection;
+            while ((connection = connections.pollLast()) != null) {
+                if (connection.key.isValid() && connection.expireTime > now) {
+                    break;
+                }
+                connection.close();
+            }
+            if (connections.isEmpty()) {
+                idle.remove(poolKey);
+            }
+            return connection;
+        }
+
+        /**
+         * 请求完成后将连接放回空闲连接池，host的空闲连接数达到上限时不放回
+         *
+         * @param exchange 已经完成的请求交换
+         * @return true表示已经放回，false表示连接需要关闭
+         */
+        boolean release(Exchange exchange) {
+            long keepAlive = exchange.keepAliveTime();
+            if (closed || keepAlive <= 0 || !exchange.key.isValid()) {
+                return false;
+            }
+            int max = maxIdleConnections.applyAsInt(exchange.url.getHost());
+            ArrayDeque<PooledConnection> connections = idle.get(exchange.poolKey);
+            if (max <= 0 || (connections != null && connections.size() >= max)) {
+                return false;
+            }
+            if (connections == null) {
+                connections = new ArrayDeque<>();
+                idle.put(exchange.poolKey, connections);
+            }
+            PooledConnection connection = new PooledConnection(exchange.poolKey, exchange.channel,
+                exchange.key, System.currentTimeMillis() + keepAlive);
+            exchange.key.attach(connection);
+            // 空闲期间监听读事件，服务端关闭连接时及时移除
+            exchange.key.interestOps(SelectionKey.OP_READ);
+            connections.addLast(connection);
+            return true;
+        }
+
+        /**
+         * 关闭并移除空闲连接
+         *
+         * @param connection 空闲连接
+         */
+        private void evict(PooledConnection connection) {
+            ArrayDeque<PooledConnection> connections = idle.get(connection.poolKey);
+            if (connections != null && connections.remove(connection) && connections.isEmpty()) {
+                idle.remove(connection.poolKey);
+            }
+            connection.close();
+        }
+
+        void connect(Exchange exchange, InetSocketAddress address) {
+            if (closed) {
+                exchange.fail(new SpiderException("客户端已关闭"));
+                return;
+            }
+            exchange.loop = this;
+            connects.increment();
+            try {
+                SocketChannel channel = SocketChannel.open();
+                exchange.channel = channel;
+                channel.configureBlocking(false);
+                exchange.request = exchange.buildRequest();
+                exchange.deadline = System.currentTimeMillis() + connectTimeout;
+                int ops = channel.connect(address) ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT;
+                exchange.key = channel.register(selector, ops, exchange);
+            } catch (IOException | RuntimeException e) {
+                exchange.fail(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            long lastCheck = System.currentTimeMillis();
+            try {
+                while (!closed) {
+                    selector.select(CHECK_INTERVAL);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        process(key);
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastCheck >= CHECK_INTERVAL) {
+                        lastCheck = now;
+                        checkTimeout(now);
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                log.error("IO线程[{}]异常退出", getName(), e);
+            } finally {
+                shutdown();
+            }
+        }
+
+        private void process(SelectionKey key) {
+            if (key.attachment() instanceof PooledConnection) {
+                // 空闲连接可读说明服务端关闭了连接（或者发送了多余的数据），不能再复用
+                evict((PooledConnection) key.attachment());
+                return;
+            }
+            Exchange exchange = (Exchange) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    exchange.fail(new IOException("连接已关闭"));
+                    return;
+                }
+                SocketChannel channel = exchange.channel;
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    exchange.deadline = System.currentTimeMillis() + readTimeout;
+                } else if (key.isWritable()) {
+                    channel.write(exchange.request);
+                    if (!exchange.request.hasRemaining()) {
+                        exchange.request = null;
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    exchange.deadline = System.currentTimeMillis() + readTimeout;
+                } else if (key.isReadable()) {
+                    readBuffer.clear();
+                    int read = channel.read(readBuffer);
+                    if (read < 0) {
+                        if (exchange.parser.eof()) {
+                            exchange.complete();
+                        }
+                        return;
+                    }
+                    exchange.received = true;
+                    readBuffer.flip();
+                    if (exchange.parser.feed(readBuffer) || exchange.redirect != null) {
+                        // 响应完整读取并且之后没有多余的数据时连接才可以复用
+                        exchange.reusable = maxIdleConnections != null
+                                            && exchange.parser.isKeepAlive()
+                                            && !readBuffer.hasRemaining();
+                        exchange.complete();
+                        return;
+                    }
+                    if (exchange.deadline != Long.MAX_VALUE) {
+                        exchange.deadline = System.currentTimeMillis() + readTimeout;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                exchange.fail(e);
+            }
+        }
+
+        private void checkTimeout(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof PooledConnection) {
+                    if (((PooledConnection) attachment).expireTime <= now) {
+                        evict((PooledConnection) attachment);
+                    }
+                    continue;
+                }
+                Exchange exchange = (Exchange) attachment;
+                if (exchange != null && exchange.deadline <= now) {
+                    exchange.fail(new SocketTimeoutException("请求[" + exchange.url + "]超时"));
+                }
+            }
+        }
+
+        private void shutdown() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    log.debug("关闭时执行任务异常", e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof PooledConnection) {
+                    ((PooledConnection) attachment).close();
+                } else if (attachment != null) {
+                    ((Exchange) attachment).fail(new SpiderException("客户端已关闭"));
+                }
+            }
+            idle.clear();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug("关闭Selector异常", e);
+            }
+        }
+    }
+
+    /**
+     * 空闲连接池中的连接
+     */
+    private static final class PooledConnection {
+
+        /**
+         * 空闲连接池的key
+         */
+        private final String        poolKey;
+
+        /**
+         * 连接
+         */
+        private final SocketChannel channel;
+
+        /**
+         * 连接对应的SelectionKey
+         */
+        private final SelectionKey  key;
+
+        /**
+         * 过期时间
+         */
+        private final long          expireTime;
+
+        PooledConnection(String poolKey, SocketChannel channel, SelectionKey key,
+                         long expireTime) {
+            this.poolKey = poolKey;
+            this.channel = channel;
+            this.key = key;
+            this.expireTime = expireTime;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("关闭空闲连接异常", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.joe.spider.util.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * IO线程和消费线程之间的响应体管道，IO线程写入，消费线程通过输入流读取
+ * <p>
+ * 缓冲的数据超过高水位时通知IO线程暂停读取，消费线程读取到低水位以下时再恢复，保证慢消费者不会导致内存无限增长。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 14:40
+ */
+class PipedBody extends InputStream {
+
+    /**
+     * 缓冲数据
+     */
+    private final ArrayDeque<byte[]> chunks;
+
+    /**
+     * 高水位，单位字节
+     */
+    private final int                highWater;
+
+    /**
+     * 管道控制，用于暂停恢复读取以及中止下载
+     */
+    private final Control            control;
+
+    /**
+     * 当前缓冲的字节数
+     */
+    private int                      buffered;
+
+    /**
+     * 当前chunk已经读取的位置
+     */
+    private int                      offset;
+
+    /**
+     * 是否已经写入完毕
+     */
+    private boolean                  finished;
+
+    /**
+     * 是否已经关闭
+     */
+    private boolean                  closed;
+
+    /**
+     * 是否已经暂停写入
+     */
+    private boolean                  paused;
+
+    /**
+     * 写入失败原因
+     */
+    private IOException              error;
+
+    PipedBody(int highWater, Control control) {
+        this.chunks = new ArrayDeque<>();
+        this.highWater = highWater;
+        this.control = control;
+    }
+
+    /**
+     * 写入数据，IO线程调用
+     *
+     * @param data 数据
+     * @return true表示缓冲已满，IO线程需要暂停读取，直到{@link Control#resume()}被调用
+     */
+    synchronized boolean write(ByteBuffer data) {
+        if (closed) {
+            return false;
+        }
+        byte[] chunk = new byte[data.remaining()];
+        data.get(chunk);
+        chunks.add(chunk);
+        buffered += chunk.length;
+        notifyAll();
+        paused = buffered >= highWater;
+        return paused;
+    }
+
+    /**
+     * 写入完毕，IO线程调用
+     */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * 写入失败，IO线程调用
+     *
+     * @param e 失败原因
+     */
+    synchronized void fail(Throwable e) {
+        if (finished) {
+            return;
+        }
+        error = e instanceof IOException ? (IOException) e : new IOException(e);
+        finished = true;
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int len = read(b, 0, 1);
+        return len < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        boolean resume = false;
+        int read;
+        synchronized (this) {
+            while (chunks.isEmpty() && !finished && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("读取响应体被中断", e);
+                }
+            }
+            if (closed) {
+                throw new IOException("响应体已关闭");
+            }
+            if (chunks.isEmpty()) {
+                if (error != null) {
+                    throw error;
+                }
+                return -1;
+            }
+            byte[] chunk = chunks.peek();
+            read = Math.min(len, chunk.length - offset);
+            System.arraycopy(chunk, offset, b, off, read);
+            offset += read;
+            if (offset == chunk.length) {
+                chunks.poll();
+                offset = 0;
+            }
+            buffered -= read;
+            if (paused && buffered <= highWater / 2) {
+                paused = false;
+                resume = true;
+            }
+        }
+        if (resume) {
+            control.resume();
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized int available() {
+        return buffered;
+    }
+
+    @Override
+    public void close() {
+        boolean abort;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            abort = !finished;
+            chunks.clear();
+            buffered = 0;
+            notifyAll();
+        }
+        if (abort) {
+            control.abort();
+        }
+    }
+
+    /**
+     * 管道控制，由IO线程实现，回调可能发生在任意线程
+     */
+    interface Control {
+
+        /**
+         * 恢复读取
+         */
+        void resume();
+
+        /**
+         * 消费者提前关闭，中止下载
+         */
+        void abort();
+    }
+}
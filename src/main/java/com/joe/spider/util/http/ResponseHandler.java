@@ -0,0 +1,24 @@
+package com.joe.spider.util.http;
+
+/**
+ * 异步请求结果处理器，在IO线程中回调，实现中不应该有阻塞操作
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 12:05
+ */
+public interface ResponseHandler {
+
+    /**
+     * 请求完成时回调
+     *
+     * @param response 响应
+     */
+    void completed(HttpResponse response);
+
+    /**
+     * 请求失败时回调
+     *
+     * @param e 失败原因
+     */
+    void failed(Throwable e);
+}
@@ -0,0 +1,24 @@
+package com.joe.spider.util.http;
+
+/**
+ * 流式请求结果处理器，在IO线程中回调，实现中不应该有阻塞操作（例如直接读取响应体），应该将响应交给其他线程处理
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 14:40
+ */
+public interface StreamHandler {
+
+    /**
+     * 响应头到达时回调，此时响应体还在下载中；下载过程中的失败会在读取响应体时以IOException的形式抛出
+     *
+     * @param response 流式响应，使用完毕后必须关闭
+     */
+    void onResponse(StreamResponse response);
+
+    /**
+     * 在响应头到达之前请求失败时回调
+     *
+     * @param e 失败原因
+     */
+    void failed(Throwable e);
+}
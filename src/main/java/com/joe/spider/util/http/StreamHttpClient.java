@@ -0,0 +1,158 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于{@link HttpURLConnection}的阻塞流式HTTP客户端，响应头到达后即返回，响应体在读取的同时下载
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 15:10
+ */
+public class StreamHttpClient {
+
+    /**
+     * 连接超时时间，单位毫秒
+     */
+    private final int  connectTimeout;
+
+    /**
+     * 读超时时间，单位毫秒
+     */
+    private final int  readTimeout;
+
+    /**
+     * 最大响应体大小，超过后中止下载，小于等于0表示不限制，单位字节
+     */
+    private final long maxBodySize;
+
+    /**
+     * 构建流式客户端
+     *
+     * @param connectTimeout 连接超时时间，单位毫秒
+     * @param readTimeout    读超时时间，单位毫秒
+     * @param maxBodySize    最大响应体大小，超过后中止下载，小于等于0表示不限制，单位字节
+     */
+    public StreamHttpClient(long connectTimeout, long readTimeout, long maxBodySize) {
+        this.connectTimeout = (int) Math.min(connectTimeout, Integer.MAX_VALUE);
+        this.readTimeout = (int) Math.min(readTimeout, Integer.MAX_VALUE);
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 执行GET请求，响应头到达后返回
+     *
+     * @param url URL
+     * @return 流式响应，使用完毕后必须关闭
+     * @throws IOException IO异常或者响应体超过最大限制
+     */
+    public StreamResponse execute(String url) throws IOException {
+        return execute(url, Collections.emptyMap());
+    }
+
+    /**
+     * 执行GET请求，携带额外的请求头（例如条件请求头），响应头到达后返回
+     *
+     * @param url     URL
+     * @param headers 额外的请求头
+     * @return 流式响应，使用完毕后必须关闭
+     * @throws IOException IO异常或者响应体超过最大限制
+     */
+    public StreamResponse execute(String url, Map<String, String> headers) throws IOException {
+        URLConnection urlConnection = new URL(url).openConnection();
+        if (!(urlConnection instanceof HttpURLConnection)) {
+            throw new IOException("不支持的协议：" + url);
+        }
+        HttpURLConnection connection = (HttpURLConnection) urlConnection;
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setInstanceFollowRedirects(true);
+        connection.setRequestProperty("User-Agent", "spider-util");
+        connection.setRequestProperty("Accept", "*/*");
+        headers.forEach(connection::setRequestProperty);
+
+        int status = connection.getResponseCode();
+        Map<String, List<String>> responseHeaders = HttpHeaders.create();
+        for (Map.Entry<String, List<String>> entry : connection.getHeaderFields().entrySet()) {
+            // key为null的是状态行
+            if (entry.getKey() != null) {
+                responseHeaders.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        long contentLength = connection.getContentLengthLong();
+        if (maxBodySize > 0 && contentLength > maxBodySize) {
+            connection.disconnect();
+            throw new IOException("响应体大小[" + contentLength + "]超过最大限制：" + maxBodySize);
+        }
+
+        InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        // 204、304响应没有响应体，Content-Length只是描述
+        long expected = status == 204 || status == 304 ? -1 : contentLength;
+        if (body == null) {
+            body = new ByteArrayInputStream(new byte[0]);
+        } else if (maxBodySize > 0 || expected >= 0) {
+            body = new BodyInputStream(body, maxBodySize, expected, connection);
+        }
+        return new StreamResponse(connection.getURL().toString(), status, responseHeaders, body);
+    }
+
+    /**
+     * 响应体输入流，超过最大响应体限制后断开连接；声明了Content-Length时，HttpURLConnection在连接提前关闭时只返回流结束，
+     * 读取到流结束但是长度不足时抛出异常，避免不完整的响应体被当作完整的处理
+     */
+    private static final class BodyInputStream extends FilterInputStream {
+
+        private final long              limit;
+
+        private final long              expected;
+
+        private final HttpURLConnection connection;
+
+        private long                    count;
+
+        BodyInputStream(InputStream in, long limit, long expected, HttpURLConnection connection) {
+            super(in);
+            this.limit = limit;
+            this.expected = expected;
+            this.connection = connection;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            check(b >= 0 ? 1 : -1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            check(read);
+            return read;
+        }
+
+        private void check(int read) throws IOException {
+            if (read < 0) {
+                if (expected >= 0 && count < expected) {
+                    connection.disconnect();
+                    throw new IOException("响应体不完整，Content-Length为" + expected + "，实际读取" + count);
+                }
+                return;
+            }
+            count += read;
+            if (limit > 0 && count > limit) {
+                connection.disconnect();
+                throw new IOException("响应体大小超过最大限制：" + limit);
+            }
+        }
+    }
+}
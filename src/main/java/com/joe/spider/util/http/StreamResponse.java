@@ -0,0 +1,140 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式HTTP响应，响应头到达后即可使用，响应体在读取的同时仍在下载，使用完毕后需要关闭
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 14:40
+ */
+public class StreamResponse implements Closeable {
+
+    /**
+     * 请求的URL
+     */
+    private final String                    url;
+
+    /**
+     * 状态码
+     */
+    private final int                       status;
+
+    /**
+     * 响应头，key不区分大小写
+     */
+    private final Map<String, List<String>> headers;
+
+    /**
+     * 响应体
+     */
+    private final InputStream               body;
+
+    public StreamResponse(String url, int status, Map<String, List<String>> headers,
+                          InputStream body) {
+        this.url = url;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * 获取请求的URL
+     *
+     * @return URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 获取状态码
+     *
+     * @return 状态码
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取所有响应头
+     *
+     * @return 响应头，key不区分大小写
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * 获取指定响应头的第一个值
+     *
+     * @param name 响应头名，不区分大小写
+     * @return 响应头的值，不存在时返回null
+     */
+    public String getHeader(String name) {
+        return HttpHeaders.first(headers, name);
+    }
+
+    /**
+     * 获取响应体输入流，超过最大响应体限制或者下载失败时读取会抛出IOException
+     *
+     * @return 响应体输入流
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * 获取响应体通道
+     *
+     * @return 响应体通道
+     */
+    public ReadableByteChannel getChannel() {
+        return Channels.newChannel(body);
+    }
+
+    /**
+     * 读取剩余的全部响应体，并以Content-Type中声明的字符集（未声明时使用UTF-8）转换为字符串
+     *
+     * @return 字符串形式的响应体
+     * @throws IOException IO异常
+     */
+    public String readAsString() throws IOException {
+        return new String(readAsBytes(), HttpHeaders.charset(headers, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 读取剩余的全部响应体
+     *
+     * @return 响应体
+     * @throws IOException IO异常
+     */
+    public byte[] readAsBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = body.read(buffer)) >= 0) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 关闭响应，未读取完的响应体将被丢弃
+     *
+     * @throws IOException IO异常
+     */
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
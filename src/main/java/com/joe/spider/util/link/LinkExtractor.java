@@ -0,0 +1,587 @@
+package com.joe.spider.util.link;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 流式链接提取器，逐字节扫描HTML，不构建DOM，也不需要先将页面解码为字符串，提取任意标签的href和src属性并解析为规范化的
+ * 绝对URL
+ * <p>
+ * 扫描是一个状态机，内容可以分多次通过{@link #feed(byte[], int, int)}传入（例如边下载边扫描），状态在多次调用之间保留，
+ * 一个多字节字符被分在两段中也没有影响；标签和属性名只由ASCII字符组成，只有需要提取的属性值按照页面的字符集解码。跳过注释
+ * 以及script、style的内容，处理&lt;base href&gt;，属性值中的常见字符实体会被解码。只输出http和https链接，mailto:、
+ * javascript:等链接被忽略。只支持兼容ASCII的字符集（UTF-8、GBK、ISO-8859-1等），UTF-16等字符集的页面无法扫描。
+ * 非线程安全，处理完一个页面后可以通过{@link #reset(String, Charset)}复用。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 05:10
+ */
+public final class LinkExtractor {
+
+    /**
+     * 属性值的最大长度，超出的属性值不是正常的链接，忽略
+     */
+    private static final int       MAX_VALUE_LENGTH = 4096;
+
+    /**
+     * 记录的标签名和属性名的最大长度，只需要区分关心的几个名字
+     */
+    private static final int       MAX_NAME_LENGTH  = 8;
+
+    private static final int       TEXT             = 0;
+
+    private static final int       TAG_OPEN         = 1;
+
+    private static final int       TAG_NAME         = 2;
+
+    private static final int       END_TAG          = 3;
+
+    private static final int       BEFORE_ATTR_NAME = 4;
+
+    private static final int       ATTR_NAME        = 5;
+
+    private static final int       AFTER_ATTR_NAME  = 6;
+
+    private static final int       BEFORE_VALUE     = 7;
+
+    private static final int       QUOTED_VALUE     = 8;
+
+    private static final int       UNQUOTED_VALUE   = 9;
+
+    private static final int       MARKUP_DECL      = 10;
+
+    private static final int       COMMENT          = 11;
+
+    private static final int       BOGUS            = 12;
+
+    private static final int       RAW_TEXT         = 13;
+
+    private static final byte[]    HREF             = ascii("href");
+
+    private static final byte[]    SRC              = ascii("src");
+
+    private static final byte[]    BASE             = ascii("base");
+
+    private static final byte[]    SCRIPT           = ascii("script");
+
+    private static final byte[]    STYLE            = ascii("style");
+
+    /**
+     * 用于检查字符集是否兼容ASCII的标记
+     */
+    private static final String    PROBE            = "<a href='/?x=1&y'>";
+
+    /**
+     * 提取到的链接的接收者
+     */
+    private final Consumer<String> sink;
+
+    /**
+     * 相对URL解析
+     */
+    private final UrlResolver      resolver;
+
+    /**
+     * 当前标签名，小写，只记录前MAX_NAME_LENGTH个字符
+     */
+    private final byte[]           tagName;
+
+    /**
+     * 当前属性名，小写，只记录前MAX_NAME_LENGTH个字符
+     */
+    private final byte[]           attrName;
+
+    /**
+     * 当前需要提取的属性值的原始字节，超出MAX_VALUE_LENGTH的部分不记录
+     */
+    private final byte[]           value;
+
+    /**
+     * 页面的字符集，用于解码属性值
+     */
+    private Charset                charset;
+
+    private int                    valueLength;
+
+    private int                    state;
+
+    private int                    tagNameLength;
+
+    private int                    attrNameLength;
+
+    /**
+     * 当前标签是否是结束标签
+     */
+    private boolean                endTag;
+
+    /**
+     * 当前属性值的引号
+     */
+    private byte                   quote;
+
+    /**
+     * 当前属性值是否需要提取
+     */
+    private boolean                capture;
+
+    /**
+     * 注释中已经连续出现的-的个数，以及&lt;!之后已经出现的-的个数
+     */
+    private int                    dashes;
+
+    /**
+     * script或者style的内容中匹配结束标签的进度，0表示还没有匹配到&lt;
+     */
+    private int                    rawMatched;
+
+    /**
+     * 当前所在的script或者style标签名
+     */
+    private byte[]                 rawTag;
+
+    /**
+     * 是否已经处理过base标签，只有第一个base标签生效
+     */
+    private boolean                baseSeen;
+
+    /**
+     * 构建链接提取器
+     *
+     * @param sink 提取到的链接的接收者，同一个页面中重复的链接会重复传入
+     */
+    public LinkExtractor(Consumer<String> sink) {
+        this.sink = sink;
+        this.resolver = new UrlResolver();
+        this.tagName = new byte[MAX_NAME_LENGTH];
+        this.attrName = new byte[MAX_NAME_LENGTH];
+        this.value = new byte[MAX_VALUE_LENGTH + 1];
+    }
+
+    /**
+     * 提取页面中的链接
+     *
+     * @param baseUrl 页面的URL
+     * @param html    页面内容
+     * @param charset 页面的字符集
+     * @return 去重后的链接，按照出现的顺序
+     */
+    public static Set<String> extract(String baseUrl, byte[] html, Charset charset) {
+        Set<String> links = new LinkedHashSet<>();
+        LinkExtractor extractor = new LinkExtractor(links::add);
+        extractor.reset(baseUrl, charset);
+        extractor.feed(html, 0, html.length);
+        extractor.finish();
+        return links;
+    }
+
+    /**
+     * 字符集是否兼容ASCII，即HTML标记在该字符集下的编码与ASCII相同，只有这样的页面可以逐字节扫描
+     *
+     * @param charset 字符集
+     * @return 兼容ASCII时返回true
+     */
+    public static boolean isSupported(Charset charset) {
+        return charset.canEncode()
+               && Arrays.equals(PROBE.getBytes(charset), PROBE.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 开始处理一个新的UTF-8页面
+     *
+     * @param baseUrl 页面的URL，用于解析相对链接
+     * @throws IllegalArgumentException URL不是http或者https的绝对URL
+     */
+    public void reset(String baseUrl) {
+        reset(baseUrl, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 开始处理一个新的页面
+     *
+     * @param baseUrl 页面的URL，用于解析相对链接
+     * @param charset 页面的字符集，必须兼容ASCII
+     * @throws IllegalArgumentException URL不是http或者https的绝对URL，或者字符集不兼容ASCII
+     */
+    public void reset(String baseUrl, Charset charset) {
+        if (!isSupported(charset)) {
+            throw new IllegalArgumentException("字符集不兼容ASCII：" + charset);
+        }
+        if (!resolver.reset(baseUrl)) {
+            throw new IllegalArgumentException("URL不是http或者https的绝对URL：" + baseUrl);
+        }
+        this.charset = charset;
+        state = TEXT;
+        tagNameLength = 0;
+        attrNameLength = 0;
+        valueLength = 0;
+        capture = false;
+        baseSeen = false;
+        rawTag = null;
+    }
+
+    /**
+     * 扫描一段内容
+     *
+     * @param chunk 页面内容
+     * @param start 开始位置（包含）
+     * @param end   结束位置（不包含）
+     */
+    public void feed(byte[] chunk, int start, int end) {
+        int state = this.state;
+        for (int i = start; i < end; i++) {
+            byte c = chunk[i];
+            switch (state) {
+                case TEXT:
+                    // 绝大部分字符都在这里，找到下一个<
+                    while (c != '<') {
+                        if (++i == end) {
+                            this.state = TEXT;
+                            return;
+                        }
+                        c = chunk[i];
+                    }
+                    state = TAG_OPEN;
+                    break;
+                case TAG_OPEN:
+                    if (isLetter(c)) {
+                        endTag = false;
+                        tagNameLength = 0;
+                        appendName(tagName, c, true);
+                        state = TAG_NAME;
+                    } else if (c == '/') {
+                        endTag = true;
+                        tagNameLength = 0;
+                        state = TAG_NAME;
+                    } else if (c == '!') {
+                        dashes = 0;
+                        state = MARKUP_DECL;
+                    } else if (c == '?') {
+                        state = BOGUS;
+                    } else if (c != '<') {
+                        state = TEXT;
+                    }
+                    break;
+                case TAG_NAME:
+                    if (c == '>') {
+                        state = tagEnd();
+                    } else if (isWhitespace(c) || c == '/') {
+                        state = endTag ? END_TAG : BEFORE_ATTR_NAME;
+                    } else {
+                        appendName(tagName, c, true);
+                    }
+                    break;
+                case END_TAG:
+                    if (c == '>') {
+                        state = TEXT;
+                    }
+                    break;
+                case BEFORE_ATTR_NAME:
+                    if (c == '>') {
+                        state = tagEnd();
+                    } else if (!isWhitespace(c) && c != '/') {
+                        attrNameLength = 0;
+                        appendName(attrName, c, false);
+                        state = ATTR_NAME;
+                    }
+                    break;
+                case ATTR_NAME:
+                    if (c == '=') {
+                        state = BEFORE_VALUE;
+                    } else if (c == '>') {
+                        state = tagEnd();
+                    } else if (isWhitespace(c)) {
+                        state = AFTER_ATTR_NAME;
+                    } else if (c == '/') {
+                        state = BEFORE_ATTR_NAME;
+                    } else {
+                        appendName(attrName, c, false);
+                    }
+                    break;
+                case AFTER_ATTR_NAME:
+                    if (c == '=') {
+                        state = BEFORE_VALUE;
+                    } else if (c == '>') {
+                        state = tagEnd();
+                    } else if (c == '/') {
+                        state = BEFORE_ATTR_NAME;
+                    } else if (!isWhitespace(c)) {
+                        attrNameLength = 0;
+                        appendName(attrName, c, false);
+                        state = ATTR_NAME;
+                    }
+                    break;
+                case BEFORE_VALUE:
+                    if (isWhitespace(c)) {
+                        break;
+                    }
+                    if (c == '>') {
+                        state = tagEnd();
+                        break;
+                    }
+                    capture = nameIs(attrName, attrNameLength, HREF)
+                              || nameIs(attrName, attrNameLength, SRC);
+                    valueLength = 0;
+                    if (c == '"' || c == '\'') {
+                        quote = c;
+                        state = QUOTED_VALUE;
+                    } else {
+                        appendValue(c);
+                        state = UNQUOTED_VALUE;
+                    }
+                    break;
+                case QUOTED_VALUE:
+                    if (!capture) {
+                        // 不需要的属性值直接跳到结束引号
+                        while (c != quote) {
+                            if (++i == end) {
+                                this.state = QUOTED_VALUE;
+                                return;
+                            }
+                            c = chunk[i];
+                        }
+                        state = BEFORE_ATTR_NAME;
+                    } else if (c == quote) {
+                        valueEnd();
+                        state = BEFORE_ATTR_NAME;
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case UNQUOTED_VALUE:
+                    if (c == '>') {
+                        valueEnd();
+                        state = tagEnd();
+                    } else if (isWhitespace(c)) {
+                        valueEnd();
+                        state = BEFORE_ATTR_NAME;
+                    } else {
+                        appendValue(c);
+                    }
+                    break;
+                case MARKUP_DECL:
+                    // <!--开始注释，其他（例如DOCTYPE、CDATA）跳到>
+                    if (c == '-' && ++dashes == 2) {
+                        dashes = 0;
+                        state = COMMENT;
+                    } else if (c != '-') {
+                        state = c == '>' ? TEXT : BOGUS;
+                    }
+                    break;
+                case COMMENT:
+                    if (c == '-') {
+                        dashes++;
+                    } else {
+                        if (c == '>' && dashes >= 2) {
+                            state = TEXT;
+                        }
+                        dashes = 0;
+                    }
+                    break;
+                case BOGUS:
+                    if (c == '>') {
+                        state = TEXT;
+                    }
+                    break;
+                case RAW_TEXT:
+                    state = rawText(c);
+                    break;
+                default:
+                    throw new IllegalStateException("未知状态：" + state);
+            }
+        }
+        this.state = state;
+    }
+
+    /**
+     * 页面扫描结束，未结束的不带引号的属性值按照结束处理
+     */
+    public void finish() {
+        if (state == UNQUOTED_VALUE) {
+            valueEnd();
+        }
+        state = TEXT;
+    }
+
+    /**
+     * 标签结束，script和style之后进入原始文本，直到对应的结束标签
+     *
+     * @return 下一个状态
+     */
+    private int tagEnd() {
+        if (!endTag) {
+            if (nameIs(tagName, tagNameLength, SCRIPT)) {
+                rawTag = SCRIPT;
+            } else if (nameIs(tagName, tagNameLength, STYLE)) {
+                rawTag = STYLE;
+            } else {
+                return TEXT;
+            }
+            rawMatched = 0;
+            return RAW_TEXT;
+        }
+        return TEXT;
+    }
+
+    /**
+     * 在原始文本中匹配&lt;/script或者&lt;/style，不区分大小写
+     *
+     * @return 下一个状态
+     */
+    private int rawText(byte c) {
+        if (rawMatched == 0) {
+            if (c == '<') {
+                rawMatched = 1;
+            }
+        } else if (rawMatched == 1) {
+            rawMatched = c == '/' ? 2 : (c == '<' ? 1 : 0);
+        } else if (rawMatched - 2 < rawTag.length) {
+            if (lower(c) == rawTag[rawMatched - 2]) {
+                rawMatched++;
+            } else {
+                rawMatched = c == '<' ? 1 : 0;
+            }
+        } else if (c == '>' || isWhitespace(c) || c == '/') {
+            // 结束标签的名字完整匹配，剩余部分按照普通结束标签跳过
+            rawTag = null;
+            return c == '>' ? TEXT : END_TAG;
+        } else {
+            rawMatched = c == '<' ? 1 : 0;
+        }
+        return RAW_TEXT;
+    }
+
+    /**
+     * 属性值结束，解析并输出链接
+     */
+    private void valueEnd() {
+        if (!capture) {
+            return;
+        }
+        capture = false;
+        if (valueLength > MAX_VALUE_LENGTH) {
+            return;
+        }
+        String ref = decodeEntities(new String(value, 0, valueLength, charset)).trim();
+        if (nameIs(tagName, tagNameLength, BASE)) {
+            // 只有第一个base标签生效，base本身不是链接
+            if (!baseSeen && nameIs(attrName, attrNameLength, HREF)) {
+                baseSeen = true;
+                resolver.setBase(ref);
+            }
+            return;
+        }
+        String url = resolver.resolve(ref);
+        if (url != null) {
+            sink.accept(url);
+        }
+    }
+
+    private void appendValue(byte c) {
+        if (capture && valueLength <= MAX_VALUE_LENGTH) {
+            value[valueLength++] = c;
+        }
+    }
+
+    private void appendName(byte[] name, byte c, boolean tag) {
+        int length = tag ? tagNameLength : attrNameLength;
+        if (length < MAX_NAME_LENGTH) {
+            name[length] = lower(c);
+        }
+        if (tag) {
+            tagNameLength = length + 1;
+        } else {
+            attrNameLength = length + 1;
+        }
+    }
+
+    private static boolean nameIs(byte[] name, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解码属性值中的字符实体，只处理链接中常见的几个命名实体以及数字实体；没有&时直接返回
+     */
+    static String decodeEntities(CharSequence value) {
+        String raw = value.toString();
+        int amp = raw.indexOf('&');
+        if (amp < 0) {
+            return raw;
+        }
+        StringBuilder builder = new StringBuilder(raw.length()).append(raw, 0, amp);
+        for (int i = amp; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            int semicolon = c == '&' ? raw.indexOf(';', i) : -1;
+            if (semicolon < 0 || semicolon - i > 10) {
+                builder.append(c);
+                continue;
+            }
+            String entity = raw.substring(i + 1, semicolon);
+            int decoded = decodeEntity(entity);
+            if (decoded < 0) {
+                builder.append(c);
+                continue;
+            }
+            builder.appendCodePoint(decoded);
+            i = semicolon;
+        }
+        return builder.toString();
+    }
+
+    private static int decodeEntity(String entity) {
+        switch (entity) {
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "nbsp":
+                return ' ';
+            default:
+                break;
+        }
+        if (entity.length() < 2 || entity.charAt(0) != '#') {
+            return -1;
+        }
+        try {
+            int codePoint = entity.charAt(1) == 'x' || entity.charAt(1) == 'X'
+                ? Integer.parseInt(entity.substring(2), 16)
+                : Integer.parseInt(entity.substring(1));
+            return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isLetter(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static byte lower(byte c) {
+        return c >= 'A' && c <= 'Z' ? (byte) (c + 32) : c;
+    }
+
+    private static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,130 @@
+package com.joe.spider.util.link;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 链接的跟进范围：是否只跟进同一个host的链接、最大深度以及URL的正则白名单和黑名单，创建后不再变化，可以被任意线程并发使用
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 05:10
+ */
+public final class LinkScope {
+
+    /**
+     * 是否只跟进与页面同一个host的链接
+     */
+    private final boolean       sameHost;
+
+    /**
+     * 最大深度，添加的任务深度为0，从深度为n的页面中提取的链接深度为n+1；小于等于0表示不限制
+     */
+    private final int           maxDepth;
+
+    /**
+     * URL白名单，不为空时URL必须匹配其中之一
+     */
+    private final List<Pattern> allow;
+
+    /**
+     * URL黑名单，URL匹配其中之一时不跟进，优先于白名单
+     */
+    private final List<Pattern> deny;
+
+    /**
+     * 构建跟进范围
+     *
+     * @param sameHost 是否只跟进与页面同一个host的链接
+     * @param maxDepth 最大深度，小于等于0表示不限制
+     * @param allow    URL白名单（正则，部分匹配即可），为null或者空时不限制
+     * @param deny     URL黑名单（正则，部分匹配即可），可以为null
+     */
+    public LinkScope(boolean sameHost, int maxDepth, Collection<String> allow,
+                     Collection<String> deny) {
+        this.sameHost = sameHost;
+        this.maxDepth = maxDepth;
+        this.allow = compile(allow);
+        this.deny = compile(deny);
+    }
+
+    /**
+     * 指定深度的页面中的链接是否需要提取，提取出的链接超过最大深度时不需要提取
+     *
+     * @param depth 页面的深度
+     * @return true表示需要提取
+     */
+    public boolean canFollow(int depth) {
+        return maxDepth <= 0 || depth < maxDepth;
+    }
+
+    /**
+     * 链接是否在跟进范围内，深度由{@link #canFollow(int)}判断
+     *
+     * @param pageHost 链接所在页面的host
+     * @param url      链接，{@link LinkExtractor}输出的规范化的绝对URL
+     * @return true表示需要跟进
+     */
+    public boolean accept(String pageHost, String url) {
+        if (sameHost && !pageHost.equalsIgnoreCase(host(url))) {
+            return false;
+        }
+        for (Pattern pattern : deny) {
+            if (pattern.matcher(url).find()) {
+                return false;
+            }
+        }
+        if (allow.isEmpty()) {
+            return true;
+        }
+        for (Pattern pattern : allow) {
+            if (pattern.matcher(url).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取规范化的绝对URL中的host，不创建{@link java.net.URL}
+     *
+     * @param url 规范化的绝对URL
+     * @return host
+     */
+    static String host(String url) {
+        int start = url.indexOf("://") + 3;
+        int end = start;
+        int at = -1;
+        int colon = -1;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?') {
+                break;
+            }
+            if (c == '@') {
+                at = end;
+                colon = -1;
+            } else if (c == ':') {
+                colon = end;
+            } else if (c == ']') {
+                colon = -1;
+            }
+            end++;
+        }
+        if (at >= 0) {
+            start = at + 1;
+        }
+        return url.substring(start, colon > start ? colon : end);
+    }
+
+    private static List<Pattern> compile(Collection<String> regexes) {
+        List<Pattern> patterns = new ArrayList<>();
+        if (regexes != null) {
+            for (String regex : regexes) {
+                patterns.add(Pattern.compile(regex));
+            }
+        }
+        return patterns;
+    }
+}
@@ -0,0 +1,288 @@
+package com.joe.spider.util.link;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 相对URL解析，按照RFC 3986第5节将页面中的链接解析为绝对URL，同时完成规范化：scheme和host转小写、去掉默认端口、去掉片段、
+ * 去掉路径中的.和..、空路径补/、空格和非ASCII字符按照UTF-8转换为%XX
+ * <p>
+ * 只处理http和https，基础URL只解析一次，之后每个链接只做字符串拼接，不创建{@link java.net.URI}，非线程安全。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 05:10
+ */
+final class UrlResolver {
+
+    private static final char[] HEX       = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * 基础URL的scheme，小写，未设置基础URL时为null
+     */
+    private String              scheme;
+
+    /**
+     * 基础URL的authority，host小写并且去掉了默认端口
+     */
+    private String              authority;
+
+    /**
+     * 基础URL的路径，以/开头
+     */
+    private String              path;
+
+    /**
+     * 基础URL的查询参数（包括?），没有时为空字符串
+     */
+    private String              query;
+
+    /**
+     * 清除原来的基础URL并设置新的基础URL
+     *
+     * @param url 基础URL，必须是http或者https的绝对URL
+     * @return 设置成功返回true，URL不合法时返回false
+     */
+    boolean reset(String url) {
+        scheme = null;
+        return setBase(url);
+    }
+
+    /**
+     * 设置基础URL，例如页面中的&lt;base href&gt;
+     *
+     * @param url 基础URL，可以是相对于原来基础URL的相对URL
+     * @return 设置成功返回true，URL不合法时返回false并且保留原来的基础URL
+     */
+    boolean setBase(String url) {
+        String resolved = scheme == null ? normalizeAbsolute(url) : resolve(url);
+        if (resolved == null) {
+            return false;
+        }
+        int authorityStart = resolved.indexOf("://") + 3;
+        int pathStart = resolved.indexOf('/', authorityStart);
+        int queryStart = resolved.indexOf('?', pathStart);
+        this.scheme = resolved.substring(0, authorityStart - 3);
+        this.authority = resolved.substring(authorityStart, pathStart);
+        this.path = queryStart < 0 ? resolved.substring(pathStart)
+            : resolved.substring(pathStart, queryStart);
+        this.query = queryStart < 0 ? "" : resolved.substring(queryStart);
+        return true;
+    }
+
+    /**
+     * 解析链接
+     *
+     * @param ref 页面中的链接，已经去掉首尾空白并且完成实体解码
+     * @return 规范化的绝对URL，不是http或者https链接（例如mailto:、javascript:）或者无法解析时返回null
+     */
+    String resolve(String ref) {
+        int end = ref.indexOf('#');
+        if (end < 0) {
+            end = ref.length();
+        }
+        if (schemeEnd(ref, end) >= 0) {
+            return normalizeAbsolute(ref.substring(0, end));
+        }
+        if (scheme == null) {
+            return null;
+        }
+        if (end == 0) {
+            return scheme + "://" + authority + path + query;
+        }
+        if (end >= 2 && ref.charAt(0) == '/' && ref.charAt(1) == '/') {
+            return normalizeAbsolute(scheme + ":" + ref.substring(0, end));
+        }
+        int queryStart = ref.indexOf('?');
+        if (queryStart < 0 || queryStart > end) {
+            queryStart = end;
+        }
+        String refPath = ref.substring(0, queryStart);
+        String refQuery = ref.substring(queryStart, end);
+        String targetPath;
+        if (refPath.isEmpty()) {
+            targetPath = path;
+        } else if (refPath.charAt(0) == '/') {
+            targetPath = removeDotSegments(refPath);
+        } else {
+            targetPath = removeDotSegments(path.substring(0, path.lastIndexOf('/') + 1) + refPath);
+        }
+        return encode(scheme + "://" + authority + targetPath + refQuery);
+    }
+
+    /**
+     * 规范化绝对URL
+     */
+    private static String normalizeAbsolute(String url) {
+        int fragment = url.indexOf('#');
+        int end = fragment < 0 ? url.length() : fragment;
+        int colon = schemeEnd(url, end);
+        if (colon < 0 || colon + 2 >= end || url.charAt(colon + 1) != '/'
+            || url.charAt(colon + 2) != '/') {
+            return null;
+        }
+        String scheme = url.substring(0, colon).toLowerCase(Locale.ROOT);
+        int defaultPort;
+        if ("http".equals(scheme)) {
+            defaultPort = 80;
+        } else if ("https".equals(scheme)) {
+            defaultPort = 443;
+        } else {
+            return null;
+        }
+        int authorityStart = colon + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < end) {
+            char c = url.charAt(authorityEnd);
+            if (c == '/' || c == '?' || c == '\\') {
+                break;
+            }
+            authorityEnd++;
+        }
+        String authority = normalizeAuthority(url.substring(authorityStart, authorityEnd),
+            defaultPort);
+        if (authority == null) {
+            return null;
+        }
+        int queryStart = url.indexOf('?', authorityEnd);
+        if (queryStart < 0 || queryStart > end) {
+            queryStart = end;
+        }
+        String path = url.substring(authorityEnd, queryStart);
+        path = path.isEmpty() ? "/" : removeDotSegments(path);
+        return encode(scheme + "://" + authority + path + url.substring(queryStart, end));
+    }
+
+    /**
+     * host转小写并且去掉默认端口，保留用户信息
+     */
+    private static String normalizeAuthority(String authority, int defaultPort) {
+        int at = authority.lastIndexOf('@');
+        String userInfo = at < 0 ? "" : authority.substring(0, at + 1);
+        String hostPort = authority.substring(at + 1);
+        // IPv6地址中有冒号，端口在]之后
+        int colon = hostPort.lastIndexOf(':');
+        if (colon >= 0 && colon < hostPort.lastIndexOf(']')) {
+            colon = -1;
+        }
+        String host = colon < 0 ? hostPort : hostPort.substring(0, colon);
+        if (host.isEmpty()) {
+            return null;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (colon < 0 || colon == hostPort.length() - 1) {
+            return userInfo + host;
+        }
+        String port = hostPort.substring(colon + 1);
+        for (int i = 0; i < port.length(); i++) {
+            if (port.charAt(i) < '0' || port.charAt(i) > '9') {
+                return null;
+            }
+        }
+        if (port.length() < 6 && Integer.parseInt(port) == defaultPort) {
+            return userInfo + host;
+        }
+        return userInfo + host + ":" + port;
+    }
+
+    /**
+     * 查找scheme结尾的冒号，scheme由字母开头，之后是字母、数字、+、-或者.
+     *
+     * @return 冒号的位置，没有scheme时返回-1
+     */
+    private static int schemeEnd(String ref, int end) {
+        for (int i = 0; i < end; i++) {
+            char c = ref.charAt(i);
+            if (c == ':') {
+                return i == 0 ? -1 : i;
+            }
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            boolean other = (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.';
+            if (!letter && (i == 0 || !other)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 去掉路径中的.和..，RFC 3986第5.2.4节；大部分路径没有点段，直接返回
+     */
+    static String removeDotSegments(String path) {
+        if (path.indexOf('\\') >= 0) {
+            // 浏览器把反斜杠当作路径分隔符
+            path = path.replace('\\', '/');
+        }
+        if (path.indexOf("/.") < 0 && !path.startsWith(".")) {
+            return path;
+        }
+        StringBuilder output = new StringBuilder(path.length());
+        int i = 0;
+        int length = path.length();
+        while (i < length) {
+            if (path.startsWith("../", i)) {
+                i += 3;
+            } else if (path.startsWith("./", i)) {
+                i += 2;
+            } else if (path.startsWith("/./", i)) {
+                i += 2;
+            } else if (i + 2 == length && path.startsWith("/.", i)) {
+                output.append('/');
+                i = length;
+            } else if (path.startsWith("/../", i)
+                       || (i + 3 == length && path.startsWith("/..", i))) {
+                int last = output.lastIndexOf("/");
+                output.setLength(Math.max(last, 0));
+                if (i + 3 == length) {
+                    output.append('/');
+                    i = length;
+                } else {
+                    i += 3;
+                }
+            } else if ((i + 1 == length && path.charAt(i) == '.')
+                       || (i + 2 == length && path.startsWith("..", i))) {
+                i = length;
+            } else {
+                int next = path.indexOf('/', i + 1);
+                if (next < 0) {
+                    next = length;
+                }
+                output.append(path, i, next);
+                i = next;
+            }
+        }
+        return output.length() == 0 || output.charAt(0) != '/' ? "/" + output : output.toString();
+    }
+
+    /**
+     * 空格和非ASCII字符按照UTF-8转换为%XX，去掉制表符和换行；大部分URL不需要转换，直接返回
+     */
+    private static String encode(String url) {
+        int i = 0;
+        for (; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c <= ' ' || c >= 0x7F) {
+                break;
+            }
+        }
+        if (i == url.length()) {
+            return url;
+        }
+        StringBuilder builder = new StringBuilder(url.length() + 16).append(url, 0, i);
+        for (; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '\t' || c == '\n' || c == '\r') {
+                continue;
+            }
+            if (c > ' ' && c < 0x7F) {
+                builder.append(c);
+                continue;
+            }
+            int end = Character.isHighSurrogate(c) && i + 1 < url.length() ? i + 2 : i + 1;
+            for (byte b : url.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            i = end - 1;
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.joe.spider.util.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计读取字节数的输入流，读取的字节数累加到共享的计数器中
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    /**
+     * 字节数计数器
+     */
+    private final LongAdder bytes;
+
+    public CountingInputStream(InputStream in, LongAdder bytes) {
+        super(in);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            bytes.increment();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            bytes.add(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            bytes.add(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // 重置后会重复计数
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+package com.joe.spider.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁直方图，桶的划分方式与HdrHistogram相同：每个2的幂区间再等分为{@link #SUB_BUCKET_COUNT}个子桶，因此任意值的相对误差
+ * 不超过1/{@link #SUB_BUCKET_COUNT}（小于1%）；桶的数量只与可记录的最大值的位数相关，记录是O(1)的
+ * <p>
+ * 可以多线程并发记录，记录只有一次原子自增（以及计数、求和、最值的条带化更新），不加锁；快照复制当前的桶计数，快照期间的
+ * 记录可能只有部分计入快照。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+public final class Histogram {
+
+    /**
+     * 子桶数的位数
+     */
+    static final int              SUB_BUCKET_BITS  = 7;
+
+    /**
+     * 每个2的幂区间的子桶数
+     */
+    static final int              SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可以精确记录的最大值，超过该值的按照该值记录（最大值仍然精确）
+     */
+    private final long            maxValue;
+
+    /**
+     * 桶计数
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * 记录的值的和
+     */
+    private final LongAdder       sum;
+
+    /**
+     * 记录的最小值
+     */
+    private final LongAccumulator min;
+
+    /**
+     * 记录的最大值
+     */
+    private final LongAccumulator max;
+
+    /**
+     * 构建直方图
+     *
+     * @param maxValue 可以精确记录的最大值，必须大于0
+     */
+    public Histogram(long maxValue) {
+        if (maxValue <= 0) {
+            throw new IllegalArgumentException("maxValue必须大于0");
+        }
+        this.maxValue = maxValue;
+        this.counts = new AtomicLongArray(index(maxValue) + 1);
+        this.sum = new LongAdder();
+        this.min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        this.max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+
+    /**
+     * 记录一个值，可以多线程调用
+     *
+     * @param value 值，小于0时按照0记录
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(index(Math.min(value, maxValue)));
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * 获取当前数据的快照
+     *
+     * @return 快照
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        if (count == 0) {
+            return new HistogramSnapshot(copy, 0, 0, 0, 0);
+        }
+        return new HistogramSnapshot(copy, count, sum.sum(), min.get(), max.get());
+    }
+
+    /**
+     * 计算值对应的桶
+     *
+     * @param value 值，不小于0
+     * @return 桶下标
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // 最高位之后保留SUB_BUCKET_BITS位
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 计算桶中的最大值
+     *
+     * @param index 桶下标
+     * @return 桶中的最大值
+     */
+    static long highestValue(int index) {
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        if (shift < 0) {
+            return index;
+        }
+        long lowest = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,137 @@
+package com.joe.spider.util.metrics;
+
+/**
+ * 直方图快照，创建后不再变化
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+public class HistogramSnapshot {
+
+    /**
+     * 桶计数
+     */
+    private final long[] counts;
+
+    /**
+     * 记录的值的个数
+     */
+    private final long   count;
+
+    /**
+     * 记录的值的和
+     */
+    private final long   sum;
+
+    /**
+     * 记录的最小值
+     */
+    private final long   min;
+
+    /**
+     * 记录的最大值
+     */
+    private final long   max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * 获取记录的值的个数
+     *
+     * @return 个数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 获取记录的值的和
+     *
+     * @return 和
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * 获取记录的最小值
+     *
+     * @return 最小值，没有记录时为0
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * 获取记录的最大值
+     *
+     * @return 最大值，没有记录时为0
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * 获取平均值
+     *
+     * @return 平均值，没有记录时为0
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * 获取百分位数，结果是对应桶中的最大值，相对误差小于1%
+     *
+     * @param percentile 百分位，取值范围[0, 100]
+     * @return 百分位数，没有记录时为0
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        double p = Math.min(Math.max(percentile, 0), 100);
+        long target = Math.max((long) Math.ceil(p / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // 最后一个桶中包含超过最大值限制的值
+                long value = i == counts.length - 1 ? max : Histogram.highestValue(i);
+                return Math.max(Math.min(value, max), min);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 获取中位数
+     *
+     * @return 中位数
+     */
+    public long getMedian() {
+        return getPercentile(50);
+    }
+
+    /**
+     * 获取99分位数
+     *
+     * @return 99分位数
+     */
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + count + ", min=" + min + ", max=" + max + ", mean="
+               + String.format("%.2f", getMean()) + ", p50=" + getMedian() + ", p90="
+               + getPercentile(90) + ", p99=" + getP99() + ", p999=" + getPercentile(99.9) + "}";
+    }
+}
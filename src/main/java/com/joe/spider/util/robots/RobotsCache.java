@@ -0,0 +1,374 @@
+package com.joe.spider.util.robots;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import com.joe.spider.util.http.HttpResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * robots.txt缓存
+ * <p>
+ * 按照站点（协议、host和端口）缓存编译后的规则，第一次访问某个站点时在后台获取robots.txt，调用方拿到的是
+ * {@link CompletableFuture}，不会阻塞；同一个站点并发的访问合并为一次获取，之后的访问直接返回已经完成的结果，不会重复解析。
+ * 获取成功（包括4xx）的结果缓存ttl时间，过期后第一次访问仍然返回旧的结果，同时在后台刷新；5xx或者网络异常时按照RFC 9309
+ * 禁止抓取该站点，缓存errorTtl时间后重新获取，刷新失败时继续使用旧的结果。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 03:10
+ */
+@Slf4j
+public class RobotsCache implements Closeable {
+
+    /**
+     * robots.txt最多解析的大小，超出的部分忽略，单位字节
+     */
+    private static final int                      MAX_SIZE   = 512 * 1024;
+
+    /**
+     * 匹配规则使用的User-Agent
+     */
+    private final String                          userAgent;
+
+    /**
+     * 获取成功的结果的缓存时间，单位毫秒
+     */
+    private final long                            ttl;
+
+    /**
+     * 获取失败的结果的缓存时间，单位毫秒
+     */
+    private final long                            errorTtl;
+
+    /**
+     * 最多缓存的站点数
+     */
+    private final int                             maxEntries;
+
+    /**
+     * 获取robots.txt，在获取线程池中调用
+     */
+    private final RobotsFetcher                   fetcher;
+
+    /**
+     * 规则获取完成（包括刷新）时的监听器，参数是host和规则，可以为null
+     */
+    private final BiConsumer<String, RobotsRules> listener;
+
+    /**
+     * 缓存，key是站点
+     */
+    private final Map<String, Entry>              entries;
+
+    /**
+     * 获取线程池，同时负责解析
+     */
+    private final ThreadPoolExecutor              executor;
+
+    /**
+     * 是否正在清理缓存
+     */
+    private final AtomicBoolean                   sweeping;
+
+    /**
+     * 实际获取robots.txt的次数
+     */
+    private final LongAdder                       fetches;
+
+    /**
+     * 构建robots.txt缓存
+     *
+     * @param userAgent  匹配规则使用的User-Agent
+     * @param ttl        获取成功的结果的缓存时间，单位毫秒
+     * @param errorTtl   获取失败的结果的缓存时间，单位毫秒
+     * @param maxEntries 最多缓存的站点数
+     * @param threads    获取线程数
+     * @param fetcher    获取robots.txt
+     * @param listener   规则获取完成（包括刷新）时的监听器，参数是host和规则，可以为null
+     */
+    public RobotsCache(String userAgent, long ttl, long errorTtl, int maxEntries, int threads,
+                       RobotsFetcher fetcher, BiConsumer<String, RobotsRules> listener) {
+        if (threads <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("threads和maxEntries必须大于0");
+        }
+        this.userAgent = userAgent;
+        this.ttl = Math.max(ttl, 0);
+        this.errorTtl = Math.max(errorTtl, 0);
+        this.maxEntries = maxEntries;
+        this.fetcher = fetcher;
+        this.listener = listener;
+        this.entries = new ConcurrentHashMap<>();
+        this.sweeping = new AtomicBoolean();
+        this.fetches = new LongAdder();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "spider-robots-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取URL所在站点的规则，有未过期的缓存时直接返回已经完成的结果，不会阻塞
+     *
+     * @param url URL
+     * @return 规则，不会异常完成
+     */
+    public CompletableFuture<RobotsRules> get(URL url) {
+        String site = site(url);
+        while (true) {
+            Entry entry = entries.get(site);
+            long now = System.currentTimeMillis();
+            if (entry != null) {
+                if (!entry.future.isDone() || entry.expireTime > now) {
+                    return entry.future;
+                }
+                if (!entry.failed) {
+                    // 成功的结果过期后先返回旧的结果，同时在后台刷新
+                    refresh(site, url.getHost(), entry);
+                    return entry.future;
+                }
+            }
+
+            Entry created = new Entry();
+            boolean added = entry == null ? entries.putIfAbsent(site, created) == null
+                : entries.replace(site, entry, created);
+            if (added) {
+                if (entry == null && entries.size() > maxEntries) {
+                    sweep(now);
+                }
+                fetch(site, url.getHost(), created, created);
+                return created.future;
+            }
+        }
+    }
+
+    /**
+     * 获取实际获取robots.txt的次数
+     *
+     * @return 获取次数
+     */
+    public long getFetchCount() {
+        return fetches.sum();
+    }
+
+    /**
+     * 关闭获取线程池，还未开始的获取以禁止抓取完成
+     */
+    @Override
+    public void close() {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Fetch) {
+                ((Fetch) task).target.future.complete(RobotsRules.DISALLOW_ALL);
+            }
+        }
+        entries.clear();
+    }
+
+    /**
+     * 按照响应编译规则：2xx解析内容，其他4xx（以及重定向次数过多的3xx）表示没有robots.txt，允许抓取
+     *
+     * @param userAgent 匹配规则使用的User-Agent
+     * @param response  robots.txt的响应
+     * @return 规则，5xx时返回null
+     */
+    static RobotsRules compile(String userAgent, HttpResponse response) {
+        int status = response.getStatus();
+        if (status >= 200 && status < 300) {
+            byte[] body = response.getBody();
+            if (body.length > MAX_SIZE) {
+                body = Arrays.copyOf(body, MAX_SIZE);
+            }
+            return RobotsRules.parse(new String(body, StandardCharsets.UTF_8), userAgent);
+        }
+        // 429与5xx一样表示服务端暂时无法提供
+        return status >= 500 || status == 429 ? null : RobotsRules.ALLOW_ALL;
+    }
+
+    /**
+     * 后台刷新过期的结果，同一个结果只刷新一次
+     */
+    private void refresh(String site, String host, Entry entry) {
+        if (Entry.REFRESHING.compareAndSet(entry, 0, 1)) {
+            fetch(site, host, entry, new Entry());
+        }
+    }
+
+    /**
+     * 提交获取请求
+     *
+     * @param site    站点
+     * @param host    站点的host
+     * @param current 缓存中当前的结果
+     * @param target  接收获取结果的新结果，与current相同时表示首次获取
+     */
+    private void fetch(String site, String host, Entry current, Entry target) {
+        try {
+            executor.execute(new Fetch(site, host, current, target));
+        } catch (RejectedExecutionException e) {
+            entries.remove(site, target);
+            target.future.complete(RobotsRules.DISALLOW_ALL);
+        }
+    }
+
+    /**
+     * 缓存的站点数超过上限时清理，先清理过期的结果，仍然超过上限时随机清理
+     */
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.future.isDone() && entry.expireTime <= now) {
+                    iterator.remove();
+                }
+            }
+            int target = maxEntries - maxEntries / 10;
+            iterator = entries.values().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                if (iterator.next().future.isDone()) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * 获取URL所在的站点，使用默认端口时省略端口
+     */
+    private static String site(URL url) {
+        int port = url.getPort();
+        String site = url.getProtocol() + "://" + url.getHost();
+        return port < 0 || port == url.getDefaultPort() ? site : site + ":" + port;
+    }
+
+    /**
+     * 一次获取，获取在线程池中发起，获取完成后在线程池中解析
+     */
+    private final class Fetch implements Runnable {
+
+        private final String site;
+
+        private final String host;
+
+        private final Entry  current;
+
+        private final Entry  target;
+
+        Fetch(String site, String host, Entry current, Entry target) {
+            this.site = site;
+            this.host = host;
+            this.current = current;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            fetches.increment();
+            CompletableFuture<HttpResponse> future;
+            try {
+                future = fetcher.fetch(site + "/robots.txt");
+            } catch (RuntimeException e) {
+                completed(null, e);
+                return;
+            }
+            future.whenComplete((response, e) -> {
+                try {
+                    executor.execute(() -> completed(response, e));
+                } catch (RejectedExecutionException ex) {
+                    // 已经关闭，不再解析
+                    target.future.complete(RobotsRules.DISALLOW_ALL);
+                }
+            });
+        }
+
+        private void completed(HttpResponse response, Throwable e) {
+            RobotsRules rules = null;
+            if (e == null) {
+                try {
+                    rules = compile(userAgent, response);
+                } catch (RuntimeException ex) {
+                    e = ex;
+                }
+            }
+            if (rules == null) {
+                log.debug("获取站点[{}]的robots.txt失败，状态码：{}", site,
+                    response == null ? null : response.getStatus(), e);
+                if (target != current) {
+                    // 刷新失败时继续使用旧的结果，errorTtl之后再次刷新
+                    current.expireTime = System.currentTimeMillis() + errorTtl;
+                    current.refreshing = 0;
+                    return;
+                }
+                target.failed = true;
+                target.expireTime = System.currentTimeMillis() + errorTtl;
+                target.future.complete(RobotsRules.DISALLOW_ALL);
+                return;
+            }
+            target.expireTime = System.currentTimeMillis() + ttl;
+            if (listener != null) {
+                try {
+                    listener.accept(host, rules);
+                } catch (RuntimeException ex) {
+                    log.warn("robots.txt监听器执行失败", ex);
+                }
+            }
+            target.future.complete(rules);
+            if (target != current) {
+                entries.replace(site, current, target);
+            }
+        }
+    }
+
+    /**
+     * 缓存的规则
+     */
+    private static final class Entry {
+
+        private static final AtomicIntegerFieldUpdater<Entry> REFRESHING = AtomicIntegerFieldUpdater
+            .newUpdater(Entry.class, "refreshing");
+
+        /**
+         * 规则
+         */
+        private final CompletableFuture<RobotsRules>          future     = new CompletableFuture<>();
+
+        /**
+         * 过期时间，获取完成后设置
+         */
+        private volatile long                                 expireTime;
+
+        /**
+         * 是否获取失败，失败的结果过期后重新获取而不是在后台刷新
+         */
+        private volatile boolean                              failed;
+
+        /**
+         * 是否正在后台刷新，1表示正在刷新
+         */
+        private volatile int                                  refreshing;
+    }
+}
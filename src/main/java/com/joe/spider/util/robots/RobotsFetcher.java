@@ -0,0 +1,23 @@
+package com.joe.spider.util.robots;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.joe.spider.util.http.HttpResponse;
+
+/**
+ * 获取robots.txt，在{@link RobotsCache}的获取线程池中调用，可以直接阻塞获取，也可以异步发起请求
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 03:10
+ */
+@FunctionalInterface
+public interface RobotsFetcher {
+
+    /**
+     * 获取robots.txt
+     *
+     * @param url robots.txt的URL
+     * @return 响应，请求失败时异常完成
+     */
+    CompletableFuture<HttpResponse> fetch(String url);
+}
@@ -0,0 +1,393 @@
+package com.joe.spider.util.robots;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 编译后的robots.txt规则，创建后不再变化，可以被任意线程并发使用
+ * <p>
+ * 只保留与爬虫User-Agent匹配的组（没有匹配的组时使用*组）；不含通配符的规则放入字典树，匹配时沿着路径走一遍字典树即可
+ * 找到最长的匹配规则，含有通配符（*和结尾的$）的规则单独匹配。多条规则匹配时最长的规则生效，长度相同时Allow优先，与
+ * RFC 9309一致。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 03:10
+ */
+public final class RobotsRules {
+
+    /**
+     * 允许所有URL的规则，robots.txt不存在（4xx）时使用
+     */
+    public static final RobotsRules ALLOW_ALL    = new RobotsRules(new Node(), new Wildcard[0],
+        0);
+
+    /**
+     * 禁止所有URL的规则，robots.txt暂时无法获取（5xx或者网络异常）时使用
+     */
+    public static final RobotsRules DISALLOW_ALL = disallowAll();
+
+    private static final char[]     HEX          = "0123456789ABCDEF".toCharArray();
+
+    private static final byte       NONE         = 0;
+
+    private static final byte       ALLOW        = 1;
+
+    private static final byte       DISALLOW     = 2;
+
+    /**
+     * 不含通配符的规则组成的字典树
+     */
+    private final Node              root;
+
+    /**
+     * 含有通配符的规则
+     */
+    private final Wildcard[]        wildcards;
+
+    /**
+     * Crawl-delay，单位毫秒，没有时为0
+     */
+    private final long              crawlDelay;
+
+    private RobotsRules(Node root, Wildcard[] wildcards, long crawlDelay) {
+        this.root = root;
+        this.wildcards = wildcards;
+        this.crawlDelay = crawlDelay;
+    }
+
+    /**
+     * 解析robots.txt
+     *
+     * @param content   robots.txt的内容
+     * @param userAgent 爬虫的User-Agent，只使用第一个/之前的产品名，不区分大小写
+     * @return 编译后的规则
+     */
+    public static RobotsRules parse(String content, String userAgent) {
+        String product = productToken(userAgent);
+        List<Group> groups = new ArrayList<>();
+        Group group = null;
+        boolean agentLine = false;
+        for (String line : content.split("\r\n|\r|\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("user-agent".equals(key)) {
+                // 连续的User-Agent行属于同一个组
+                if (!agentLine) {
+                    group = new Group();
+                    groups.add(group);
+                    agentLine = true;
+                }
+                group.agents.add(productToken(value));
+                continue;
+            }
+            agentLine = false;
+            if (group == null) {
+                // 第一个User-Agent之前的规则不属于任何组
+                continue;
+            }
+            if ("allow".equals(key) || "disallow".equals(key)) {
+                if (!value.isEmpty()) {
+                    group.rules.add(new String[] { key, value });
+                }
+            } else if ("crawl-delay".equals(key)) {
+                try {
+                    double seconds = Double.parseDouble(value);
+                    if (seconds >= 0 && seconds < Long.MAX_VALUE / 1000D) {
+                        group.crawlDelay = (long) (seconds * 1000);
+                    }
+                } catch (NumberFormatException e) {
+                    // 忽略格式错误的值
+                }
+            }
+        }
+
+        List<Group> matched = new ArrayList<>();
+        for (Group candidate : groups) {
+            if (candidate.agents.contains(product)) {
+                matched.add(candidate);
+            }
+        }
+        if (matched.isEmpty()) {
+            for (Group candidate : groups) {
+                if (candidate.agents.contains("*")) {
+                    matched.add(candidate);
+                }
+            }
+        }
+
+        Node root = new Node();
+        List<Wildcard> wildcards = new ArrayList<>();
+        long crawlDelay = 0;
+        for (Group candidate : matched) {
+            crawlDelay = Math.max(crawlDelay, candidate.crawlDelay);
+            for (String[] rule : candidate.rules) {
+                compile(root, wildcards, "allow".equals(rule[0]) ? ALLOW : DISALLOW, rule[1]);
+            }
+        }
+        return new RobotsRules(root, wildcards.toArray(new Wildcard[0]), crawlDelay);
+    }
+
+    /**
+     * URL是否允许抓取
+     *
+     * @param url URL
+     * @return true表示允许抓取
+     */
+    public boolean isAllowed(URL url) {
+        String path = url.getFile();
+        if (path.isEmpty()) {
+            path = "/";
+        } else if ("/robots.txt".equals(path)) {
+            return true;
+        }
+        return isAllowed(path);
+    }
+
+    /**
+     * 路径是否允许抓取
+     *
+     * @param path URL中的路径和查询参数，以/开头
+     * @return true表示允许抓取
+     */
+    public boolean isAllowed(String path) {
+        path = normalize(path);
+        int matchedLength = root.rule == NONE ? -1 : 0;
+        byte matched = root.rule;
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+            // 越深的节点规则越长，同一个节点上Allow和Disallow都有时编译时已经保留Allow
+            if (node.rule != NONE) {
+                matchedLength = i + 1;
+                matched = node.rule;
+            }
+        }
+        for (Wildcard wildcard : wildcards) {
+            int length = wildcard.pattern.length();
+            if ((length > matchedLength || length == matchedLength && wildcard.rule == ALLOW)
+                && wildcard.matches(path)) {
+                matchedLength = length;
+                matched = wildcard.rule;
+            }
+        }
+        return matched != DISALLOW;
+    }
+
+    /**
+     * 获取Crawl-delay
+     *
+     * @return Crawl-delay，单位毫秒，没有时为0
+     */
+    public long getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    /**
+     * 编译一条规则，不含通配符的规则放入字典树
+     */
+    private static void compile(Node root, List<Wildcard> wildcards, byte rule, String pattern) {
+        pattern = normalize(pattern);
+        if (pattern.charAt(0) != '/' && pattern.charAt(0) != '*') {
+            pattern = "/" + pattern;
+        }
+        // 规则本身就是前缀匹配，结尾的*没有意义
+        int end = pattern.length();
+        while (end > 0 && pattern.charAt(end - 1) == '*') {
+            end--;
+        }
+        pattern = pattern.substring(0, end);
+        if (pattern.indexOf('*') >= 0 || pattern.endsWith("$")) {
+            wildcards.add(new Wildcard(pattern, rule));
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < pattern.length(); i++) {
+            node = node.getOrAddChild(pattern.charAt(i));
+        }
+        if (node.rule != ALLOW) {
+            node.rule = rule;
+        }
+    }
+
+    /**
+     * 统一路径的编码：非ASCII字符按照UTF-8转换为%XX，%XX中的十六进制转换为大写；大部分路径不需要转换，直接返回
+     */
+    static String normalize(String path) {
+        int i = 0;
+        for (; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c >= 0x80 || c == '%') {
+                break;
+            }
+        }
+        if (i == path.length()) {
+            return path;
+        }
+        StringBuilder builder = new StringBuilder(path.length() + 16).append(path, 0, i);
+        for (; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '%' && i + 2 < path.length() && isHex(path.charAt(i + 1))
+                && isHex(path.charAt(i + 2))) {
+                builder.append('%').append(Character.toUpperCase(path.charAt(i + 1)))
+                    .append(Character.toUpperCase(path.charAt(i + 2)));
+                i += 2;
+            } else if (c < 0x80) {
+                builder.append(c);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < path.length() ? i + 2 : i + 1;
+                for (byte b : path.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                    builder.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+                i = end - 1;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return Character.digit(c, 16) >= 0;
+    }
+
+    /**
+     * 获取User-Agent中的产品名，小写
+     */
+    private static String productToken(String userAgent) {
+        String token = userAgent.trim();
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '/' || Character.isWhitespace(c)) {
+                token = token.substring(0, i);
+                break;
+            }
+        }
+        return token.toLowerCase(Locale.ROOT);
+    }
+
+    private static RobotsRules disallowAll() {
+        Node root = new Node();
+        root.getOrAddChild('/').rule = DISALLOW;
+        return new RobotsRules(root, new Wildcard[0], 0);
+    }
+
+    /**
+     * 字典树节点，子节点按照字符排序，查找时二分
+     */
+    private static final class Node {
+
+        private static final char[] EMPTY    = new char[0];
+
+        /**
+         * 子节点对应的字符，有序
+         */
+        private char[]              keys     = EMPTY;
+
+        /**
+         * 子节点
+         */
+        private Node[]              children = new Node[0];
+
+        /**
+         * 以该节点结尾的规则，没有时为NONE
+         */
+        private byte                rule;
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, keys.length - index);
+            Node child = new Node();
+            newKeys[index] = c;
+            newChildren[index] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * 含有通配符的规则
+     */
+    private static final class Wildcard {
+
+        /**
+         * 规则，*匹配任意字符串，结尾的$表示匹配到路径结尾
+         */
+        private final String pattern;
+
+        private final byte   rule;
+
+        Wildcard(String pattern, byte rule) {
+            this.pattern = pattern;
+            this.rule = rule;
+        }
+
+        /**
+         * 贪心匹配，遇到不匹配时回退到上一个*处
+         */
+        private boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            int end = anchored ? pattern.length() - 1 : pattern.length();
+            int p = 0;
+            int s = 0;
+            int star = -1;
+            int mark = 0;
+            while (true) {
+                if (p == end && (!anchored || s == path.length())) {
+                    return true;
+                }
+                if (p < end && pattern.charAt(p) == '*') {
+                    star = p++;
+                    mark = s;
+                } else if (p < end && s < path.length() && pattern.charAt(p) == path.charAt(s)) {
+                    p++;
+                    s++;
+                } else if (star >= 0 && mark < path.length()) {
+                    p = star + 1;
+                    s = ++mark;
+                } else {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析时的组
+     */
+    private static final class Group {
+
+        private final List<String>   agents     = new ArrayList<>();
+
+        private final List<String[]> rules      = new ArrayList<>();
+
+        private long                 crawlDelay;
+    }
+}
@@ -0,0 +1,520 @@
+package com.joe.spider.util.schedule;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.joe.utils.common.Assert;
+
+/**
+ * 分层时间轮，多生产者单消费者
+ * <p>
+ * 生产者通过CAS将任务压入添加队列，添加是O(1)且无锁的；消费者（单线程）调用{@link #take()}时将添加队列中的任务放入时间
+ * 轮对应的槽位，并按照tick推进时间轮，到期的槽位整体转入就绪队列，超出底层时间轮范围的任务放入上层时间轮，上层槽位到期时
+ * 再降级到下层，放入和到期都是O(1)的。
+ * <p>
+ * 任务按照绝对截止时间排序，精度为一个tick，任务不会早于截止时间被取出。每层时间轮记录非空的槽位，消费者空闲时一直阻塞
+ * 到最早的非空槽位到期，空槽位不会唤醒消费者。
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 10:12
+ */
+public class TimingWheel<T extends WheelTask> {
+
+    /**
+     * 默认tick，单位毫秒
+     */
+    public static final long                 DEFAULT_TICK       = 10;
+
+    /**
+     * 默认每层时间轮的槽位数
+     */
+    public static final int                  DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * 最底层时间轮
+     */
+    private final Level                      root;
+
+    /**
+     * 时间轮的槽位数
+     */
+    private final int                        wheelSize;
+
+    /**
+     * 生产者添加的任务，还未放入时间轮
+     */
+    private final AtomicReference<WheelTask> inbox;
+
+    /**
+     * 等待执行的任务数
+     */
+    private final AtomicInteger              pending;
+
+    /**
+     * 消费者线程
+     */
+    private volatile Thread                  consumer;
+
+    /**
+     * 消费者下次醒来的时间，截止时间早于该值的任务添加时需要唤醒消费者，消费者运行期间为Long.MIN_VALUE
+     */
+    private volatile long                    nextWakeup;
+
+    /**
+     * 就绪队列头，只有消费者访问
+     */
+    private WheelTask                        readyHead;
+
+    /**
+     * 就绪队列尾，只有消费者访问
+     */
+    private WheelTask                        readyTail;
+
+    /**
+     * 放入时间轮槽位中的任务数，只有消费者访问
+     */
+    private int                              placed;
+
+    /**
+     * 使用默认tick和槽位数构建时间轮
+     */
+    public TimingWheel() {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * 构建时间轮
+     *
+     * @param tick      tick，单位毫秒，任务的执行精度
+     * @param wheelSize 每层时间轮的槽位数
+     */
+    public TimingWheel(long tick, int wheelSize) {
+        if (tick <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tick必须大于0，wheelSize必须大于1");
+        }
+        this.wheelSize = wheelSize;
+        this.root = new Level(tick, wheelSize, wheelTime(System.currentTimeMillis(), tick));
+        this.inbox = new AtomicReference<>();
+        this.pending = new AtomicInteger();
+        this.nextWakeup = Long.MIN_VALUE;
+    }
+
+    /**
+     * 添加任务，可以多线程调用
+     *
+     * @param task 任务，一个任务只能添加一次
+     */
+    public void add(T task) {
+        Assert.notNull(task);
+        pending.incrementAndGet();
+        WheelTask head;
+        do {
+            head = inbox.get();
+            task.next = head;
+        } while (!inbox.compareAndSet(head, task));
+
+        Thread consumer = this.consumer;
+        if (consumer != null && task.deadline < nextWakeup) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 批量添加任务，可以多线程调用；所有任务先在调用线程中倒序串成链表（与逐个添加的顺序相同），然后通过一次CAS放入添加
+     * 队列
+     *
+     * @param tasks 任务，一个任务只能添加一次
+     */
+    public void addAll(Collection<? extends T> tasks) {
+        Assert.notNull(tasks);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        WheelTask first = null;
+        WheelTask last = null;
+        long earliest = Long.MAX_VALUE;
+        for (T task : tasks) {
+            Assert.notNull(task);
+            task.next = first;
+            first = task;
+            if (last == null) {
+                last = task;
+            }
+            earliest = Math.min(earliest, task.deadline);
+        }
+        pending.addAndGet(tasks.size());
+        WheelTask head;
+        do {
+            head = inbox.get();
+            last.next = head;
+        } while (!inbox.compareAndSet(head, first));
+
+        Thread consumer = this.consumer;
+        if (consumer != null && earliest < nextWakeup) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 取消任务，可以多线程调用；取消的任务会在到期时被丢弃
+     *
+     * @param task 任务
+     * @return true表示取消成功，false表示任务已经被取出或者已经取消
+     */
+    public boolean cancel(T task) {
+        if (task.transfer(WheelTask.CANCELLED)) {
+            pending.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前等待执行的任务数（不包含已经取消的）
+     *
+     * @return 等待执行的任务数
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * 获取一个到期的任务，没有到期任务时阻塞，只能由单个消费者线程调用
+     *
+     * @return 到期的任务
+     * @throws InterruptedException 线程中断
+     */
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        consumer = Thread.currentThread();
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            WheelTask task = pollReady();
+            if (task != null) {
+                return (T) task;
+            }
+
+            long now = System.currentTimeMillis();
+            drainInbox();
+            advance(wheelTime(now, root.tick));
+            if (readyHead != null) {
+                continue;
+            }
+
+            // 下次有任务需要处理的时间
+            long wakeup = placed == 0 ? Long.MAX_VALUE : nextExpiry();
+            nextWakeup = wakeup;
+            if (inbox.get() == null) {
+                if (wakeup == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(wakeup - now));
+                }
+            }
+            nextWakeup = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * 获取消费者下次醒来的时间，消费者没有阻塞等待时为Long.MIN_VALUE
+     *
+     * @return 下次醒来的时间，Long.MAX_VALUE表示没有任务，直到添加任务时才醒来
+     */
+    long getNextWakeup() {
+        return nextWakeup;
+    }
+
+    /**
+     * 计算最早的非空槽位到期的时间：底层槽位到期时其中的任务就绪，上层槽位到期时其中的任务降级到下层，之后重新计算
+     *
+     * @return 最早的非空槽位到期的时间，没有非空槽位时返回Long.MAX_VALUE
+     */
+    private long nextExpiry() {
+        long start = Long.MAX_VALUE;
+        for (Level level = root; level != null; level = level.overflow) {
+            start = Math.min(start, level.nextOccupied());
+        }
+        // 底层时间轮推进到槽位的开始时间时槽位到期，与wheelTime对应
+        return start > Long.MAX_VALUE - root.tick ? Long.MAX_VALUE : start + root.tick - 1;
+    }
+
+    /**
+     * 将当前时间转换为时间轮的时间，保证时间轮当前槽位的结束时间不晚于当前时间，从而任务只会晚于截止时间执行（最多晚两个
+     * tick），而不会提前执行
+     *
+     * @param now  当前时间
+     * @param tick tick
+     * @return 时间轮的时间
+     */
+    private static long wheelTime(long now, long tick) {
+        return now - tick + 1;
+    }
+
+    /**
+     * 遍历所有等待中的任务，只能由消费者线程调用或者在消费者线程退出后调用
+     *
+     * @param action 对每个任务执行的操作
+     */
+    public void forEach(Consumer<? super T> action) {
+        drainInbox();
+        for (Level level = root; level != null; level = level.overflow) {
+            for (int i = 0; i < wheelSize; i++) {
+                forEach(level.buckets[i], action);
+            }
+        }
+        forEach(readyHead, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEach(WheelTask head, Consumer<? super T> action) {
+        for (WheelTask task = head; task != null; task = task.next) {
+            if (task.isPending()) {
+                action.accept((T) task);
+            }
+        }
+    }
+
+    /**
+     * 取消所有等待中的任务，只能由消费者线程调用或者在消费者线程退出后调用
+     */
+    public void clear() {
+        drainInbox();
+        for (Level level = root; level != null; level = level.overflow) {
+            for (int i = 0; i < wheelSize; i++) {
+                cancelAll(level.buckets[i]);
+                level.buckets[i] = null;
+                level.tails[i] = null;
+            }
+            level.occupied.clear();
+        }
+        cancelAll(readyHead);
+        readyHead = null;
+        readyTail = null;
+        placed = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void cancelAll(WheelTask head) {
+        while (head != null) {
+            WheelTask next = head.next;
+            head.next = null;
+            cancel((T) head);
+            head = next;
+        }
+    }
+
+    /**
+     * 从就绪队列中取出一个未取消的任务
+     *
+     * @return 任务，就绪队列为空时返回null
+     */
+    private WheelTask pollReady() {
+        while (readyHead != null) {
+            WheelTask task = readyHead;
+            readyHead = task.next;
+            if (readyHead == null) {
+                readyTail = null;
+            }
+            task.next = null;
+            if (task.transfer(WheelTask.FIRED)) {
+                pending.decrementAndGet();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将添加队列中的任务放入时间轮；添加队列是后进先出的，先反转为添加顺序，截止时间相同的任务按照添加顺序取出
+     */
+    private void drainInbox() {
+        WheelTask head = inbox.getAndSet(null);
+        WheelTask task = null;
+        while (head != null) {
+            WheelTask next = head.next;
+            head.next = task;
+            task = head;
+            head = next;
+        }
+        while (task != null) {
+            WheelTask next = task.next;
+            task.next = null;
+            place(task);
+            task = next;
+        }
+    }
+
+    /**
+     * 将任务放入时间轮，已经到期的放入就绪队列，已经取消的直接丢弃
+     *
+     * @param task 任务
+     */
+    private void place(WheelTask task) {
+        if (!task.isPending()) {
+            return;
+        }
+
+        if (task.deadline < root.currentTime + root.tick) {
+            if (readyTail == null) {
+                readyHead = task;
+            } else {
+                readyTail.next = task;
+            }
+            readyTail = task;
+            return;
+        }
+
+        Level level = root;
+        while (task.deadline - level.currentTime >= level.interval) {
+            if (level.overflow == null) {
+                level.overflow = new Level(level.interval, wheelSize, level.currentTime);
+            }
+            level = level.overflow;
+        }
+        level.append(task);
+        placed++;
+    }
+
+    /**
+     * 将时间轮推进到指定时间
+     *
+     * @param time 时间轮的时间
+     */
+    private void advance(long time) {
+        while (root.currentTime + root.tick <= time) {
+            if (placed == 0) {
+                // 时间轮中没有任务，直接跳到当前时间
+                for (Level level = root; level != null; level = level.overflow) {
+                    level.currentTime = time - time % level.tick;
+                }
+                return;
+            }
+            root.currentTime += root.tick;
+            // 先将上层到期的槽位降级下来，再处理底层到期的槽位
+            cascade(root.overflow, root.currentTime);
+            flush(root);
+        }
+    }
+
+    private void cascade(Level level, long time) {
+        if (level == null || time < level.currentTime + level.tick) {
+            return;
+        }
+        level.currentTime = time - time % level.tick;
+        cascade(level.overflow, time);
+        flush(level);
+    }
+
+    /**
+     * 将指定层当前时间对应槽位中的任务重新放入时间轮
+     *
+     * @param level 时间轮
+     */
+    private void flush(Level level) {
+        int index = level.index(level.currentTime);
+        WheelTask task = level.buckets[index];
+        level.buckets[index] = null;
+        level.tails[index] = null;
+        level.occupied.clear(index);
+        while (task != null) {
+            WheelTask next = task.next;
+            task.next = null;
+            placed--;
+            place(task);
+            task = next;
+        }
+    }
+
+    /**
+     * 一层时间轮
+     */
+    private static final class Level {
+
+        /**
+         * 本层一个槽位的时间跨度，单位毫秒
+         */
+        private final long        tick;
+
+        /**
+         * 本层时间轮的总时间跨度，单位毫秒
+         */
+        private final long        interval;
+
+        /**
+         * 槽位链表头
+         */
+        private final WheelTask[] buckets;
+
+        /**
+         * 槽位链表尾
+         */
+        private final WheelTask[] tails;
+
+        /**
+         * 非空的槽位
+         */
+        private final BitSet      occupied;
+
+        /**
+         * 本层当前时间，是tick的整数倍
+         */
+        private long              currentTime;
+
+        /**
+         * 上层时间轮，需要时创建
+         */
+        private Level             overflow;
+
+        Level(long tick, int wheelSize, long startTime) {
+            this.tick = tick;
+            // 防止层数过多时溢出
+            this.interval = tick > Long.MAX_VALUE / wheelSize ? Long.MAX_VALUE : tick * wheelSize;
+            this.buckets = new WheelTask[wheelSize];
+            this.tails = new WheelTask[wheelSize];
+            this.occupied = new BitSet(wheelSize);
+            this.currentTime = startTime - startTime % tick;
+        }
+
+        int index(long time) {
+            return (int) ((time / tick) % buckets.length);
+        }
+
+        void append(WheelTask task) {
+            int index = index(task.deadline);
+            if (tails[index] == null) {
+                buckets[index] = task;
+            } else {
+                tails[index].next = task;
+            }
+            tails[index] = task;
+            occupied.set(index);
+        }
+
+        /**
+         * 获取当前时间之后最早的非空槽位的开始时间，槽位中的任务都在当前时间之后的一圈之内
+         *
+         * @return 槽位的开始时间，没有非空槽位时返回Long.MAX_VALUE
+         */
+        long nextOccupied() {
+            int current = index(currentTime);
+            int index = occupied.nextSetBit(current);
+            if (index < 0) {
+                index = occupied.nextSetBit(0);
+                if (index < 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            long offset = (index - current + buckets.length) % buckets.length;
+            return offset > (Long.MAX_VALUE - currentTime) / tick ? Long.MAX_VALUE
+                : currentTime + offset * tick;
+        }
+    }
+}
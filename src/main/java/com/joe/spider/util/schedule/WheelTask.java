@@ -0,0 +1,76 @@
+package com.joe.spider.util.schedule;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 时间轮中的任务，使用绝对时间作为截止时间，任务本身作为链表节点挂在时间轮上，不会额外分配节点对象
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 10:12
+ */
+public abstract class WheelTask {
+
+    /**
+     * 等待执行
+     */
+    static final int                                          PENDING   = 0;
+
+    /**
+     * 已经被取出执行
+     */
+    static final int                                          FIRED     = 1;
+
+    /**
+     * 已经取消
+     */
+    static final int                                          CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<WheelTask> STATE     = AtomicIntegerFieldUpdater
+        .newUpdater(WheelTask.class, "state");
+
+    /**
+     * 截止时间（绝对时间），单位毫秒
+     */
+    final long                                                deadline;
+
+    /**
+     * 链表中的下一个节点，任务在添加队列、时间轮槽位、就绪队列中同时只会处于一个
+     */
+    WheelTask                                              next;
+
+    /**
+     * 任务状态
+     */
+    private volatile int                                      state;
+
+    protected WheelTask(long deadline) {
+        this.deadline = deadline;
+        this.state = PENDING;
+    }
+
+    /**
+     * 获取截止时间
+     *
+     * @return 截止时间（绝对时间），单位毫秒
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * 是否已经取消
+     *
+     * @return true表示已经取消
+     */
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    boolean isPending() {
+        return state == PENDING;
+    }
+
+    boolean transfer(int target) {
+        return STATE.compareAndSet(this, PENDING, target);
+    }
+}
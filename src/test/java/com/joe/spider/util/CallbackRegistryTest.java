@@ -0,0 +1,48 @@
+package com.joe.spider.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 回调注册表测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 09:10
+ */
+public class CallbackRegistryTest {
+
+    /**
+     * 测试引用计数：每次注册对应一次取出，计数为0时移除；命名回调一直保留，只有命名回调有检查点使用的ID
+     */
+    @Test
+    public void testReferenceCount() {
+        CallbackRegistry registry = new CallbackRegistry();
+        Callback named = result -> {
+        };
+        registry.register("named", named);
+        int namedId = registry.named(named);
+        Assert.assertTrue(namedId >= 0);
+
+        Callback callback = result -> {
+        };
+        int id = registry.register(callback);
+        Assert.assertEquals(id, registry.register(callback));
+        Assert.assertEquals(-1, registry.named(callback));
+        Assert.assertEquals(2, registry.size());
+
+        Assert.assertSame(callback, registry.take(id));
+        Assert.assertEquals(2, registry.size());
+        Assert.assertSame(callback, registry.take(id));
+        Assert.assertEquals(1, registry.size());
+        Assert.assertNull(registry.take(id));
+
+        // 再次注册时分配新的ID，旧ID不会被复用
+        Assert.assertNotEquals(id, registry.register(callback));
+
+        Assert.assertEquals(namedId, registry.register(named));
+        Assert.assertSame(named, registry.take(namedId));
+        Assert.assertSame(named, registry.take(namedId));
+        Assert.assertSame(named, registry.get("named"));
+        Assert.assertEquals("named", registry.names().get(namedId));
+    }
+}
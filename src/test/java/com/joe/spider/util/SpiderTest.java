@@ -1,15 +1,50 @@
 package com.joe.spider.util;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.joe.spider.util.flow.Subscriber;
+import com.joe.spider.util.flow.Subscription;
+import com.joe.spider.util.http.DownloadResult;
+import com.joe.spider.util.http.HttpStatusException;
+import com.joe.spider.util.http.LocalServer;
 import com.joe.utils.test.WebBaseTest;
 
 /**
@@ -39,14 +74,1102 @@ public class SpiderTest extends WebBaseTest {
         });
     }
 
+    /**
+     * 测试NIO模式
+     */
+    @Test
+    public void testNioSpider() {
+        runCase(() -> {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicBoolean flag = new AtomicBoolean(false);
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(10);
+            config.setFetchMode(FetchMode.NIO);
+            Spider spider = new Spider(config);
+            spider.addTask(getBaseUrl() + "test/hello?name=JoeKerouac", result -> {
+                flag.set("hello : JoeKerouac".equals(result));
+                latch.countDown();
+            });
+            latch.await(10, TimeUnit.SECONDS);
+            Assert.assertTrue(flag.get());
+            spider.shutdown(true);
+        });
+    }
+
+    /**
+     * 测试多个线程同时为同一个host添加任务时，该host的请求开始时间间隔不小于抓取间隔
+     */
+    @Test
+    public void testConcurrentAddTaskInterval() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                List<Long> starts = new CopyOnWriteArrayList<>();
+                try (LocalServer server = new LocalServer(target -> {
+                    starts.add(System.currentTimeMillis());
+                    return LocalServer.response(200, "", target);
+                })) {
+                    SpiderConfig config = new SpiderConfig();
+                    config.setInterval(200);
+                    config.setFetchMode(mode);
+                    config.setExecutor(new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>()));
+                    Spider spider = new Spider(config);
+                    // 预热，第一次请求的类加载和初始化耗时会推迟请求到达服务器的时间
+                    spider.submitTask(server.url("/warmup")).get(10, TimeUnit.SECONDS);
+                    starts.clear();
+                    int threads = 4;
+                    int tasks = 3;
+                    CountDownLatch latch = new CountDownLatch(threads * tasks);
+                    CyclicBarrier barrier = new CyclicBarrier(threads);
+                    List<Thread> producers = new ArrayList<>();
+                    for (int t = 0; t < threads; t++) {
+                        int id = t;
+                        Thread producer = new Thread(() -> {
+                            try {
+                                barrier.await();
+                                for (int i = 0; i < tasks; i++) {
+                                    spider.addTask(server.url("/" + id + "-" + i),
+                                        result -> latch.countDown());
+                                }
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+                        producer.start();
+                        producers.add(producer);
+                    }
+                    for (Thread producer : producers) {
+                        producer.join();
+                    }
+                    Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                    spider.shutdown(false);
+                    Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                    Assert.assertEquals(threads * tasks, starts.size());
+                    for (int i = 1; i < starts.size(); i++) {
+                        // 请求到达服务器的时间有抖动，预约冲突时间隔接近0
+                        Assert.assertTrue(mode + " " + starts,
+                            starts.get(i) - starts.get(i - 1) >= 150);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 测试大于等于400的状态码按照失败处理：回调不执行，通过future提交的任务以HttpStatusException失败
+     */
+    @Test
+    public void testErrorStatus() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                Spider spider = new Spider(config);
+                AtomicInteger calls = new AtomicInteger();
+                spider.addTask(getBaseUrl() + "test/missing?n=1", result -> calls.incrementAndGet());
+                try {
+                    spider.submitTask(getBaseUrl() + "test/missing?n=2").get(10, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof HttpStatusException);
+                    Assert.assertEquals(404, ((HttpStatusException) e.getCause()).getStatus());
+                }
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                Assert.assertEquals(0, calls.get());
+                Assert.assertEquals(2, spider.getMetrics().getErrors().values().stream()
+                    .mapToLong(Long::longValue).sum());
+            }
+        });
+    }
+
+    /**
+     * 测试流式任务：回调在响应头到达后执行并自己读取响应体，任意状态码的响应都交给回调处理
+     */
+    @Test
+    public void testStreamTask() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                Spider spider = new Spider(config);
+                Set<String> results = ConcurrentHashMap.newKeySet();
+                StreamCallback callback = response -> results
+                    .add(response.getStatus() + " " + response.readAsString());
+                spider.addStreamTask(getBaseUrl() + "test/hello?name=stream", callback);
+                spider.addStreamTask(getBaseUrl() + "test/missing?n=3", callback);
+                spider.submitStreamTask(getBaseUrl() + "test/hello?name=future", callback)
+                    .get(10, TimeUnit.SECONDS);
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                Assert.assertEquals(new HashSet<>(Arrays.asList("200 hello : stream",
+                    "404 missing", "200 hello : future")), results);
+                Assert.assertEquals(3, spider.getMetrics().getCompletedTasks());
+            }
+        });
+    }
+
+    /**
+     * 测试响应体超过maxBodySize时中止下载，任务失败并且不执行回调：声明了Content-Length时读取响应体之前失败，分块传输时
+     * 读取到上限时失败
+     */
+    @Test
+    public void testMaxBodySize() {
+        runCase(() -> {
+            StringBuilder chunked = new StringBuilder(
+                "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n");
+            for (int i = 0; i < 4; i++) {
+                chunked.append("200\r\n").append(new String(new char[512]).replace('\0', 'a'))
+                    .append("\r\n");
+            }
+            byte[] response = chunked.append("0\r\n\r\n").toString()
+                .getBytes(StandardCharsets.ISO_8859_1);
+            try (LocalServer server = new LocalServer(target -> response)) {
+                for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                    SpiderConfig config = new SpiderConfig();
+                    config.setInterval(0);
+                    config.setFetchMode(mode);
+                    config.setMaxBodySize(1024);
+                    Spider spider = new Spider(config);
+                    AtomicInteger calls = new AtomicInteger();
+                    List<CompletableFuture<?>> futures = Arrays.asList(
+                        spider.submitTask(getBaseUrl() + "test/big?size=4096",
+                            result -> calls.incrementAndGet()),
+                        spider.submitTask(server.url("/chunked?n=1"),
+                            result -> calls.incrementAndGet()),
+                        spider.submitStreamTask(server.url("/chunked?n=2"), body -> {
+                            body.readAsBytes();
+                            calls.incrementAndGet();
+                        }));
+                    for (CompletableFuture<?> future : futures) {
+                        try {
+                            future.get(10, TimeUnit.SECONDS);
+                            Assert.fail();
+                        } catch (ExecutionException e) {
+                            Assert.assertTrue(e.getCause() instanceof IOException);
+                        }
+                    }
+                    // 未超过上限的响应正常执行回调
+                    Assert.assertEquals(1000, spider
+                        .submitTask(getBaseUrl() + "test/big?size=1000").get(10, TimeUnit.SECONDS)
+                        .length());
+                    spider.shutdown(false);
+                    Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                    Assert.assertEquals(0, calls.get());
+                }
+            }
+        });
+    }
+
+
+    /**
+     * 测试NIO模式下同一个host按间隔顺序执行的任务复用同一个keep-alive连接，复用情况在监控数据中体现
+     */
+    @Test
+    public void testKeepAliveReuse() {
+        runCase(() -> {
+            try (LocalServer server = new LocalServer(target -> LocalServer.response(200, "", target))) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(50);
+                config.setFetchMode(FetchMode.NIO);
+                Spider spider = new Spider(config);
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    futures.add(spider.submitTask(server.url("/" + i)));
+                }
+                for (int i = 0; i < 5; i++) {
+                    Assert.assertEquals("/" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+                }
+                Assert.assertEquals(1, server.getAccepted());
+                SpiderMetrics metrics = spider.getMetrics();
+                Assert.assertEquals(1, metrics.getConnectionsOpened());
+                Assert.assertEquals(4, metrics.getConnectionsReused());
+                spider.shutdown(true);
+            }
+        });
+    }
+    /**
+     * 测试下载任务：文件内容和校验和正确；响应体不完整或者状态码错误时任务失败，目标文件被删除或者不会创建
+     */
+    @Test
+    public void testDownloadTask() {
+        runCase(() -> {
+            byte[] data = new byte[100 * 1024 + 7];
+            new Random(1).nextBytes(data);
+            StringBuilder checksum = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                checksum.append(String.format("%02x", b));
+            }
+            byte[] head = ("HTTP/1.1 200 X\r\nContent-Length: " + data.length
+                           + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            byte[] partial = Arrays.copyOf(head, head.length + 1000);
+            System.arraycopy(data, 0, partial, head.length, 1000);
+            Path dir = Files.createTempDirectory("spider-download");
+            try (LocalServer server = new LocalServer(target -> {
+                switch (target) {
+                    case "/file":
+                        return LocalServer.response(200, "", data);
+                    case "/partial":
+                        return partial;
+                    default:
+                        return LocalServer.response(404, "", "missing");
+                }
+            })) {
+                for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                    SpiderConfig config = new SpiderConfig();
+                    config.setInterval(0);
+                    config.setFetchMode(mode);
+                    Spider spider = new Spider(config);
+                    Path file = dir.resolve(mode + "-file");
+                    DownloadResult result = spider.submitDownloadTask(server.url("/file"), file)
+                        .get(10, TimeUnit.SECONDS);
+                    Assert.assertEquals(file, result.getPath());
+                    Assert.assertEquals(data.length, result.getSize());
+                    Assert.assertEquals(checksum.toString(), result.getChecksum());
+                    Assert.assertArrayEquals(data, Files.readAllBytes(file));
+
+                    for (String path : new String[] { "/partial", "/missing" }) {
+                        Path target = dir.resolve(mode + path.replace('/', '-'));
+                        try {
+                            spider.submitDownloadTask(server.url(path), target).get(10,
+                                TimeUnit.SECONDS);
+                            Assert.fail(mode + path);
+                        } catch (ExecutionException e) {
+                            Assert.assertTrue(e.getCause() instanceof IOException);
+                        }
+                        Assert.assertFalse(mode + path, Files.exists(target));
+                    }
+                    spider.shutdown(false);
+                    Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                }
+            } finally {
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(dir);
+            }
+        });
+    }
+
+    /**
+     * 测试等待执行的任务数有上限时回调中添加多个任务，线程池和回调阶段的线程不会因为等待名额与主线程互相等待
+     */
+    @Test
+    public void testAddTaskInCallbackWithMaxQueuedTasks() {
+        runCase(() -> {
+            for (int callbackThreads : new int[] { 0, 1 }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setMaxQueuedTasks(1);
+                config.setCallbackThreads(callbackThreads);
+                config.setExecutor(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()));
+                Spider spider = new Spider(config);
+                CountDownLatch latch = new CountDownLatch(7);
+                AtomicInteger count = new AtomicInteger();
+                Callback[] callback = new Callback[1];
+                callback[0] = result -> {
+                    int n = count.incrementAndGet();
+                    latch.countDown();
+                    if (n <= 3) {
+                        spider.addTasks(Arrays.asList(getBaseUrl() + "test/hello?name=a" + n,
+                            getBaseUrl() + "test/hello?name=b" + n), callback[0]);
+                    }
+                };
+                spider.addTask(getBaseUrl() + "test/hello?name=root", callback[0]);
+                Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                Assert.assertEquals(7, spider.getMetrics().getCompletedTasks());
+            }
+        });
+    }
+
+    /**
+     * 测试每个任务使用单独的lambda作为回调并写入磁盘任务队列时，任务执行后回调注册表清空，不会随着任务数增长
+     */
+    @Test
+    public void testSpilledCallbacksReleased() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            config.setFrontierDir(Files.createTempDirectory("spider-frontier"));
+            config.setHotWindow(2);
+            Spider spider = new Spider(config);
+            int count = 50;
+            CountDownLatch latch = new CountDownLatch(count);
+            int spilled = 0;
+            for (int i = 0; i < count; i++) {
+                int n = i;
+                AddResult result = spider.tryAddTask(getBaseUrl() + "test/hello?name=" + n,
+                    body -> {
+                        Assert.assertEquals("hello : " + n, body);
+                        latch.countDown();
+                    });
+                if (result == AddResult.SPILLED) {
+                    spilled++;
+                }
+            }
+            Assert.assertTrue(spilled > 0);
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            SpiderMetrics metrics = spider.getMetrics();
+            Assert.assertEquals(0, metrics.getFrontierTasks());
+            Assert.assertEquals(0, metrics.getRegisteredCallbacks());
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+        });
+    }
+
+    /**
+     * 测试立即关闭后从检查点恢复：未执行的任务在恢复后执行，已经添加过的URL仍然被去重
+     */
+    @Test
+    public void testCheckpointResume() {
+        runCase(() -> {
+            Path dir = Files.createTempDirectory("spider-checkpoint");
+            Set<String> fetched = ConcurrentHashMap.newKeySet();
+            CountDownLatch first = new CountDownLatch(1);
+            CountDownLatch all = new CountDownLatch(5);
+            Callback callback = result -> {
+                if (fetched.add(result)) {
+                    all.countDown();
+                }
+                first.countDown();
+            };
+            Map<String, Object> callbacks = new HashMap<>();
+            callbacks.put("main", callback);
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(300);
+            config.setCheckpointFile(dir.resolve("spider.checkpoint"));
+            config.setDeduplicate(true);
+            config.setCallbacks(callbacks);
+            Spider spider = new Spider(config);
+            for (int i = 0; i < 5; i++) {
+                spider.addTask(getBaseUrl() + "test/hello?name=" + i, callback);
+            }
+            Assert.assertTrue(first.await(10, TimeUnit.SECONDS));
+            spider.shutdown(true);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertTrue(fetched.size() < 5);
+            Assert.assertTrue(Files.exists(config.getCheckpointFile()));
+
+            Spider resumed = Spider.resume(config);
+            Assert.assertEquals(AddResult.DUPLICATE,
+                resumed.tryAddTask(getBaseUrl() + "test/hello?name=0", callback));
+            Assert.assertEquals(AddResult.ADDED,
+                resumed.tryAddTask(getBaseUrl() + "test/hello?name=5", callback));
+            Assert.assertTrue(all.await(10, TimeUnit.SECONDS));
+            resumed.shutdown(false);
+            Assert.assertTrue(resumed.awaitTermination(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 6; i++) {
+                Assert.assertTrue(fetched.contains("hello : " + i));
+            }
+        });
+    }
+
+    /**
+     * 测试等待执行的任务数有上限时跟进链接，超出名额的链接被拒绝而不是等待名额
+     */
+    @Test
+    public void testFollowLinksWithMaxQueuedTasks() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            config.setMaxQueuedTasks(1);
+            config.setFollowLinks(true);
+            config.setExecutor(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()));
+            Spider spider = new Spider(config);
+            spider.addTask(getBaseUrl() + "test/page?n=1", result -> {
+            });
+            // 跟进的链接在回调完成之前添加，完成的任务数等于跟进的链接数加1时抓取结束
+            long deadline = System.currentTimeMillis() + 10000;
+            SpiderMetrics metrics = spider.getMetrics();
+            while (metrics.getCompletedTasks() < metrics.getLinksFollowed() + 1
+                   && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                metrics = spider.getMetrics();
+            }
+            Assert.assertEquals(metrics.getLinksFollowed() + 1, metrics.getCompletedTasks());
+            Assert.assertTrue(metrics.getLinksFollowed() > 0);
+            Assert.assertTrue(metrics.getLinksRejected() > 0);
+            Assert.assertEquals(metrics.getLinksExtracted(),
+                metrics.getLinksFollowed() + metrics.getLinksRejected());
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+        });
+    }
+
+    /**
+     * 测试回调慢时交接队列满后反压到分发：分发的任务数不超过回调线程数、交接队列容量与线程池任务数上限之和，回调恢复后全部完成
+     */
+    @Test
+    public void testCallbackBackpressure() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            config.setCallbackThreads(1);
+            config.setCallbackQueueSize(1);
+            config.setExecutor(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()));
+            config.setMaxExecutorTasks(1);
+            Spider spider = new Spider(config);
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch latch = new CountDownLatch(10);
+            for (int i = 0; i < 10; i++) {
+                spider.addTask(getBaseUrl() + "test/hello?name=" + i, result -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    latch.countDown();
+                });
+            }
+            // 回调线程和交接队列都被占满后分发停止
+            awaitCondition(() -> {
+                SpiderMetrics current = spider.getMetrics();
+                return current.getCallbackQueueDepth() == 1 && current.getCallbackStalls() > 0;
+            });
+            SpiderMetrics metrics = spider.getMetrics();
+            Assert.assertTrue(metrics.getDispatchedTasks() <= 3);
+            Assert.assertTrue(metrics.getCallbackStalls() > 0);
+            // 主线程已经取出的一个任务在等待交接队列的名额
+            Assert.assertTrue(metrics.getQueuedTasks() >= 6);
+
+            blocked.countDown();
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertEquals(10, spider.getMetrics().getDispatchedTasks());
+        });
+    }
+
+    /**
+     * 测试host关卡的定时器等空任务不计入等待执行的任务数：高优先级的任务在关卡处等待抓取间隔时，关卡定时器不占用任务数上限
+     */
+    @Test
+    public void testQueuedTasksExcludeMarkers() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(5000);
+            config.setMaxQueuedTasks(3);
+            config.setOverflowPolicy(OverflowPolicy.REJECT);
+            Spider spider = new Spider(config);
+            Assert.assertEquals("hello : 0",
+                spider.submitTask(getBaseUrl() + "test/hello?name=0").get(10, TimeUnit.SECONDS));
+            for (int i = 1; i <= 2; i++) {
+                Assert.assertEquals(AddResult.ADDED,
+                    spider.tryAddTask(getBaseUrl() + "test/hello?name=" + i, result -> {
+                    }, 1));
+            }
+            // 等待两个任务到达关卡并设置关卡定时器
+            long deadline = System.currentTimeMillis() + 3000;
+            while (spider.getMetrics().getGatedTasks() < 2
+                   && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            SpiderMetrics metrics = spider.getMetrics();
+            Assert.assertEquals(2, metrics.getGatedTasks());
+            Assert.assertEquals(2, metrics.getQueuedTasks());
+            Assert.assertEquals(AddResult.ADDED,
+                spider.tryAddTask(getBaseUrl() + "test/hello?name=3", result -> {
+                }, 1));
+            Assert.assertEquals(AddResult.REJECTED,
+                spider.tryAddTask(getBaseUrl() + "test/hello?name=4", result -> {
+                }, 1));
+            spider.shutdown(true);
+        });
+    }
+
+    /**
+     * 测试NIO任务完成后的处理与阻塞任务一样受线程池任务数上限限制：线程池有多个线程，上限为1时回调不会并发执行
+     */
+    @Test
+    public void testNioHandOffBounded() {
+        runCase(() -> {
+            try (LocalServer server = new LocalServer(target -> LocalServer.response(200, "", target))) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(FetchMode.NIO);
+                config.setExecutor(new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()));
+                config.setMaxExecutorTasks(1);
+                Spider spider = new Spider(config);
+                AtomicInteger running = new AtomicInteger();
+                AtomicInteger maxRunning = new AtomicInteger();
+                CountDownLatch latch = new CountDownLatch(5);
+                for (int i = 0; i < 5; i++) {
+                    spider.addTask(server.url("/" + i), result -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        // 回调执行期间其他请求已经完成，没有上限时会在其他线程中同时执行回调
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                            latch.countDown();
+                        }
+                    });
+                }
+                Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                Assert.assertEquals(1, maxRunning.get());
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            }
+        });
+    }
+
+    /**
+     * 测试NIO任务请求失败时归还分发时预留的交接队列名额，之后的任务不会因为名额耗尽而无法分发
+     */
+    @Test
+    public void testNioReservedSlotReleasedOnFailure() {
+        runCase(() -> {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            config.setFetchMode(FetchMode.NIO);
+            config.setCallbackThreads(1);
+            config.setCallbackQueueSize(1);
+            Spider spider = new Spider(config);
+            for (int i = 0; i < 3; i++) {
+                spider.addTask("http://127.0.0.1:" + port + "/closed?i=" + i, result -> {
+                });
+            }
+            CountDownLatch latch = new CountDownLatch(1);
+            spider.addTask(getBaseUrl() + "test/hello?name=JoeKerouac", result -> latch.countDown());
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            SpiderMetrics metrics = spider.getMetrics();
+            Assert.assertEquals(4, metrics.getCompletedTasks());
+            Assert.assertEquals(3, metrics.getErrors().values().stream().mapToLong(Long::longValue)
+                .sum());
+        });
+    }
+
+    /**
+     * 测试响应状态码需要重试时按照Retry-After重试，重试成功后执行回调
+     */
+    @Test
+    public void testRetryStatus() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                config.setMaxRetries(2);
+                config.setRetryBaseDelay(10);
+                config.setRetryJitter(0);
+                Spider spider = new Spider(config);
+                CountDownLatch latch = new CountDownLatch(1);
+                AtomicReference<String> result = new AtomicReference<>();
+                long start = System.currentTimeMillis();
+                spider.addTask(getBaseUrl() + "test/unavailable?key=" + mode, body -> {
+                    result.set(body);
+                    latch.countDown();
+                });
+                Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                // 两次503，每次按照Retry-After延迟1秒
+                Assert.assertTrue(System.currentTimeMillis() - start >= 2000);
+                Assert.assertEquals("ok", result.get());
+                Assert.assertEquals(3, SpringApi.ATTEMPTS.get(mode.name()).get());
+                Assert.assertEquals(2, spider.getMetrics().getRetries());
+                spider.shutdown(false);
+            }
+        });
+    }
+
+    /**
+     * 测试关闭后awaitTermination等待执行中的任务的重试完成后才返回
+     */
+    @Test
+    public void testAwaitTerminationWithRetries() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                config.setMaxRetries(2);
+                config.setRetryBaseDelay(10);
+                config.setRetryJitter(0);
+                Spider spider = new Spider(config);
+                String key = "await-" + mode;
+                CountDownLatch attempted = new CountDownLatch(1);
+                SpringApi.FIRST_ATTEMPTS.put(key, attempted);
+                CompletableFuture<String> future = spider
+                    .submitTask(getBaseUrl() + "test/unavailable?key=" + key);
+                // 第一次请求到达后关闭，之后还有两次重试
+                Assert.assertTrue(attempted.await(10, TimeUnit.SECONDS));
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+                Assert.assertTrue(future.isDone());
+                Assert.assertEquals("ok", future.join());
+                Assert.assertEquals(3, SpringApi.ATTEMPTS.get(key).get());
+                Assert.assertEquals(2, spider.getMetrics().getRetries());
+            }
+        });
+    }
+
+    /**
+     * 测试自适应抓取间隔得到实际的响应状态码和Retry-After，429之后在Retry-After指定的时间之前不再抓取该host
+     */
+    @Test
+    public void testAdaptiveRetryAfter() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                config.setAdaptiveRate(true);
+                config.setAdaptiveInitialInterval(0);
+                Spider spider = new Spider(config);
+                // 阻塞模式下429失败，NIO模式下执行回调，都不影响之后的暂停
+                spider.submitTask(getBaseUrl() + "test/throttled?n=1").handle((r, e) -> r).join();
+                long start = System.currentTimeMillis();
+                Assert.assertEquals("ok", spider.submitTask(getBaseUrl() + "test/throttled?n=2")
+                    .get(10, TimeUnit.SECONDS));
+                Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+                spider.shutdown(false);
+            }
+        });
+    }
+
+    /**
+     * 测试同一个host最多一个请求时，该host的请求不会并发执行
+     */
+    @Test
+    public void testMaxInFlightPerHost() {
+        runCase(() -> {
+            for (FetchMode mode : new FetchMode[] { FetchMode.BLOCKING, FetchMode.NIO }) {
+                SpringApi.reset();
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(mode);
+                config.setMaxInFlightPerHost(1);
+                config.setExecutor(new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()));
+                Spider spider = new Spider(config);
+                CountDownLatch latch = new CountDownLatch(6);
+                for (int i = 0; i < 6; i++) {
+                    spider.addTask(getBaseUrl() + "test/held?name=" + i,
+                        result -> latch.countDown());
+                }
+                // 每个请求到达后服务端才放行，放行前同一个host不会有第二个请求到达
+                for (int i = 0; i < 6; i++) {
+                    Assert.assertNotNull(SpringApi.ARRIVED.poll(10, TimeUnit.SECONDS));
+                    Assert.assertEquals(1, SpringApi.CONCURRENT.get());
+                    SpringApi.HELD.release();
+                }
+                Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                Assert.assertEquals(1, SpringApi.MAX_CONCURRENT.get());
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            }
+        });
+    }
+
+    /**
+     * 测试虚拟线程模式：请求和回调在虚拟线程中执行，同一个host的并发请求数不超过virtualThreadHostConcurrency；需要JDK21
+     * 及以上版本，低版本JDK跳过
+     */
+    @Test
+    public void testVirtualThreadMode() {
+        Assume.assumeTrue("需要JDK21及以上版本", VirtualThreads.isSupported());
+        runCase(() -> {
+            AtomicInteger concurrent = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            try (LocalServer server = new LocalServer(target -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+                return LocalServer.response(200, "", target);
+            })) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setFetchMode(FetchMode.VIRTUAL_THREAD);
+                config.setVirtualThreadHostConcurrency(4);
+                Spider spider = new Spider(config);
+                Method isVirtual = Thread.class.getMethod("isVirtual");
+                Set<String> results = ConcurrentHashMap.newKeySet();
+                AtomicBoolean virtual = new AtomicBoolean(true);
+                CountDownLatch latch = new CountDownLatch(16);
+                for (int i = 0; i < 16; i++) {
+                    spider.addTask(server.url("/" + i), result -> {
+                        try {
+                            if (!(Boolean) isVirtual.invoke(Thread.currentThread())) {
+                                virtual.set(false);
+                            }
+                        } catch (ReflectiveOperationException e) {
+                            virtual.set(false);
+                        }
+                        results.add(result);
+                        latch.countDown();
+                    });
+                }
+                Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+                Assert.assertEquals(16, results.size());
+                Assert.assertTrue(virtual.get());
+                Assert.assertTrue(String.valueOf(maxConcurrent.get()),
+                    maxConcurrent.get() > 1 && maxConcurrent.get() <= 4);
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            }
+        });
+    }
+
+    /**
+     * 测试空闲host被淘汰后再次添加任务时，单独设置的抓取间隔、最大并发请求数以及robots.txt规则仍然生效，robots.txt不会
+     * 重新获取
+     */
+    @Test
+    public void testEvictedHostRestored() {
+        runCase(() -> {
+            List<Long> starts = new CopyOnWriteArrayList<>();
+            AtomicInteger concurrent = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            try (LocalServer server = new LocalServer(target -> {
+                if ("/robots.txt".equals(target)) {
+                    return LocalServer.response(200, "", "User-agent: *\nDisallow: /private\n");
+                }
+                starts.add(System.currentTimeMillis());
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    // 请求耗时超过抓取间隔，没有并发限制时同一个host的请求会重叠
+                    Thread.sleep(target.startsWith("/slow") ? 500 : 0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+                return LocalServer.response(200, "", target);
+            })) {
+                SpiderConfig config = new SpiderConfig();
+                config.setInterval(0);
+                config.setRobotsTxt(true);
+                config.setHostIdleTimeout(100);
+                config.setExecutor(new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()));
+                Spider spider = new Spider(config);
+                spider.setInterval(server.url("/"), 300);
+                spider.setMaxInFlight(server.url("/"), 1);
+                Assert.assertEquals("/fast",
+                    spider.submitTask(server.url("/fast")).get(10, TimeUnit.SECONDS));
+                long deadline = System.currentTimeMillis() + 5000;
+                while (spider.getMetrics().getHosts() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(0, spider.getMetrics().getHosts());
+
+                Assert.assertEquals(AddResult.DISALLOWED,
+                    spider.tryAddTask(server.url("/private"), result -> {
+                    }));
+                starts.clear();
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                for (String path : new String[] { "/fast?1", "/fast?2", "/slow?1", "/slow?2" }) {
+                    futures.add(spider.submitTask(server.url(path)));
+                }
+                for (CompletableFuture<String> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+                Assert.assertEquals(4, starts.size());
+                for (int i = 1; i < starts.size(); i++) {
+                    // 允许请求到达服务器时的少量抖动
+                    Assert.assertTrue(String.valueOf(starts), starts.get(i) - starts.get(i - 1) >= 250);
+                }
+                Assert.assertEquals(1, maxConcurrent.get());
+                Assert.assertEquals(1, spider.getMetrics().getRobotsFetches());
+                spider.shutdown(false);
+                Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+            }
+        });
+    }
+
+    /**
+     * 测试同一个host的任务在关卡处按照优先级放行：不老化时高优先级的任务先执行，老化后等待时间长的低优先级任务先执行；
+     * 优先级不能小于0
+     */
+    @Test
+    public void testPriorityOrder() {
+        runCase(() -> {
+            Assert.assertEquals(Arrays.asList("low0", "high", "low1", "low2", "low3"),
+                crawlInPriorityOrder(0));
+            Assert.assertEquals(Arrays.asList("low0", "low1", "low2", "low3", "high"),
+                crawlInPriorityOrder(50));
+
+            Spider spider = new Spider(new SpiderConfig());
+            try {
+                spider.tryAddTask(getBaseUrl() + "test/hello?name=a", result -> {
+                }, -1);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                // 优先级小于0
+            } finally {
+                spider.shutdown(true);
+            }
+        });
+    }
+
+    /**
+     * 同一个host最多一个请求，服务端挂起第一个请求，期间低优先级的任务在关卡处排队，之后添加一个高优先级的任务；高优先级
+     * 的任务也到达关卡后服务端放行全部请求，按照请求到达服务端的顺序返回
+     *
+     * @param aging 优先级老化时间
+     * @return 执行顺序
+     */
+    private List<String> crawlInPriorityOrder(long aging) throws Exception {
+        SpringApi.reset();
+        SpiderConfig config = new SpiderConfig();
+        config.setInterval(0);
+        config.setMaxInFlightPerHost(1);
+        config.setPriorityAging(aging);
+        Spider spider = new Spider(config);
+        for (int i = 0; i < 4; i++) {
+            spider.addTask(getBaseUrl() + "test/held?name=low" + i, result -> {
+            });
+        }
+        long added = System.currentTimeMillis();
+        Assert.assertEquals("low0", SpringApi.ARRIVED.poll(10, TimeUnit.SECONDS));
+        // 老化按照到期时间计算，高优先级的任务晚于老化时间添加时排在已经排队的低优先级任务之后
+        awaitCondition(() -> System.currentTimeMillis() > added + aging);
+        spider.addTask(getBaseUrl() + "test/held?name=high", result -> {
+        }, 1);
+        awaitCondition(() -> spider.getMetrics().getGatedTasks() == 4);
+        SpringApi.HELD.release(5);
+        spider.shutdown(false);
+        Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+        List<String> order = new ArrayList<>();
+        order.add("low0");
+        SpringApi.ARRIVED.drainTo(order);
+        return order;
+    }
+
+    /**
+     * 等待条件成立，最多等待10秒
+     *
+     * @param condition 条件
+     */
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("等待条件超时", System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 测试发布者按照请求数抓取：请求一条只抓取一个URL，之后不再抓取直到下次请求；取消后丢弃排队的URL
+     */
+    @Test
+    public void testPublisherRequestAndCancel() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            Spider spider = new Spider(config);
+            CrawlPublisher publisher = spider.publisher();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertTrue(publisher.offer(getBaseUrl() + "test/hello?name=" + i));
+            }
+            ResultSubscriber subscriber = new ResultSubscriber();
+            publisher.subscribe(subscriber);
+            // 没有请求时不抓取
+            Thread.sleep(200);
+            Assert.assertEquals(0, spider.getMetrics().getDispatchedTasks());
+            Assert.assertEquals(3, publisher.getPendingCount());
+
+            subscriber.subscription.request(1);
+            FetchResult result = subscriber.results.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(result);
+            Assert.assertEquals("hello : 0", result.getBody());
+            Thread.sleep(200);
+            Assert.assertTrue(subscriber.results.isEmpty());
+            Assert.assertEquals(1, spider.getMetrics().getDispatchedTasks());
+            Assert.assertEquals(2, publisher.getPendingCount());
+
+            subscriber.subscription.request(1);
+            result = subscriber.results.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(result);
+            Assert.assertEquals("hello : 1", result.getBody());
+
+            subscriber.subscription.cancel();
+            Assert.assertEquals(0, publisher.getPendingCount());
+            Assert.assertFalse(publisher.offer(getBaseUrl() + "test/hello?name=3"));
+            subscriber.subscription.request(1);
+            Thread.sleep(200);
+            Assert.assertTrue(subscriber.results.isEmpty());
+            Assert.assertEquals(2, spider.getMetrics().getDispatchedTasks());
+            Assert.assertFalse(subscriber.completed.await(0, TimeUnit.MILLISECONDS));
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+        });
+    }
+
+    /**
+     * 测试发布者调用complete之后，排队的URL全部抓取并发布完毕时调用订阅者的onComplete
+     */
+    @Test
+    public void testPublisherComplete() {
+        runCase(() -> {
+            SpiderConfig config = new SpiderConfig();
+            config.setInterval(0);
+            Spider spider = new Spider(config);
+            CrawlPublisher publisher = spider.publisher();
+            ResultSubscriber subscriber = new ResultSubscriber();
+            publisher.subscribe(subscriber);
+            publisher.offer(getBaseUrl() + "test/hello?name=0");
+            publisher.offer(getBaseUrl() + "test/hello?name=1");
+            publisher.complete();
+            Assert.assertFalse(publisher.offer(getBaseUrl() + "test/hello?name=2"));
+            subscriber.subscription.request(1);
+            Assert.assertNotNull(subscriber.results.poll(10, TimeUnit.SECONDS));
+            // 还有排队的URL，不会结束
+            Assert.assertFalse(subscriber.completed.await(200, TimeUnit.MILLISECONDS));
+
+            subscriber.subscription.request(Long.MAX_VALUE);
+            Assert.assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(1, subscriber.results.size());
+            Assert.assertNull(subscriber.error.get());
+            spider.shutdown(false);
+            Assert.assertTrue(spider.awaitTermination(10, TimeUnit.SECONDS));
+        });
+    }
+
+    /**
+     * 记录发布结果的订阅者，不主动请求
+     */
+    private static class ResultSubscriber implements Subscriber<FetchResult> {
+
+        private final BlockingQueue<FetchResult> results      = new LinkedBlockingQueue<>();
+
+        private final CountDownLatch             completed    = new CountDownLatch(1);
+
+        private final AtomicReference<Throwable> error        = new AtomicReference<>();
+
+        private volatile Subscription            subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(FetchResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
     @Controller
     @RequestMapping("test")
     public static class SpringApi {
+        private static final Map<String, AtomicInteger>  ATTEMPTS       = new ConcurrentHashMap<>();
+
+        private static final AtomicInteger               CONCURRENT     = new AtomicInteger();
+
+        private static final AtomicInteger               MAX_CONCURRENT = new AtomicInteger();
+
+        private static final Map<String, CountDownLatch> FIRST_ATTEMPTS = new ConcurrentHashMap<>();
+
+        private static final BlockingQueue<String>       ARRIVED        = new LinkedBlockingQueue<>();
+
+        private static final Semaphore                   HELD           = new Semaphore(0);
+
+        /**
+         * 清空挂起请求的状态
+         */
+        private static void reset() {
+            CONCURRENT.set(0);
+            MAX_CONCURRENT.set(0);
+            ARRIVED.clear();
+            HELD.drainPermits();
+        }
+
         @RequestMapping(value = "hello")
         @ResponseBody
         public String helloName(String name) {
             return "hello : " + name;
         }
+
+        @RequestMapping(value = "unavailable")
+        @ResponseBody
+        public ResponseEntity<String> unavailable(String key) {
+            int attempt = ATTEMPTS.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            CountDownLatch first = FIRST_ATTEMPTS.get(key);
+            if (first != null) {
+                first.countDown();
+            }
+            if (attempt <= 2) {
+                return ResponseEntity.status(503).header("Retry-After", "1").body("busy");
+            }
+            return ResponseEntity.ok("ok");
+        }
+
+        @RequestMapping(value = "throttled")
+        @ResponseBody
+        public ResponseEntity<String> throttled(int n) {
+            if (n == 1) {
+                return ResponseEntity.status(429).header("Retry-After", "1").body("slow down");
+            }
+            return ResponseEntity.ok("ok");
+        }
+
+        /**
+         * 记录请求到达和并发数，挂起直到测试放行
+         */
+        @RequestMapping(value = "held")
+        @ResponseBody
+        public String held(String name) throws InterruptedException {
+            MAX_CONCURRENT.accumulateAndGet(CONCURRENT.incrementAndGet(), Math::max);
+            try {
+                ARRIVED.add(name);
+                HELD.tryAcquire(10, TimeUnit.SECONDS);
+            } finally {
+                CONCURRENT.decrementAndGet();
+            }
+            return name;
+        }
+
+        @RequestMapping(value = "missing")
+        @ResponseBody
+        public ResponseEntity<String> missing(int n) {
+            return ResponseEntity.status(404).body("missing");
+        }
+
+        @RequestMapping(value = "big")
+        @ResponseBody
+        public String big(int size) {
+            return new String(new char[size]).replace('\0', 'a');
+        }
+
+        @RequestMapping(value = "page")
+        @ResponseBody
+        public String page(int n) {
+            return "<html><body><a href=\"page?n=" + (2 * n) + "\">a</a><a href=\"page?n="
+                   + (2 * n + 1) + "\">b</a></body></html>";
+        }
     }
 
 }
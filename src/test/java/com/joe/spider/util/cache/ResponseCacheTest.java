@@ -0,0 +1,103 @@
+package com.joe.spider.util.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.joe.spider.util.http.HttpHeaders;
+
+/**
+ * 响应缓存测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 02:10
+ */
+public class ResponseCacheTest {
+
+    /**
+     * 测试缓存、条件请求头、304时更新校验信息，以及关闭后重新打开恢复
+     */
+    @Test
+    public void testPutAndReopen() throws Exception {
+        Path dir = Files.createTempDirectory("response-cache");
+        try (ResponseCache cache = new ResponseCache(dir, 1024 * 1024)) {
+            cache.put("http://a/1", headers("\"v1\"", null), bytes("hello"));
+            cache.put("http://a/2", headers(null, null), bytes("no validator"));
+            Assert.assertEquals(1, cache.size());
+            Assert.assertNull(cache.get("http://a/2"));
+
+            CacheEntry entry = cache.get("http://a/1");
+            Assert.assertEquals("\"v1\"", entry.conditionalHeaders().get("If-None-Match"));
+            Assert.assertNull(entry.conditionalHeaders().get("If-Modified-Since"));
+            byte[] body = cache.revalidate("http://a/1", entry, headers("\"v2\"", null));
+            Assert.assertEquals("hello", new String(body, StandardCharsets.UTF_8));
+            Assert.assertEquals("\"v2\"", cache.get("http://a/1").getEtag());
+            // 记录已经被替换
+            Assert.assertNull(cache.revalidate("http://a/1", entry, headers(null, null)));
+        }
+        try (ResponseCache cache = new ResponseCache(dir, 1024 * 1024)) {
+            CacheEntry entry = cache.get("http://a/1");
+            Assert.assertEquals("\"v2\"", entry.getEtag());
+            Assert.assertEquals("hello", entry.decode(cache.revalidate("http://a/1", entry,
+                headers(null, null))));
+        }
+    }
+
+    /**
+     * 测试超过上限时淘汰最久没有访问的记录，并且搬移后的记录仍然可以读取，段文件总大小有上限
+     */
+    @Test
+    public void testEvictAndCompact() throws Exception {
+        Path dir = Files.createTempDirectory("response-cache");
+        long maxSize = 256 * 1024;
+        try (ResponseCache cache = new ResponseCache(dir, maxSize)) {
+            byte[] body = new byte[1000];
+            for (int i = 0; i < 1000; i++) {
+                Arrays.fill(body, (byte) i);
+                cache.put("http://a/" + i, headers(null, "t" + i), body);
+                // 第一条记录一直被访问，不会被淘汰
+                Assert.assertNotNull(cache.get("http://a/0"));
+            }
+            Assert.assertTrue(cache.bytes() <= maxSize);
+            Assert.assertNotNull(cache.get("http://a/0"));
+            Assert.assertNull(cache.get("http://a/1"));
+            Assert.assertNotNull(cache.get("http://a/999"));
+            for (String url : new String[] { "http://a/0", "http://a/999" }) {
+                CacheEntry entry = cache.get(url);
+                byte[] cached = cache.revalidate(url, entry, headers(null, null));
+                Assert.assertEquals(1000, cached.length);
+                Assert.assertEquals((byte) Integer.parseInt(url.substring(9)), cached[999]);
+            }
+            long diskSize = 0;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    diskSize += Files.size(file);
+                }
+            }
+            Assert.assertTrue(diskSize <= maxSize * 2);
+        }
+    }
+
+    private static Map<String, List<String>> headers(String etag, String lastModified) {
+        Map<String, List<String>> headers = HttpHeaders.create();
+        if (etag != null) {
+            headers.put("ETag", Collections.singletonList(etag));
+        }
+        if (lastModified != null) {
+            headers.put("Last-Modified", Collections.singletonList(lastModified));
+        }
+        return headers;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package com.joe.spider.util.frontier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 磁盘任务队列测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 18:40
+ */
+public class DiskFrontierTest {
+
+    /**
+     * 测试同一个host先进先出、不同host轮流取出，以及取完后段文件被删除
+     */
+    @Test
+    public void testPushAndPoll() throws Exception {
+        Path dir = Files.createTempDirectory("frontier");
+        DiskFrontier frontier = new DiskFrontier(dir, 256);
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            frontier.push("a", ("a" + i).getBytes(StandardCharsets.UTF_8));
+            frontier.push("b", ("b" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(count * 2, frontier.size());
+        Assert.assertTrue(countFiles(dir) > 1);
+
+        for (int i = 0; i < count; i++) {
+            DiskFrontier.Entry a = frontier.poll();
+            DiskFrontier.Entry b = frontier.poll();
+            Assert.assertEquals("a", a.getHost());
+            Assert.assertEquals("a" + i, new String(a.getData(), StandardCharsets.UTF_8));
+            Assert.assertEquals("b", b.getHost());
+            Assert.assertEquals("b" + i, new String(b.getData(), StandardCharsets.UTF_8));
+        }
+        Assert.assertNull(frontier.poll());
+        Assert.assertFalse(frontier.contains("a"));
+        // 只剩下当前写入的段
+        Assert.assertEquals(1, countFiles(dir));
+
+        Assert.assertTrue(frontier.closeIfEmpty());
+        Assert.assertEquals(-1, frontier.push("a", new byte[1]));
+        Assert.assertEquals(0, countFiles(dir));
+    }
+
+    /**
+     * 测试快照只包含复制时的记录，复制之后取出、追加以及关闭都不影响遍历
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        Path dir = Files.createTempDirectory("frontier");
+        DiskFrontier frontier = new DiskFrontier(dir, 256);
+        int count = 50;
+        for (int i = 0; i < count; i++) {
+            frontier.push("a", ("a" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        frontier.poll();
+        DiskFrontier.Snapshot snapshot = frontier.snapshot();
+
+        // 复制之后取出全部记录，已经取完的段文件被删除
+        while (frontier.poll() != null) {
+        }
+        frontier.push("a", "new".getBytes(StandardCharsets.UTF_8));
+        frontier.close();
+        Assert.assertEquals(0, countFiles(dir));
+
+        List<String> visited = new ArrayList<>();
+        snapshot.forEach((host, data) -> visited.add(host + ":" + new String(data,
+            StandardCharsets.UTF_8)));
+        Assert.assertEquals(count - 1, visited.size());
+        for (int i = 1; i < count; i++) {
+            Assert.assertEquals("a:a" + i, visited.get(i - 1));
+        }
+    }
+
+    private static long countFiles(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
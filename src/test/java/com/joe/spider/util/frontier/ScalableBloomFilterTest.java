@@ -0,0 +1,104 @@
+package com.joe.spider.util.frontier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * URL去重测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 17:30
+ */
+public class ScalableBloomFilterTest {
+
+    /**
+     * 测试过滤器扩展后仍然可以识别已经添加过的元素，并且误判率在预期范围内
+     */
+    @Test
+    public void testPut() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01, 1024 * 1024);
+        int count = 20000;
+        for (int i = 0; i < count; i++) {
+            filter.put("http://example.com/" + i);
+        }
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(filter.put("http://example.com/" + i));
+        }
+
+        int falsePositive = 0;
+        for (int i = count; i < count * 2; i++) {
+            if (filter.mightContain("http://example.com/" + i)) {
+                falsePositive++;
+            }
+        }
+        Assert.assertTrue(falsePositive < count * 0.02);
+    }
+
+    /**
+     * 测试过滤器写入后读取，读取的过滤器与原过滤器一致
+     */
+    @Test
+    public void testWriteTo() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01, 1024 * 1024);
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            filter.put("http://example.com/" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter copy = ScalableBloomFilter
+            .readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(filter.usedMemory(), copy.usedMemory());
+        for (int i = 0; i < count * 2; i++) {
+            String url = "http://example.com/" + i;
+            Assert.assertEquals(filter.mightContain(url), copy.mightContain(url));
+        }
+    }
+
+    /**
+     * 测试快照写入的是创建快照时的内容，快照创建之后添加的元素以及扩展的过滤器不包含在快照中
+     */
+    @Test
+    public void testCapture() throws Exception {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10000, 0.01, 1024 * 1024);
+        for (int i = 0; i < 5000; i++) {
+            filter.put("http://example.com/" + i);
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(expected));
+
+        ScalableBloomFilter.Capture capture = filter.capture();
+        // 快照之后添加的元素会修改大部分分段，并且使过滤器扩展
+        for (int i = 5000; i < 30000; i++) {
+            filter.put("http://example.com/" + i);
+        }
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        capture.writeTo(new DataOutputStream(captured));
+        capture.close();
+        Assert.assertTrue(Arrays.equals(expected.toByteArray(), captured.toByteArray()));
+
+        // 关闭快照之后写入不再复制分段，过滤器本身包含所有元素
+        filter.put("http://example.com/new");
+        for (int i = 0; i < 30000; i++) {
+            Assert.assertTrue(filter.mightContain("http://example.com/" + i));
+        }
+    }
+
+    /**
+     * 测试URL规范化
+     */
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("http://example.com/a/c?x=1",
+            UrlNormalizer.normalize("HTTP://Example.COM:80/a/b/../c?x=1#top"));
+        Assert.assertEquals("https://example.com/", UrlNormalizer.normalize("https://example.com"));
+        Assert.assertEquals("http://example.com:8080/", UrlNormalizer.normalize("http://example.com:8080"));
+    }
+}
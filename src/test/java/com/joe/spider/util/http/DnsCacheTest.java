@@ -0,0 +1,57 @@
+package com.joe.spider.util.http;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DNS缓存测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 01:30
+ */
+public class DnsCacheTest {
+
+    /**
+     * 测试同一个host只解析一次，IP字面量不需要解析
+     */
+    @Test
+    public void testResolve() throws Exception {
+        try (DnsCache cache = new DnsCache(60000, 60000, 100, 2)) {
+            CompletableFuture<InetAddress> first = cache.resolve("localhost");
+            CompletableFuture<InetAddress> second = cache.resolve("localhost");
+            Assert.assertTrue(first.get(10, TimeUnit.SECONDS).isLoopbackAddress());
+            Assert.assertSame(first.get(), second.get());
+            Assert.assertSame(first.get(), cache.resolve("localhost").get());
+            Assert.assertEquals(1, cache.getLookupCount());
+
+            CompletableFuture<InetAddress> literal = cache.resolve("127.0.0.1");
+            Assert.assertTrue(literal.isDone());
+            Assert.assertEquals("127.0.0.1", literal.get().getHostAddress());
+            Assert.assertEquals(1, cache.getLookupCount());
+        }
+    }
+
+    /**
+     * 测试解析失败的结果也会被缓存
+     */
+    @Test
+    public void testNegative() throws Exception {
+        try (DnsCache cache = new DnsCache(60000, 60000, 100, 2)) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    cache.resolve("no-such-host.invalid").get(30, TimeUnit.SECONDS);
+                    Assert.fail("解析不存在的host应该失败");
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof UnknownHostException);
+                }
+            }
+            Assert.assertEquals(1, cache.getLookupCount());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * HTTP响应解析测试，每个响应都在所有可能的位置分成两段传入，以及逐字节传入
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 11:00
+ */
+public class HttpResponseParserTest {
+
+    /**
+     * 测试chunked响应体，包括chunk扩展和trailer
+     */
+    @Test
+    public void testChunkedWithTrailers() throws IOException {
+        String response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                          + "5;name=value\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: t\r\n\r\n";
+        for (Result result : parseSplit(response)) {
+            Assert.assertTrue(result.done);
+            Assert.assertEquals(200, result.status);
+            Assert.assertEquals("hello world", result.body.toString("UTF-8"));
+            Assert.assertTrue(result.parser.isKeepAlive());
+        }
+    }
+
+    /**
+     * 测试1xx响应被跳过，监听器只收到最终响应
+     */
+    @Test
+    public void testInformational() throws IOException {
+        String response = "HTTP/1.1 100 Continue\r\n\r\n"
+                          + "HTTP/1.1 103 Early Hints\r\nLink: </a.css>\r\n\r\n"
+                          + "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok";
+        for (Result result : parseSplit(response)) {
+            Assert.assertTrue(result.done);
+            Assert.assertEquals(1, result.headersCalls);
+            Assert.assertEquals(200, result.status);
+            Assert.assertNull(HttpHeaders.first(result.headers, "Link"));
+            Assert.assertEquals("ok", result.body.toString("UTF-8"));
+        }
+    }
+
+    /**
+     * 测试没有长度的响应体以连接关闭作为结束，连接不能复用；有长度的响应体不完整时连接关闭报错
+     */
+    @Test
+    public void testCloseDelimited() throws IOException {
+        for (Result result : parseSplit("HTTP/1.0 200 OK\r\nX: y\r\n\r\nabc")) {
+            Assert.assertFalse(result.done);
+            Assert.assertTrue(result.parser.eof());
+            Assert.assertEquals("abc", result.body.toString("UTF-8"));
+            Assert.assertFalse(result.parser.isKeepAlive());
+        }
+
+        for (Result result : parseSplit("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nabc")) {
+            Assert.assertFalse(result.done);
+            try {
+                result.parser.eof();
+                Assert.fail();
+            } catch (IOException e) {
+                // 预期
+            }
+        }
+    }
+
+    /**
+     * 测试负数、非数字以及溢出的长度作为协议错误拒绝，长度错误的响应不会交给监听器
+     */
+    @Test
+    public void testBadLengths() {
+        String length = "HTTP/1.1 200 OK\r\nContent-Length: ";
+        String chunked = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n";
+        String[] responses = { length + "-1\r\n\r\nabc", length + "abc\r\n\r\nabc",
+                               length + "99999999999999999999\r\n\r\n", chunked + "-5\r\nhello\r\n",
+                               chunked + "zz\r\nhello\r\n", chunked + "8000000000000000\r\n" };
+        for (String response : responses) {
+            try {
+                parseSplit(response);
+                Assert.fail(response);
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("错误的"));
+            }
+            Result result = new Result();
+            try {
+                result.feed(response.getBytes(StandardCharsets.ISO_8859_1), 0);
+            } catch (IOException e) {
+                // 预期
+            }
+            Assert.assertEquals(0, result.body.size());
+            if (response.contains("Content-Length")) {
+                Assert.assertEquals(0, result.headersCalls);
+            }
+        }
+    }
+
+    /**
+     * 将响应在每个位置分成两段解析，以及逐字节解析
+     *
+     * @param response 响应
+     * @return 每种分法的解析结果
+     * @throws IOException 任意一种分法解析失败
+     */
+    private static List<Result> parseSplit(String response) throws IOException {
+        byte[] data = response.getBytes(StandardCharsets.ISO_8859_1);
+        List<Result> results = new ArrayList<>();
+        for (int split = 0; split <= data.length; split++) {
+            Result result = new Result();
+            result.feed(data, split);
+            results.add(result);
+        }
+        Result result = new Result();
+        for (int i = 0; i < data.length; i++) {
+            result.done = result.parser.feed(ByteBuffer.wrap(data, i, 1));
+        }
+        results.add(result);
+        return results;
+    }
+
+    /**
+     * 一次解析的结果
+     */
+    private static final class Result implements HttpResponseParser.Listener {
+
+        private final HttpResponseParser    parser       = new HttpResponseParser(this);
+
+        private final ByteArrayOutputStream body         = new ByteArrayOutputStream();
+
+        private Map<String, List<String>>   headers;
+
+        private int                         status;
+
+        private int                         headersCalls;
+
+        private boolean                     done;
+
+        void feed(byte[] data, int split) throws IOException {
+            done = parser.feed(ByteBuffer.wrap(data, 0, split));
+            if (!done) {
+                done = parser.feed(ByteBuffer.wrap(data, split, data.length - split));
+            }
+        }
+
+        @Override
+        public void onHeaders(int status, Map<String, List<String>> headers) {
+            this.status = status;
+            this.headers = headers;
+            headersCalls++;
+        }
+
+        @Override
+        public void onBody(ByteBuffer data) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            body.write(chunk, 0, chunk.length);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.joe.spider.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 测试用的本地HTTP服务器，直接写出原始响应，用于测试协议细节（分块传输、连接复用、重定向、超时、传输中断）
+ * <p>
+ * 每个连接使用一个线程，同一个连接上的请求依次处理；处理器根据请求行中的路径返回原始响应，返回null或者响应头包含
+ * Connection: close时写出后关闭连接，可以用来模拟响应体不完整
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 10:20
+ */
+public final class LocalServer implements Closeable {
+
+    /**
+     * 监听的socket
+     */
+    private final ServerSocket             server;
+
+    /**
+     * 请求处理器，参数为请求路径（包含查询参数）
+     */
+    private final Function<String, byte[]> handler;
+
+    /**
+     * 已经接受的连接数
+     */
+    private final AtomicInteger            accepted = new AtomicInteger();
+
+    /**
+     * 已经处理的请求数
+     */
+    private final AtomicInteger            requests = new AtomicInteger();
+
+    /**
+     * 打开的连接，关闭服务器时一起关闭
+     */
+    private final Set<Socket>              sockets  = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 启动服务器，监听127.0.0.1的随机端口
+     *
+     * @param handler 请求处理器，参数为请求路径（包含查询参数），返回原始响应
+     * @throws IOException IO异常
+     */
+    public LocalServer(Function<String, byte[]> handler) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        this.handler = handler;
+        Thread acceptor = new Thread(this::accept, "local-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 构建带Content-Length的响应
+     *
+     * @param status  状态码
+     * @param headers 额外的响应头，每行以\r\n结尾，没有时为空字符串
+     * @param body    响应体
+     * @return 原始响应
+     */
+    public static byte[] response(int status, String headers, byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] head = ("HTTP/1.1 " + status + " X\r\n" + headers + "Content-Length: " + body.length
+                       + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        out.write(head, 0, head.length);
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * 构建带Content-Length的文本响应
+     *
+     * @param status  状态码
+     * @param headers 额外的响应头，每行以\r\n结尾，没有时为空字符串
+     * @param body    响应体
+     * @return 原始响应
+     */
+    public static byte[] response(int status, String headers, String body) {
+        return response(status, headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 获取请求的URL
+     *
+     * @param path 路径，以/开头
+     * @return URL
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + server.getLocalPort() + path;
+    }
+
+    /**
+     * 获取已经接受的连接数
+     *
+     * @return 连接数
+     */
+    public int getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * 获取已经处理的请求数
+     *
+     * @return 请求数
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            accepted.incrementAndGet();
+            sockets.add(socket);
+            Thread thread = new Thread(() -> serve(socket), "local-server-conn");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket closeable = socket) {
+            InputStream in = closeable.getInputStream();
+            OutputStream out = closeable.getOutputStream();
+            String head;
+            while ((head = readHead(in)) != null) {
+                requests.incrementAndGet();
+                String target = head.split(" ")[1];
+                byte[] response = handler.apply(target);
+                if (response == null) {
+                    return;
+                }
+                out.write(response);
+                out.flush();
+                if (closes(response)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * 读取请求行和请求头，测试只发送GET请求，没有请求体
+     *
+     * @return 请求行和请求头，连接已经关闭时返回null
+     */
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0) {
+            head.append((char) b);
+            if (b == '\n' && head.length() >= 4
+                && "\r\n\r\n".contentEquals(head.subSequence(head.length() - 4, head.length()))) {
+                return head.toString();
+            }
+        }
+        return null;
+    }
+
+    private static boolean closes(byte[] response) {
+        String text = new String(response, StandardCharsets.ISO_8859_1);
+        int end = text.indexOf("\r\n\r\n");
+        return (end < 0 ? text : text.substring(0, end)).toLowerCase(Locale.ROOT)
+            .contains("connection: close");
+    }
+}
@@ -0,0 +1,167 @@
+package com.joe.spider.util.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * NIO客户端测试，使用本地服务器测试重定向、超时以及https请求交给阻塞客户端
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 11:20
+ */
+public class NioHttpClientTest {
+
+    /**
+     * 测试相对和绝对路径的重定向，以及重定向次数达到上限后返回重定向响应本身
+     */
+    @Test
+    public void testRedirect() throws Exception {
+        try (LocalServer server = new LocalServer(target -> {
+            switch (target) {
+                case "/a":
+                    return LocalServer.response(302, "Location: b\r\n", "");
+                case "/b":
+                    return LocalServer.response(301, "Location: /c?x=1\r\n", "");
+                case "/c?x=1":
+                    return LocalServer.response(200, "", "done");
+                default:
+                    return LocalServer.response(302, "Location: /loop\r\n", "loop");
+            }
+        })) {
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try (NioHttpClient client = new NioHttpClient(1, 1000, 1000, 0, executor)) {
+                HttpResponse response = get(client, server.url("/a"));
+                Assert.assertEquals(200, response.getStatus());
+                Assert.assertEquals("done", new String(response.getBody(), StandardCharsets.UTF_8));
+                Assert.assertEquals(3, server.getRequests());
+
+                response = get(client, server.url("/loop"));
+                Assert.assertEquals(302, response.getStatus());
+                Assert.assertEquals("loop", new String(response.getBody(), StandardCharsets.UTF_8));
+                Assert.assertEquals(3 + 6, server.getRequests());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 测试服务端在读超时时间内没有响应时请求失败
+     */
+    @Test
+    public void testReadTimeout() throws Exception {
+        try (LocalServer server = new LocalServer(target -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LocalServer.response(200, "", "late");
+        })) {
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try (NioHttpClient client = new NioHttpClient(1, 1000, 300, 0, executor)) {
+                long start = System.currentTimeMillis();
+                try {
+                    get(client, server.url("/slow"));
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof SocketTimeoutException);
+                }
+                Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 测试https请求以及http重定向到https时交给阻塞客户端执行，而不是直接以不支持的协议失败：本地服务器不支持TLS，阻塞
+     * 客户端握手时超时
+     */
+    @Test
+    public void testHttpsHandedToBlockingClient() throws Exception {
+        LocalServer[] holder = new LocalServer[1];
+        try (LocalServer server = new LocalServer(target -> LocalServer.response(302,
+            "Location: " + holder[0].url("/tls").replace("http:", "https:") + "\r\n", ""))) {
+            holder[0] = server;
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try (NioHttpClient client = new NioHttpClient(1, 1000, 300, 0, executor)) {
+                for (String url : new String[] { server.url("/tls").replace("http:", "https:"),
+                                                 server.url("/redirect") }) {
+                    int accepted = server.getAccepted();
+                    try {
+                        get(client, url);
+                        Assert.fail();
+                    } catch (ExecutionException e) {
+                        Assert.assertTrue(e.getCause() instanceof IOException);
+                    }
+                    // 阻塞客户端确实建立了到https地址的连接
+                    Assert.assertTrue(server.getAccepted() > accepted);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 测试同一个host的顺序请求复用同一个连接；多个IO线程时同一个host的请求总是在同一个IO线程中执行，空闲连接不会
+     * 分散在多个线程的连接池中；不复用连接时每个请求建立新连接
+     */
+    @Test
+    public void testKeepAlive() throws Exception {
+        try (LocalServer server = new LocalServer(target -> LocalServer.response(200, "", target))) {
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try (NioHttpClient client = new NioHttpClient(4, 1000, 1000, 0, host -> 2, 30000,
+                null, executor)) {
+                for (int i = 0; i < 5; i++) {
+                    HttpResponse response = get(client, server.url("/" + i));
+                    Assert.assertEquals("/" + i, new String(response.getBody(), StandardCharsets.UTF_8));
+                }
+                Assert.assertEquals(1, server.getAccepted());
+                Assert.assertEquals(1, client.getConnectCount());
+                Assert.assertEquals(4, client.getReuseCount());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        try (LocalServer server = new LocalServer(target -> LocalServer.response(200, "", target))) {
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try (NioHttpClient client = new NioHttpClient(1, 1000, 1000, 0, executor)) {
+                for (int i = 0; i < 5; i++) {
+                    get(client, server.url("/" + i));
+                }
+                Assert.assertEquals(5, server.getAccepted());
+                Assert.assertEquals(0, client.getReuseCount());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static HttpResponse get(NioHttpClient client, String url) throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        client.execute(url, new ResponseHandler() {
+            @Override
+            public void completed(HttpResponse response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,76 @@
+package com.joe.spider.util.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 阻塞流式客户端测试，使用本地服务器测试重定向和超时
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 11:40
+ */
+public class StreamHttpClientTest {
+
+    /**
+     * 测试同协议的重定向，返回的URL是重定向后的URL
+     */
+    @Test
+    public void testRedirect() throws Exception {
+        try (LocalServer server = new LocalServer(target -> "/a".equals(target)
+            ? LocalServer.response(302, "Location: /b\r\n", "")
+            : LocalServer.response(200, "", "done"))) {
+            StreamHttpClient client = new StreamHttpClient(1000, 1000, 0);
+            try (StreamResponse response = client.execute(server.url("/a"))) {
+                Assert.assertEquals(200, response.getStatus());
+                Assert.assertEquals("done", response.readAsString());
+                Assert.assertEquals(server.url("/b"), response.getUrl());
+            }
+        }
+    }
+
+    /**
+     * 测试服务端在读超时时间内没有响应时请求失败
+     */
+    @Test
+    public void testReadTimeout() throws Exception {
+        try (LocalServer server = new LocalServer(target -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return LocalServer.response(200, "", "late");
+        })) {
+            StreamHttpClient client = new StreamHttpClient(1000, 300, 0);
+            long start = System.currentTimeMillis();
+            try {
+                client.execute(server.url("/slow")).close();
+                Assert.fail();
+            } catch (SocketTimeoutException e) {
+                Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+            }
+        }
+    }
+
+    /**
+     * 测试声明了Content-Length的响应体不完整时读取失败，而不是当作完整的响应体返回
+     */
+    @Test
+    public void testTruncatedBody() throws Exception {
+        byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 10\r\nConnection: close\r\n\r\nabc"
+            .getBytes(StandardCharsets.ISO_8859_1);
+        try (LocalServer server = new LocalServer(target -> response)) {
+            StreamHttpClient client = new StreamHttpClient(1000, 1000, 0);
+            try (StreamResponse stream = client.execute(server.url("/truncated"))) {
+                stream.readAsBytes();
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("响应体不完整"));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.joe.spider.util.link;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 链接提取测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 05:10
+ */
+public class LinkExtractorTest {
+
+    private static final String HTML = "<!DOCTYPE html><html><head>"
+                                       + "<link rel=stylesheet href=\"/css/a.css\">"
+                                       + "<script>var s = '<a href=\"/in-script\">';</script>"
+                                       + "<style>a{background:url(x)}</style></head><body>"
+                                       + "<!-- <a href=\"/in-comment\"> -->"
+                                       + "<A HREF='../b/c.html?x=1&amp;y=2#top'>b</A>"
+                                       + "<a data-href=\"/no\" href = d.html>d</a>"
+                                       + "<img src=\"//CDN.Example.com:80/i.png\">"
+                                       + "<a href=\"mailto:a@b.com\">mail</a>"
+                                       + "<a href=\"javascript:void(0)\">js</a>"
+                                       + "<a href=\"HTTPS://Other.com:443\">other</a>"
+                                       + "<a href=\"/中文 页\">zh</a><a href=\"#\">self</a>"
+                                       + "</body></html>";
+
+    /**
+     * 测试提取、解析以及跳过注释和脚本
+     */
+    @Test
+    public void testExtract() {
+        byte[] html = HTML.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = Arrays.asList("http://example.com/css/a.css",
+            "http://example.com/b/c.html?x=1&y=2", "http://example.com/a/d.html",
+            "http://cdn.example.com/i.png", "https://other.com/",
+            "http://example.com/%E4%B8%AD%E6%96%87%20%E9%A1%B5",
+            "http://example.com/a/index.html?q=1");
+        Assert.assertEquals(expected, new ArrayList<>(LinkExtractor
+            .extract("http://Example.com/a/index.html?q=1", html, StandardCharsets.UTF_8)));
+
+        // 逐个字节传入时结果相同，多字节字符被分在多段中
+        List<String> links = new ArrayList<>();
+        LinkExtractor extractor = new LinkExtractor(links::add);
+        extractor.reset("http://Example.com/a/index.html?q=1");
+        for (int i = 0; i < html.length; i++) {
+            extractor.feed(html, i, i + 1);
+        }
+        extractor.finish();
+        Assert.assertEquals(expected, links);
+
+        // base标签
+        Assert.assertEquals(Collections.singletonList("http://example.com/base/x"),
+            new ArrayList<>(LinkExtractor.extract("http://example.com/a/b",
+                "<base href=\"/base/\"><a href=x>".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 测试按照页面的字符集解码属性值，以及不兼容ASCII的字符集
+     */
+    @Test
+    public void testCharset() {
+        Charset gbk = Charset.forName("GBK");
+        String html = "<p>中文</p><a href=\"/中文\">zh</a>";
+        Assert.assertEquals(Collections.singletonList("http://example.com/%E4%B8%AD%E6%96%87"),
+            new ArrayList<>(LinkExtractor.extract("http://example.com/", html.getBytes(gbk), gbk)));
+
+        Assert.assertTrue(LinkExtractor.isSupported(StandardCharsets.ISO_8859_1));
+        Assert.assertFalse(LinkExtractor.isSupported(StandardCharsets.UTF_16));
+        try {
+            new LinkExtractor(link -> {
+            }).reset("http://example.com/", StandardCharsets.UTF_16LE);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+    }
+
+    /**
+     * 测试点段的处理以及跟进范围
+     */
+    @Test
+    public void testResolveAndScope() {
+        Assert.assertEquals("/a/g", UrlResolver.removeDotSegments("/a/b/c/./../../g"));
+        Assert.assertEquals("/", UrlResolver.removeDotSegments("/../.."));
+        Assert.assertEquals("/a/", UrlResolver.removeDotSegments("/a/b/.."));
+
+        LinkScope scope = new LinkScope(true, 2, Collections.singletonList("/doc/"),
+            Collections.singletonList("\\.pdf$"));
+        Assert.assertTrue(scope.canFollow(1));
+        Assert.assertFalse(scope.canFollow(2));
+        Assert.assertTrue(scope.accept("Example.com", "http://example.com:8080/doc/1"));
+        Assert.assertFalse(scope.accept("example.com", "http://other.com/doc/1"));
+        Assert.assertFalse(scope.accept("example.com", "http://example.com/doc/1.pdf"));
+        Assert.assertFalse(scope.accept("example.com", "http://example.com/blog/1"));
+        Assert.assertEquals("example.com", LinkScope.host("http://u:p@example.com:81/x"));
+        Assert.assertEquals("[::1]", LinkScope.host("http://[::1]:8080/"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.joe.spider.util.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 直方图测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 23:50
+ */
+public class HistogramTest {
+
+    /**
+     * 测试桶的划分是连续的，并且桶中的最大值与下一个桶相邻
+     */
+    @Test
+    public void testIndex() {
+        int last = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = Histogram.index(value);
+            Assert.assertTrue(index == last || index == last + 1);
+            Assert.assertTrue(Histogram.highestValue(index) >= value);
+            if (index != last && index > 0) {
+                Assert.assertEquals(value - 1, Histogram.highestValue(index - 1));
+            }
+            last = index;
+        }
+        Assert.assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.index(Long.MAX_VALUE)));
+    }
+
+    /**
+     * 测试百分位数的误差小于1%，超过最大值的按照最大值记录
+     */
+    @Test
+    public void testPercentile() {
+        Histogram histogram = new Histogram(1000000);
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(5000000);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100001, snapshot.getCount());
+        Assert.assertEquals(1, snapshot.getMin());
+        Assert.assertEquals(5000000, snapshot.getMax());
+        Assert.assertEquals(5000000, snapshot.getPercentile(100));
+        Assert.assertEquals(1, snapshot.getPercentile(0));
+        for (double p : new double[] { 10, 50, 90, 99, 99.9 }) {
+            double expected = p * 1000;
+            Assert.assertEquals(expected, snapshot.getPercentile(p), expected / 100);
+        }
+        Assert.assertEquals(0, new Histogram(10).snapshot().getPercentile(50));
+    }
+
+    /**
+     * 测试多线程并发记录不会丢失
+     */
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        Histogram histogram = new Histogram(1 << 20);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i & 1023);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(800000, snapshot.getCount());
+        Assert.assertEquals(1023, snapshot.getMax());
+    }
+}
@@ -0,0 +1,67 @@
+package com.joe.spider.util.robots;
+
+import java.net.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * robots.txt规则测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月19日 03:10
+ */
+public class RobotsRulesTest {
+
+    private static final String ROBOTS = "# comment\n" + "User-agent: *\n" + "Disallow: /\n"
+                                         + "\n" + "User-agent: other\n"
+                                         + "User-agent: Spider-Util/1.0\n"
+                                         + "Disallow: /private\n" + "Allow: /private/public\n"
+                                         + "Disallow: /*.pdf$\n" + "Allow: /p\n"
+                                         + "Disallow: /page\n" + "Crawl-delay: 1.5\n";
+
+    /**
+     * 测试选择匹配的组、最长匹配优先以及通配符
+     */
+    @Test
+    public void testMatch() throws Exception {
+        RobotsRules rules = RobotsRules.parse(ROBOTS, "spider-util");
+        Assert.assertEquals(1500, rules.getCrawlDelay());
+        Assert.assertTrue(rules.isAllowed("/"));
+        Assert.assertTrue(rules.isAllowed("/index.html"));
+        Assert.assertFalse(rules.isAllowed("/private"));
+        Assert.assertFalse(rules.isAllowed("/private/a"));
+        Assert.assertTrue(rules.isAllowed("/private/public/a"));
+        Assert.assertFalse(rules.isAllowed("/a/b.pdf"));
+        Assert.assertTrue(rules.isAllowed("/a/b.pdf?x=1"));
+        Assert.assertTrue(rules.isAllowed("/pa"));
+        Assert.assertFalse(rules.isAllowed("/page/1"));
+        Assert.assertTrue(rules.isAllowed(new URL("http://a.com/robots.txt")));
+        Assert.assertFalse(rules.isAllowed(new URL("http://a.com/private?q=1")));
+
+        // 没有匹配的组时使用*组
+        RobotsRules fallback = RobotsRules.parse(ROBOTS, "another");
+        Assert.assertEquals(0, fallback.getCrawlDelay());
+        Assert.assertFalse(fallback.isAllowed(new URL("http://a.com")));
+        Assert.assertTrue(fallback.isAllowed(new URL("http://a.com/robots.txt")));
+    }
+
+    /**
+     * 测试相同长度时Allow优先，以及非ASCII路径和%XX的统一编码
+     */
+    @Test
+    public void testPrecedenceAndEncoding() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /a*\nAllow: /a$\n"
+                                              + "Disallow: /b\nAllow: /b\n"
+                                              + "Disallow: /中文\nDisallow: /%7euser",
+            "spider-util");
+        Assert.assertTrue(rules.isAllowed("/a"));
+        Assert.assertFalse(rules.isAllowed("/ab"));
+        Assert.assertTrue(rules.isAllowed("/b/c"));
+        Assert.assertFalse(rules.isAllowed("/%E4%B8%AD%E6%96%87/1"));
+        Assert.assertFalse(rules.isAllowed("/中文"));
+        Assert.assertFalse(rules.isAllowed("/%7Euser"));
+        Assert.assertTrue(RobotsRules.ALLOW_ALL.isAllowed("/"));
+        Assert.assertFalse(RobotsRules.DISALLOW_ALL.isAllowed("/"));
+    }
+}
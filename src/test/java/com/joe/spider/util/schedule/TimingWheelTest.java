@@ -0,0 +1,141 @@
+package com.joe.spider.util.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 时间轮测试
+ *
+ * @author JoeKerouac
+ * @version 2026年10月18日 11:30
+ */
+public class TimingWheelTest {
+
+    /**
+     * 测试任务按照绝对截止时间取出，不会提前，取消的任务不会被取出
+     */
+    @Test
+    public void testTake() throws Exception {
+        TimingWheel<TestTask> wheel = new TimingWheel<>(5, 8);
+        long now = System.currentTimeMillis();
+        Random random = new Random();
+        List<TestTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // 跨越多层时间轮
+            TestTask task = new TestTask(now + random.nextInt(1000));
+            tasks.add(task);
+            wheel.add(task);
+        }
+        TestTask cancelled = tasks.get(0);
+        Assert.assertTrue(wheel.cancel(cancelled));
+        Assert.assertEquals(tasks.size() - 1, wheel.size());
+
+        long last = 0;
+        for (int i = 1; i < tasks.size(); i++) {
+            TestTask task = wheel.take();
+            Assert.assertNotSame(cancelled, task);
+            Assert.assertTrue(System.currentTimeMillis() >= task.getDeadline());
+            // 精度为一个tick
+            Assert.assertTrue(task.getDeadline() > last - 5);
+            last = Math.max(last, task.getDeadline());
+        }
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    /**
+     * 测试批量添加的任务与单个添加的任务一起按照截止时间取出
+     */
+    @Test
+    public void testAddAll() throws Exception {
+        TimingWheel<TestTask> wheel = new TimingWheel<>(5, 8);
+        long now = System.currentTimeMillis();
+        List<TestTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new TestTask(now + i * 3));
+        }
+        wheel.add(new TestTask(now + 150));
+        wheel.addAll(tasks);
+        wheel.add(new TestTask(now + 1));
+        Assert.assertEquals(tasks.size() + 2, wheel.size());
+
+        for (int i = 0; i < tasks.size() + 2; i++) {
+            TestTask task = wheel.take();
+            Assert.assertTrue(System.currentTimeMillis() >= task.getDeadline());
+        }
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    /**
+     * 测试截止时间相同的任务按照添加顺序取出
+     */
+    @Test
+    public void testSameDeadlineOrder() throws Exception {
+        TimingWheel<TestTask> wheel = new TimingWheel<>(5, 8);
+        long deadline = System.currentTimeMillis() + 20;
+        List<TestTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(new TestTask(deadline));
+        }
+        wheel.add(tasks.get(0));
+        wheel.addAll(tasks.subList(1, 4));
+        wheel.add(tasks.get(4));
+        wheel.add(tasks.get(5));
+        for (TestTask task : tasks) {
+            Assert.assertSame(task, wheel.take());
+        }
+    }
+
+    /**
+     * 测试只有很久之后到期的任务时消费者一直阻塞到该任务所在的槽位到期，不会每个tick醒来，之后添加的较早的任务仍然及时取出
+     */
+    @Test
+    public void testIdleWakeup() throws Exception {
+        TimingWheel<TestTask> wheel = new TimingWheel<>(10, 8);
+        long now = System.currentTimeMillis();
+        TestTask far = new TestTask(now + 60000);
+        wheel.add(far);
+        BlockingQueue<TestTask> taken = new LinkedBlockingQueue<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                while (true) {
+                    taken.add(wheel.take());
+                }
+            } catch (InterruptedException e) {
+                // 测试结束
+            }
+        });
+        consumer.start();
+        try {
+            Thread.sleep(100);
+            long wakeup = wheel.getNextWakeup();
+            // 任务在上层时间轮中，槽位的开始时间不晚于截止时间
+            Assert.assertTrue(wakeup > now + 1000);
+            Assert.assertTrue(wakeup <= far.getDeadline() + 10);
+            Thread.sleep(100);
+            Assert.assertEquals(wakeup, wheel.getNextWakeup());
+
+            TestTask near = new TestTask(System.currentTimeMillis() + 50);
+            wheel.add(near);
+            Assert.assertSame(near, taken.poll(1, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() >= near.getDeadline());
+            Assert.assertNull(taken.poll(100, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, wheel.size());
+        } finally {
+            consumer.interrupt();
+            consumer.join();
+        }
+    }
+
+    private static class TestTask extends WheelTask {
+        TestTask(long deadline) {
+            super(deadline);
+        }
+    }
+}